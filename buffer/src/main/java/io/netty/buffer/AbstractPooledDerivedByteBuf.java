@@ -0,0 +1,131 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import io.netty.util.Recycler.Handle;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Abstract base class for derived {@link ByteBuf} implementations which are recycled and maintain their own
+ * reference count.  A derived buffer keeps its parent retained until it is released itself, so unlike
+ * {@link AbstractDerivedByteBuf} it can be handed over without an extra wrapper allocation per
+ * {@code slice().retain()}.
+ */
+abstract class AbstractPooledDerivedByteBuf<T extends AbstractPooledDerivedByteBuf<T>>
+        extends AbstractReferenceCountedByteBuf {
+
+    private final Handle<T> recyclerHandle;
+    private AbstractByteBuf rootParent;
+    /**
+     * Deallocations of a pooled derived buffer should always propagate through the entire chain of derived buffers.
+     * This is because each pooled derived buffer maintains its own reference count and we should respect each one.
+     * If deallocations cause a release of the "root parent" then we may prematurely release the underlying
+     * content before all the derived buffers have been released.
+     */
+    private ByteBuf parent;
+
+    @SuppressWarnings("unchecked")
+    AbstractPooledDerivedByteBuf(Handle<? extends AbstractPooledDerivedByteBuf<T>> recyclerHandle) {
+        super(0);
+        this.recyclerHandle = (Handle<T>) recyclerHandle;
+    }
+
+    @Override
+    public final AbstractByteBuf unwrap() {
+        return rootParent;
+    }
+
+    final T init(
+            AbstractByteBuf unwrapped, ByteBuf wrapped, int readerIndex, int writerIndex, int maxCapacity) {
+
+        wrapped.retain(); // Retain up front to ensure the parent is accessible before doing more work.
+        parent = wrapped;
+        rootParent = unwrapped;
+
+        try {
+            maxCapacity(maxCapacity);
+            setIndex0(readerIndex, writerIndex); // It is assumed the bounds checking is done by the caller.
+            setRefCnt(1);
+            discardMarks();
+
+            @SuppressWarnings("unchecked")
+            final T castThis = (T) this;
+            wrapped = null;
+            return castThis;
+        } finally {
+            if (wrapped != null) {
+                parent = rootParent = null;
+                wrapped.release();
+            }
+        }
+    }
+
+    @Override
+    protected final void deallocate() {
+        // We need to first store a reference to the parent before recycle this instance. This is needed as
+        // otherwise it is possible that the same AbstractPooledDerivedByteBuf is again obtained and init(...) is
+        // called before we actually have a chance to call release(). This leads to call release() on the wrong parent.
+        ByteBuf parent = this.parent;
+        this.parent = rootParent = null;
+        @SuppressWarnings("unchecked")
+        final T castThis = (T) this;
+        recyclerHandle.recycle(castThis);
+        parent.release();
+    }
+
+    @Override
+    public final ByteBufAllocator alloc() {
+        return unwrap().alloc();
+    }
+
+    @Override
+    public final ByteOrder order() {
+        return unwrap().order();
+    }
+
+    @Override
+    public final boolean isDirect() {
+        return unwrap().isDirect();
+    }
+
+    @Override
+    public boolean hasArray() {
+        return unwrap().hasArray();
+    }
+
+    @Override
+    public byte[] array() {
+        return unwrap().array();
+    }
+
+    @Override
+    public boolean hasMemoryAddress() {
+        return unwrap().hasMemoryAddress();
+    }
+
+    @Override
+    public final int nioBufferCount() {
+        return unwrap().nioBufferCount();
+    }
+
+    @Override
+    public final ByteBuffer internalNioBuffer(int index, int length) {
+        return nioBuffer(index, length);
+    }
+}
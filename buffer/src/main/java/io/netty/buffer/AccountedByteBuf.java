@@ -0,0 +1,289 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import io.netty.buffer.AccountingByteBufAllocator.Accounting;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ScatteringByteChannel;
+
+/**
+ * A buffer allocated by an {@link AccountingByteBufAllocator}.  Derived buffers share the {@link Accounting} of the
+ * buffer they were derived from, so the charged bytes are returned to the quota no matter which of them releases
+ * the underlying buffer.
+ */
+final class AccountedByteBuf extends WrappedByteBuf {
+
+    private final Accounting accounting;
+
+    AccountedByteBuf(ByteBuf buf, Accounting accounting) {
+        super(buf);
+        this.accounting = accounting;
+    }
+
+    @Override
+    public boolean release() {
+        boolean deallocated = super.release();
+        if (deallocated) {
+            accounting.release();
+        }
+        return deallocated;
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        boolean deallocated = super.release(decrement);
+        if (deallocated) {
+            accounting.release();
+        }
+        return deallocated;
+    }
+
+    @Override
+    public ByteBuf capacity(int newCapacity) {
+        super.capacity(newCapacity);
+        accounting.update();
+        return this;
+    }
+
+    @Override
+    public ByteBuf ensureWritable(int minWritableBytes) {
+        super.ensureWritable(minWritableBytes);
+        accounting.update();
+        return this;
+    }
+
+    @Override
+    public int ensureWritable(int minWritableBytes, boolean force) {
+        int ret = super.ensureWritable(minWritableBytes, force);
+        accounting.update();
+        return ret;
+    }
+
+    @Override
+    public ByteBuf writeBoolean(boolean value) {
+        super.writeBoolean(value);
+        accounting.update();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeByte(int value) {
+        super.writeByte(value);
+        accounting.update();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeShort(int value) {
+        super.writeShort(value);
+        accounting.update();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeShortLE(int value) {
+        super.writeShortLE(value);
+        accounting.update();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeMedium(int value) {
+        super.writeMedium(value);
+        accounting.update();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeMediumLE(int value) {
+        super.writeMediumLE(value);
+        accounting.update();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeInt(int value) {
+        super.writeInt(value);
+        accounting.update();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeIntLE(int value) {
+        super.writeIntLE(value);
+        accounting.update();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeLong(long value) {
+        super.writeLong(value);
+        accounting.update();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeLongLE(long value) {
+        super.writeLongLE(value);
+        accounting.update();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeChar(int value) {
+        super.writeChar(value);
+        accounting.update();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeFloat(float value) {
+        super.writeFloat(value);
+        accounting.update();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeDouble(double value) {
+        super.writeDouble(value);
+        accounting.update();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeBytes(ByteBuf src) {
+        super.writeBytes(src);
+        accounting.update();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeBytes(ByteBuf src, int length) {
+        super.writeBytes(src, length);
+        accounting.update();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeBytes(ByteBuf src, int srcIndex, int length) {
+        super.writeBytes(src, srcIndex, length);
+        accounting.update();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeBytes(byte[] src) {
+        super.writeBytes(src);
+        accounting.update();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeBytes(byte[] src, int srcIndex, int length) {
+        super.writeBytes(src, srcIndex, length);
+        accounting.update();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeBytes(ByteBuffer src) {
+        super.writeBytes(src);
+        accounting.update();
+        return this;
+    }
+
+    @Override
+    public int writeBytes(InputStream in, int length) throws IOException {
+        int ret = super.writeBytes(in, length);
+        accounting.update();
+        return ret;
+    }
+
+    @Override
+    public int writeBytes(ScatteringByteChannel in, int length) throws IOException {
+        int ret = super.writeBytes(in, length);
+        accounting.update();
+        return ret;
+    }
+
+    @Override
+    public int writeBytes(FileChannel in, long position, int length) throws IOException {
+        int ret = super.writeBytes(in, position, length);
+        accounting.update();
+        return ret;
+    }
+
+    @Override
+    public ByteBuf writeZero(int length) {
+        super.writeZero(length);
+        accounting.update();
+        return this;
+    }
+
+    @Override
+    public ByteBuf order(ByteOrder endianness) {
+        if (order() == endianness) {
+            return this;
+        }
+        return new AccountedByteBuf(super.order(endianness), accounting);
+    }
+
+    @Override
+    public ByteBuf slice() {
+        return new AccountedByteBuf(super.slice(), accounting);
+    }
+
+    @Override
+    public ByteBuf retainedSlice() {
+        return new AccountedByteBuf(super.slice(), accounting).retain();
+    }
+
+    @Override
+    public ByteBuf slice(int index, int length) {
+        return new AccountedByteBuf(super.slice(index, length), accounting);
+    }
+
+    @Override
+    public ByteBuf retainedSlice(int index, int length) {
+        return new AccountedByteBuf(super.slice(index, length), accounting).retain();
+    }
+
+    @Override
+    public ByteBuf duplicate() {
+        return new AccountedByteBuf(super.duplicate(), accounting);
+    }
+
+    @Override
+    public ByteBuf retainedDuplicate() {
+        return new AccountedByteBuf(super.duplicate(), accounting).retain();
+    }
+
+    @Override
+    public ByteBuf readSlice(int length) {
+        return new AccountedByteBuf(super.readSlice(length), accounting);
+    }
+
+    @Override
+    public ByteBuf readRetainedSlice(int length) {
+        return new AccountedByteBuf(super.readSlice(length), accounting).retain();
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import io.netty.util.internal.StringUtil;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link ByteBufAllocator} which decorates another {@link ByteBufAllocator} and charges the capacity of every
+ * buffer it allocates to a {@link ByteBufQuota} until the buffer is released.  It is meant to be installed per
+ * {@code Channel} via {@code ChannelConfig.setAllocator(ByteBufAllocator)}, so that a single connection (or a group of
+ * connections sharing a quota) can not pin an unbounded amount of memory.
+ * <p>
+ * An allocation which would exceed the hard limit of the quota fails with a {@link ByteBufQuotaExceededException}.
+ * Buffers which grow after they were allocated are charged for their new capacity, but never fail because of the
+ * quota.  {@link CompositeByteBuf}s are not charged themselves; their components are if they were allocated by this
+ * allocator.
+ */
+public final class AccountingByteBufAllocator implements ByteBufAllocator {
+
+    private final ByteBufAllocator delegate;
+    private final ByteBufQuota quota;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param delegate the {@link ByteBufAllocator} which allocates the buffers
+     * @param quota    the {@link ByteBufQuota} which is charged for the allocated buffers
+     */
+    public AccountingByteBufAllocator(ByteBufAllocator delegate, ByteBufQuota quota) {
+        if (delegate == null) {
+            throw new NullPointerException("delegate");
+        }
+        if (quota == null) {
+            throw new NullPointerException("quota");
+        }
+        this.delegate = delegate;
+        this.quota = quota;
+    }
+
+    /**
+     * Returns the {@link ByteBufAllocator} which allocates the buffers.
+     */
+    public ByteBufAllocator delegate() {
+        return delegate;
+    }
+
+    /**
+     * Returns the {@link ByteBufQuota} which is charged for the allocated buffers.
+     */
+    public ByteBufQuota quota() {
+        return quota;
+    }
+
+    @Override
+    public ByteBuf buffer() {
+        return account(delegate.buffer());
+    }
+
+    @Override
+    public ByteBuf buffer(int initialCapacity) {
+        checkQuota(initialCapacity);
+        return account(delegate.buffer(initialCapacity));
+    }
+
+    @Override
+    public ByteBuf buffer(int initialCapacity, int maxCapacity) {
+        checkQuota(initialCapacity);
+        return account(delegate.buffer(initialCapacity, maxCapacity));
+    }
+
+    @Override
+    public ByteBuf ioBuffer() {
+        return account(delegate.ioBuffer());
+    }
+
+    @Override
+    public ByteBuf ioBuffer(int initialCapacity) {
+        checkQuota(initialCapacity);
+        return account(delegate.ioBuffer(initialCapacity));
+    }
+
+    @Override
+    public ByteBuf ioBuffer(int initialCapacity, int maxCapacity) {
+        checkQuota(initialCapacity);
+        return account(delegate.ioBuffer(initialCapacity, maxCapacity));
+    }
+
+    @Override
+    public ByteBuf heapBuffer() {
+        return account(delegate.heapBuffer());
+    }
+
+    @Override
+    public ByteBuf heapBuffer(int initialCapacity) {
+        checkQuota(initialCapacity);
+        return account(delegate.heapBuffer(initialCapacity));
+    }
+
+    @Override
+    public ByteBuf heapBuffer(int initialCapacity, int maxCapacity) {
+        checkQuota(initialCapacity);
+        return account(delegate.heapBuffer(initialCapacity, maxCapacity));
+    }
+
+    @Override
+    public ByteBuf directBuffer() {
+        return account(delegate.directBuffer());
+    }
+
+    @Override
+    public ByteBuf directBuffer(int initialCapacity) {
+        checkQuota(initialCapacity);
+        return account(delegate.directBuffer(initialCapacity));
+    }
+
+    @Override
+    public ByteBuf directBuffer(int initialCapacity, int maxCapacity) {
+        checkQuota(initialCapacity);
+        return account(delegate.directBuffer(initialCapacity, maxCapacity));
+    }
+
+    @Override
+    public CompositeByteBuf compositeBuffer() {
+        return delegate.compositeBuffer();
+    }
+
+    @Override
+    public CompositeByteBuf compositeBuffer(int maxNumComponents) {
+        return delegate.compositeBuffer(maxNumComponents);
+    }
+
+    @Override
+    public CompositeByteBuf compositeHeapBuffer() {
+        return delegate.compositeHeapBuffer();
+    }
+
+    @Override
+    public CompositeByteBuf compositeHeapBuffer(int maxNumComponents) {
+        return delegate.compositeHeapBuffer(maxNumComponents);
+    }
+
+    @Override
+    public CompositeByteBuf compositeDirectBuffer() {
+        return delegate.compositeDirectBuffer();
+    }
+
+    @Override
+    public CompositeByteBuf compositeDirectBuffer(int maxNumComponents) {
+        return delegate.compositeDirectBuffer(maxNumComponents);
+    }
+
+    @Override
+    public boolean isDirectBufferPooled() {
+        return delegate.isDirectBufferPooled();
+    }
+
+    @Override
+    public int calculateNewCapacity(int minNewCapacity, int maxCapacity) {
+        return delegate.calculateNewCapacity(minNewCapacity, maxCapacity);
+    }
+
+    @Override
+    public String toString() {
+        return StringUtil.simpleClassName(this) + "(delegate: " + delegate + ", quota: " + quota + ')';
+    }
+
+    /**
+     * Fails fast if allocating {@code bytes} would exceed the hard limit, so that no memory is allocated at all.
+     */
+    private void checkQuota(int bytes) {
+        ByteBufQuota exceeded = quota.exceededBy(bytes);
+        if (exceeded != null) {
+            throw newQuotaExceededException(bytes, exceeded);
+        }
+    }
+
+    private ByteBuf account(ByteBuf buf) {
+        final int capacity = buf.capacity();
+        ByteBufQuota exceeded = quota.tryAcquire(capacity);
+        if (exceeded != null) {
+            buf.release();
+            throw newQuotaExceededException(capacity, exceeded);
+        }
+        return new AccountedByteBuf(buf, new Accounting(quota, buf, capacity));
+    }
+
+    private static ByteBufQuotaExceededException newQuotaExceededException(int bytes, ByteBufQuota exceeded) {
+        exceeded.incrementRejectedAllocations();
+        return new ByteBufQuotaExceededException(
+                "failed to allocate " + bytes + " byte(s) (used: " + exceeded.usedBytes() +
+                ", hardLimit: " + exceeded.hardLimit() + ", quota: " + exceeded.name() + ')');
+    }
+
+    /**
+     * Keeps track of the bytes charged to the quota for one allocated buffer and all buffers derived from it.
+     */
+    static final class Accounting {
+        private static final int RELEASED = -1;
+
+        private final ByteBufQuota quota;
+        private final ByteBuf buf;
+        private final AtomicInteger chargedBytes;
+
+        Accounting(ByteBufQuota quota, ByteBuf buf, int chargedBytes) {
+            this.quota = quota;
+            this.buf = buf;
+            this.chargedBytes = new AtomicInteger(chargedBytes);
+        }
+
+        /**
+         * Charges the difference between the current capacity of the buffer and the charged bytes.
+         */
+        void update() {
+            for (;;) {
+                int charged = chargedBytes.get();
+                if (charged == RELEASED) {
+                    return;
+                }
+                int capacity = buf.capacity();
+                if (capacity == charged) {
+                    return;
+                }
+                if (chargedBytes.compareAndSet(charged, capacity)) {
+                    quota.add(capacity - charged);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Returns the charged bytes to the quota once the buffer was released.
+         */
+        void release() {
+            int charged = chargedBytes.getAndSet(RELEASED);
+            if (charged > 0) {
+                quota.add(-charged);
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the number of bytes outstanding in the {@link ByteBuf}s allocated by one or more
+ * {@link AccountingByteBufAllocator}s, for example the allocator of a single {@code Channel} or
+ * of all channels of one tenant.  A quota may have a parent quota, which is charged with every byte charged to the
+ * quota itself, so that a per-channel quota can be nested into a per-tenant quota.
+ * <p>
+ * The hard limit is enforced when a buffer is allocated.  The soft limit is never enforced by the quota; it can be
+ * used to signal backpressure, for example by disabling {@code ChannelConfig.setAutoRead(boolean)}
+ * while {@link #isSoftLimitExceeded()} returns {@code true}.
+ */
+public final class ByteBufQuota {
+
+    private final String name;
+    private final ByteBufQuota parent;
+    private final long softLimit;
+    private final long hardLimit;
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final LongCounter numRejectedAllocations = PlatformDependent.newLongCounter();
+
+    /**
+     * Creates a new quota.
+     *
+     * @param name      the name of the quota
+     * @param softLimit the number of bytes above which {@link #isSoftLimitExceeded()} returns {@code true}.
+     *                  {@code 0} disables the soft limit.
+     * @param hardLimit the number of bytes above which allocations fail. {@code 0} disables the hard limit.
+     */
+    public ByteBufQuota(String name, long softLimit, long hardLimit) {
+        this(name, null, softLimit, hardLimit);
+    }
+
+    /**
+     * Creates a new quota which is nested into the specified {@code parent} quota.
+     *
+     * @param name      the name of the quota
+     * @param parent    the quota which is charged with every byte charged to this quota, or {@code null}
+     * @param softLimit the number of bytes above which {@link #isSoftLimitExceeded()} returns {@code true}.
+     *                  {@code 0} disables the soft limit.
+     * @param hardLimit the number of bytes above which allocations fail. {@code 0} disables the hard limit.
+     */
+    public ByteBufQuota(String name, ByteBufQuota parent, long softLimit, long hardLimit) {
+        if (name == null) {
+            throw new NullPointerException("name");
+        }
+        if (softLimit < 0) {
+            throw new IllegalArgumentException("softLimit: " + softLimit + " (expected: >= 0)");
+        }
+        if (hardLimit < 0) {
+            throw new IllegalArgumentException("hardLimit: " + hardLimit + " (expected: >= 0)");
+        }
+        if (hardLimit > 0 && softLimit > hardLimit) {
+            throw new IllegalArgumentException(
+                    "softLimit: " + softLimit + " (expected: <= hardLimit(" + hardLimit + "))");
+        }
+        this.name = name;
+        this.parent = parent;
+        this.softLimit = softLimit;
+        this.hardLimit = hardLimit;
+    }
+
+    /**
+     * Returns the name of this quota.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the quota this quota is nested into, or {@code null}.
+     */
+    public ByteBufQuota parent() {
+        return parent;
+    }
+
+    /**
+     * Returns the soft limit in bytes, {@code 0} if disabled.
+     */
+    public long softLimit() {
+        return softLimit;
+    }
+
+    /**
+     * Returns the hard limit in bytes, {@code 0} if disabled.
+     */
+    public long hardLimit() {
+        return hardLimit;
+    }
+
+    /**
+     * Returns the number of bytes outstanding in the buffers charged to this quota.
+     */
+    public long usedBytes() {
+        return usedBytes.get();
+    }
+
+    /**
+     * Returns the number of allocations which failed because of the hard limit of this quota.
+     */
+    public long numRejectedAllocations() {
+        return numRejectedAllocations.value();
+    }
+
+    /**
+     * Returns {@code true} if the soft limit of this quota or of one of its parents is exceeded.
+     */
+    public boolean isSoftLimitExceeded() {
+        return softLimit > 0 && usedBytes.get() > softLimit || parent != null && parent.isSoftLimitExceeded();
+    }
+
+    /**
+     * Returns the quota whose hard limit would be exceeded if {@code bytes} were charged to this quota, or
+     * {@code null}.
+     */
+    ByteBufQuota exceededBy(long bytes) {
+        for (ByteBufQuota q = this; q != null; q = q.parent) {
+            if (q.hardLimit > 0 && q.usedBytes.get() + bytes > q.hardLimit) {
+                return q;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Charges {@code bytes} to this quota and its parents unless one of their hard limits would be exceeded.
+     *
+     * @return the quota whose hard limit would be exceeded, or {@code null} if the bytes were charged
+     */
+    ByteBufQuota tryAcquire(long bytes) {
+        if (hardLimit > 0) {
+            for (;;) {
+                long used = usedBytes.get();
+                long newUsed = used + bytes;
+                if (newUsed > hardLimit) {
+                    return this;
+                }
+                if (usedBytes.compareAndSet(used, newUsed)) {
+                    break;
+                }
+            }
+        } else {
+            usedBytes.addAndGet(bytes);
+        }
+
+        if (parent != null) {
+            ByteBufQuota exceeded = parent.tryAcquire(bytes);
+            if (exceeded != null) {
+                usedBytes.addAndGet(-bytes);
+                return exceeded;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Counts an allocation which failed because of the hard limit of this quota.
+     */
+    void incrementRejectedAllocations() {
+        numRejectedAllocations.increment();
+    }
+
+    /**
+     * Charges {@code delta} bytes to this quota and its parents regardless of their limits.
+     */
+    void add(long delta) {
+        for (ByteBufQuota q = this; q != null; q = q.parent) {
+            q.usedBytes.addAndGet(delta);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(64)
+                .append(StringUtil.simpleClassName(this))
+                .append("(name: ").append(name)
+                .append(", usedBytes: ").append(usedBytes())
+                .append(", softLimit: ").append(softLimit)
+                .append(", hardLimit: ").append(hardLimit)
+                .append(", numRejectedAllocations: ").append(numRejectedAllocations())
+                .append(')').toString();
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+/**
+ * An {@link IllegalStateException} which is raised by an {@link AccountingByteBufAllocator} if an allocation would
+ * exceed the hard limit of its {@link ByteBufQuota}.
+ */
+public class ByteBufQuotaExceededException extends IllegalStateException {
+
+    private static final long serialVersionUID = -8546980369218208213L;
+
+    public ByteBufQuotaExceededException() { }
+
+    public ByteBufQuotaExceededException(String message) {
+        super(message);
+    }
+
+    public ByteBufQuotaExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public ByteBufQuotaExceededException(Throwable cause) {
+        super(cause);
+    }
+}
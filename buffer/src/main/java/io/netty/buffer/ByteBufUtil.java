@@ -343,9 +343,80 @@ public final class ByteBufUtil {
             return -1;
         }
 
+        if (buffer instanceof AbstractByteBuf) {
+            AbstractByteBuf buf = (AbstractByteBuf) buffer;
+            buf.checkIndex(fromIndex, toIndex - fromIndex);
+            return firstIndexOf(buf, fromIndex, toIndex, value, value);
+        }
         return buffer.forEachByte(fromIndex, toIndex - fromIndex, new ByteProcessor.IndexOfProcessor(value));
     }
 
+    /**
+     * Returns the bytes searched by {@code processor} if it is one of the {@link ByteProcessor}s which stop at one or
+     * two specific bytes, packed as {@code value1 | value2 << 8}, or {@code -1} if {@code processor} needs to be
+     * called for each byte.
+     */
+    static int searchedBytes(ByteProcessor processor) {
+        if (processor == ByteProcessor.FIND_LF) {
+            return '\n' | '\n' << 8;
+        }
+        if (processor == ByteProcessor.FIND_CRLF) {
+            return '\r' | '\n' << 8;
+        }
+        if (processor == ByteProcessor.FIND_CR) {
+            return '\r' | '\r' << 8;
+        }
+        if (processor == ByteProcessor.FIND_NUL) {
+            return 0;
+        }
+        if (processor == ByteProcessor.FIND_SEMI_COLON) {
+            return ';' | ';' << 8;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the first byte in {@code [fromIndex, toIndex)} which is either {@code value1} or
+     * {@code value2}, or {@code -1} if there is none. The range must have been validated by the caller.
+     * <p>
+     * Eight bytes are read at once and compared to both values without branching on every byte. See
+     * <a href="https://graphics.stanford.edu/~seander/bithacks.html#ZeroInWord">Determine if a word has a zero
+     * byte</a>.
+     */
+    static int firstIndexOf(AbstractByteBuf buffer, int fromIndex, int toIndex, byte value1, byte value2) {
+        final long pattern1 = compilePattern(value1);
+        final long pattern2 = compilePattern(value2);
+        int i = fromIndex;
+        for (final int longEnd = toIndex - 7; i < longEnd; i += 8) {
+            // Read in little endian so the byte at the lowest index ends up in the least significant bits.
+            long word = buffer._getLongLE(i);
+            long matches = zeroBytes(word ^ pattern1) | zeroBytes(word ^ pattern2);
+            if (matches != 0) {
+                // False positives can only occur in bytes above the first zero byte, so the lowest set bit marks
+                // the first match.
+                return i + (Long.numberOfTrailingZeros(matches) >>> 3);
+            }
+        }
+        for (; i < toIndex; i ++) {
+            byte b = buffer._getByte(i);
+            if (b == value1 || b == value2) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long compilePattern(byte value) {
+        return (value & 0xFFL) * 0x0101010101010101L;
+    }
+
+    /**
+     * Returns a word which has the highest bit of each byte set which is {@code 0} in {@code word}.
+     */
+    private static long zeroBytes(long word) {
+        return (word - 0x0101010101010101L) & ~word & 0x8080808080808080L;
+    }
+
     private static int lastIndexOf(ByteBuf buffer, int fromIndex, int toIndex, byte value) {
         fromIndex = Math.min(fromIndex, buffer.capacity());
         if (fromIndex < 0 || buffer.capacity() == 0) {
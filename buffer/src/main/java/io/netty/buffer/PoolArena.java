@@ -17,6 +17,7 @@
 package io.netty.buffer;
 
 import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.MathUtil;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
 
@@ -37,6 +38,19 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     static final int numTinySubpagePools = 512 >>> 4;
 
+    /**
+     * The number of size classes per doubling of the size when fine-grained size classes are used. Must be a power
+     * of two.
+     */
+    static final int SIZE_CLASSES_PER_DOUBLING = 4;
+    private static final int LOG2_SIZE_CLASSES_PER_DOUBLING = 2;
+    private static final int LOG2_SMALL_MIN = 9; // 512
+
+    /**
+     * The number of pages the largest sub-page backed size class may span when fine-grained size classes are used.
+     */
+    private static final int MAX_SUBPAGE_PAGES = 8;
+
     final PooledByteBufAllocator parent;
 
     private final int maxOrder;
@@ -44,7 +58,16 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     final int pageShifts;
     final int chunkSize;
     final int subpageOverflowMask;
+    final boolean fineSizeClasses;
+    // Every normalized capacity that is smaller than this is served by a PoolSubpage.
+    final int subpageLimit;
     final int numSmallSubpagePools;
+    // Chunks which are unused for at least this time are released by trimChunks(long).
+    private final long chunkIdleTimeNanos;
+    // Unused chunks are released as soon as they become unused if the arena holds more memory than this, 0 disables.
+    private final long highWatermark;
+    // Released huge chunks which may be reused by later huge allocations, null if disabled.
+    private final PoolHugeChunkCache<T> hugeChunkCache;
     private final PoolSubpage<T>[] tinySubpagePools;
     private final PoolSubpage<T>[] smallSubpagePools;
 
@@ -57,6 +80,9 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     private final List<PoolChunkListMetric> chunkListMetrics;
 
+    // Number of pooled chunks that are currently owned by the arena.
+    private int numChunks;
+
     // Metrics for allocations and deallocations
     private long allocationsNormal;
     // We need to use the LongCounter here as this is not guarded via synchronized block.
@@ -71,25 +97,50 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     // We need to use the LongCounter here as this is not guarded via synchronized block.
     private final LongCounter deallocationsHuge = PlatformDependent.newLongCounter();
 
+    // Bytes of active allocations that would have been wasted by rounding up to the next power of two.
+    private final LongCounter sizeClassSavedBytes = PlatformDependent.newLongCounter();
+
     // Number of thread caches backed by this arena.
     final AtomicInteger numThreadCaches = new AtomicInteger();
 
+    // Allocator wide counters which are shared by all arenas of the same memory type.
+    private final PooledByteBufAllocatorMetric.MemoryCounters counters;
+
     // TODO: Test if adding padding helps under contention
     //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
 
-    protected PoolArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize) {
+    protected PoolArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize,
+                        boolean fineSizeClasses, long chunkIdleTimeNanos, long highWatermark,
+                        int hugeCacheMaxChunks, long hugeCacheMaxBytes) {
         this.parent = parent;
         this.pageSize = pageSize;
         this.maxOrder = maxOrder;
         this.pageShifts = pageShifts;
         this.chunkSize = chunkSize;
+        this.fineSizeClasses = fineSizeClasses;
+        this.chunkIdleTimeNanos = chunkIdleTimeNanos;
+        this.highWatermark = highWatermark;
+        hugeChunkCache = hugeCacheMaxChunks > 0 ? new PoolHugeChunkCache<T>(
+                hugeCacheMaxChunks, hugeCacheMaxBytes > 0 ? hugeCacheMaxBytes : Long.MAX_VALUE) : null;
+        if (parent == null) {
+            counters = new PooledByteBufAllocatorMetric.MemoryCounters();
+        } else {
+            counters = isDirect() ? parent.metric().directCounters : parent.metric().heapCounters;
+        }
         subpageOverflowMask = ~(pageSize - 1);
         tinySubpagePools = newSubpagePoolArray(numTinySubpagePools);
         for (int i = 0; i < tinySubpagePools.length; i ++) {
             tinySubpagePools[i] = newSubpagePoolHead(pageSize);
         }
 
-        numSmallSubpagePools = pageShifts - 9;
+        if (fineSizeClasses) {
+            subpageLimit = Math.min(pageSize * MAX_SUBPAGE_PAGES, chunkSize);
+            // The largest size class that is smaller than subpageLimit determines the size of the table.
+            numSmallSubpagePools = smallIdx(subpageLimit - (subpageLimit >>> LOG2_SIZE_CLASSES_PER_DOUBLING + 1)) + 1;
+        } else {
+            subpageLimit = pageSize;
+            numSmallSubpagePools = pageShifts - 9;
+        }
         smallSubpagePools = newSubpagePoolArray(numSmallSubpagePools);
         for (int i = 0; i < smallSubpagePools.length; i ++) {
             smallSubpagePools[i] = newSubpagePoolHead(pageSize);
@@ -143,7 +194,10 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         return normCapacity >>> 4;
     }
 
-    static int smallIdx(int normCapacity) {
+    int smallIdx(int normCapacity) {
+        if (fineSizeClasses) {
+            return fineSmallIdx(normCapacity);
+        }
         int tableIdx = 0;
         int i = normCapacity >>> 10;
         while (i != 0) {
@@ -153,11 +207,63 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         return tableIdx;
     }
 
-    // capacity < pageSize
+    /**
+     * Returns the index of the given fine-grained size class. Index {@code 0} is {@code 512} and every following
+     * doubling of the size is split into {@link #SIZE_CLASSES_PER_DOUBLING} equally spaced classes, so the table
+     * looks like {@code 512, 640, 768, 896, 1024, 1280, 1536, 1792, 2048, 2560, ...}.
+     */
+    private static int fineSmallIdx(int normCapacity) {
+        if (normCapacity <= 1 << LOG2_SMALL_MIN) {
+            return 0;
+        }
+        // The size class belongs to the group (2^log2Group, 2^(log2Group + 1)].
+        int log2Group = log2(normCapacity - 1);
+        int log2Delta = log2Group - LOG2_SIZE_CLASSES_PER_DOUBLING;
+        int groupIdx = (normCapacity - (1 << log2Group) >>> log2Delta) - 1;
+        return ((log2Group - LOG2_SMALL_MIN) << LOG2_SIZE_CLASSES_PER_DOUBLING) + groupIdx + 1;
+    }
+
+    /**
+     * Returns the size of the small size class with the given index, which is the reverse of {@link #smallIdx(int)}.
+     */
+    int smallSize(int smallIdx) {
+        if (!fineSizeClasses) {
+            return 512 << smallIdx;
+        }
+        if (smallIdx == 0) {
+            return 1 << LOG2_SMALL_MIN;
+        }
+        int log2Group = LOG2_SMALL_MIN + (smallIdx - 1 >>> LOG2_SIZE_CLASSES_PER_DOUBLING);
+        int groupIdx = (smallIdx - 1 & SIZE_CLASSES_PER_DOUBLING - 1) + 1;
+        return (1 << log2Group) + (groupIdx << log2Group - LOG2_SIZE_CLASSES_PER_DOUBLING);
+    }
+
+    /**
+     * Returns the length of the run of pages which backs a {@link PoolSubpage} with the given element size. This is
+     * always a power of two so it can be allocated from the buddy tree of a {@link PoolChunk}.
+     */
+    int subpageRunSize(int elemSize) {
+        if (!fineSizeClasses || elemSize < pageSize >>> LOG2_SIZE_CLASSES_PER_DOUBLING) {
+            return pageSize;
+        }
+        // Make the run large enough to hold at least SIZE_CLASSES_PER_DOUBLING elements which limits the waste at
+        // the end of the run to less than 1 / SIZE_CLASSES_PER_DOUBLING.
+        return Math.min(MathUtil.findNextPositivePowerOfTwo(elemSize) << LOG2_SIZE_CLASSES_PER_DOUBLING, chunkSize);
+    }
+
+    // capacity < pageSize (or a fine-grained size class that is not a multiple of the pageSize)
     boolean isTinyOrSmall(int normCapacity) {
+        if (fineSizeClasses) {
+            return normCapacity < pageSize ||
+                   normCapacity < subpageLimit && (normCapacity & normCapacity - 1) != 0;
+        }
         return (normCapacity & subpageOverflowMask) == 0;
     }
 
+    private static int log2(int val) {
+        return Integer.SIZE - 1 - Integer.numberOfLeadingZeros(val);
+    }
+
     // normCapacity < 512
     static boolean isTiny(int normCapacity) {
         return (normCapacity & 0xFFFFFE00) == 0;
@@ -165,6 +271,15 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     private void allocate(PoolThreadCache cache, PooledByteBuf<T> buf, final int reqCapacity) {
         final int normCapacity = normalizeCapacity(reqCapacity);
+        if (fineSizeClasses) {
+            int saved = sizeClassSavedBytes(normCapacity);
+            if (saved != 0) {
+                sizeClassSavedBytes.add(saved);
+            }
+        }
+        if (normCapacity <= chunkSize) {
+            counters.activeAllocations(sizeClass(normCapacity)).increment();
+        }
         if (isTinyOrSmall(normCapacity)) { // capacity < pageSize
             int tableIdx;
             PoolSubpage<T>[] table;
@@ -232,6 +347,8 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
         // Add a new chunk.
         PoolChunk<T> c = newChunk(pageSize, maxOrder, pageShifts, chunkSize);
+        ++numChunks;
+        counters.chunkAllocated(chunkSize);
         long handle = c.allocate(normCapacity);
         assert handle > 0;
         c.initBuf(buf, handle, reqCapacity);
@@ -240,15 +357,41 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     private void allocateHuge(PooledByteBuf<T> buf, int reqCapacity) {
         allocationsHuge.increment();
-        buf.initUnpooled(newUnpooledChunk(reqCapacity), reqCapacity);
+        counters.activeHugeAllocations.increment();
+        PoolChunk<T> chunk;
+        if (hugeChunkCache != null) {
+            int normCapacity = PoolHugeChunkCache.normalizeCapacity(reqCapacity);
+            chunk = hugeChunkCache.poll(normCapacity);
+            if (chunk == null) {
+                chunk = newUnpooledChunk(normCapacity);
+                counters.usedMemory.add(normCapacity);
+            }
+        } else {
+            chunk = newUnpooledChunk(reqCapacity);
+            counters.usedMemory.add(reqCapacity);
+        }
+        buf.initUnpooled(chunk, reqCapacity);
     }
 
     void free(PoolChunk<T> chunk, long handle, int normCapacity, PoolThreadCache cache) {
         if (chunk.unpooled) {
             allocationsHuge.decrement();
+            counters.activeHugeAllocations.decrement();
+            if (hugeChunkCache != null && hugeChunkCache.offer(chunk, System.nanoTime())) {
+                // cached so not destroy it.
+                return;
+            }
+            counters.usedMemory.add(-chunk.chunkSize());
             destroyChunk(chunk);
         } else {
+            if (fineSizeClasses) {
+                int saved = sizeClassSavedBytes(normCapacity);
+                if (saved != 0) {
+                    sizeClassSavedBytes.add(-saved);
+                }
+            }
             SizeClass sizeClass = sizeClass(normCapacity);
+            counters.activeAllocations(sizeClass).decrement();
             if (cache != null && cache.add(this, chunk, handle, normCapacity, sizeClass)) {
                 // cached so not free it.
                 return;
@@ -281,7 +424,20 @@ abstract class PoolArena<T> implements PoolArenaMetric {
             default:
                 throw new Error();
             }
-            destroyChunk = !chunk.parent.free(chunk, handle);
+            if (!chunk.parent.free(chunk, handle)) {
+                destroyChunk = true;
+            } else if (highWatermark > 0 && chunk.isUnused() && (long) numChunks * chunkSize > highWatermark) {
+                // The arena holds more memory than allowed, so release the chunk right away instead of keeping it
+                // around for future allocations.
+                chunk.parent.remove(chunk);
+                destroyChunk = true;
+            } else {
+                destroyChunk = false;
+            }
+            if (destroyChunk) {
+                --numChunks;
+                counters.chunkDestroyed(chunkSize);
+            }
         }
         if (destroyChunk) {
             // destroyChunk not need to be called while holding the synchronized lock.
@@ -289,23 +445,63 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         }
     }
 
+    /**
+     * Release all chunks of this arena, including cached huge chunks, which were not used for at least the configured
+     * chunk idle time.
+     *
+     * @return the number of released chunks
+     */
+    int trimChunks(long currentNanos) {
+        final List<PoolChunk<T>> idleChunks = new ArrayList<PoolChunk<T>>();
+        synchronized (this) {
+            // PoolChunkList.free(...) only moves a chunk down one list at a time, so a completely unused chunk may
+            // still be linked in any list below q100.
+            numChunks -= qInit.removeIdleChunks(currentNanos, chunkIdleTimeNanos, idleChunks);
+            numChunks -= q000.removeIdleChunks(currentNanos, chunkIdleTimeNanos, idleChunks);
+            numChunks -= q025.removeIdleChunks(currentNanos, chunkIdleTimeNanos, idleChunks);
+            numChunks -= q050.removeIdleChunks(currentNanos, chunkIdleTimeNanos, idleChunks);
+            numChunks -= q075.removeIdleChunks(currentNanos, chunkIdleTimeNanos, idleChunks);
+        }
+        final int numPooled = idleChunks.size();
+        if (hugeChunkCache != null) {
+            hugeChunkCache.removeIdleChunks(currentNanos, chunkIdleTimeNanos, idleChunks);
+        }
+        // destroyChunk not need to be called while holding the synchronized lock.
+        for (int i = 0; i < idleChunks.size(); i ++) {
+            PoolChunk<T> chunk = idleChunks.get(i);
+            if (i < numPooled) {
+                counters.chunkDestroyed(chunkSize);
+            } else {
+                counters.usedMemory.add(-chunk.chunkSize());
+            }
+            destroyChunk(chunk);
+        }
+        return idleChunks.size();
+    }
+
+    /**
+     * Return the number of released huge chunks which are cached for reuse by this arena.
+     */
+    int numCachedHugeChunks() {
+        return hugeChunkCache == null ? 0 : hugeChunkCache.numChunks();
+    }
+
     PoolSubpage<T> findSubpagePoolHead(int elemSize) {
-        int tableIdx;
-        PoolSubpage<T>[] table;
         if (isTiny(elemSize)) { // < 512
-            tableIdx = elemSize >>> 4;
-            table = tinySubpagePools;
-        } else {
-            tableIdx = 0;
-            elemSize >>>= 10;
-            while (elemSize != 0) {
-                elemSize >>>= 1;
-                tableIdx ++;
-            }
-            table = smallSubpagePools;
+            return tinySubpagePools[elemSize >>> 4];
         }
+        return smallSubpagePools[smallIdx(elemSize)];
+    }
 
-        return table[tableIdx];
+    /**
+     * Returns the number of bytes the given normalized capacity saves compared to rounding up to the next power of
+     * two, which is what is done when fine-grained size classes are not used.
+     */
+    private int sizeClassSavedBytes(int normCapacity) {
+        if (isTiny(normCapacity) || normCapacity >= subpageLimit) {
+            return 0;
+        }
+        return MathUtil.findNextPositivePowerOfTwo(normCapacity) - normCapacity;
     }
 
     int normalizeCapacity(int reqCapacity) {
@@ -317,6 +513,16 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         }
 
         if (!isTiny(reqCapacity)) { // >= 512
+            if (fineSizeClasses && reqCapacity < subpageLimit) {
+                // Round up to the next fine-grained size class.
+                int log2Delta = log2(reqCapacity - 1) - LOG2_SIZE_CLASSES_PER_DOUBLING;
+                int deltaMask = (1 << log2Delta) - 1;
+                int normalizedCapacity = reqCapacity + deltaMask & ~deltaMask;
+                if (normalizedCapacity < subpageLimit) {
+                    return normalizedCapacity;
+                }
+            }
+
             // Doubled
 
             int normalizedCapacity = reqCapacity;
@@ -535,6 +741,12 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         return val >= 0 ? val : 0;
     }
 
+    @Override
+    public long numActiveBytesSavedBySizeClasses() {
+        long val = sizeClassSavedBytes.value();
+        return val >= 0 ? val : 0;
+    }
+
     protected abstract PoolChunk<T> newChunk(int pageSize, int maxOrder, int pageShifts, int chunkSize);
     protected abstract PoolChunk<T> newUnpooledChunk(int capacity);
     protected abstract PooledByteBuf<T> newByteBuf(int maxCapacity);
@@ -615,7 +827,14 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     static final class HeapArena extends PoolArena<byte[]> {
 
         HeapArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize) {
-            super(parent, pageSize, maxOrder, pageShifts, chunkSize);
+            this(parent, pageSize, maxOrder, pageShifts, chunkSize, false, 0, 0, 0, 0);
+        }
+
+        HeapArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize,
+                boolean fineSizeClasses, long chunkIdleTimeNanos, long highWatermark,
+                int hugeCacheMaxChunks, long hugeCacheMaxBytes) {
+            super(parent, pageSize, maxOrder, pageShifts, chunkSize,
+                  fineSizeClasses, chunkIdleTimeNanos, highWatermark, hugeCacheMaxChunks, hugeCacheMaxBytes);
         }
 
         @Override
@@ -657,7 +876,14 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     static final class DirectArena extends PoolArena<ByteBuffer> {
 
         DirectArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize) {
-            super(parent, pageSize, maxOrder, pageShifts, chunkSize);
+            this(parent, pageSize, maxOrder, pageShifts, chunkSize, false, 0, 0, 0, 0);
+        }
+
+        DirectArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize,
+                  boolean fineSizeClasses, long chunkIdleTimeNanos, long highWatermark,
+                  int hugeCacheMaxChunks, long hugeCacheMaxBytes) {
+            super(parent, pageSize, maxOrder, pageShifts, chunkSize,
+                  fineSizeClasses, chunkIdleTimeNanos, highWatermark, hugeCacheMaxChunks, hugeCacheMaxBytes);
         }
 
         @Override
@@ -668,17 +894,26 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         @Override
         protected PoolChunk<ByteBuffer> newChunk(int pageSize, int maxOrder, int pageShifts, int chunkSize) {
             return new PoolChunk<ByteBuffer>(
-                    this, ByteBuffer.allocateDirect(chunkSize), pageSize, maxOrder, pageShifts, chunkSize);
+                    this, allocateDirect(chunkSize), pageSize, maxOrder, pageShifts, chunkSize);
         }
 
         @Override
         protected PoolChunk<ByteBuffer> newUnpooledChunk(int capacity) {
-            return new PoolChunk<ByteBuffer>(this, ByteBuffer.allocateDirect(capacity), capacity);
+            return new PoolChunk<ByteBuffer>(this, allocateDirect(capacity), capacity);
+        }
+
+        private static ByteBuffer allocateDirect(int capacity) {
+            return PlatformDependent.useDirectBufferNoCleaner() ?
+                    PlatformDependent.allocateDirectNoCleaner(capacity) : ByteBuffer.allocateDirect(capacity);
         }
 
         @Override
         protected void destroyChunk(PoolChunk<ByteBuffer> chunk) {
-            PlatformDependent.freeDirectBuffer(chunk.memory);
+            if (PlatformDependent.useDirectBufferNoCleaner()) {
+                PlatformDependent.freeDirectNoCleaner(chunk.memory);
+            } else {
+                PlatformDependent.freeDirectBuffer(chunk.memory);
+            }
         }
 
         @Override
@@ -132,4 +132,10 @@ public interface PoolArenaMetric {
      * Return the number of currently active huge allocations.
      */
     long numActiveHugeAllocations();
+
+    /**
+     * Return the number of bytes of currently active allocations which would have been wasted if the capacity was
+     * rounded up to the next power of two. This is always {@code 0} if fine-grained size classes are not used.
+     */
+    long numActiveBytesSavedBySizeClasses();
 }
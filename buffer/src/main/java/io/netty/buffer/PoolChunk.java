@@ -88,6 +88,8 @@ package io.netty.buffer;
  * Algorithm: [allocateSubpage(size)]
  * ----------
  * 1) use allocateNode(maxOrder) to find an empty (i.e., unused) leaf (i.e., page)
+ *    (when fine-grained size classes are used, elements larger than pageSize / 4 are carved out of a run of
+ *    pages instead, see PoolArena#subpageRunSize)
  * 2) use this handle to construct the PoolSubpage object or if it already exists just call init(normCapacity)
  *    note that this PoolSubpage object is added to subpagesPool in the PoolArena when we init() it
  *
@@ -109,8 +111,6 @@ final class PoolChunk<T> implements PoolChunkMetric {
     private final byte[] memoryMap;
     private final byte[] depthMap;
     private final PoolSubpage<T>[] subpages;
-    /** Used to determine if the requested capacity is equal to or greater than pageSize. */
-    private final int subpageOverflowMask;
     private final int pageSize;
     private final int pageShifts;
     private final int maxOrder;
@@ -122,6 +122,10 @@ final class PoolChunk<T> implements PoolChunkMetric {
 
     private int freeBytes;
 
+    // The value of System.nanoTime() when this chunk was first seen completely unused by PoolArena#trimChunks(long)
+    // or 0 if it was allocated from since then.
+    long idleSinceNanos;
+
     PoolChunkList<T> parent;
     PoolChunk<T> prev;
     PoolChunk<T> next;
@@ -139,7 +143,6 @@ final class PoolChunk<T> implements PoolChunkMetric {
         this.chunkSize = chunkSize;
         unusable = (byte) (maxOrder + 1);
         log2ChunkSize = log2(chunkSize);
-        subpageOverflowMask = ~(pageSize - 1);
         freeBytes = chunkSize;
 
         assert maxOrder < 30 : "maxOrder should be < 30, but is: " + maxOrder;
@@ -170,7 +173,6 @@ final class PoolChunk<T> implements PoolChunkMetric {
         memoryMap = null;
         depthMap = null;
         subpages = null;
-        subpageOverflowMask = 0;
         pageSize = 0;
         pageShifts = 0;
         maxOrder = 0;
@@ -200,7 +202,8 @@ final class PoolChunk<T> implements PoolChunkMetric {
     }
 
     long allocate(int normCapacity) {
-        if ((normCapacity & subpageOverflowMask) != 0) { // >= pageSize
+        idleSinceNanos = 0;
+        if (!arena.isTinyOrSmall(normCapacity)) { // >= pageSize
             return allocateRun(normCapacity);
         } else {
             return allocateSubpage(normCapacity);
@@ -310,21 +313,22 @@ final class PoolChunk<T> implements PoolChunkMetric {
         // This is need as we may add it back and so alter the linked-list structure.
         PoolSubpage<T> head = arena.findSubpagePoolHead(normCapacity);
         synchronized (head) {
-            int d = maxOrder; // subpages are only be allocated from pages i.e., leaves
+            final int runSize = arena.subpageRunSize(normCapacity);
+            // subpages are allocated from pages i.e., leaves, or from runs of pages for large size classes
+            int d = maxOrder - (log2(runSize) - pageShifts);
             int id = allocateNode(d);
             if (id < 0) {
                 return id;
             }
 
             final PoolSubpage<T>[] subpages = this.subpages;
-            final int pageSize = this.pageSize;
 
-            freeBytes -= pageSize;
+            freeBytes -= runSize;
 
             int subpageIdx = subpageIdx(id);
             PoolSubpage<T> subpage = subpages[subpageIdx];
-            if (subpage == null) {
-                subpage = new PoolSubpage<T>(head, this, id, runOffset(id), pageSize, normCapacity);
+            if (subpage == null || subpage.pageSize() != runSize) {
+                subpage = new PoolSubpage<T>(head, this, id, runOffset(id), runSize, normCapacity);
                 subpages[subpageIdx] = subpage;
             } else {
                 subpage.init(head, normCapacity);
@@ -424,7 +428,11 @@ final class PoolChunk<T> implements PoolChunkMetric {
     }
 
     private int subpageIdx(int memoryMapIdx) {
-        return memoryMapIdx ^ maxSubpageAllocs; // remove highest set bit, to get offset
+        if (depth(memoryMapIdx) == maxOrder) {
+            return memoryMapIdx ^ maxSubpageAllocs; // remove highest set bit, to get offset
+        }
+        // a run of pages, use the index of its first page
+        return runOffset(memoryMapIdx) >>> pageShifts;
     }
 
     @Override
@@ -437,6 +445,13 @@ final class PoolChunk<T> implements PoolChunkMetric {
         return freeBytes;
     }
 
+    /**
+     * Returns {@code true} if no memory of this chunk is in use.
+     */
+    boolean isUnused() {
+        return freeBytes == chunkSize;
+    }
+
     @Override
     public String toString() {
         return new StringBuilder()
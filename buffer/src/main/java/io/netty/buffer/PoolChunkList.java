@@ -105,7 +105,32 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
         }
     }
 
-    private void remove(PoolChunk<T> cur) {
+    /**
+     * Removes all chunks from this list which were completely unused for at least {@code idleTimeNanos} and adds
+     * them to {@code removed}. Chunks which are found unused for the first time are only marked as idle.
+     *
+     * @return the number of removed chunks
+     */
+    int removeIdleChunks(long currentNanos, long idleTimeNanos, List<PoolChunk<T>> removed) {
+        int numRemoved = 0;
+        for (PoolChunk<T> cur = head; cur != null;) {
+            PoolChunk<T> next = cur.next;
+            if (cur.isUnused()) {
+                if (cur.idleSinceNanos == 0) {
+                    cur.idleSinceNanos = currentNanos;
+                }
+                if (currentNanos - cur.idleSinceNanos >= idleTimeNanos) {
+                    remove(cur);
+                    removed.add(cur);
+                    numRemoved ++;
+                }
+            }
+            cur = next;
+        }
+        return numRemoved;
+    }
+
+    void remove(PoolChunk<T> cur) {
         if (cur == head) {
             head = cur.next;
             if (head != null) {
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches released unpooled chunks of huge allocations so they can be reused for later allocations of the same size
+ * class. The cache is bounded by the number of chunks and the number of bytes it may hold.
+ */
+final class PoolHugeChunkCache<T> {
+
+    private final int maxChunks;
+    private final long maxBytes;
+    private final Map<Integer, ArrayDeque<PoolChunk<T>>> chunksBySize =
+            new HashMap<Integer, ArrayDeque<PoolChunk<T>>>();
+    private int numChunks;
+    private long numBytes;
+
+    PoolHugeChunkCache(int maxChunks, long maxBytes) {
+        this.maxChunks = maxChunks;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Round {@code reqCapacity} up to the next of four size classes per power of two so chunks of similar sizes can
+     * be reused for each other.
+     */
+    static int normalizeCapacity(int reqCapacity) {
+        int delta = 1 << Math.max(0, 31 - Integer.numberOfLeadingZeros(reqCapacity - 1) - 2);
+        int normCapacity = (reqCapacity + delta - 1) & ~(delta - 1);
+        // Do not round up if this would overflow.
+        return normCapacity < 0 ? reqCapacity : normCapacity;
+    }
+
+    /**
+     * Return a cached chunk of exactly {@code capacity} bytes or {@code null} if there is none.
+     */
+    synchronized PoolChunk<T> poll(int capacity) {
+        ArrayDeque<PoolChunk<T>> chunks = chunksBySize.get(capacity);
+        if (chunks == null) {
+            return null;
+        }
+        // Use the most recently released chunk as its memory is the most likely to be still resident.
+        PoolChunk<T> chunk = chunks.pollFirst();
+        if (chunk != null) {
+            numChunks --;
+            numBytes -= chunk.chunkSize();
+        }
+        return chunk;
+    }
+
+    /**
+     * Add the released {@code chunk} to the cache. Returns {@code false} if the cache is full, in which case the
+     * chunk must be destroyed by the caller.
+     */
+    synchronized boolean offer(PoolChunk<T> chunk, long currentNanos) {
+        int capacity = chunk.chunkSize();
+        if (numChunks >= maxChunks || numBytes + capacity > maxBytes) {
+            return false;
+        }
+        ArrayDeque<PoolChunk<T>> chunks = chunksBySize.get(capacity);
+        if (chunks == null) {
+            chunks = new ArrayDeque<PoolChunk<T>>();
+            chunksBySize.put(capacity, chunks);
+        }
+        chunk.idleSinceNanos = currentNanos;
+        chunks.addFirst(chunk);
+        numChunks ++;
+        numBytes += capacity;
+        return true;
+    }
+
+    /**
+     * Remove all chunks which were cached for at least {@code idleTimeNanos} and add them to {@code removed}.
+     *
+     * @return the number of removed chunks
+     */
+    synchronized int removeIdleChunks(long currentNanos, long idleTimeNanos, List<PoolChunk<T>> removed) {
+        int numRemoved = 0;
+        for (Iterator<ArrayDeque<PoolChunk<T>>> i = chunksBySize.values().iterator(); i.hasNext();) {
+            ArrayDeque<PoolChunk<T>> chunks = i.next();
+            // Chunks are added to the head, so the ones which were idle the longest are at the tail.
+            for (;;) {
+                PoolChunk<T> chunk = chunks.peekLast();
+                if (chunk == null || currentNanos - chunk.idleSinceNanos < idleTimeNanos) {
+                    break;
+                }
+                chunks.pollLast();
+                removed.add(chunk);
+                numChunks --;
+                numBytes -= chunk.chunkSize();
+                numRemoved ++;
+            }
+            if (chunks.isEmpty()) {
+                i.remove();
+            }
+        }
+        return numRemoved;
+    }
+
+    synchronized int numChunks() {
+        return numChunks;
+    }
+
+    synchronized long numBytes() {
+        return numBytes;
+    }
+}
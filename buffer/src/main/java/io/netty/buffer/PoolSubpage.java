@@ -47,6 +47,10 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
         bitmap = null;
     }
 
+    /**
+     * Creates a new sub-page. {@code pageSize} is the length of the run this sub-page is carved out of, which is a
+     * single page unless fine-grained size classes are used.
+     */
     PoolSubpage(PoolSubpage<T> head, PoolChunk<T> chunk, int memoryMapIdx, int runOffset, int pageSize, int elemSize) {
         this.chunk = chunk;
         this.memoryMapIdx = memoryMapIdx;
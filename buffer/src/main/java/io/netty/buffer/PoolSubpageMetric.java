@@ -36,7 +36,8 @@ public interface PoolSubpageMetric {
     int elementSize();
 
     /**
-     * Return the size (in bytes) of this page.
+     * Return the size (in bytes) of this page. This may be a multiple of the arena's page size if the sub-page
+     * is backed by a run of pages.
      */
     int pageSize();
 }
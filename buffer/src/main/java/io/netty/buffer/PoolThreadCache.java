@@ -35,10 +35,11 @@ import java.util.Queue;
  * technics of <a href="https://www.facebook.com/notes/facebook-engineering/scalable-memory-allocation-using-jemalloc/
  * 480222803919">Scalable memory allocation using jemalloc</a>.
  */
-final class PoolThreadCache {
+final class PoolThreadCache implements PoolThreadCacheMetric {
 
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(PoolThreadCache.class);
 
+    private final PooledByteBufAllocator parent;
     final PoolArena<byte[]> heapArena;
     final PoolArena<ByteBuffer> directArena;
 
@@ -57,6 +58,10 @@ final class PoolThreadCache {
 
     private int allocations;
 
+    // Only updated by the owning thread.
+    private long hits;
+    private long misses;
+
     private final Thread thread = Thread.currentThread();
     private final Runnable freeTask = new Runnable() {
         @Override
@@ -71,6 +76,17 @@ final class PoolThreadCache {
     PoolThreadCache(PoolArena<byte[]> heapArena, PoolArena<ByteBuffer> directArena,
                     int tinyCacheSize, int smallCacheSize, int normalCacheSize,
                     int maxCachedBufferCapacity, int freeSweepAllocationThreshold) {
+        this(null, heapArena, directArena, tinyCacheSize, smallCacheSize, normalCacheSize,
+             maxCachedBufferCapacity, freeSweepAllocationThreshold);
+    }
+
+    /**
+     * Creates a new cache. If {@code parent} is not {@code null} the capacity of the caches is limited by the thread
+     * cache budget of the {@link PooledByteBufAllocator}.
+     */
+    PoolThreadCache(PooledByteBufAllocator parent, PoolArena<byte[]> heapArena, PoolArena<ByteBuffer> directArena,
+                    int tinyCacheSize, int smallCacheSize, int normalCacheSize,
+                    int maxCachedBufferCapacity, int freeSweepAllocationThreshold) {
         if (maxCachedBufferCapacity < 0) {
             throw new IllegalArgumentException("maxCachedBufferCapacity: "
                     + maxCachedBufferCapacity + " (expected: >= 0)");
@@ -80,13 +96,14 @@ final class PoolThreadCache {
                     + maxCachedBufferCapacity + " (expected: > 0)");
         }
         this.freeSweepAllocationThreshold = freeSweepAllocationThreshold;
+        this.parent = parent;
         this.heapArena = heapArena;
         this.directArena = directArena;
         if (directArena != null) {
             tinySubPageDirectCaches = createSubPageCaches(
-                    tinyCacheSize, PoolArena.numTinySubpagePools, SizeClass.Tiny);
+                    tinyCacheSize, PoolArena.numTinySubpagePools, SizeClass.Tiny, directArena);
             smallSubPageDirectCaches = createSubPageCaches(
-                    smallCacheSize, directArena.numSmallSubpagePools, SizeClass.Small);
+                    smallCacheSize, directArena.numSmallSubpagePools, SizeClass.Small, directArena);
 
             numShiftsNormalDirect = log2(directArena.pageSize);
             normalDirectCaches = createNormalCaches(
@@ -103,9 +120,9 @@ final class PoolThreadCache {
         if (heapArena != null) {
             // Create the caches for the heap allocations
             tinySubPageHeapCaches = createSubPageCaches(
-                    tinyCacheSize, PoolArena.numTinySubpagePools, SizeClass.Tiny);
+                    tinyCacheSize, PoolArena.numTinySubpagePools, SizeClass.Tiny, heapArena);
             smallSubPageHeapCaches = createSubPageCaches(
-                    smallCacheSize, heapArena.numSmallSubpagePools, SizeClass.Small);
+                    smallCacheSize, heapArena.numSmallSubpagePools, SizeClass.Small, heapArena);
 
             numShiftsNormalHeap = log2(heapArena.pageSize);
             normalHeapCaches = createNormalCaches(
@@ -120,19 +137,48 @@ final class PoolThreadCache {
             numShiftsNormalHeap = -1;
         }
 
+        // Reserve the initial capacity of all caches from the budget of the allocator. Caches that do not fit into
+        // the budget start with the minimal capacity and grow once they are used.
+        if (parent != null) {
+            reserveInitialCapacity();
+        }
+
         // The thread-local cache will keep a list of pooled buffers which must be returned to
         // the pool when the thread is not alive anymore.
         ThreadDeathWatcher.watch(thread, freeTask);
     }
 
+    private void reserveInitialCapacity() {
+        long capacityBytes = capacityBytes();
+        if (parent.reserveThreadCacheBytes(capacityBytes)) {
+            return;
+        }
+        shrinkToMinimum(tinySubPageDirectCaches);
+        shrinkToMinimum(smallSubPageDirectCaches);
+        shrinkToMinimum(normalDirectCaches);
+        shrinkToMinimum(tinySubPageHeapCaches);
+        shrinkToMinimum(smallSubPageHeapCaches);
+        shrinkToMinimum(normalHeapCaches);
+        parent.forceReserveThreadCacheBytes(capacityBytes());
+    }
+
+    private static void shrinkToMinimum(MemoryRegionCache<?>[] caches) {
+        if (caches == null) {
+            return;
+        }
+        for (MemoryRegionCache<?> c: caches) {
+            c.limit = MemoryRegionCache.MIN_LIMIT;
+        }
+    }
+
     private static <T> MemoryRegionCache<T>[] createSubPageCaches(
-            int cacheSize, int numCaches, SizeClass sizeClass) {
+            int cacheSize, int numCaches, SizeClass sizeClass, PoolArena<T> area) {
         if (cacheSize > 0) {
             @SuppressWarnings("unchecked")
             MemoryRegionCache<T>[] cache = new MemoryRegionCache[numCaches];
             for (int i = 0; i < cache.length; i++) {
-                // TODO: maybe use cacheSize / cache.length
-                cache[i] = new SubPageMemoryRegionCache<T>(cacheSize, sizeClass);
+                int elemSize = sizeClass == SizeClass.Tiny ? i << 4 : area.smallSize(i);
+                cache[i] = new SubPageMemoryRegionCache<T>(cacheSize, elemSize, sizeClass);
             }
             return cache;
         } else {
@@ -149,7 +195,7 @@ final class PoolThreadCache {
             @SuppressWarnings("unchecked")
             MemoryRegionCache<T>[] cache = new MemoryRegionCache[arraySize];
             for (int i = 0; i < cache.length; i++) {
-                cache[i] = new NormalMemoryRegionCache<T>(cacheSize);
+                cache[i] = new NormalMemoryRegionCache<T>(cacheSize, area.pageSize << i);
             }
             return cache;
         } else {
@@ -194,6 +240,11 @@ final class PoolThreadCache {
             return false;
         }
         boolean allocated = cache.allocate(buf, reqCapacity);
+        if (allocated) {
+            ++ hits;
+        } else {
+            ++ misses;
+        }
         if (++ allocations >= freeSweepAllocationThreshold) {
             allocations = 0;
             trim();
@@ -254,6 +305,10 @@ final class PoolThreadCache {
         if (heapArena != null) {
             heapArena.numThreadCaches.getAndDecrement();
         }
+
+        if (parent != null) {
+            parent.threadCacheFreed(this);
+        }
     }
 
     private static int free(MemoryRegionCache<?>[] caches) {
@@ -276,28 +331,107 @@ final class PoolThreadCache {
     }
 
     void trim() {
-        trim(tinySubPageDirectCaches);
-        trim(smallSubPageDirectCaches);
-        trim(normalDirectCaches);
-        trim(tinySubPageHeapCaches);
-        trim(smallSubPageHeapCaches);
-        trim(normalHeapCaches);
+        // Shrink first so the released capacity may be used by the caches which grow.
+        long released = trim(tinySubPageDirectCaches, false) +
+                trim(smallSubPageDirectCaches, false) +
+                trim(normalDirectCaches, false) +
+                trim(tinySubPageHeapCaches, false) +
+                trim(smallSubPageHeapCaches, false) +
+                trim(normalHeapCaches, false);
+        if (parent != null && released > 0) {
+            parent.releaseThreadCacheBytes(released);
+        }
+        trim(tinySubPageDirectCaches, true);
+        trim(smallSubPageDirectCaches, true);
+        trim(normalDirectCaches, true);
+        trim(tinySubPageHeapCaches, true);
+        trim(smallSubPageHeapCaches, true);
+        trim(normalHeapCaches, true);
     }
 
-    private static void trim(MemoryRegionCache<?>[] caches) {
+    /**
+     * Trims the caches and adapts their capacity. Depending on {@code grow} either only the caches whose capacity
+     * shrinks, or only the caches whose capacity grows are processed.
+     *
+     * @return the number of bytes the capacity of the caches shrank
+     */
+    private long trim(MemoryRegionCache<?>[] caches, boolean grow) {
         if (caches == null) {
-            return;
+            return 0;
         }
+        long released = 0;
         for (MemoryRegionCache<?> c: caches) {
-            trim(c);
+            if (c.shouldGrow() != grow) {
+                continue;
+            }
+            if (grow) {
+                int newLimit = c.grownLimit();
+                if (parent == null || parent.reserveThreadCacheBytes((long) (newLimit - c.limit) * c.elemSize)) {
+                    c.limit = newLimit;
+                }
+                c.resetWindow();
+            } else {
+                released += c.trim();
+            }
         }
+        return released;
     }
 
-    private static void trim(MemoryRegionCache<?> cache) {
-        if (cache == null) {
-            return;
+    @Override
+    public String threadName() {
+        return thread.getName();
+    }
+
+    @Override
+    public long numHits() {
+        return hits;
+    }
+
+    @Override
+    public long numMisses() {
+        return misses;
+    }
+
+    @Override
+    public long cachedBytes() {
+        return cachedBytes(tinySubPageDirectCaches) +
+                cachedBytes(smallSubPageDirectCaches) +
+                cachedBytes(normalDirectCaches) +
+                cachedBytes(tinySubPageHeapCaches) +
+                cachedBytes(smallSubPageHeapCaches) +
+                cachedBytes(normalHeapCaches);
+    }
+
+    private static long cachedBytes(MemoryRegionCache<?>[] caches) {
+        if (caches == null) {
+            return 0;
+        }
+        long bytes = 0;
+        for (MemoryRegionCache<?> c: caches) {
+            bytes += (long) c.queue.size() * c.elemSize;
+        }
+        return bytes;
+    }
+
+    @Override
+    public long capacityBytes() {
+        return capacityBytes(tinySubPageDirectCaches) +
+                capacityBytes(smallSubPageDirectCaches) +
+                capacityBytes(normalDirectCaches) +
+                capacityBytes(tinySubPageHeapCaches) +
+                capacityBytes(smallSubPageHeapCaches) +
+                capacityBytes(normalHeapCaches);
+    }
+
+    private static long capacityBytes(MemoryRegionCache<?>[] caches) {
+        if (caches == null) {
+            return 0;
+        }
+        long bytes = 0;
+        for (MemoryRegionCache<?> c: caches) {
+            bytes += (long) c.limit * c.elemSize;
         }
-        cache.trim();
+        return bytes;
     }
 
     private MemoryRegionCache<?> cacheForTiny(PoolArena<?> area, int normCapacity) {
@@ -309,7 +443,7 @@ final class PoolThreadCache {
     }
 
     private MemoryRegionCache<?> cacheForSmall(PoolArena<?> area, int normCapacity) {
-        int idx = PoolArena.smallIdx(normCapacity);
+        int idx = area.smallIdx(normCapacity);
         if (area.isDirect()) {
             return cache(smallSubPageDirectCaches, idx);
         }
@@ -336,8 +470,8 @@ final class PoolThreadCache {
      * Cache used for buffers which are backed by TINY or SMALL size.
      */
     private static final class SubPageMemoryRegionCache<T> extends MemoryRegionCache<T> {
-        SubPageMemoryRegionCache(int size, SizeClass sizeClass) {
-            super(size, sizeClass);
+        SubPageMemoryRegionCache(int size, int elemSize, SizeClass sizeClass) {
+            super(size, elemSize, sizeClass);
         }
 
         @Override
@@ -351,8 +485,8 @@ final class PoolThreadCache {
      * Cache used for buffers which are backed by NORMAL size.
      */
     private static final class NormalMemoryRegionCache<T> extends MemoryRegionCache<T> {
-        NormalMemoryRegionCache(int size) {
-            super(size, SizeClass.Normal);
+        NormalMemoryRegionCache(int size, int elemSize) {
+            super(size, elemSize, SizeClass.Normal);
         }
 
         @Override
@@ -362,16 +496,30 @@ final class PoolThreadCache {
         }
     }
 
+    /**
+     * Caches the memory of a single size class. The number of cached entries is bounded by {@link #limit} which adapts
+     * to the observed hit and miss rates between {@link #MIN_LIMIT} and the configured size of the cache: the limit
+     * is doubled if more than a quarter of the allocations missed the cache while it was busy and is halved if less
+     * than half of it was used.
+     */
     private abstract static class MemoryRegionCache<T> {
+        static final int MIN_LIMIT = 1;
+
         private final int size;
-        private final Queue<Entry<T>> queue;
+        final int elemSize;
+        final Queue<Entry<T>> queue;
         private final SizeClass sizeClass;
+        // Read by the threads that add to the cache, only written by the owning thread.
+        volatile int limit;
         private int allocations;
+        private int misses;
 
-        MemoryRegionCache(int size, SizeClass sizeClass) {
+        MemoryRegionCache(int size, int elemSize, SizeClass sizeClass) {
             this.size = MathUtil.findNextPositivePowerOfTwo(size);
+            this.elemSize = elemSize;
             queue = PlatformDependent.newFixedMpscQueue(this.size);
             this.sizeClass = sizeClass;
+            limit = this.size;
         }
 
         /**
@@ -385,6 +533,9 @@ final class PoolThreadCache {
          */
         @SuppressWarnings("unchecked")
         public final boolean add(PoolChunk<T> chunk, long handle) {
+            if (queue.size() >= limit) {
+                return false;
+            }
             Entry<T> entry = newEntry(chunk, handle);
             boolean queued = queue.offer(entry);
             if (!queued) {
@@ -401,6 +552,8 @@ final class PoolThreadCache {
         public final boolean allocate(PooledByteBuf<T> buf, int reqCapacity) {
             Entry<T> entry = queue.poll();
             if (entry == null) {
+                // misses is not thread-safe which is fine as this is only called from the same thread all time.
+                ++ misses;
                 return false;
             }
             initBuf(entry.chunk, entry.handle, buf, reqCapacity);
@@ -433,16 +586,44 @@ final class PoolThreadCache {
         }
 
         /**
-         * Free up cached {@link PoolChunk}s if not allocated frequently enough.
+         * Returns {@code true} if the cache missed more than a quarter of the allocations since the last trim while
+         * being busy, which means it would benefit from a larger limit.
          */
-        public final void trim() {
-            int free = size - allocations;
+        final boolean shouldGrow() {
+            int requests = allocations + misses;
+            return limit < size && requests >= limit && misses > requests >>> 2;
+        }
+
+        final int grownLimit() {
+            return Math.min(size, limit << 1);
+        }
+
+        final void resetWindow() {
             allocations = 0;
+            misses = 0;
+        }
+
+        /**
+         * Free up cached {@link PoolChunk}s if not allocated frequently enough and shrink the limit if less than half
+         * of it was used.
+         *
+         * @return the number of bytes the capacity of this cache shrank
+         */
+        public final long trim() {
+            int requests = allocations + misses;
+            int free = size - allocations;
+            resetWindow();
+
+            int oldLimit = limit;
+            if (requests < oldLimit >>> 1) {
+                limit = Math.max(MIN_LIMIT, oldLimit >>> 1);
+            }
 
             // We not even allocated all the number that are
             if (free > 0) {
                 free(free);
             }
+            return (long) (oldLimit - limit) * elemSize;
         }
 
         @SuppressWarnings({ "unchecked", "rawtypes" })
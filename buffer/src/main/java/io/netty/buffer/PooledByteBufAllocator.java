@@ -17,15 +17,22 @@
 package io.netty.buffer;
 
 import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.ScheduledFuture;
+import io.netty.util.internal.InternalThreadLocalMap;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
+import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class PooledByteBufAllocator extends AbstractByteBufAllocator {
 
@@ -40,6 +47,14 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
     private static final int DEFAULT_NORMAL_CACHE_SIZE;
     private static final int DEFAULT_MAX_CACHED_BUFFER_CAPACITY;
     private static final int DEFAULT_CACHE_TRIM_INTERVAL;
+    private static final boolean DEFAULT_USE_FINE_SIZE_CLASSES;
+    private static final long DEFAULT_CHUNK_IDLE_TIME_MILLIS;
+    private static final long DEFAULT_ARENA_HIGH_WATERMARK;
+    private static final long DEFAULT_CHUNK_TRIM_INTERVAL_MILLIS;
+    private static final long DEFAULT_THREAD_CACHE_BUDGET;
+    private static final int DEFAULT_HUGE_CACHE_MAX_CHUNKS;
+    private static final long DEFAULT_HUGE_CACHE_MAX_BYTES;
+    private static final boolean DEFAULT_USE_EVENT_LOOP_AFFINITY;
 
     private static final int MIN_PAGE_SIZE = 4096;
     private static final int MAX_CHUNK_SIZE = (int) (((long) Integer.MAX_VALUE + 1) / 2);
@@ -102,6 +117,38 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         DEFAULT_CACHE_TRIM_INTERVAL = SystemPropertyUtil.getInt(
                 "io.netty.allocator.cacheTrimInterval", 8192);
 
+        // use several size classes per power of two instead of rounding up to the next power of two
+        DEFAULT_USE_FINE_SIZE_CLASSES = SystemPropertyUtil.getBoolean(
+                "io.netty.allocator.useFineSizeClasses", false);
+
+        // the time after which a completely unused chunk is released by trimChunks()
+        DEFAULT_CHUNK_IDLE_TIME_MILLIS = Math.max(0, SystemPropertyUtil.getLong(
+                "io.netty.allocator.chunkIdleTimeMillis", 0));
+
+        // the number of bytes an arena may hold before unused chunks are released immediately, 0 disables
+        DEFAULT_ARENA_HIGH_WATERMARK = Math.max(0, SystemPropertyUtil.getLong(
+                "io.netty.allocator.arenaHighWatermark", 0));
+
+        // the interval in which trimChunks() is called by a background task, 0 disables
+        DEFAULT_CHUNK_TRIM_INTERVAL_MILLIS = Math.max(0, SystemPropertyUtil.getLong(
+                "io.netty.allocator.chunkTrimIntervalMillis", 0));
+
+        // the number of bytes all thread local caches of an allocator may hold together, 0 disables the limit
+        DEFAULT_THREAD_CACHE_BUDGET = Math.max(0, SystemPropertyUtil.getLong(
+                "io.netty.allocator.threadCacheBudget", 0));
+
+        // the number of released huge chunks an arena may cache for reuse, 0 disables the cache
+        DEFAULT_HUGE_CACHE_MAX_CHUNKS = Math.max(0, SystemPropertyUtil.getInt(
+                "io.netty.allocator.hugeCacheMaxChunks", 0));
+
+        // the number of bytes the huge chunk cache of an arena may hold, 0 disables the limit
+        DEFAULT_HUGE_CACHE_MAX_BYTES = Math.max(0, SystemPropertyUtil.getLong(
+                "io.netty.allocator.hugeCacheMaxBytes", 0));
+
+        // bind the threads of event executor groups to the arena matching their index instead of the least used one
+        DEFAULT_USE_EVENT_LOOP_AFFINITY = SystemPropertyUtil.getBoolean(
+                "io.netty.allocator.eventLoopAffinity", false);
+
         if (logger.isDebugEnabled()) {
             logger.debug("-Dio.netty.allocator.numHeapArenas: {}", DEFAULT_NUM_HEAP_ARENA);
             logger.debug("-Dio.netty.allocator.numDirectArenas: {}", DEFAULT_NUM_DIRECT_ARENA);
@@ -121,6 +168,14 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
             logger.debug("-Dio.netty.allocator.normalCacheSize: {}", DEFAULT_NORMAL_CACHE_SIZE);
             logger.debug("-Dio.netty.allocator.maxCachedBufferCapacity: {}", DEFAULT_MAX_CACHED_BUFFER_CAPACITY);
             logger.debug("-Dio.netty.allocator.cacheTrimInterval: {}", DEFAULT_CACHE_TRIM_INTERVAL);
+            logger.debug("-Dio.netty.allocator.useFineSizeClasses: {}", DEFAULT_USE_FINE_SIZE_CLASSES);
+            logger.debug("-Dio.netty.allocator.chunkIdleTimeMillis: {}", DEFAULT_CHUNK_IDLE_TIME_MILLIS);
+            logger.debug("-Dio.netty.allocator.arenaHighWatermark: {}", DEFAULT_ARENA_HIGH_WATERMARK);
+            logger.debug("-Dio.netty.allocator.chunkTrimIntervalMillis: {}", DEFAULT_CHUNK_TRIM_INTERVAL_MILLIS);
+            logger.debug("-Dio.netty.allocator.threadCacheBudget: {}", DEFAULT_THREAD_CACHE_BUDGET);
+            logger.debug("-Dio.netty.allocator.hugeCacheMaxChunks: {}", DEFAULT_HUGE_CACHE_MAX_CHUNKS);
+            logger.debug("-Dio.netty.allocator.hugeCacheMaxBytes: {}", DEFAULT_HUGE_CACHE_MAX_BYTES);
+            logger.debug("-Dio.netty.allocator.eventLoopAffinity: {}", DEFAULT_USE_EVENT_LOOP_AFFINITY);
         }
     }
 
@@ -132,9 +187,18 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
     private final int tinyCacheSize;
     private final int smallCacheSize;
     private final int normalCacheSize;
+    private final boolean useFineSizeClasses;
+    private final long chunkIdleTimeMillis;
+    private final long arenaHighWatermark;
+    private final long threadCacheBudget;
+    private final boolean useEventLoopAffinity;
+    private final AtomicLong usedThreadCacheBudget = new AtomicLong();
+    private final Set<PoolThreadCache> threadCaches =
+            Collections.newSetFromMap(PlatformDependent.<PoolThreadCache, Boolean>newConcurrentHashMap());
     private final List<PoolArenaMetric> heapArenaMetrics;
     private final List<PoolArenaMetric> directArenaMetrics;
     private final PoolThreadLocalCache threadCache;
+    private final PooledByteBufAllocatorMetric metric;
 
     public PooledByteBufAllocator() {
         this(false);
@@ -155,12 +219,135 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
 
     public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
                                   int tinyCacheSize, int smallCacheSize, int normalCacheSize) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
+                tinyCacheSize, smallCacheSize, normalCacheSize, DEFAULT_USE_FINE_SIZE_CLASSES);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param useFineSizeClasses {@code true} if requests of {@code 512} bytes or more should be rounded up to one of
+     *                           several size classes per power of two instead of the next power of two. This
+     *                           reduces internal fragmentation for sizes that are not a power of two.
+     */
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int tinyCacheSize, int smallCacheSize, int normalCacheSize,
+                                  boolean useFineSizeClasses) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
+                tinyCacheSize, smallCacheSize, normalCacheSize, useFineSizeClasses,
+                DEFAULT_CHUNK_IDLE_TIME_MILLIS, DEFAULT_ARENA_HIGH_WATERMARK, DEFAULT_CHUNK_TRIM_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param useFineSizeClasses      {@code true} if fine-grained size classes should be used.
+     * @param chunkIdleTimeMillis     the time a chunk needs to be completely unused before it is released by
+     *                                {@link #trimChunks()}.
+     * @param arenaHighWatermark      the number of bytes an arena may hold before completely unused chunks are
+     *                                released immediately. {@code 0} disables the high watermark.
+     * @param chunkTrimIntervalMillis the interval in which {@link #trimChunks()} is called from a background task.
+     *                                {@code 0} disables the background task, in which case {@link #trimChunks()}
+     *                                may be called by the user, for example from an {@code EventLoop}.
+     */
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int tinyCacheSize, int smallCacheSize, int normalCacheSize,
+                                  boolean useFineSizeClasses, long chunkIdleTimeMillis, long arenaHighWatermark,
+                                  long chunkTrimIntervalMillis) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
+                tinyCacheSize, smallCacheSize, normalCacheSize, useFineSizeClasses,
+                chunkIdleTimeMillis, arenaHighWatermark, chunkTrimIntervalMillis, DEFAULT_THREAD_CACHE_BUDGET);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param threadCacheBudget the number of bytes all thread local caches may hold together. The tiny, small and
+     *                          normal cache sizes are the maximum number of buffers cached per size class, the actual
+     *                          capacity adapts to the hit and miss rates of each thread within this budget.
+     *                          {@code 0} disables the limit.
+     */
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int tinyCacheSize, int smallCacheSize, int normalCacheSize,
+                                  boolean useFineSizeClasses, long chunkIdleTimeMillis, long arenaHighWatermark,
+                                  long chunkTrimIntervalMillis, long threadCacheBudget) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
+                tinyCacheSize, smallCacheSize, normalCacheSize, useFineSizeClasses,
+                chunkIdleTimeMillis, arenaHighWatermark, chunkTrimIntervalMillis, threadCacheBudget,
+                DEFAULT_HUGE_CACHE_MAX_CHUNKS, DEFAULT_HUGE_CACHE_MAX_BYTES);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param hugeCacheMaxChunks the number of released chunks of allocations larger than the chunk size each arena
+     *                           may cache for reuse. Huge allocations are rounded up to one of four size classes per
+     *                           power of two if enabled. Cached chunks are released by {@link #trimChunks()} once
+     *                           they were idle for the chunk idle time. {@code 0} disables the cache.
+     * @param hugeCacheMaxBytes  the number of bytes the huge chunk cache of each arena may hold. {@code 0} disables
+     *                           the limit.
+     */
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int tinyCacheSize, int smallCacheSize, int normalCacheSize,
+                                  boolean useFineSizeClasses, long chunkIdleTimeMillis, long arenaHighWatermark,
+                                  long chunkTrimIntervalMillis, long threadCacheBudget,
+                                  int hugeCacheMaxChunks, long hugeCacheMaxBytes) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
+                tinyCacheSize, smallCacheSize, normalCacheSize, useFineSizeClasses,
+                chunkIdleTimeMillis, arenaHighWatermark, chunkTrimIntervalMillis, threadCacheBudget,
+                hugeCacheMaxChunks, hugeCacheMaxBytes, DEFAULT_USE_EVENT_LOOP_AFFINITY);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param useEventLoopAffinity {@code true} if a thread which runs an event executor of a
+     *                             {@link io.netty.util.concurrent.MultithreadEventExecutorGroup} should use the arena
+     *                             at the index of its executor modulo the number of arenas. Executor indices are
+     *                             unique across all groups. The same executor keeps using the same arena even if its
+     *                             thread is replaced, and the executors of a group never share an arena as long as
+     *                             there are at least as many arenas as executors. All other threads use the least
+     *                             used arena.
+     */
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int tinyCacheSize, int smallCacheSize, int normalCacheSize,
+                                  boolean useFineSizeClasses, long chunkIdleTimeMillis, long arenaHighWatermark,
+                                  long chunkTrimIntervalMillis, long threadCacheBudget,
+                                  int hugeCacheMaxChunks, long hugeCacheMaxBytes, boolean useEventLoopAffinity) {
         super(preferDirect);
         threadCache = new PoolThreadLocalCache();
+        metric = new PooledByteBufAllocatorMetric(this);
         this.tinyCacheSize = tinyCacheSize;
         this.smallCacheSize = smallCacheSize;
         this.normalCacheSize = normalCacheSize;
+        this.useFineSizeClasses = useFineSizeClasses;
+        this.chunkIdleTimeMillis = chunkIdleTimeMillis;
+        this.arenaHighWatermark = arenaHighWatermark;
+        this.threadCacheBudget = threadCacheBudget;
+        this.useEventLoopAffinity = useEventLoopAffinity;
         final int chunkSize = validateAndCalculateChunkSize(pageSize, maxOrder);
+        final long chunkIdleTimeNanos = TimeUnit.MILLISECONDS.toNanos(chunkIdleTimeMillis);
+
+        if (chunkIdleTimeMillis < 0) {
+            throw new IllegalArgumentException(
+                    "chunkIdleTimeMillis: " + chunkIdleTimeMillis + " (expected: >= 0)");
+        }
+        if (arenaHighWatermark < 0) {
+            throw new IllegalArgumentException("arenaHighWatermark: " + arenaHighWatermark + " (expected: >= 0)");
+        }
+        if (threadCacheBudget < 0) {
+            throw new IllegalArgumentException("threadCacheBudget: " + threadCacheBudget + " (expected: >= 0)");
+        }
+        if (hugeCacheMaxChunks < 0) {
+            throw new IllegalArgumentException("hugeCacheMaxChunks: " + hugeCacheMaxChunks + " (expected: >= 0)");
+        }
+        if (hugeCacheMaxBytes < 0) {
+            throw new IllegalArgumentException("hugeCacheMaxBytes: " + hugeCacheMaxBytes + " (expected: >= 0)");
+        }
+        if (chunkTrimIntervalMillis < 0) {
+            throw new IllegalArgumentException(
+                    "chunkTrimIntervalMillis: " + chunkTrimIntervalMillis + " (expected: >= 0)");
+        }
 
         if (nHeapArena < 0) {
             throw new IllegalArgumentException("nHeapArena: " + nHeapArena + " (expected: >= 0)");
@@ -175,7 +362,9 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
             heapArenas = newArenaArray(nHeapArena);
             List<PoolArenaMetric> metrics = new ArrayList<PoolArenaMetric>(heapArenas.length);
             for (int i = 0; i < heapArenas.length; i ++) {
-                PoolArena.HeapArena arena = new PoolArena.HeapArena(this, pageSize, maxOrder, pageShifts, chunkSize);
+                PoolArena.HeapArena arena = new PoolArena.HeapArena(this, pageSize, maxOrder, pageShifts, chunkSize,
+                        useFineSizeClasses, chunkIdleTimeNanos, arenaHighWatermark,
+                        hugeCacheMaxChunks, hugeCacheMaxBytes);
                 heapArenas[i] = arena;
                 metrics.add(arena);
             }
@@ -189,8 +378,9 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
             directArenas = newArenaArray(nDirectArena);
             List<PoolArenaMetric> metrics = new ArrayList<PoolArenaMetric>(directArenas.length);
             for (int i = 0; i < directArenas.length; i ++) {
-                PoolArena.DirectArena arena = new PoolArena.DirectArena(
-                        this, pageSize, maxOrder, pageShifts, chunkSize);
+                PoolArena.DirectArena arena = new PoolArena.DirectArena(this, pageSize, maxOrder, pageShifts, chunkSize,
+                        useFineSizeClasses, chunkIdleTimeNanos, arenaHighWatermark,
+                        hugeCacheMaxChunks, hugeCacheMaxBytes);
                 directArenas[i] = arena;
                 metrics.add(arena);
             }
@@ -199,6 +389,10 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
             directArenas = null;
             directArenaMetrics = Collections.emptyList();
         }
+
+        if (chunkTrimIntervalMillis > 0) {
+            ChunkTrimTask.schedule(this, chunkTrimIntervalMillis);
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -319,6 +513,67 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         return DEFAULT_NORMAL_CACHE_SIZE;
     }
 
+    /**
+     *  Default use of fine-grained size classes - System Property: io.netty.allocator.useFineSizeClasses
+     *  - default false
+     */
+    public static boolean defaultUseFineSizeClasses() {
+        return DEFAULT_USE_FINE_SIZE_CLASSES;
+    }
+
+    /**
+     *  Default chunk idle time - System Property: io.netty.allocator.chunkIdleTimeMillis - default 0
+     */
+    public static long defaultChunkIdleTimeMillis() {
+        return DEFAULT_CHUNK_IDLE_TIME_MILLIS;
+    }
+
+    /**
+     *  Default arena high watermark - System Property: io.netty.allocator.arenaHighWatermark - default 0 (disabled)
+     */
+    public static long defaultArenaHighWatermark() {
+        return DEFAULT_ARENA_HIGH_WATERMARK;
+    }
+
+    /**
+     *  Default chunk trim interval - System Property: io.netty.allocator.chunkTrimIntervalMillis - default 0
+     *  (disabled)
+     */
+    public static long defaultChunkTrimIntervalMillis() {
+        return DEFAULT_CHUNK_TRIM_INTERVAL_MILLIS;
+    }
+
+    /**
+     *  Default thread cache budget - System Property: io.netty.allocator.threadCacheBudget - default 0 (unlimited)
+     */
+    public static long defaultThreadCacheBudget() {
+        return DEFAULT_THREAD_CACHE_BUDGET;
+    }
+
+    /**
+     *  Default number of cached huge chunks per arena - System Property: io.netty.allocator.hugeCacheMaxChunks
+     *  - default 0 (disabled)
+     */
+    public static int defaultHugeCacheMaxChunks() {
+        return DEFAULT_HUGE_CACHE_MAX_CHUNKS;
+    }
+
+    /**
+     *  Default number of bytes cached in huge chunks per arena - System Property: io.netty.allocator.hugeCacheMaxBytes
+     *  - default 0 (unlimited)
+     */
+    public static long defaultHugeCacheMaxBytes() {
+        return DEFAULT_HUGE_CACHE_MAX_BYTES;
+    }
+
+    /**
+     *  Default binding of event executor threads to arenas - System Property: io.netty.allocator.eventLoopAffinity
+     *  - default false
+     */
+    public static boolean defaultUseEventLoopAffinity() {
+        return DEFAULT_USE_EVENT_LOOP_AFFINITY;
+    }
+
     @Override
     public boolean isDirectBufferPooled() {
         return directArenas != null;
@@ -345,12 +600,22 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
 
         @Override
         protected synchronized PoolThreadCache initialValue() {
-            final PoolArena<byte[]> heapArena = leastUsedArena(heapArenas);
-            final PoolArena<ByteBuffer> directArena = leastUsedArena(directArenas);
+            final int executorIndex = useEventLoopAffinity ? InternalThreadLocalMap.get().eventExecutorIndex() : -1;
+            final PoolArena<byte[]> heapArena;
+            final PoolArena<ByteBuffer> directArena;
+            if (executorIndex >= 0) {
+                heapArena = affineArena(heapArenas, executorIndex);
+                directArena = affineArena(directArenas, executorIndex);
+            } else {
+                heapArena = leastUsedArena(heapArenas);
+                directArena = leastUsedArena(directArenas);
+            }
 
-            return new PoolThreadCache(
-                    heapArena, directArena, tinyCacheSize, smallCacheSize, normalCacheSize,
-                    DEFAULT_MAX_CACHED_BUFFER_CAPACITY, DEFAULT_CACHE_TRIM_INTERVAL);
+            PoolThreadCache cache = new PoolThreadCache(
+                    PooledByteBufAllocator.this, heapArena, directArena, tinyCacheSize, smallCacheSize,
+                    normalCacheSize, DEFAULT_MAX_CACHED_BUFFER_CAPACITY, DEFAULT_CACHE_TRIM_INTERVAL);
+            threadCaches.add(cache);
+            return cache;
         }
 
         @Override
@@ -358,6 +623,13 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
             threadCache.free();
         }
 
+        private <T> PoolArena<T> affineArena(PoolArena<T>[] arenas, int executorIndex) {
+            if (arenas == null || arenas.length == 0) {
+                return null;
+            }
+            return arenas[executorIndex % arenas.length];
+        }
+
         private <T> PoolArena<T> leastUsedArena(PoolArena<T>[] arenas) {
             if (arenas == null || arenas.length == 0) {
                 return null;
@@ -375,6 +647,13 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         }
     }
 
+    /**
+     * Return the {@link PooledByteBufAllocatorMetric} which exposes metrics for the whole allocator.
+     */
+    public PooledByteBufAllocatorMetric metric() {
+        return metric;
+    }
+
     /**
      * Return the number of heap arenas.
      */
@@ -441,10 +720,154 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         return normalCacheSize;
     }
 
+    /**
+     * Return {@code true} if fine-grained size classes are used.
+     */
+    public boolean useFineSizeClasses() {
+        return useFineSizeClasses;
+    }
+
+    /**
+     * Return the time a chunk needs to be completely unused before it is released by {@link #trimChunks()}.
+     */
+    public long chunkIdleTimeMillis() {
+        return chunkIdleTimeMillis;
+    }
+
+    /**
+     * Return the number of bytes an arena may hold before completely unused chunks are released immediately or
+     * {@code 0} if there is no limit.
+     */
+    public long arenaHighWatermark() {
+        return arenaHighWatermark;
+    }
+
+    /**
+     * Release all chunks which were completely unused for at least {@link #chunkIdleTimeMillis()} back to the
+     * system. If the calling {@link Thread} has a thread local cache the buffers which were not allocated frequently
+     * enough are released from it first, so calling this method periodically from each {@code EventLoop} allows the
+     * memory held by this allocator to follow the actual load.
+     *
+     * @return the number of released chunks
+     */
+    public int trimChunks() {
+        if (threadCache.isSet()) {
+            threadCache.get().trim();
+        }
+
+        long currentNanos = System.nanoTime();
+        return trimChunks(heapArenas, currentNanos) + trimChunks(directArenas, currentNanos);
+    }
+
+    private static int trimChunks(PoolArena<?>[] arenas, long currentNanos) {
+        if (arenas == null) {
+            return 0;
+        }
+        int numTrimmed = 0;
+        for (PoolArena<?> arena: arenas) {
+            numTrimmed += arena.trimChunks(currentNanos);
+        }
+        return numTrimmed;
+    }
+
     final PoolThreadCache threadCache() {
         return threadCache.get();
     }
 
+    /**
+     * Return a {@link List} of the {@link PoolThreadCacheMetric}s of all thread local caches which are currently used
+     * by this {@link PooledByteBufAllocator}.
+     */
+    public List<PoolThreadCacheMetric> threadCaches() {
+        return Collections.unmodifiableList(new ArrayList<PoolThreadCacheMetric>(threadCaches));
+    }
+
+    /**
+     * Return the number of bytes all thread local caches may hold together or {@code 0} if there is no limit.
+     */
+    public long threadCacheBudget() {
+        return threadCacheBudget;
+    }
+
+    /**
+     * Return the number of bytes of the thread cache budget that are reserved by the thread local caches.
+     */
+    public long usedThreadCacheBudget() {
+        return usedThreadCacheBudget.get();
+    }
+
+    /**
+     * Reserve {@code bytes} of the thread cache budget. Returns {@code false} if the budget would be exceeded.
+     */
+    boolean reserveThreadCacheBytes(long bytes) {
+        if (threadCacheBudget == 0) {
+            usedThreadCacheBudget.addAndGet(bytes);
+            return true;
+        }
+        for (;;) {
+            long used = usedThreadCacheBudget.get();
+            long newUsed = used + bytes;
+            if (newUsed > threadCacheBudget) {
+                return false;
+            }
+            if (usedThreadCacheBudget.compareAndSet(used, newUsed)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Reserve {@code bytes} of the thread cache budget even if this exceeds the budget.
+     */
+    void forceReserveThreadCacheBytes(long bytes) {
+        usedThreadCacheBudget.addAndGet(bytes);
+    }
+
+    void releaseThreadCacheBytes(long bytes) {
+        usedThreadCacheBudget.addAndGet(-bytes);
+    }
+
+    void threadCacheFreed(PoolThreadCache cache) {
+        if (threadCaches.remove(cache)) {
+            releaseThreadCacheBytes(cache.capacityBytes());
+        }
+    }
+
+    /**
+     * Calls {@link #trimChunks()} periodically from the {@link GlobalEventExecutor}. Only a weak reference to the
+     * allocator is held so the task cancels itself once the allocator was garbage collected.
+     */
+    private static final class ChunkTrimTask implements Runnable {
+        private final WeakReference<PooledByteBufAllocator> allocatorRef;
+        private volatile ScheduledFuture<?> future;
+
+        private ChunkTrimTask(PooledByteBufAllocator allocator) {
+            allocatorRef = new WeakReference<PooledByteBufAllocator>(allocator);
+        }
+
+        static void schedule(PooledByteBufAllocator allocator, long intervalMillis) {
+            ChunkTrimTask task = new ChunkTrimTask(allocator);
+            task.future = GlobalEventExecutor.INSTANCE.scheduleAtFixedRate(
+                    task, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void run() {
+            PooledByteBufAllocator allocator = allocatorRef.get();
+            if (allocator == null) {
+                ScheduledFuture<?> future = this.future;
+                if (future != null) {
+                    future.cancel(false);
+                }
+                return;
+            }
+            int numTrimmed = allocator.trimChunks();
+            if (numTrimmed > 0 && logger.isDebugEnabled()) {
+                logger.debug("Released {} unused chunk(s)", numTrimmed);
+            }
+        }
+    }
+
     // Too noisy at the moment.
     //
     //public String toString() {
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+
+/**
+ * Exposes metrics for the whole {@link PooledByteBufAllocator}. In contrast to {@link PoolArenaMetric} all counters
+ * are maintained incrementally when memory is allocated and released, so reading them is cheap and does not depend
+ * on the number of arenas or chunks.
+ */
+public final class PooledByteBufAllocatorMetric {
+
+    private final PooledByteBufAllocator allocator;
+    final MemoryCounters heapCounters = new MemoryCounters();
+    final MemoryCounters directCounters = new MemoryCounters();
+
+    PooledByteBufAllocatorMetric(PooledByteBufAllocator allocator) {
+        this.allocator = allocator;
+    }
+
+    /**
+     * Return the number of bytes of heap memory that are currently held by the allocator. This includes the
+     * memory of all chunks, whether it is in use or not, and of all huge allocations.
+     */
+    public long usedHeapMemory() {
+        return heapCounters.usedMemory.value();
+    }
+
+    /**
+     * Return the number of bytes of direct memory that are currently held by the allocator. This includes the
+     * memory of all chunks, whether it is in use or not, and of all huge allocations.
+     */
+    public long usedDirectMemory() {
+        return directCounters.usedMemory.value();
+    }
+
+    /**
+     * Return the number of heap chunks that are currently held by the allocator.
+     */
+    public long numHeapChunks() {
+        return heapCounters.numChunks.value();
+    }
+
+    /**
+     * Return the number of direct chunks that are currently held by the allocator.
+     */
+    public long numDirectChunks() {
+        return directCounters.numChunks.value();
+    }
+
+    /**
+     * Return the number of tiny buffers that are currently allocated, including the buffers that were served by a
+     * thread local cache.
+     */
+    public long numActiveTinyAllocations() {
+        return heapCounters.activeTinyAllocations.value() + directCounters.activeTinyAllocations.value();
+    }
+
+    /**
+     * Return the number of small buffers that are currently allocated, including the buffers that were served by a
+     * thread local cache.
+     */
+    public long numActiveSmallAllocations() {
+        return heapCounters.activeSmallAllocations.value() + directCounters.activeSmallAllocations.value();
+    }
+
+    /**
+     * Return the number of normal buffers that are currently allocated, including the buffers that were served by a
+     * thread local cache.
+     */
+    public long numActiveNormalAllocations() {
+        return heapCounters.activeNormalAllocations.value() + directCounters.activeNormalAllocations.value();
+    }
+
+    /**
+     * Return the number of huge buffers that are currently allocated.
+     */
+    public long numActiveHugeAllocations() {
+        return heapCounters.activeHugeAllocations.value() + directCounters.activeHugeAllocations.value();
+    }
+
+    /**
+     * Return the number of buffers that are currently allocated.
+     */
+    public long numActiveAllocations() {
+        return numActiveTinyAllocations() + numActiveSmallAllocations() +
+               numActiveNormalAllocations() + numActiveHugeAllocations();
+    }
+
+    /**
+     * Return the number of heap arenas.
+     */
+    public int numHeapArenas() {
+        return allocator.numHeapArenas();
+    }
+
+    /**
+     * Return the number of direct arenas.
+     */
+    public int numDirectArenas() {
+        return allocator.numDirectArenas();
+    }
+
+    /**
+     * Return the number of thread local caches used by the allocator.
+     */
+    public int numThreadLocalCaches() {
+        return allocator.numThreadLocalCaches();
+    }
+
+    /**
+     * Return the size of the tiny cache.
+     */
+    public int tinyCacheSize() {
+        return allocator.tinyCacheSize();
+    }
+
+    /**
+     * Return the size of the small cache.
+     */
+    public int smallCacheSize() {
+        return allocator.smallCacheSize();
+    }
+
+    /**
+     * Return the size of the normal cache.
+     */
+    public int normalCacheSize() {
+        return allocator.normalCacheSize();
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(256)
+                .append(StringUtil.simpleClassName(this))
+                .append("(usedHeapMemory: ").append(usedHeapMemory())
+                .append("; usedDirectMemory: ").append(usedDirectMemory())
+                .append("; numHeapChunks: ").append(numHeapChunks())
+                .append("; numDirectChunks: ").append(numDirectChunks())
+                .append("; numActiveAllocations: ").append(numActiveAllocations())
+                .append("; numHeapArenas: ").append(numHeapArenas())
+                .append("; numDirectArenas: ").append(numDirectArenas())
+                .append("; numThreadLocalCaches: ").append(numThreadLocalCaches())
+                .append(')').toString();
+    }
+
+    /**
+     * The counters which are updated by the arenas of one memory type.
+     */
+    static final class MemoryCounters {
+        final LongCounter usedMemory = PlatformDependent.newLongCounter();
+        final LongCounter numChunks = PlatformDependent.newLongCounter();
+        final LongCounter activeTinyAllocations = PlatformDependent.newLongCounter();
+        final LongCounter activeSmallAllocations = PlatformDependent.newLongCounter();
+        final LongCounter activeNormalAllocations = PlatformDependent.newLongCounter();
+        final LongCounter activeHugeAllocations = PlatformDependent.newLongCounter();
+
+        void chunkAllocated(int chunkSize) {
+            numChunks.increment();
+            usedMemory.add(chunkSize);
+        }
+
+        void chunkDestroyed(int chunkSize) {
+            numChunks.decrement();
+            usedMemory.add(-chunkSize);
+        }
+
+        LongCounter activeAllocations(PoolArena.SizeClass sizeClass) {
+            switch (sizeClass) {
+            case Tiny:
+                return activeTinyAllocations;
+            case Small:
+                return activeSmallAllocations;
+            case Normal:
+                return activeNormalAllocations;
+            default:
+                throw new Error();
+            }
+        }
+    }
+}
@@ -24,12 +24,13 @@ import java.nio.ByteBuffer;
 /**
  * Read-only ByteBuf which wraps a read-only direct ByteBuffer and use unsafe for best performance.
  */
-final class ReadOnlyUnsafeDirectByteBuf extends ReadOnlyByteBufferBuf {
+class ReadOnlyUnsafeDirectByteBuf extends ReadOnlyByteBufferBuf {
     private final long memoryAddress;
 
     ReadOnlyUnsafeDirectByteBuf(ByteBufAllocator allocator, ByteBuffer buffer) {
         super(allocator, buffer);
-        memoryAddress = PlatformDependent.directBufferAddress(buffer);
+        // Use the slice created by the super constructor as the position of buffer may be non-zero.
+        memoryAddress = PlatformDependent.directBufferAddress(this.buffer);
     }
 
     @Override
@@ -17,9 +17,14 @@ package io.netty.buffer;
 
 import io.netty.util.internal.PlatformDependent;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
@@ -59,6 +64,8 @@ import java.util.List;
  * You might want to take a look at the methods that accept varargs closely if
  * you want to create a buffer which is composed of more than one array to
  * reduce the number of memory copy.
+ * {@link #wrappedMappedFile(File, long, int)} creates a read-only buffer which
+ * is a view of a memory-mapped region of a file.
  *
  * <h3>Creating a copied buffer</h3>
  *
@@ -207,6 +214,59 @@ public final class Unpooled {
         }
     }
 
+    /**
+     * Creates a new read-only buffer which maps the whole content of the specified file into memory.
+     *
+     * @see #wrappedMappedFile(File, long, int)
+     */
+    public static ByteBuf wrappedMappedFile(File file) throws IOException {
+        long length = file.length();
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "file.length(): " + length + " (expected: <= " + Integer.MAX_VALUE + ')');
+        }
+        return wrappedMappedFile(file, 0, (int) length);
+    }
+
+    /**
+     * Creates a new read-only buffer which maps {@code length} bytes of the specified file starting at
+     * {@code offset} into memory via {@link FileChannel#map(FileChannel.MapMode, long, long)}. The content is not
+     * copied, so slices and duplicates of the returned buffer can be used to parse the file without reading it.
+     * The mapping is released as soon as the reference count of the returned buffer reaches {@code 0}, so the
+     * caller is responsible for releasing it.
+     */
+    public static ByteBuf wrappedMappedFile(File file, long offset, int length) throws IOException {
+        if (file == null) {
+            throw new NullPointerException("file");
+        }
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset: " + offset + " (expected: >= 0)");
+        }
+        if (length < 0) {
+            throw new IllegalArgumentException("length: " + length + " (expected: >= 0)");
+        }
+        if (length == 0) {
+            return EMPTY_BUFFER;
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        MappedByteBuffer mapping;
+        try {
+            if (offset + length > raf.length()) {
+                throw new IllegalArgumentException("offset + length: " + (offset + length) +
+                        " (expected: <= " + raf.length() + ')');
+            }
+            mapping = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, offset, length);
+        } finally {
+            // The mapping stays valid after the channel was closed.
+            raf.close();
+        }
+        if (PlatformDependent.hasUnsafe()) {
+            return new ReadOnlyUnsafeMappedByteBuf(ALLOC, mapping);
+        }
+        return new ReadOnlyMappedByteBufferBuf(ALLOC, mapping);
+    }
+
     /**
      * Creates a new buffer which wraps the specified buffer's readable bytes.
      * A modification on the specified buffer's content will be visible to the
@@ -48,7 +48,9 @@ public final class UnpooledByteBufAllocator extends AbstractByteBufAllocator {
     protected ByteBuf newDirectBuffer(int initialCapacity, int maxCapacity) {
         ByteBuf buf;
         if (PlatformDependent.hasUnsafe()) {
-            buf = new UnpooledUnsafeDirectByteBuf(this, initialCapacity, maxCapacity);
+            buf = PlatformDependent.useDirectBufferNoCleaner() ?
+                    new UnpooledUnsafeNoCleanerDirectByteBuf(this, initialCapacity, maxCapacity) :
+                    new UnpooledUnsafeDirectByteBuf(this, initialCapacity, maxCapacity);
         } else {
             buf = new UnpooledDirectByteBuf(this, initialCapacity, maxCapacity);
         }
@@ -50,21 +50,41 @@ final class UnreleasableByteBuf extends WrappedByteBuf {
         return new UnreleasableByteBuf(buf.readSlice(length));
     }
 
+    @Override
+    public ByteBuf readRetainedSlice(int length) {
+        return readSlice(length);
+    }
+
     @Override
     public ByteBuf slice() {
         return new UnreleasableByteBuf(buf.slice());
     }
 
+    @Override
+    public ByteBuf retainedSlice() {
+        return slice();
+    }
+
     @Override
     public ByteBuf slice(int index, int length) {
         return new UnreleasableByteBuf(buf.slice(index, length));
     }
 
+    @Override
+    public ByteBuf retainedSlice(int index, int length) {
+        return slice(index, length);
+    }
+
     @Override
     public ByteBuf duplicate() {
         return new UnreleasableByteBuf(buf.duplicate());
     }
 
+    @Override
+    public ByteBuf retainedDuplicate() {
+        return duplicate();
+    }
+
     @Override
     public ByteBuf retain(int increment) {
         return this;
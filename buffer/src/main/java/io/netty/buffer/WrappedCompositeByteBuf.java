@@ -332,11 +332,21 @@ class WrappedCompositeByteBuf extends CompositeByteBuf {
         return wrapped.slice();
     }
 
+    @Override
+    public ByteBuf retainedSlice() {
+        return wrapped.retainedSlice();
+    }
+
     @Override
     public ByteBuf slice(int index, int length) {
         return wrapped.slice(index, length);
     }
 
+    @Override
+    public ByteBuf retainedSlice(int index, int length) {
+        return wrapped.retainedSlice(index, length);
+    }
+
     @Override
     public ByteBuffer nioBuffer() {
         return wrapped.nioBuffer();
@@ -417,11 +427,21 @@ class WrappedCompositeByteBuf extends CompositeByteBuf {
         return wrapped.duplicate();
     }
 
+    @Override
+    public ByteBuf retainedDuplicate() {
+        return wrapped.retainedDuplicate();
+    }
+
     @Override
     public ByteBuf readSlice(int length) {
         return wrapped.readSlice(length);
     }
 
+    @Override
+    public ByteBuf readRetainedSlice(int length) {
+        return wrapped.readRetainedSlice(length);
+    }
+
     @Override
     public int readBytes(GatheringByteChannel out, int length) throws IOException {
         return wrapped.readBytes(out, length);
@@ -2846,6 +2846,72 @@ public abstract class AbstractByteBufTest {
         assertEquals(0, buf.refCnt());
     }
 
+    @Test
+    public void testRetainedSliceRelease() {
+        ByteBuf buf = newBuffer(8);
+        buf.clear().writeBytes(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+        ByteBuf slice = buf.retainedSlice(2, 4);
+        assertEquals(4, slice.readableBytes());
+        assertEquals(3, slice.getByte(0));
+
+        // The slice keeps the content alive until it is released as well.
+        assertFalse(buf.release());
+        assertEquals(3, slice.readByte());
+        assertTrue(slice.release());
+        assertEquals(0, buf.refCnt());
+    }
+
+    @Test
+    public void testRetainedSliceOfRetainedSlice() {
+        ByteBuf buf = newBuffer(8);
+        buf.clear().writeBytes(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+        ByteBuf slice = buf.retainedSlice(1, 6);
+        ByteBuf slice2 = slice.retainedSlice(1, 4);
+        assertEquals(4, slice2.capacity());
+        assertEquals(3, slice2.getByte(0));
+        assertEquals(6, slice2.getByte(3));
+
+        // Modifications are visible through every derived buffer.
+        slice2.setByte(0, 10);
+        assertEquals(10, buf.getByte(2));
+        assertEquals(10, slice.getByte(1));
+
+        assertFalse(buf.release());
+        assertFalse(slice.release());
+        assertTrue(slice2.release());
+        assertEquals(0, buf.refCnt());
+    }
+
+    @Test
+    public void testReadRetainedSlice() {
+        ByteBuf buf = newBuffer(8);
+        buf.clear().writeBytes(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+        ByteBuf slice = buf.readRetainedSlice(3);
+        assertEquals(3, buf.readerIndex());
+        assertEquals(3, slice.readableBytes());
+        assertEquals(1, slice.readByte());
+        assertFalse(buf.release());
+        assertTrue(slice.release());
+        assertEquals(0, buf.refCnt());
+    }
+
+    @Test
+    public void testRetainedDuplicateRelease() {
+        ByteBuf buf = newBuffer(8);
+        buf.clear().writeBytes(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+        buf.readerIndex(2);
+        ByteBuf duplicate = buf.retainedDuplicate();
+        assertEquals(buf.readerIndex(), duplicate.readerIndex());
+        assertEquals(buf.writerIndex(), duplicate.writerIndex());
+        assertEquals(buf.capacity(), duplicate.capacity());
+        assertEquals(3, duplicate.readByte());
+        assertEquals(2, buf.readerIndex());
+
+        assertFalse(buf.release());
+        assertTrue(duplicate.release());
+        assertEquals(0, buf.refCnt());
+    }
+
     // Test-case trying to reproduce:
     // https://github.com/netty/netty/issues/2843
     @Test
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AccountingByteBufAllocatorTest {
+
+    @Test
+    public void testReleaseReturnsBytesToQuota() {
+        ByteBufQuota quota = new ByteBufQuota("test", 0, 0);
+        AccountingByteBufAllocator alloc = new AccountingByteBufAllocator(UnpooledByteBufAllocator.DEFAULT, quota);
+        ByteBuf buf = alloc.heapBuffer(64);
+        ByteBuf buf2 = alloc.directBuffer(32);
+        assertEquals(96, quota.usedBytes());
+        assertTrue(buf.release());
+        assertEquals(32, quota.usedBytes());
+        assertTrue(buf2.release());
+        assertEquals(0, quota.usedBytes());
+    }
+
+    @Test
+    public void testHardLimit() {
+        ByteBufQuota quota = new ByteBufQuota("test", 0, 100);
+        AccountingByteBufAllocator alloc = new AccountingByteBufAllocator(UnpooledByteBufAllocator.DEFAULT, quota);
+        ByteBuf buf = alloc.buffer(64);
+        try {
+            alloc.buffer(64);
+            fail();
+        } catch (ByteBufQuotaExceededException expected) {
+            // expected
+        }
+        assertEquals(64, quota.usedBytes());
+        assertEquals(1, quota.numRejectedAllocations());
+        buf.release();
+        alloc.buffer(64).release();
+        assertEquals(0, quota.usedBytes());
+    }
+
+    @Test
+    public void testSoftLimitOfParent() {
+        ByteBufQuota group = new ByteBufQuota("group", 100, 0);
+        ByteBufQuota quota = new ByteBufQuota("channel", group, 0, 0);
+        AccountingByteBufAllocator alloc = new AccountingByteBufAllocator(UnpooledByteBufAllocator.DEFAULT, quota);
+        ByteBuf buf = alloc.buffer(128);
+        assertEquals(128, group.usedBytes());
+        assertTrue(quota.isSoftLimitExceeded());
+        buf.release();
+        assertEquals(0, group.usedBytes());
+        assertFalse(quota.isSoftLimitExceeded());
+    }
+
+    @Test
+    public void testReleaseThroughDerivedBuffer() {
+        ByteBufQuota quota = new ByteBufQuota("test", 0, 0);
+        AccountingByteBufAllocator alloc = new AccountingByteBufAllocator(UnpooledByteBufAllocator.DEFAULT, quota);
+        ByteBuf buf = alloc.buffer(16).writeZero(16);
+        ByteBuf slice = buf.retainedSlice(0, 8);
+        assertFalse(buf.release());
+        assertEquals(16, quota.usedBytes());
+        assertTrue(slice.release());
+        assertEquals(0, quota.usedBytes());
+    }
+
+    @Test
+    public void testGrowthIsCharged() {
+        ByteBufQuota quota = new ByteBufQuota("test", 0, 0);
+        AccountingByteBufAllocator alloc = new AccountingByteBufAllocator(UnpooledByteBufAllocator.DEFAULT, quota);
+        ByteBuf buf = alloc.buffer(16);
+        buf.writeBytes(new byte[100]);
+        assertEquals(buf.capacity(), quota.usedBytes());
+        buf.release();
+        assertEquals(0, quota.usedBytes());
+    }
+
+    @Test
+    public void testRejectionCountedOnceOnExceededQuota() {
+        ByteBufQuota group = new ByteBufQuota("group", 0, 100);
+        ByteBufQuota quota = new ByteBufQuota("channel", group, 0, 0);
+        AccountingByteBufAllocator alloc = new AccountingByteBufAllocator(UnpooledByteBufAllocator.DEFAULT, quota);
+        try {
+            alloc.buffer(128);
+            fail();
+        } catch (ByteBufQuotaExceededException expected) {
+            // expected
+        }
+        assertEquals(1, group.numRejectedAllocations());
+        assertEquals(0, quota.numRejectedAllocations());
+        assertEquals(0, group.usedBytes());
+    }
+
+    @Test
+    public void testGrowthBySingleValueWritesIsCharged() {
+        ByteBufQuota quota = new ByteBufQuota("test", 0, 0);
+        AccountingByteBufAllocator alloc = new AccountingByteBufAllocator(UnpooledByteBufAllocator.DEFAULT, quota);
+        ByteBuf buf = alloc.buffer(4);
+        for (int i = 0; i < 64; i++) {
+            buf.writeByte(i);
+            buf.writeInt(i);
+            buf.writeLong(i);
+        }
+        assertTrue(buf.capacity() > 4);
+        assertEquals(buf.capacity(), quota.usedBytes());
+        buf.release();
+        assertEquals(0, quota.usedBytes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSoftLimitGreaterThanHardLimit() {
+        new ByteBufQuota("test", 200, 100);
+    }
+}
@@ -16,6 +16,7 @@
 package io.netty.buffer;
 
 import io.netty.util.AsciiString;
+import io.netty.util.ByteProcessor;
 import io.netty.util.CharsetUtil;
 import org.junit.Test;
 
@@ -307,4 +308,57 @@ public class ByteBufUtilTest {
             buffer.release();
         }
     }
+
+    @Test
+    public void testIndexOf() {
+        testIndexOf(Unpooled.buffer(64));
+        testIndexOf(Unpooled.directBuffer(64));
+        testIndexOf(Unpooled.buffer(80).slice(3, 64));
+    }
+
+    private static void testIndexOf(ByteBuf buffer) {
+        try {
+            Random random = new Random();
+            for (int round = 0; round < 100; round ++) {
+                buffer.clear();
+                for (int i = 0; i < buffer.capacity(); i ++) {
+                    // Use a small alphabet and include bytes like 0x01 and 0x80 which may break bit tricks.
+                    buffer.writeByte(random.nextInt(8) == 0 ? 0 : 0x01 | random.nextInt(2) << 7);
+                }
+                for (int from = 0; from < buffer.capacity(); from ++) {
+                    for (int to = from; to <= buffer.capacity(); to += 7) {
+                        assertEquals(naiveIndexOf(buffer, from, to, (byte) 0),
+                                     buffer.indexOf(from, to, (byte) 0));
+                        assertEquals(naiveIndexOf(buffer, from, to, (byte) 0x81),
+                                     buffer.indexOf(from, to, (byte) 0x81));
+                    }
+                }
+            }
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void testForEachByteFindsCrLf() {
+        ByteBuf buffer = Unpooled.copiedBuffer("GET / HTTP/1.1\r\nHost: netty.io\n\n", CharsetUtil.US_ASCII);
+        try {
+            assertEquals(14, buffer.forEachByte(ByteProcessor.FIND_CRLF));
+            assertEquals(14, buffer.forEachByte(ByteProcessor.FIND_CR));
+            assertEquals(15, buffer.forEachByte(ByteProcessor.FIND_LF));
+            assertEquals(30, buffer.forEachByte(16, buffer.readableBytes() - 16, ByteProcessor.FIND_CRLF));
+            assertEquals(-1, buffer.forEachByte(ByteProcessor.FIND_NUL));
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private static int naiveIndexOf(ByteBuf buffer, int fromIndex, int toIndex, byte value) {
+        for (int i = fromIndex; i < toIndex; i ++) {
+            if (buffer.getByte(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
 }
@@ -32,4 +32,33 @@ public class PoolArenaTest {
             Assert.assertEquals(expectedResult[i], arena.normalizeCapacity(reqCapacities[i]));
         }
     }
+
+    @Test
+    public void testNormalizeCapacityWithFineSizeClasses() throws Exception {
+        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, 8192, 11, 13, 8192 << 11, true, 0, 0, 0, 0);
+        int[] reqCapacities = {0, 15, 510, 513, 1025, 8193, 9216, 16384, 57345, 70000};
+        int[] expectedResult = {0, 16, 512, 640, 1280, 10240, 10240, 16384, 65536, 131072};
+        for (int i = 0; i < reqCapacities.length; i ++) {
+            Assert.assertEquals(expectedResult[i], arena.normalizeCapacity(reqCapacities[i]));
+        }
+    }
+
+    @Test
+    public void testAllocateWithFineSizeClasses() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 1, 1, 8192, 11, 0, 0, 0, true);
+        ByteBuf buf = allocator.directBuffer(9 * 1024);
+        try {
+            Assert.assertEquals(16 * 1024 - 10 * 1024,
+                    allocator.directArenas().get(0).numActiveBytesSavedBySizeClasses());
+            for (int i = 0; i < buf.capacity(); i ++) {
+                buf.writeByte(i);
+            }
+            for (int i = 0; i < buf.capacity(); i ++) {
+                Assert.assertEquals((byte) i, buf.getByte(i));
+            }
+        } finally {
+            buf.release();
+        }
+        Assert.assertEquals(0, allocator.directArenas().get(0).numActiveBytesSavedBySizeClasses());
+    }
 }
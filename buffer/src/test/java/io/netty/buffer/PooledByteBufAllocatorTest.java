@@ -16,8 +16,12 @@
 
 package io.netty.buffer;
 
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
 import io.netty.util.concurrent.FastThreadLocal;
 import io.netty.util.concurrent.FastThreadLocalThread;
+import io.netty.util.internal.InternalThreadLocalMap;
 import io.netty.util.internal.SystemPropertyUtil;
 import org.junit.Test;
 
@@ -27,10 +31,13 @@ import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.LockSupport;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class PooledByteBufAllocatorTest {
@@ -131,6 +138,45 @@ public class PooledByteBufAllocatorTest {
         assertEquals(0, allocator.directArenas().get(1).numThreadCaches());
     }
 
+    @Test
+    public void testEventLoopAffinity() throws Exception {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                false, 4, 4, 8192, 11, 0, 0, 0, false, 0, 0, 0, 0, 0, 0, true);
+        // Occupy the first arenas so that the least used arena would differ from the affine one.
+        CountDownLatch tcache0 = createNewThreadCache(allocator);
+        CountDownLatch tcache1 = createNewThreadCache(allocator);
+
+        DefaultEventExecutorGroup bossGroup = new DefaultEventExecutorGroup(2);
+        DefaultEventExecutorGroup workerGroup = new DefaultEventExecutorGroup(2);
+        try {
+            final List<Integer> executorIndices = new ArrayList<Integer>();
+            final List<PoolArena<byte[]>> arenas = new ArrayList<PoolArena<byte[]>>();
+            for (EventExecutorGroup group: new EventExecutorGroup[] { bossGroup, workerGroup }) {
+                for (EventExecutor executor: group) {
+                    executor.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            allocator.heapBuffer(16).release();
+                            executorIndices.add(InternalThreadLocalMap.get().eventExecutorIndex());
+                            arenas.add(allocator.threadCache().heapArena);
+                        }
+                    }).sync();
+                }
+            }
+            for (int i = 0; i < executorIndices.size(); i++) {
+                int executorIndex = executorIndices.get(i);
+                // The executors of both groups have consecutive indices, so they do not share an arena.
+                assertEquals(executorIndices.get(0) + i, executorIndex);
+                assertSame(allocator.heapArenas().get(executorIndex % 4), arenas.get(i));
+            }
+        } finally {
+            bossGroup.shutdownGracefully(0, 0, MILLISECONDS).sync();
+            workerGroup.shutdownGracefully(0, 0, MILLISECONDS).sync();
+            destroyThreadCache(tcache0);
+            destroyThreadCache(tcache1);
+        }
+    }
+
     private static void destroyThreadCache(CountDownLatch tcache) {
         tcache.countDown();
         LockSupport.parkNanos(MILLISECONDS.toNanos(100));
@@ -195,6 +241,243 @@ public class PooledByteBufAllocatorTest {
         }
     }
 
+    @Test
+    public void testTrimChunks() {
+        // No caches so the released buffers are returned to the arena directly.
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 0, 0, 0, false, 0, 0, 0);
+        ByteBuf buf = allocator.directBuffer(1024 * 1024);
+        assertEquals(0, allocator.trimChunks());
+        buf.release();
+        assertEquals(1, usedChunks(allocator.directArenas().get(0)));
+        assertEquals(1, allocator.trimChunks());
+        assertEquals(0, usedChunks(allocator.directArenas().get(0)));
+    }
+
+    @Test
+    public void testTrimChunksReleasesUnusedChunkOutsideQInit() {
+        int chunkSize = 8192 << 11;
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 0, 0, 0, false, 0, 0, 0);
+        PoolArena<?> arena = (PoolArena<?>) allocator.directArenas().get(0);
+        // A fully used chunk moves to q100 and is only moved down by one list when the buffer is released.
+        ByteBuf buf = allocator.directBuffer(chunkSize);
+        buf.release();
+        assertEquals(1, usedChunks(arena));
+        assertEquals(1, unusedChunksOutsideQInit(arena));
+        assertEquals(1, allocator.trimChunks());
+        assertEquals(0, usedChunks(arena));
+        assertEquals(0, allocator.metric().usedDirectMemory());
+
+        // Same for a chunk which is released from q050.
+        ByteBuf buf1 = allocator.directBuffer(chunkSize / 2);
+        ByteBuf buf2 = allocator.directBuffer(chunkSize / 4);
+        buf2.release();
+        buf1.release();
+        assertEquals(1, usedChunks(arena));
+        assertEquals(1, unusedChunksOutsideQInit(arena));
+        assertEquals(1, allocator.trimChunks());
+        assertEquals(0, usedChunks(arena));
+    }
+
+    private static int unusedChunksOutsideQInit(PoolArenaMetric arena) {
+        int count = 0;
+        for (PoolChunkListMetric list: arena.chunkLists()) {
+            if (list.minUsage() != Integer.MIN_VALUE) {
+                for (PoolChunkMetric chunk: list) {
+                    if (chunk.usage() == 0) {
+                        count ++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testTrimChunksHonorsIdleTime() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 0, 0, 0, false, 60000, 0, 0);
+        allocator.directBuffer(1024 * 1024).release();
+        assertEquals(0, allocator.trimChunks());
+        assertEquals(1, usedChunks(allocator.directArenas().get(0)));
+    }
+
+    @Test
+    public void testArenaHighWatermark() {
+        int chunkSize = 8192 << 11;
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 0, 0, 0, false, 60000, chunkSize, 0);
+        ByteBuf buf1 = allocator.directBuffer(chunkSize);
+        ByteBuf buf2 = allocator.directBuffer(chunkSize);
+        assertEquals(2, usedChunks(allocator.directArenas().get(0)));
+
+        // The arena is above its high watermark so the chunk is released immediately.
+        buf1.release();
+        assertEquals(1, usedChunks(allocator.directArenas().get(0)));
+
+        // The last chunk is within the high watermark and so is retained.
+        buf2.release();
+        assertEquals(1, usedChunks(allocator.directArenas().get(0)));
+    }
+
+    @Test
+    public void testAllocatorMetric() {
+        int chunkSize = 8192 << 11;
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 1, 1, 8192, 11, 0, 0, 0, false, 0, 0, 0, 0);
+        PooledByteBufAllocatorMetric metric = allocator.metric();
+        assertEquals(0, metric.usedDirectMemory());
+        assertEquals(0, metric.numActiveAllocations());
+
+        ByteBuf tiny = allocator.directBuffer(16);
+        ByteBuf small = allocator.directBuffer(1024);
+        ByteBuf normal = allocator.heapBuffer(8192);
+        ByteBuf huge = allocator.directBuffer(chunkSize + 1);
+        assertEquals(1, metric.numActiveTinyAllocations());
+        assertEquals(1, metric.numActiveSmallAllocations());
+        assertEquals(1, metric.numActiveNormalAllocations());
+        assertEquals(1, metric.numActiveHugeAllocations());
+        assertEquals(1, metric.numDirectChunks());
+        assertEquals(1, metric.numHeapChunks());
+        assertEquals(chunkSize + chunkSize + 1, metric.usedDirectMemory());
+        assertEquals(chunkSize, metric.usedHeapMemory());
+
+        tiny.release();
+        small.release();
+        normal.release();
+        huge.release();
+        assertEquals(0, metric.numActiveAllocations());
+        assertEquals(chunkSize, metric.usedDirectMemory());
+        assertEquals(1, metric.numHeapArenas());
+        assertEquals(1, metric.numDirectArenas());
+    }
+
+    @Test
+    public void testHugeChunkCache() {
+        int chunkSize = 8192 << 11;
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 0, 0, 0, false, 60000, 0, 0, 0, 1, 0);
+        PoolArena<?> arena = (PoolArena<?>) allocator.directArenas().get(0);
+
+        ByteBuf buf = allocator.directBuffer(chunkSize + 1);
+        assertEquals(chunkSize + 1, buf.capacity());
+        long usedMemory = allocator.metric().usedDirectMemory();
+        buf.release();
+        assertEquals(1, arena.numCachedHugeChunks());
+        assertEquals(usedMemory, allocator.metric().usedDirectMemory());
+
+        // A slightly larger request falls into the same size class and so reuses the cached chunk.
+        buf = allocator.directBuffer(chunkSize + 2);
+        assertEquals(0, arena.numCachedHugeChunks());
+        assertEquals(usedMemory, allocator.metric().usedDirectMemory());
+
+        // The cache holds at most one chunk.
+        ByteBuf buf2 = allocator.directBuffer(chunkSize + 2);
+        buf.release();
+        buf2.release();
+        assertEquals(1, arena.numCachedHugeChunks());
+        assertEquals(usedMemory, allocator.metric().usedDirectMemory());
+
+        // The cached chunk is not idle long enough to be released.
+        assertEquals(0, allocator.trimChunks());
+        assertEquals(1, arena.numCachedHugeChunks());
+    }
+
+    @Test
+    public void testHugeChunkCacheTrim() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 0, 0, 0, false, 0, 0, 0, 0, 4, 0);
+        PoolArena<?> arena = (PoolArena<?>) allocator.directArenas().get(0);
+        allocator.directBuffer((8192 << 11) + 1).release();
+        assertEquals(1, arena.numCachedHugeChunks());
+        assertEquals(1, allocator.trimChunks());
+        assertEquals(0, arena.numCachedHugeChunks());
+        assertEquals(0, allocator.metric().usedDirectMemory());
+    }
+
+    @Test
+    public void testThreadCacheMetric() throws Throwable {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 1, 1, 8192, 11, 16, 16, 16, false, 0, 0, 0, 0);
+        final AtomicReference<PoolThreadCacheMetric> metric = new AtomicReference<PoolThreadCacheMetric>();
+        final AtomicReference<Throwable> cause = new AtomicReference<Throwable>();
+        Thread t = new FastThreadLocalThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    // The first allocation misses the cache, the second is served by it.
+                    allocator.directBuffer(1024).release();
+                    allocator.directBuffer(1024).release();
+                    PoolThreadCacheMetric cacheMetric = allocator.threadCaches().get(0);
+                    assertEquals(Thread.currentThread().getName(), cacheMetric.threadName());
+                    assertTrue(cacheMetric.cachedBytes() > 0);
+                    metric.set(cacheMetric);
+                } catch (Throwable e) {
+                    cause.set(e);
+                } finally {
+                    FastThreadLocal.removeAll();
+                }
+            }
+        });
+        t.start();
+        joinAndCheck(t, cause);
+
+        assertEquals(1, metric.get().numHits());
+        assertEquals(1, metric.get().numMisses());
+        assertEquals(0, allocator.threadCaches().size());
+        assertEquals(0, allocator.usedThreadCacheBudget());
+    }
+
+    @Test
+    public void testThreadCacheBudget() throws Throwable {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 1, 1, 8192, 11, 16, 16, 16, false, 0, 0, 0, 1024 * 1024);
+        final AtomicReference<Throwable> cause = new AtomicReference<Throwable>();
+        Thread t = new FastThreadLocalThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    allocator.directBuffer(1024).release();
+                    PoolThreadCacheMetric cacheMetric = allocator.threadCaches().get(0);
+                    // The configured cache sizes do not fit into the budget so the caches start with the minimal
+                    // size.
+                    assertTrue(cacheMetric.capacityBytes() <= allocator.threadCacheBudget());
+                    assertEquals(cacheMetric.capacityBytes(), allocator.usedThreadCacheBudget());
+                } catch (Throwable e) {
+                    cause.set(e);
+                } finally {
+                    FastThreadLocal.removeAll();
+                }
+            }
+        });
+        t.start();
+        joinAndCheck(t, cause);
+        assertEquals(0, allocator.usedThreadCacheBudget());
+    }
+
+    /**
+     * Waits for the given {@link Thread} and rethrows what it failed with, as JUnit only sees failures of the
+     * thread which runs the test.
+     */
+    private static void joinAndCheck(Thread t, AtomicReference<Throwable> cause) throws Throwable {
+        t.join(10000);
+        assertFalse("thread did not finish in time", t.isAlive());
+        if (cause.get() != null) {
+            throw cause.get();
+        }
+    }
+
+    private static int usedChunks(PoolArenaMetric arena) {
+        int numChunks = 0;
+        for (PoolChunkListMetric chunkList: arena.chunkLists()) {
+            for (PoolChunkMetric ignored: chunkList) {
+                numChunks ++;
+            }
+        }
+        return numChunks;
+    }
+
     private static boolean isExpired(long start, long expireTime) {
         return System.nanoTime() - start > expireTime;
     }
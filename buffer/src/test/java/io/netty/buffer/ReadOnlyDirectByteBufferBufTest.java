@@ -89,6 +89,31 @@ public class ReadOnlyDirectByteBufferBufTest {
         buf.release();
     }
 
+    @Test(expected = ReadOnlyBufferException.class)
+    public void testGetBytesIntoReadOnlyFromDirect() {
+        ByteBuf buf = releaseLater(buffer(allocate(8).asReadOnlyBuffer()));
+        releaseLater(Unpooled.directBuffer(8).writeLong(1)).getBytes(0, buf, 0, 8);
+    }
+
+    @Test(expected = ReadOnlyBufferException.class)
+    public void testGetBytesIntoReadOnlyFromHeap() {
+        ByteBuf buf = releaseLater(buffer(allocate(8).asReadOnlyBuffer()));
+        releaseLater(Unpooled.buffer(8).writeLong(1)).getBytes(0, buf, 0, 8);
+    }
+
+    @Test(expected = ReadOnlyBufferException.class)
+    public void testGetBytesIntoReadOnlyFromPooledHeap() {
+        ByteBuf buf = releaseLater(buffer(allocate(8).asReadOnlyBuffer()));
+        releaseLater(PooledByteBufAllocator.DEFAULT.heapBuffer(8).writeLong(1)).getBytes(0, buf, 0, 8);
+    }
+
+    @Test(expected = ReadOnlyBufferException.class)
+    public void testGetBytesIntoReadOnlyFromReadOnly() {
+        ByteBuf buf = releaseLater(buffer(allocate(8).asReadOnlyBuffer()));
+        ByteBuffer src = allocate(8).putLong(0, 1).asReadOnlyBuffer();
+        releaseLater(buffer(src)).getBytes(0, buf, 0, 8);
+    }
+
     @Test
     public void testGetReadByte() {
         ByteBuf buf = releaseLater(buffer(
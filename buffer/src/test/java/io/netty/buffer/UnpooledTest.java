@@ -19,6 +19,9 @@ import org.easymock.EasyMock;
 import org.junit.After;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.ScatteringByteChannel;
@@ -623,6 +626,49 @@ public class UnpooledTest {
         wrapped.release();
     }
 
+    @Test
+    public void testWrappedMappedFile() throws IOException {
+        File file = File.createTempFile("netty-", ".tmp");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            for (int i = 0; i < 64; i++) {
+                out.write(i);
+            }
+        } finally {
+            out.close();
+        }
+
+        ByteBuf wrapped = wrappedMappedFile(file, 8, 32);
+        assertEquals(32, wrapped.readableBytes());
+        assertTrue(wrapped.isDirect());
+        for (int i = 0; i < 32; i++) {
+            assertEquals((byte) (i + 8), wrapped.getByte(i));
+        }
+        ByteBuf slice = wrapped.slice(4, 8);
+        assertEquals(0x0c0d0e0f, slice.getInt(0));
+        assertEquals(wrapped.getLong(8), wrapped.duplicate().getLong(8));
+        assertTrue(wrapped.release());
+        assertEquals(0, slice.refCnt());
+
+        ByteBuf whole = wrappedMappedFile(file);
+        assertEquals(64, whole.readableBytes());
+        assertEquals(63, whole.getByte(63));
+        assertTrue(whole.release());
+        file.delete();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrappedMappedFileOutOfRange() throws IOException {
+        File file = File.createTempFile("netty-", ".tmp");
+        file.deleteOnExit();
+        try {
+            wrappedMappedFile(file, 0, 1);
+        } finally {
+            file.delete();
+        }
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void skipBytesNegativeLength() {
         ByteBuf buf = freeLater(buffer(8));
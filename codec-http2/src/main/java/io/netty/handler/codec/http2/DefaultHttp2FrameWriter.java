@@ -156,10 +156,10 @@ public class DefaultHttp2FrameWriter implements Http2FrameWriter, Http2FrameSize
                 ctx.write(lastFrame ? frameHeader : frameHeader.retain(), promiseAggregator.newPromise());
 
                 // Write the frame data.
-                ByteBuf frameData = data.readSlice(frameDataBytes);
                 // Only the last frame is not retained. Until then, the outer finally must release.
+                ByteBuf frameData = lastFrame ? data.readSlice(frameDataBytes) : data.readRetainedSlice(frameDataBytes);
                 needToReleaseData = !lastFrame;
-                ctx.write(lastFrame ? frameData : frameData.retain(), promiseAggregator.newPromise());
+                ctx.write(frameData, promiseAggregator.newPromise());
 
                 // Write the frame padding.
                 if (framePaddingBytes > 0) {
@@ -492,7 +492,7 @@ public class DefaultHttp2FrameWriter implements Http2FrameWriter, Http2FrameSize
 
             do {
                 fragmentReadableBytes = min(headerBlock.readableBytes(), maxFragmentLength);
-                ByteBuf fragment = headerBlock.readSlice(fragmentReadableBytes).retain();
+                ByteBuf fragment = headerBlock.readRetainedSlice(fragmentReadableBytes);
 
                 payloadLength = fragmentReadableBytes + nonFragmentLength;
                 if (headerBlock.isReadable()) {
@@ -0,0 +1,744 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util;
+
+import io.netty.util.internal.MpscLinkedQueueNode;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A {@link Timer} which uses a hierarchy of timing wheels, optimized for a large number of long living timeouts
+ * which are usually cancelled before they expire (for example request timeouts).
+ *
+ * <h3>Levels</h3>
+ *
+ * Unlike {@link HashedWheelTimer}, which walks every timeout of a bucket on every rotation of its single wheel until
+ * the remaining rounds reach zero, this timer maintains {@code levels} wheels of {@code ticksPerWheel} buckets each.
+ * A bucket of the first level spans one tick, a bucket of the second level spans {@code ticksPerWheel} ticks, and so
+ * on.  A timeout is placed into the lowest level whose range covers its deadline and is cascaded into a lower level
+ * only when the bucket of the higher level becomes current.  So every timeout is touched at most once per level,
+ * regardless of how far in the future its deadline is.
+ *
+ * <h3>Cancellation</h3>
+ *
+ * {@link Timeout#cancel()} unlinks the timeout from its bucket in O(1) right away, so a cancelled timeout does not
+ * occupy memory until the next tick and the worker thread never sees it again.  Every bucket is guarded by its own
+ * monitor, so a cancellation only contends with the worker thread if the worker is touching the very same bucket.
+ *
+ * <h3>Task execution</h3>
+ *
+ * By default expired {@link TimerTask}s are executed by the worker thread, just like {@link HashedWheelTimer} does.
+ * If an {@link Executor} is specified, the timeouts which expire in the same tick are handed over to it in batches
+ * of up to {@value #MAX_BATCH_SIZE} tasks, so a slow {@link TimerTask} can not delay the ticks of the timer.
+ *
+ * <h3>Do not create many instances.</h3>
+ *
+ * {@link HierarchicalWheelTimer} creates a new thread whenever it is instantiated and started.  Therefore, you should
+ * make sure to create only one instance and share it across your application.
+ */
+public class HierarchicalWheelTimer implements Timer {
+
+    static final InternalLogger logger = InternalLoggerFactory.getInstance(HierarchicalWheelTimer.class);
+
+    /**
+     * The maximum number of expired {@link TimerTask}s which are executed by a single task of the task executor.
+     */
+    public static final int MAX_BATCH_SIZE = 1024;
+
+    private static final ResourceLeakDetector<HierarchicalWheelTimer> leakDetector =
+            new ResourceLeakDetector<HierarchicalWheelTimer>(
+                    HierarchicalWheelTimer.class, 1, Runtime.getRuntime().availableProcessors() * 4);
+
+    private static final AtomicIntegerFieldUpdater<HierarchicalWheelTimer> WORKER_STATE_UPDATER;
+    static {
+        AtomicIntegerFieldUpdater<HierarchicalWheelTimer> workerStateUpdater =
+                PlatformDependent.newAtomicIntegerFieldUpdater(HierarchicalWheelTimer.class, "workerState");
+        if (workerStateUpdater == null) {
+            workerStateUpdater = AtomicIntegerFieldUpdater.newUpdater(HierarchicalWheelTimer.class, "workerState");
+        }
+        WORKER_STATE_UPDATER = workerStateUpdater;
+    }
+
+    private static final int WORKER_STATE_INIT = 0;
+    private static final int WORKER_STATE_STARTED = 1;
+    private static final int WORKER_STATE_SHUTDOWN = 2;
+
+    private final ResourceLeak leak;
+    private final Worker worker = new Worker();
+    private final Thread workerThread;
+    @SuppressWarnings({ "unused", "FieldMayBeFinal", "RedundantFieldInitialization" })
+    private volatile int workerState = WORKER_STATE_INIT; // 0 - init, 1 - started, 2 - shut down
+
+    private final long tickDuration;
+    // wheels[0] is the lowest level whose buckets span a single tick.
+    private final Bucket[][] wheels;
+    private final int wheelBits;
+    private final int mask;
+    private final Executor taskExecutor;
+    private final CountDownLatch startTimeInitialized = new CountDownLatch(1);
+    private final Queue<HierarchicalWheelTimeout> timeouts = PlatformDependent.newMpscQueue();
+
+    private volatile long startTime;
+
+    /**
+     * Creates a new timer with the default thread factory ({@link Executors#defaultThreadFactory()}), a tick
+     * duration of 100 milliseconds, 256 ticks per wheel and 4 levels.
+     */
+    public HierarchicalWheelTimer() {
+        this(Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Creates a new timer with the default thread factory ({@link Executors#defaultThreadFactory()}), 256 ticks per
+     * wheel and 4 levels.
+     *
+     * @param tickDuration   the duration between tick
+     * @param unit           the time unit of the {@code tickDuration}
+     * @throws NullPointerException     if {@code unit} is {@code null}
+     * @throws IllegalArgumentException if {@code tickDuration} is &lt;= 0
+     */
+    public HierarchicalWheelTimer(long tickDuration, TimeUnit unit) {
+        this(Executors.defaultThreadFactory(), tickDuration, unit);
+    }
+
+    /**
+     * Creates a new timer with a tick duration of 100 milliseconds, 256 ticks per wheel and 4 levels.
+     *
+     * @param threadFactory  a {@link ThreadFactory} that creates a background {@link Thread} which is dedicated to
+     *                       advance the wheels and, if no task executor is specified, {@link TimerTask} execution.
+     * @throws NullPointerException if {@code threadFactory} is {@code null}
+     */
+    public HierarchicalWheelTimer(ThreadFactory threadFactory) {
+        this(threadFactory, 100, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a new timer with 256 ticks per wheel and 4 levels.
+     *
+     * @param threadFactory  a {@link ThreadFactory} that creates a background {@link Thread} which is dedicated to
+     *                       advance the wheels and, if no task executor is specified, {@link TimerTask} execution.
+     * @param tickDuration   the duration between tick
+     * @param unit           the time unit of the {@code tickDuration}
+     * @throws NullPointerException     if either of {@code threadFactory} and {@code unit} is {@code null}
+     * @throws IllegalArgumentException if {@code tickDuration} is &lt;= 0
+     */
+    public HierarchicalWheelTimer(ThreadFactory threadFactory, long tickDuration, TimeUnit unit) {
+        this(threadFactory, tickDuration, unit, 256, 4);
+    }
+
+    /**
+     * Creates a new timer which executes the {@link TimerTask}s in its worker thread.
+     *
+     * @param threadFactory  a {@link ThreadFactory} that creates a background {@link Thread} which is dedicated to
+     *                       advance the wheels and {@link TimerTask} execution.
+     * @param tickDuration   the duration between tick
+     * @param unit           the time unit of the {@code tickDuration}
+     * @param ticksPerWheel  the number of buckets of each wheel, rounded up to the next power of two
+     * @param levels         the number of wheels, at least {@code 2} so timeouts beyond the range of the first wheel
+     *                       are cascaded
+     * @throws NullPointerException     if either of {@code threadFactory} and {@code unit} is {@code null}
+     * @throws IllegalArgumentException if either of {@code tickDuration} and {@code ticksPerWheel} is &lt;= 0,
+     *                                  or {@code levels} is &lt;= 1
+     */
+    public HierarchicalWheelTimer(ThreadFactory threadFactory, long tickDuration, TimeUnit unit,
+                                  int ticksPerWheel, int levels) {
+        this(threadFactory, tickDuration, unit, ticksPerWheel, levels, null);
+    }
+
+    /**
+     * Creates a new timer.
+     *
+     * @param threadFactory  a {@link ThreadFactory} that creates a background {@link Thread} which is dedicated to
+     *                       advance the wheels and, if {@code taskExecutor} is {@code null}, {@link TimerTask}
+     *                       execution.
+     * @param tickDuration   the duration between tick
+     * @param unit           the time unit of the {@code tickDuration}
+     * @param ticksPerWheel  the number of buckets of each wheel, rounded up to the next power of two
+     * @param levels         the number of wheels, at least {@code 2} so timeouts beyond the range of the first wheel
+     *                       are cascaded
+     * @param taskExecutor   the {@link Executor} which executes the expired {@link TimerTask}s in batches, or
+     *                       {@code null} if they should be executed by the worker thread
+     * @throws NullPointerException     if either of {@code threadFactory} and {@code unit} is {@code null}
+     * @throws IllegalArgumentException if either of {@code tickDuration} and {@code ticksPerWheel} is &lt;= 0,
+     *                                  or {@code levels} is &lt;= 1
+     */
+    public HierarchicalWheelTimer(ThreadFactory threadFactory, long tickDuration, TimeUnit unit,
+                                  int ticksPerWheel, int levels, Executor taskExecutor) {
+        if (threadFactory == null) {
+            throw new NullPointerException("threadFactory");
+        }
+        if (unit == null) {
+            throw new NullPointerException("unit");
+        }
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be greater than 0: " + tickDuration);
+        }
+        if (ticksPerWheel <= 1) {
+            throw new IllegalArgumentException("ticksPerWheel must be greater than 1: " + ticksPerWheel);
+        }
+        if (ticksPerWheel > 1 << 16) {
+            throw new IllegalArgumentException("ticksPerWheel may not be greater than 2^16: " + ticksPerWheel);
+        }
+        if (levels <= 1) {
+            // With a single wheel nothing is cascaded, so timeouts beyond its range would expire too early.
+            throw new IllegalArgumentException("levels must be greater than 1: " + levels);
+        }
+
+        wheelBits = Integer.SIZE - Integer.numberOfLeadingZeros(ticksPerWheel - 1);
+        if (wheelBits * levels > 62) {
+            throw new IllegalArgumentException(String.format(
+                    "levels: %d (expected: 1 < levels <= %d for ticksPerWheel %d)",
+                    levels, 62 / wheelBits, ticksPerWheel));
+        }
+        mask = (1 << wheelBits) - 1;
+        wheels = new Bucket[levels][];
+        for (int i = 0; i < levels; i ++) {
+            Bucket[] wheel = new Bucket[1 << wheelBits];
+            for (int j = 0; j < wheel.length; j ++) {
+                wheel[j] = new Bucket();
+            }
+            wheels[i] = wheel;
+        }
+
+        // Convert tickDuration to nanos.
+        this.tickDuration = unit.toNanos(tickDuration);
+
+        // Prevent overflow.
+        if (this.tickDuration >= Long.MAX_VALUE >>> wheelBits) {
+            throw new IllegalArgumentException(String.format(
+                    "tickDuration: %d (expected: 0 < tickDuration in nanos < %d",
+                    tickDuration, Long.MAX_VALUE >>> wheelBits));
+        }
+        this.taskExecutor = taskExecutor;
+        workerThread = threadFactory.newThread(worker);
+
+        leak = leakDetector.open(this);
+    }
+
+    /**
+     * Starts the background thread explicitly.  The background thread will
+     * start automatically on demand even if you did not call this method.
+     *
+     * @throws IllegalStateException if this timer has been
+     *                               {@linkplain #stop() stopped} already
+     */
+    public void start() {
+        switch (WORKER_STATE_UPDATER.get(this)) {
+            case WORKER_STATE_INIT:
+                if (WORKER_STATE_UPDATER.compareAndSet(this, WORKER_STATE_INIT, WORKER_STATE_STARTED)) {
+                    workerThread.start();
+                }
+                break;
+            case WORKER_STATE_STARTED:
+                break;
+            case WORKER_STATE_SHUTDOWN:
+                throw new IllegalStateException("cannot be started once stopped");
+            default:
+                throw new Error("Invalid WorkerState");
+        }
+
+        // Wait until the startTime is initialized by the worker.
+        while (startTime == 0) {
+            try {
+                startTimeInitialized.await();
+            } catch (InterruptedException ignore) {
+                // Ignore - it will be ready very soon.
+            }
+        }
+    }
+
+    @Override
+    public Set<Timeout> stop() {
+        if (Thread.currentThread() == workerThread) {
+            throw new IllegalStateException(
+                    HierarchicalWheelTimer.class.getSimpleName() +
+                            ".stop() cannot be called from " +
+                            TimerTask.class.getSimpleName());
+        }
+
+        if (!WORKER_STATE_UPDATER.compareAndSet(this, WORKER_STATE_STARTED, WORKER_STATE_SHUTDOWN)) {
+            // workerState can be 0 or 2 at this moment - let it always be 2.
+            WORKER_STATE_UPDATER.set(this, WORKER_STATE_SHUTDOWN);
+
+            if (leak != null) {
+                leak.close();
+            }
+
+            return Collections.emptySet();
+        }
+
+        boolean interrupted = false;
+        while (workerThread.isAlive()) {
+            workerThread.interrupt();
+            try {
+                workerThread.join(100);
+            } catch (InterruptedException ignored) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (leak != null) {
+            leak.close();
+        }
+        return worker.unprocessedTimeouts();
+    }
+
+    @Override
+    public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        if (unit == null) {
+            throw new NullPointerException("unit");
+        }
+        start();
+
+        // Add the timeout to the timeout queue which will be processed on the next tick.
+        // During processing all the queued timeouts will be added to the correct Bucket.
+        long deadline = System.nanoTime() + unit.toNanos(delay) - startTime;
+        HierarchicalWheelTimeout timeout = new HierarchicalWheelTimeout(this, task, deadline);
+        timeouts.add(timeout);
+        return timeout;
+    }
+
+    private final class Worker implements Runnable {
+        private final Set<Timeout> unprocessedTimeouts = new HashSet<Timeout>();
+        private final List<HierarchicalWheelTimeout> expired = new ArrayList<HierarchicalWheelTimeout>();
+
+        private long tick;
+
+        @Override
+        public void run() {
+            // Initialize the startTime.
+            startTime = System.nanoTime();
+            if (startTime == 0) {
+                // We use 0 as an indicator for the uninitialized value here, so make sure it's not 0 when initialized.
+                startTime = 1;
+            }
+
+            // Notify the other threads waiting for the initialization at start().
+            startTimeInitialized.countDown();
+
+            do {
+                final long deadline = waitForNextTick();
+                if (deadline > 0) {
+                    cascade();
+                    transferTimeoutsToBuckets();
+                    wheels[0][(int) (tick & mask)].expireTimeouts(deadline, expired);
+                    runExpiredTimeouts();
+                    tick++;
+                }
+            } while (WORKER_STATE_UPDATER.get(HierarchicalWheelTimer.this) == WORKER_STATE_STARTED);
+
+            // Fill the unprocessedTimeouts so we can return them from stop() method.
+            for (Bucket[] wheel: wheels) {
+                for (Bucket bucket: wheel) {
+                    bucket.clearTimeouts(unprocessedTimeouts);
+                }
+            }
+            for (;;) {
+                HierarchicalWheelTimeout timeout = timeouts.poll();
+                if (timeout == null) {
+                    break;
+                }
+                if (!timeout.isCancelled()) {
+                    unprocessedTimeouts.add(timeout);
+                }
+            }
+        }
+
+        /**
+         * Moves the timeouts of the buckets of the higher levels which become current with this tick into the
+         * lower levels.
+         */
+        private void cascade() {
+            for (int level = 1; level < wheels.length; level ++) {
+                final int shift = wheelBits * level;
+                if ((tick & ((1L << shift) - 1)) != 0) {
+                    // The lower level did not complete a rotation, and so neither did the ones above it.
+                    break;
+                }
+                Bucket bucket = wheels[level][(int) ((tick >>> shift) & mask)];
+                for (;;) {
+                    HierarchicalWheelTimeout timeout = bucket.pollTimeout();
+                    if (timeout == null) {
+                        break;
+                    }
+                    addTimeout(timeout);
+                }
+            }
+        }
+
+        private void transferTimeoutsToBuckets() {
+            // transfer only max. 100000 timeouts per tick to prevent a thread to stale the workerThread when it just
+            // adds new timeouts in a loop.
+            for (int i = 0; i < 100000; i++) {
+                HierarchicalWheelTimeout timeout = timeouts.poll();
+                if (timeout == null) {
+                    // all processed
+                    break;
+                }
+                addTimeout(timeout);
+            }
+        }
+
+        private void addTimeout(HierarchicalWheelTimeout timeout) {
+            if (timeout.isCancelled()) {
+                // Was cancelled in the meantime.
+                return;
+            }
+            // Ensure we don't schedule for past.
+            final long calculated = Math.max(timeout.deadline / tickDuration, tick);
+            final long delta = calculated - tick;
+            int level = 0;
+            while (level < wheels.length - 1 && delta >>> (wheelBits * (level + 1)) != 0) {
+                level ++;
+            }
+            long stopTick = calculated;
+            final int shift = wheelBits * level;
+            if (delta >>> shift > mask) {
+                // The deadline is beyond the range of the highest level. Put it into the farthest bucket so it is
+                // cascaded and placed again once that bucket becomes current.
+                stopTick = tick + (((long) mask) << shift);
+            }
+            Bucket bucket = wheels[level][(int) ((stopTick >>> shift) & mask)];
+            bucket.addTimeout(timeout);
+            // cancel() may have been called while the timeout was moved and so not have seen the new bucket. As
+            // cancel() changes the state before it reads the bucket and we read the state after we set the bucket,
+            // at least one of both unlinks it.
+            if (timeout.isCancelled()) {
+                bucket.remove(timeout);
+            }
+        }
+
+        private void runExpiredTimeouts() {
+            final List<HierarchicalWheelTimeout> expired = this.expired;
+            final int size = expired.size();
+            if (size == 0) {
+                return;
+            }
+            if (taskExecutor == null) {
+                for (int i = 0; i < size; i ++) {
+                    expired.get(i).runTask();
+                }
+            } else {
+                for (int i = 0; i < size; i += MAX_BATCH_SIZE) {
+                    final HierarchicalWheelTimeout[] batch = expired.subList(i, Math.min(size, i + MAX_BATCH_SIZE))
+                            .toArray(new HierarchicalWheelTimeout[0]);
+                    Runnable batchTask = new Runnable() {
+                        @Override
+                        public void run() {
+                            for (HierarchicalWheelTimeout timeout: batch) {
+                                timeout.runTask();
+                            }
+                        }
+                    };
+                    try {
+                        taskExecutor.execute(batchTask);
+                    } catch (Throwable t) {
+                        logger.warn("Failed to submit expired timeouts to the task executor, " +
+                                "running them in the worker thread.", t);
+                        batchTask.run();
+                    }
+                }
+            }
+            expired.clear();
+        }
+
+        /**
+         * calculate goal nanoTime from startTime and current tick number,
+         * then wait until that goal has been reached.
+         * @return Long.MIN_VALUE if received a shutdown request,
+         * current time otherwise (with Long.MIN_VALUE changed by +1)
+         */
+        private long waitForNextTick() {
+            long deadline = tickDuration * (tick + 1);
+
+            for (;;) {
+                final long currentTime = System.nanoTime() - startTime;
+                long sleepTimeMs = (deadline - currentTime + 999999) / 1000000;
+
+                if (sleepTimeMs <= 0) {
+                    if (currentTime == Long.MIN_VALUE) {
+                        return -Long.MAX_VALUE;
+                    } else {
+                        return currentTime;
+                    }
+                }
+
+                // Check if we run on windows, as if thats the case we will need
+                // to round the sleepTime as workaround for a bug that only affect
+                // the JVM if it runs on windows.
+                //
+                // See https://github.com/netty/netty/issues/356
+                if (PlatformDependent.isWindows()) {
+                    sleepTimeMs = sleepTimeMs / 10 * 10;
+                }
+
+                try {
+                    Thread.sleep(sleepTimeMs);
+                } catch (InterruptedException ignored) {
+                    if (WORKER_STATE_UPDATER.get(HierarchicalWheelTimer.this) == WORKER_STATE_SHUTDOWN) {
+                        return Long.MIN_VALUE;
+                    }
+                }
+            }
+        }
+
+        Set<Timeout> unprocessedTimeouts() {
+            return Collections.unmodifiableSet(unprocessedTimeouts);
+        }
+    }
+
+    private static final class HierarchicalWheelTimeout extends MpscLinkedQueueNode<Timeout> implements Timeout {
+
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<HierarchicalWheelTimeout> STATE_UPDATER;
+
+        static {
+            AtomicIntegerFieldUpdater<HierarchicalWheelTimeout> updater =
+                    PlatformDependent.newAtomicIntegerFieldUpdater(HierarchicalWheelTimeout.class, "state");
+            if (updater == null) {
+                updater = AtomicIntegerFieldUpdater.newUpdater(HierarchicalWheelTimeout.class, "state");
+            }
+            STATE_UPDATER = updater;
+        }
+
+        private final HierarchicalWheelTimer timer;
+        private final TimerTask task;
+        private final long deadline;
+
+        @SuppressWarnings({"unused", "FieldMayBeFinal", "RedundantFieldInitialization" })
+        private volatile int state = ST_INIT;
+
+        // This will be used to chain timeouts in a Bucket via a double-linked-list.
+        // Guarded by the monitor of the bucket.
+        HierarchicalWheelTimeout next;
+        HierarchicalWheelTimeout prev;
+
+        // The bucket to which the timeout was added, or null if it is not (or no longer) in any bucket.
+        volatile Bucket bucket;
+
+        HierarchicalWheelTimeout(HierarchicalWheelTimer timer, TimerTask task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public Timer timer() {
+            return timer;
+        }
+
+        @Override
+        public TimerTask task() {
+            return task;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!STATE_UPDATER.compareAndSet(this, ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            // Unlink the timeout right away. If it was not transferred to a bucket yet, or is just being moved to
+            // another one, the worker thread will drop it once it sees the new state.
+            Bucket bucket = this.bucket;
+            if (bucket != null) {
+                bucket.remove(this);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state == ST_CANCELLED;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state == ST_EXPIRED;
+        }
+
+        @Override
+        public HierarchicalWheelTimeout value() {
+            return this;
+        }
+
+        boolean expire() {
+            return STATE_UPDATER.compareAndSet(this, ST_INIT, ST_EXPIRED);
+        }
+
+        void runTask() {
+            try {
+                task.run(this);
+            } catch (Throwable t) {
+                if (logger.isWarnEnabled()) {
+                    logger.warn("An exception was thrown by " + TimerTask.class.getSimpleName() + '.', t);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            final long currentTime = System.nanoTime();
+            long remaining = deadline - currentTime + timer.startTime;
+
+            StringBuilder buf = new StringBuilder(192)
+               .append(StringUtil.simpleClassName(this))
+               .append('(')
+               .append("deadline: ");
+            if (remaining > 0) {
+                buf.append(remaining)
+                   .append(" ns later");
+            } else if (remaining < 0) {
+                buf.append(-remaining)
+                   .append(" ns ago");
+            } else {
+                buf.append("now");
+            }
+
+            if (isCancelled()) {
+                buf.append(", cancelled");
+            }
+
+            return buf.append(", task: ")
+                      .append(task())
+                      .append(')')
+                      .toString();
+        }
+    }
+
+    /**
+     * Bucket that stores timeouts in a double-linked-list, so that a timeout can be removed in O(1) when it is
+     * cancelled. The timeouts act as nodes themself and so no extra object creation is needed.
+     *
+     * All modifications are guarded by the monitor of the bucket, as {@link Timeout#cancel()} removes timeouts from
+     * other threads than the worker thread.
+     */
+    private static final class Bucket {
+        private HierarchicalWheelTimeout head;
+        private HierarchicalWheelTimeout tail;
+
+        synchronized void addTimeout(HierarchicalWheelTimeout timeout) {
+            assert timeout.bucket == null;
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        /**
+         * Removes all timeouts of this bucket and adds the ones which expired to {@code expired}.
+         */
+        void expireTimeouts(long deadline, List<HierarchicalWheelTimeout> expired) {
+            for (;;) {
+                HierarchicalWheelTimeout timeout = pollTimeout();
+                if (timeout == null) {
+                    return;
+                }
+                if (timeout.deadline > deadline) {
+                    // The timeout was placed into a wrong slot. This should never happen.
+                    throw new IllegalStateException(String.format(
+                            "timeout.deadline (%d) > deadline (%d)", timeout.deadline, deadline));
+                }
+                if (timeout.expire()) {
+                    expired.add(timeout);
+                }
+            }
+        }
+
+        /**
+         * Removes the {@code timeout} if it is still contained in this bucket.
+         */
+        synchronized void remove(HierarchicalWheelTimeout timeout) {
+            if (timeout.bucket != this) {
+                // Expired, polled or removed in the meantime.
+                return;
+            }
+            unlink(timeout);
+        }
+
+        private void unlink(HierarchicalWheelTimeout timeout) {
+            HierarchicalWheelTimeout next = timeout.next;
+            HierarchicalWheelTimeout prev = timeout.prev;
+            if (prev != null) {
+                prev.next = next;
+            } else {
+                head = next;
+            }
+            if (next != null) {
+                next.prev = prev;
+            } else {
+                tail = prev;
+            }
+            // null out prev, next and bucket to allow for GC.
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        /**
+         * Clear this bucket and return all not expired / cancelled {@link Timeout}s.
+         */
+        void clearTimeouts(Set<Timeout> set) {
+            for (;;) {
+                HierarchicalWheelTimeout timeout = pollTimeout();
+                if (timeout == null) {
+                    return;
+                }
+                if (timeout.isExpired() || timeout.isCancelled()) {
+                    continue;
+                }
+                set.add(timeout);
+            }
+        }
+
+        synchronized HierarchicalWheelTimeout pollTimeout() {
+            HierarchicalWheelTimeout head = this.head;
+            if (head == null) {
+                return null;
+            }
+            unlink(head);
+            return head;
+        }
+    }
+}
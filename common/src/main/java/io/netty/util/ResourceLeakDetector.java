@@ -16,17 +16,25 @@
 
 package io.netty.util;
 
+import io.netty.util.internal.LongCounter;
 import io.netty.util.internal.MathUtil;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.ThreadLocalRandom;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.lang.ref.PhantomReference;
 import java.lang.ref.ReferenceQueue;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Deque;
 import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -44,6 +52,14 @@ public final class ResourceLeakDetector<T> {
     private static final int DEFAULT_MAX_RECORDS = 4;
     private static final int MAX_RECORDS;
 
+    private static final String PROP_SITE_SAMPLING_INTERVAL = "io.netty.leakDetection.siteSamplingInterval";
+    private static final int DEFAULT_SITE_SAMPLING_INTERVAL = 0;
+    private static final int SITE_SAMPLING_INTERVAL;
+
+    private static final String PROP_MAX_SITES = "io.netty.leakDetection.maxSites";
+    private static final int DEFAULT_MAX_SITES = 1024;
+    private static final int MAX_SITES;
+
     /**
      * Represents the level of resource leak detection.
      */
@@ -100,14 +116,33 @@ public final class ResourceLeakDetector<T> {
         }
 
         MAX_RECORDS = SystemPropertyUtil.getInt(PROP_MAX_RECORDS, DEFAULT_MAX_RECORDS);
+        SITE_SAMPLING_INTERVAL = Math.max(0, SystemPropertyUtil.getInt(
+                PROP_SITE_SAMPLING_INTERVAL, DEFAULT_SITE_SAMPLING_INTERVAL));
+        MAX_SITES = Math.max(0, SystemPropertyUtil.getInt(PROP_MAX_SITES, DEFAULT_MAX_SITES));
 
         ResourceLeakDetector.level = level;
         if (logger.isDebugEnabled()) {
             logger.debug("-D{}: {}", PROP_LEVEL, level.name().toLowerCase());
             logger.debug("-D{}: {}", PROP_MAX_RECORDS, MAX_RECORDS);
+            logger.debug("-D{}: {}", PROP_SITE_SAMPLING_INTERVAL, SITE_SAMPLING_INTERVAL);
+            logger.debug("-D{}: {}", PROP_MAX_SITES, MAX_SITES);
         }
     }
 
+    /**
+     * Allocation sites shared by all detectors, keyed by the hash of the resource type and the allocation stack trace.
+     */
+    private static final ConcurrentMap<Long, AllocationSite> allocationSites = PlatformDependent.newConcurrentHashMap();
+
+    private static final Comparator<AllocationSite> MOST_LEAKS_FIRST = new Comparator<AllocationSite>() {
+        @Override
+        public int compare(AllocationSite o1, AllocationSite o2) {
+            long l1 = o1.leaks();
+            long l2 = o2.leaks();
+            return l1 < l2 ? 1 : l1 > l2 ? -1 : 0;
+        }
+    };
+
     // Should be power of two.
     private static final int DEFAULT_SAMPLING_INTERVAL = 128;
 
@@ -143,6 +178,26 @@ public final class ResourceLeakDetector<T> {
         return level;
     }
 
+    /**
+     * Returns a snapshot of the allocation sites of all tracked resources, ordered by the number of leaks that
+     * were detected for each site.  Sites are only aggregated if {@code -Dio.netty.leakDetection.siteSamplingInterval}
+     * is greater than {@code 0}: at {@link Level#SIMPLE} one out of that many tracked resources captures the
+     * stack trace of its allocation, at {@link Level#ADVANCED} and above every tracked resource does.
+     * At most {@code -Dio.netty.leakDetection.maxSites} distinct sites are kept.
+     */
+    public static List<AllocationSite> allocationSites() {
+        List<AllocationSite> sites = new ArrayList<AllocationSite>(allocationSites.values());
+        Collections.sort(sites, MOST_LEAKS_FIRST);
+        return sites;
+    }
+
+    /**
+     * Discards all allocation sites aggregated so far.
+     */
+    public static void clearAllocationSites() {
+        allocationSites.clear();
+    }
+
     /** the linked list of active resources */
     private final DefaultResourceLeak head = new DefaultResourceLeak(null);
     private final DefaultResourceLeak tail = new DefaultResourceLeak(null);
@@ -154,8 +209,12 @@ public final class ResourceLeakDetector<T> {
     private final int samplingInterval;
     private final int mask;
     private final long maxActive;
+    private final int siteSamplingInterval;
+    private final int maxRecords;
     private long active;
     private final AtomicBoolean loggedTooManyActive = new AtomicBoolean();
+    // Only set by tests.
+    private volatile LeakListener leakListener;
 
     private long leakCheckCnt;
 
@@ -172,6 +231,11 @@ public final class ResourceLeakDetector<T> {
     }
 
     public ResourceLeakDetector(String resourceType, int samplingInterval, long maxActive) {
+        this(resourceType, samplingInterval, maxActive, SITE_SAMPLING_INTERVAL, MAX_RECORDS);
+    }
+
+    ResourceLeakDetector(String resourceType, int samplingInterval, long maxActive, int siteSamplingInterval,
+                         int maxRecords) {
         if (resourceType == null) {
             throw new NullPointerException("resourceType");
         }
@@ -188,6 +252,8 @@ public final class ResourceLeakDetector<T> {
         // check if we need to do any leak detection or not.
         mask = this.samplingInterval - 1;
         this.maxActive = maxActive;
+        this.siteSamplingInterval = siteSamplingInterval;
+        this.maxRecords = maxRecords;
 
         head.next = tail;
         tail.prev = head;
@@ -226,7 +292,9 @@ public final class ResourceLeakDetector<T> {
                 if (ref == null) {
                     break;
                 }
-                ref.close();
+                if (ref.close() && ref.site != null) {
+                    ref.site.leaks.increment();
+                }
             }
             return;
         }
@@ -253,32 +321,88 @@ public final class ResourceLeakDetector<T> {
                 continue;
             }
 
+            AllocationSite site = ref.site;
+            if (site != null) {
+                site.leaks.increment();
+                // Only the first leak of every allocation site is reported, the others are counted by the site.
+                if (!site.reported.compareAndSet(false, true)) {
+                    continue;
+                }
+            }
+
             String records = ref.toString();
-            if (reportedLeaks.putIfAbsent(records, Boolean.TRUE) == null) {
-                if (records.isEmpty()) {
-                    logger.error("LEAK: {}.release() was not called before it's garbage-collected. " +
-                            "Enable advanced leak reporting to find out where the leak occurred. " +
-                            "To enable advanced leak reporting, " +
-                            "specify the JVM option '-D{}={}' or call {}.setLevel() " +
-                            "See http://netty.io/wiki/reference-counted-objects.html for more information.",
-                            resourceType, PROP_LEVEL, Level.ADVANCED.name().toLowerCase(), simpleClassName(this));
+            if (site != null || reportedLeaks.putIfAbsent(records, Boolean.TRUE) == null) {
+                LeakListener leakListener = this.leakListener;
+                if (leakListener != null) {
+                    leakListener.onLeak(resourceType, records);
+                } else if (records.isEmpty()) {
+                    reportUntracedLeak(resourceType);
                 } else {
-                    logger.error(
-                            "LEAK: {}.release() was not called before it's garbage-collected. " +
-                            "See http://netty.io/wiki/reference-counted-objects.html for more information.{}",
-                            resourceType, records);
+                    reportTracedLeak(resourceType, records);
                 }
             }
         }
     }
 
+    private void reportTracedLeak(String resourceType, String records) {
+        logger.error(
+                "LEAK: {}.release() was not called before it's garbage-collected. " +
+                "See http://netty.io/wiki/reference-counted-objects.html for more information.{}",
+                resourceType, records);
+    }
+
+    private void reportUntracedLeak(String resourceType) {
+        logger.error("LEAK: {}.release() was not called before it's garbage-collected. " +
+                "Enable advanced leak reporting to find out where the leak occurred. " +
+                "To enable advanced leak reporting, " +
+                "specify the JVM option '-D{}={}' or call {}.setLevel() " +
+                "See http://netty.io/wiki/reference-counted-objects.html for more information.",
+                resourceType, PROP_LEVEL, Level.ADVANCED.name().toLowerCase(), simpleClassName(this));
+    }
+
+    /**
+     * Sets the {@link LeakListener} which is notified instead of logging the reported leaks.
+     */
+    void leakListener(LeakListener leakListener) {
+        this.leakListener = leakListener;
+    }
+
+    /**
+     * Returns the {@link AllocationSite} that aggregates all resources allocated from the same stack trace as
+     * {@code creationRecord}, or {@code null} if the maximum number of sites was reached.
+     */
+    private AllocationSite allocationSite(Record creationRecord) {
+        final Long key = creationRecord.hash * 31 + resourceType.hashCode();
+        AllocationSite site = allocationSites.get(key);
+        if (site == null) {
+            if (allocationSites.size() >= MAX_SITES) {
+                return null;
+            }
+            site = new AllocationSite(resourceType, creationRecord);
+            AllocationSite old = allocationSites.putIfAbsent(key, site);
+            if (old != null) {
+                site = old;
+            }
+        }
+        if (!site.resourceType.equals(resourceType) || !site.creationRecord.equals(creationRecord)) {
+            // Hash collision - do not mix up two different sites.
+            return null;
+        }
+        site.sampledAllocations.increment();
+        return site;
+    }
+
     private final class DefaultResourceLeak extends PhantomReference<Object> implements ResourceLeak {
-        private final String creationRecord;
-        private final Deque<String> lastRecords = new ArrayDeque<String>();
+        private final Record creationRecord;
+        private final AllocationSite site;
+        private final Deque<Record> lastRecords = new ArrayDeque<Record>();
         private final AtomicBoolean freed;
         private DefaultResourceLeak prev;
         private DefaultResourceLeak next;
+        // The number of records which were evicted to stay within maxRecords.
         private int removedRecords;
+        // The number of records which were not taken because of the back-off once maxRecords was reached.
+        private int droppedRecords;
 
         DefaultResourceLeak(Object referent) {
             super(referent, referent != null? refQueue : null);
@@ -286,9 +410,16 @@ public final class ResourceLeakDetector<T> {
             if (referent != null) {
                 Level level = getLevel();
                 if (level.ordinal() >= Level.ADVANCED.ordinal()) {
-                    creationRecord = newRecord(null, 3);
+                    creationRecord = new Record(null, 3);
+                    site = siteSamplingInterval > 0 ? allocationSite(creationRecord) : null;
                 } else {
                     creationRecord = null;
+                    if (siteSamplingInterval > 0 &&
+                        ThreadLocalRandom.current().nextInt(siteSamplingInterval) == 0) {
+                        site = allocationSite(new Record(null, 3));
+                    } else {
+                        site = null;
+                    }
                 }
 
                 // TODO: Use CAS to update the list.
@@ -302,6 +433,7 @@ public final class ResourceLeakDetector<T> {
                 freed = new AtomicBoolean();
             } else {
                 creationRecord = null;
+                site = null;
                 freed = new AtomicBoolean(true);
             }
         }
@@ -317,15 +449,19 @@ public final class ResourceLeakDetector<T> {
         }
 
         private void record0(Object hint, int recordsToSkip) {
-            if (creationRecord != null) {
-                String value = newRecord(hint, recordsToSkip);
+            if (creationRecord != null && shouldRecord()) {
+                Record record = new Record(hint, recordsToSkip);
 
                 synchronized (lastRecords) {
-                    int size = lastRecords.size();
-                    if (size == 0 || !lastRecords.getLast().equals(value)) {
-                        lastRecords.add(value);
+                    // Keep a single copy of every distinct record, moved to the end when it is seen again.
+                    for (Iterator<Record> i = lastRecords.iterator(); i.hasNext();) {
+                        if (i.next().equals(record)) {
+                            i.remove();
+                            break;
+                        }
                     }
-                    if (size > MAX_RECORDS) {
+                    lastRecords.add(record);
+                    if (lastRecords.size() > maxRecords) {
                         lastRecords.removeFirst();
                         ++removedRecords;
                     }
@@ -333,6 +469,22 @@ public final class ResourceLeakDetector<T> {
             }
         }
 
+        private boolean shouldRecord() {
+            synchronized (lastRecords) {
+                if (lastRecords.size() < maxRecords) {
+                    return true;
+                }
+                // Once the limit is reached back off exponentially with every evicted record, so that a resource
+                // which is accessed very often does not pay for a stack trace on every access.
+                int backOff = Math.min(removedRecords, 30);
+                if (backOff == 0 || ThreadLocalRandom.current().nextInt(1 << backOff) == 0) {
+                    return true;
+                }
+                ++droppedRecords;
+                return false;
+            }
+        }
+
         @Override
         public boolean close() {
             if (freed.compareAndSet(false, true)) {
@@ -351,14 +503,21 @@ public final class ResourceLeakDetector<T> {
         @Override
         public String toString() {
             if (creationRecord == null) {
-                return EMPTY_STRING;
+                if (site == null) {
+                    return EMPTY_STRING;
+                }
+                String trace = site.creationRecord.toString();
+                return NEWLINE + "Created at (sampled):" + NEWLINE +
+                       trace.substring(0, trace.length() - NEWLINE.length());
             }
 
             final Object[] array;
             final int removedRecords;
+            final int droppedRecords;
             synchronized (lastRecords) {
                 array = lastRecords.toArray();
                 removedRecords = this.removedRecords;
+                droppedRecords = this.droppedRecords;
             }
 
             StringBuilder buf = new StringBuilder(16384).append(NEWLINE);
@@ -366,12 +525,19 @@ public final class ResourceLeakDetector<T> {
                 buf.append("WARNING: ")
                 .append(removedRecords)
                 .append(" leak records were discarded because the leak record count is limited to ")
-                .append(MAX_RECORDS)
+                .append(maxRecords)
                 .append(". Use system property ")
                 .append(PROP_MAX_RECORDS)
                 .append(" to increase the limit.")
                 .append(NEWLINE);
             }
+            if (droppedRecords > 0) {
+                buf.append("WARNING: ")
+                .append(droppedRecords)
+                .append(" leak records were not taken to reduce the overhead once the leak record count limit ")
+                .append("was reached.")
+                .append(NEWLINE);
+            }
             buf.append("Recent access records: ")
             .append(array.length)
             .append(NEWLINE);
@@ -402,27 +568,72 @@ public final class ResourceLeakDetector<T> {
             "io.netty.buffer.AdvancedLeakAwareByteBuf.recordLeakNonRefCountingOperation("
     };
 
-    static String newRecord(Object hint, int recordsToSkip) {
-        StringBuilder buf = new StringBuilder(4096);
+    /**
+     * Notified about every leak which would be logged otherwise. {@code records} is empty for untraced leaks.
+     */
+    interface LeakListener {
+        void onLeak(String resourceType, String records);
+    }
 
-        // Append the hint first if available.
-        if (hint != null) {
-            buf.append("\tHint: ");
-            // Prefer a hint string to a simple string form.
-            if (hint instanceof ResourceLeakHint) {
-                buf.append(((ResourceLeakHint) hint).toHintString());
+    /**
+     * A stack trace captured when a resource is created or accessed.  The stack trace is only formatted when it is
+     * reported, and records are compared by the hash of their stack trace elements first.
+     */
+    private static final class Record {
+        private final String hintString;
+        private final StackTraceElement[] elements;
+        private final long hash;
+
+        Record(Object hint, int recordsToSkip) {
+            if (hint == null) {
+                hintString = null;
+            } else if (hint instanceof ResourceLeakHint) {
+                // Prefer a hint string to a simple string form.
+                hintString = ((ResourceLeakHint) hint).toHintString();
             } else {
-                buf.append(hint);
+                hintString = String.valueOf(hint);
             }
-            buf.append(NEWLINE);
+
+            StackTraceElement[] array = new Throwable().getStackTrace();
+            elements = recordsToSkip < array.length ?
+                    Arrays.copyOfRange(array, recordsToSkip, array.length) : new StackTraceElement[0];
+
+            long hash = hintString == null ? 0 : hintString.hashCode();
+            for (StackTraceElement e: elements) {
+                hash = hash * 31 + e.hashCode();
+            }
+            this.hash = hash;
         }
 
-        // Append the stack trace.
-        StackTraceElement[] array = new Throwable().getStackTrace();
-        for (StackTraceElement e: array) {
-            if (recordsToSkip > 0) {
-                recordsToSkip --;
-            } else {
+        @Override
+        public int hashCode() {
+            return (int) (hash ^ hash >>> 32);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Record)) {
+                return false;
+            }
+            Record that = (Record) o;
+            return hash == that.hash && Arrays.equals(elements, that.elements) &&
+                   (hintString == null ? that.hintString == null : hintString.equals(that.hintString));
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder buf = new StringBuilder(4096);
+
+            // Append the hint first if available.
+            if (hintString != null) {
+                buf.append("\tHint: ").append(hintString).append(NEWLINE);
+            }
+
+            // Append the stack trace.
+            for (StackTraceElement e: elements) {
                 String estr = e.toString();
 
                 // Strip the noisy stack trace elements.
@@ -440,8 +651,68 @@ public final class ResourceLeakDetector<T> {
                     buf.append(NEWLINE);
                 }
             }
+
+            return buf.toString();
         }
+    }
 
-        return buf.toString();
+    /**
+     * The aggregated statistics of all tracked resources that were allocated from the same stack trace.
+     *
+     * @see #allocationSites()
+     */
+    public static final class AllocationSite {
+        private final String resourceType;
+        private final Record creationRecord;
+        private final LongCounter sampledAllocations = PlatformDependent.newLongCounter();
+        private final LongCounter leaks = PlatformDependent.newLongCounter();
+        private final AtomicBoolean reported = new AtomicBoolean();
+
+        AllocationSite(String resourceType, Record creationRecord) {
+            this.resourceType = resourceType;
+            this.creationRecord = creationRecord;
+        }
+
+        /**
+         * Returns the type of the resources allocated at this site.
+         */
+        public String resourceType() {
+            return resourceType;
+        }
+
+        /**
+         * Returns the stack trace of this site.
+         */
+        public String stackTrace() {
+            return creationRecord.toString();
+        }
+
+        /**
+         * Returns the number of sampled allocations from this site.
+         */
+        public long sampledAllocations() {
+            return sampledAllocations.value();
+        }
+
+        /**
+         * Returns the number of sampled allocations from this site which leaked.
+         */
+        public long leaks() {
+            return leaks.value();
+        }
+
+        @Override
+        public String toString() {
+            return new StringBuilder(4096)
+                    .append(resourceType)
+                    .append(": ")
+                    .append(leaks())
+                    .append(" leak(s) out of ")
+                    .append(sampledAllocations())
+                    .append(" sampled allocation(s) at:")
+                    .append(NEWLINE)
+                    .append(stackTrace())
+                    .toString();
+        }
     }
 }
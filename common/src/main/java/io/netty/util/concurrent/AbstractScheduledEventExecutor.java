@@ -30,6 +30,7 @@ import java.util.concurrent.TimeUnit;
 public abstract class AbstractScheduledEventExecutor extends AbstractEventExecutor {
 
     Queue<ScheduledFutureTask<?>> scheduledTaskQueue;
+    private EventExecutorTimerWheel timerWheel;
 
     protected AbstractScheduledEventExecutor() {
     }
@@ -49,6 +50,17 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
         return scheduledTaskQueue;
     }
 
+    /**
+     * Returns the {@link EventExecutorTimerWheel} of this executor, which is created on first use.
+     */
+    EventExecutorTimerWheel timerWheel() {
+        EventExecutorTimerWheel timerWheel = this.timerWheel;
+        if (timerWheel == null) {
+            this.timerWheel = timerWheel = new EventExecutorTimerWheel(this);
+        }
+        return timerWheel;
+    }
+
     private static  boolean isNullOrEmpty(Queue<ScheduledFutureTask<?>> queue) {
         return queue == null || queue.isEmpty();
     }
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Metrics of a {@link SingleThreadEventExecutor}, which are collected once
+ * {@link SingleThreadEventExecutor#setMetricsEnabled(boolean)} was called with {@code true} or
+ * {@code -Dio.netty.eventexecutor.metrics=true} is set.
+ * <p>
+ * All values are only updated by the thread of the {@link SingleThreadEventExecutor} and can be read from any thread.
+ * Recording does not allocate per task. The time tasks wait in the task queue is sampled: at most one probe task per
+ * {@link #QUEUE_LATENCY_PROBE_INTERVAL_NANOS} is submitted by the executor itself and the time until it runs is
+ * recorded in a histogram whose bucket {@code i} counts latencies below {@code 2^i} microseconds.
+ */
+public final class EventExecutorMetrics {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(EventExecutorMetrics.class);
+
+    /**
+     * The number of buckets of the task queue latency histogram. The last bucket counts all latencies of
+     * {@code 2^(HISTOGRAM_BUCKETS - 2)} microseconds or more.
+     */
+    public static final int HISTOGRAM_BUCKETS = 22;
+
+    static final long QUEUE_LATENCY_PROBE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final SingleThreadEventExecutor executor;
+    private final long slowTaskThresholdNanos;
+    private final AtomicLongArray queueLatencyHistogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+
+    private volatile long ioWaitNanos;
+    private volatile long ioProcessingNanos;
+    private volatile long taskProcessingNanos;
+    private volatile long completedTasks;
+    private volatile long slowTasks;
+    private volatile Class<?> lastSlowTaskClass;
+    private volatile long lastSlowTaskNanos;
+
+    // Only accessed by the thread of the executor.
+    private boolean probeInFlight;
+    private long lastProbeNanos;
+
+    EventExecutorMetrics(SingleThreadEventExecutor executor, long slowTaskThresholdNanos) {
+        this.executor = executor;
+        this.slowTaskThresholdNanos = slowTaskThresholdNanos;
+    }
+
+    /**
+     * Returns the total time in nanoseconds the executor spent waiting for I/O, like in {@code select()} or
+     * {@code epoll_wait()}.
+     */
+    public long ioWaitNanos() {
+        return ioWaitNanos;
+    }
+
+    /**
+     * Returns the total time in nanoseconds the executor spent processing I/O events.
+     */
+    public long ioProcessingNanos() {
+        return ioProcessingNanos;
+    }
+
+    /**
+     * Returns the total time in nanoseconds the executor spent running tasks.
+     */
+    public long taskProcessingNanos() {
+        return taskProcessingNanos;
+    }
+
+    /**
+     * Returns the total time in nanoseconds the executor was busy, which means processing I/O events or running
+     * tasks.
+     */
+    public long busyNanos() {
+        return ioProcessingNanos + taskProcessingNanos;
+    }
+
+    /**
+     * Returns the number of tasks the executor ran, including scheduled tasks.
+     */
+    public long completedTasks() {
+        return completedTasks;
+    }
+
+    /**
+     * Returns the number of tasks which are waiting to be run.
+     */
+    public int pendingTasks() {
+        return executor.pendingTasks();
+    }
+
+    /**
+     * Returns the number of tasks which took longer than the slow task threshold to run.
+     */
+    public long slowTasks() {
+        return slowTasks;
+    }
+
+    /**
+     * Returns the class of the last task which took longer than the slow task threshold to run, or {@code null}.
+     */
+    public Class<?> lastSlowTaskClass() {
+        return lastSlowTaskClass;
+    }
+
+    /**
+     * Returns how long in nanoseconds the last task which took longer than the slow task threshold ran.
+     */
+    public long lastSlowTaskNanos() {
+        return lastSlowTaskNanos;
+    }
+
+    /**
+     * Returns a snapshot of the task queue latency histogram.
+     */
+    public long[] taskQueueLatencyHistogram() {
+        long[] histogram = new long[HISTOGRAM_BUCKETS];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = queueLatencyHistogram.get(i);
+        }
+        return histogram;
+    }
+
+    /**
+     * Returns the exclusive upper bound in microseconds of the given bucket of
+     * {@link #taskQueueLatencyHistogram()}, or {@link Long#MAX_VALUE} for the last bucket.
+     */
+    public static long histogramBucketUpperBoundMicros(int bucket) {
+        if (bucket < 0 || bucket >= HISTOGRAM_BUCKETS) {
+            throw new IllegalArgumentException(
+                    "bucket: " + bucket + " (expected: 0-" + (HISTOGRAM_BUCKETS - 1) + ')');
+        }
+        return bucket == HISTOGRAM_BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    void recordIoWait(long nanos) {
+        ioWaitNanos += nanos;
+    }
+
+    void recordIoProcessing(long nanos) {
+        ioProcessingNanos += nanos;
+    }
+
+    void recordTask(Runnable task, long startNanos, long endNanos) {
+        if (task instanceof QueueLatencyProbe) {
+            // Not submitted by the user, so don't account for it and don't submit the next probe right away.
+            return;
+        }
+        long nanos = endNanos - startNanos;
+        taskProcessingNanos += nanos;
+        completedTasks++;
+        if (nanos >= slowTaskThresholdNanos) {
+            slowTasks++;
+            lastSlowTaskClass = task.getClass();
+            lastSlowTaskNanos = nanos;
+            if (logger.isDebugEnabled()) {
+                logger.debug("Slow task {} took {} ms on {}",
+                        StringUtil.simpleClassName(task), TimeUnit.NANOSECONDS.toMillis(nanos), executor);
+            }
+        }
+
+        if (!probeInFlight && endNanos - lastProbeNanos >= QUEUE_LATENCY_PROBE_INTERVAL_NANOS) {
+            probeInFlight = true;
+            lastProbeNanos = endNanos;
+            if (!executor.offerTask(new QueueLatencyProbe(endNanos))) {
+                // The task queue is full, try again later.
+                probeInFlight = false;
+            }
+        }
+    }
+
+    private void recordQueueLatency(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        int bucket = Math.min(64 - Long.numberOfLeadingZeros(micros), HISTOGRAM_BUCKETS - 1);
+        queueLatencyHistogram.lazySet(bucket, queueLatencyHistogram.get(bucket) + 1);
+    }
+
+    private final class QueueLatencyProbe implements Runnable {
+        private final long submitNanos;
+
+        QueueLatencyProbe(long submitNanos) {
+            this.submitNanos = submitNanos;
+        }
+
+        @Override
+        public void run() {
+            probeInFlight = false;
+            recordQueueLatency(System.nanoTime() - submitNanos);
+        }
+    }
+}
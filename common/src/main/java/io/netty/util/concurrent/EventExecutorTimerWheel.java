@@ -0,0 +1,293 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.OneTimeTask;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A low resolution timing wheel which belongs to a single {@link EventExecutor} and is only accessed from its
+ * thread.  It is meant for timeouts which are scheduled for almost every connection and are usually not expected to
+ * fire, like idle and read timeouts.
+ * <p>
+ * Compared to {@link EventExecutor#schedule(Runnable, long, TimeUnit)}, scheduling and cancelling an {@link Entry}
+ * is O(1) and does not allocate, and all entries of the wheel are driven by a single scheduled task which only runs
+ * while the wheel is not empty.  The price is that entries expire up to one tick duration
+ * ({@code -Dio.netty.timerWheel.tickDurationMillis}, 10 milliseconds by default) late, and never early.
+ * <p>
+ * Callers which frequently push a deadline back should not reschedule on every update.  Instead they should
+ * remember the time of the last update and check it in {@link Entry#run()}, scheduling the {@link Entry} again for
+ * the remaining time if the deadline was not reached yet.
+ */
+public final class EventExecutorTimerWheel {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(EventExecutorTimerWheel.class);
+
+    private static final long DEFAULT_TICK_DURATION_NANOS;
+
+    // 4 levels of 64 buckets cover 2^24 ticks, which is more than 46 hours with the default tick duration.
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_MASK = (1 << WHEEL_BITS) - 1;
+    private static final int LEVELS = 4;
+
+    static {
+        DEFAULT_TICK_DURATION_NANOS = TimeUnit.MILLISECONDS.toNanos(
+                Math.max(1, SystemPropertyUtil.getInt("io.netty.timerWheel.tickDurationMillis", 10)));
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.timerWheel.tickDurationMillis: {}",
+                    TimeUnit.NANOSECONDS.toMillis(DEFAULT_TICK_DURATION_NANOS));
+        }
+    }
+
+    /**
+     * Returns the {@link EventExecutorTimerWheel} of the given {@link EventExecutor}.  This method should be called
+     * from the thread of the {@link EventExecutor}.  All
+     * {@link AbstractScheduledEventExecutor}s share a single instance per executor, for other {@link EventExecutor}s
+     * a new instance is returned.
+     */
+    public static EventExecutorTimerWheel of(EventExecutor executor) {
+        if (executor == null) {
+            throw new NullPointerException("executor");
+        }
+        if (executor instanceof AbstractScheduledEventExecutor) {
+            return ((AbstractScheduledEventExecutor) executor).timerWheel();
+        }
+        return new EventExecutorTimerWheel(executor);
+    }
+
+    private final EventExecutor executor;
+    private final long tickDuration;
+    private final Entry[] buckets = new Entry[LEVELS << WHEEL_BITS];
+    private final Runnable tickTask = new OneTimeTask() {
+        @Override
+        public void run() {
+            tickFuture = null;
+            expireEntries();
+        }
+    };
+
+    // The next tick to process, in units of tickDuration since ScheduledFutureTask.nanoTime() started.
+    private long tick;
+    private int size;
+    private boolean expiring;
+    private ScheduledFuture<?> tickFuture;
+
+    EventExecutorTimerWheel(EventExecutor executor) {
+        this(executor, DEFAULT_TICK_DURATION_NANOS);
+    }
+
+    EventExecutorTimerWheel(EventExecutor executor, long tickDuration) {
+        this.executor = executor;
+        this.tickDuration = tickDuration;
+    }
+
+    /**
+     * Returns the {@link EventExecutor} which drives this wheel.
+     */
+    public EventExecutor executor() {
+        return executor;
+    }
+
+    /**
+     * Returns the number of scheduled {@link Entry}s.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Schedules the {@link Entry} to be run after the given delay.  If the {@link Entry} is already scheduled it is
+     * rescheduled.  This method MUST be called from the thread of the {@link #executor()}.
+     */
+    public void schedule(Entry entry, long delay, TimeUnit unit) {
+        if (entry == null) {
+            throw new NullPointerException("entry");
+        }
+        if (unit == null) {
+            throw new NullPointerException("unit");
+        }
+        assert executor.inEventLoop();
+
+        if (entry.wheel != null) {
+            if (entry.wheel != this) {
+                throw new IllegalStateException("entry is scheduled on another wheel");
+            }
+            remove(entry);
+        }
+
+        final long now = ScheduledFutureTask.nanoTime();
+        if (size == 0) {
+            // No entries - just skip all ticks which passed since the wheel became empty.
+            tick = Math.max(tick, now / tickDuration);
+        }
+        entry.deadlineNanos = now + Math.max(0, unit.toNanos(delay));
+        entry.wheel = this;
+        add(entry);
+        size ++;
+
+        if (tickFuture == null) {
+            scheduleTick(now);
+        }
+    }
+
+    /**
+     * Cancels the {@link Entry} if it is scheduled on this wheel.  This method MUST be called from the thread of the
+     * {@link #executor()}.
+     *
+     * @return {@code true} if the {@link Entry} was scheduled and so is cancelled now
+     */
+    public boolean cancel(Entry entry) {
+        if (entry == null) {
+            throw new NullPointerException("entry");
+        }
+        assert executor.inEventLoop();
+
+        if (entry.wheel != this) {
+            return false;
+        }
+        remove(entry);
+        entry.wheel = null;
+        size --;
+        // The tick task stops by itself once it finds the wheel empty.
+        return true;
+    }
+
+    private void scheduleTick(long now) {
+        tickFuture = executor.schedule(tickTask, Math.max(0, tick * tickDuration - now), TimeUnit.NANOSECONDS);
+    }
+
+    private void expireEntries() {
+        final long now = ScheduledFutureTask.nanoTime();
+        final long currentTick = now / tickDuration;
+        while (size > 0 && tick <= currentTick) {
+            cascade();
+            expireBucket((int) (tick & WHEEL_MASK));
+            tick ++;
+        }
+        if (size > 0 && tickFuture == null) {
+            scheduleTick(now);
+        }
+    }
+
+    /**
+     * Moves the entries of the buckets of the higher levels which become current with this tick into the lower
+     * levels.
+     */
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level ++) {
+            final int shift = WHEEL_BITS * level;
+            if ((tick & ((1L << shift) - 1)) != 0) {
+                // The lower level did not complete a rotation, and so neither did the ones above it.
+                break;
+            }
+            final int bucket = (level << WHEEL_BITS) | (int) ((tick >>> shift) & WHEEL_MASK);
+            Entry entry = buckets[bucket];
+            buckets[bucket] = null;
+            while (entry != null) {
+                Entry next = entry.next;
+                entry.prev = entry.next = null;
+                add(entry);
+                entry = next;
+            }
+        }
+    }
+
+    private void expireBucket(int bucket) {
+        for (;;) {
+            // Reload the head every time, as running an entry may cancel other entries of the same bucket.
+            Entry entry = buckets[bucket];
+            if (entry == null) {
+                break;
+            }
+            remove(entry);
+            entry.wheel = null;
+            size --;
+            expiring = true;
+            try {
+                entry.run();
+            } catch (Throwable t) {
+                logger.warn("A task raised an exception. Task: {}", entry, t);
+            } finally {
+                expiring = false;
+            }
+        }
+    }
+
+    private void add(Entry entry) {
+        // Round up so that an entry never expires early, and never put an entry which is scheduled while the current
+        // bucket expires into that bucket again.
+        long calculated = (entry.deadlineNanos + tickDuration - 1) / tickDuration;
+        calculated = Math.max(calculated, expiring ? tick + 1 : tick);
+        final long delta = calculated - tick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >>> (WHEEL_BITS * (level + 1)) != 0) {
+            level ++;
+        }
+        final int shift = WHEEL_BITS * level;
+        long stopTick = calculated;
+        if (delta >>> shift > WHEEL_MASK) {
+            // The deadline is beyond the range of the highest level. Put it into the farthest bucket so it is
+            // cascaded and placed again once that bucket becomes current.
+            stopTick = tick + ((long) WHEEL_MASK << shift);
+        }
+        final int bucket = (level << WHEEL_BITS) | (int) ((stopTick >>> shift) & WHEEL_MASK);
+        Entry head = buckets[bucket];
+        entry.bucket = bucket;
+        entry.next = head;
+        if (head != null) {
+            head.prev = entry;
+        }
+        buckets[bucket] = entry;
+    }
+
+    private void remove(Entry entry) {
+        Entry prev = entry.prev;
+        Entry next = entry.next;
+        if (prev != null) {
+            prev.next = next;
+        } else {
+            buckets[entry.bucket] = next;
+        }
+        if (next != null) {
+            next.prev = prev;
+        }
+        entry.prev = entry.next = null;
+    }
+
+    /**
+     * A task which can be scheduled on an {@link EventExecutorTimerWheel}.  The same instance can be scheduled again
+     * once it expired or was cancelled, so callers usually keep a single instance per timeout they need to track.
+     */
+    public abstract static class Entry implements Runnable {
+        EventExecutorTimerWheel wheel;
+        Entry prev;
+        Entry next;
+        int bucket;
+        long deadlineNanos;
+
+        /**
+         * Returns {@code true} if this {@link Entry} is scheduled and neither expired nor cancelled yet.
+         */
+        public final boolean isScheduled() {
+            return wheel != null;
+        }
+    }
+}
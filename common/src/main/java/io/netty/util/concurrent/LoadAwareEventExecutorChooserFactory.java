@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.ThreadLocalRandom;
+
+/**
+ * {@link EventExecutorChooserFactory} which uses the <i>power of two choices</i> strategy: two distinct
+ * {@link EventExecutor}s are picked at random and the one with the lower {@link #load(EventExecutor)} wins.
+ * <p>
+ * Compared to round-robin this keeps long-lived connections with skewed traffic from piling up on the same
+ * executors, while only ever looking at two executors per choice. By default the load of an executor is the
+ * number of its pending tasks. Sub-classes may override {@link #load(EventExecutor)} to use a different metric.
+ */
+public class LoadAwareEventExecutorChooserFactory implements EventExecutorChooserFactory {
+
+    public static final LoadAwareEventExecutorChooserFactory INSTANCE = new LoadAwareEventExecutorChooserFactory();
+
+    protected LoadAwareEventExecutorChooserFactory() { }
+
+    @Override
+    public EventExecutorChooser newChooser(EventExecutor[] executors) {
+        if (executors.length == 1) {
+            return DefaultEventExecutorChooserFactory.INSTANCE.newChooser(executors);
+        }
+        return new PowerOfTwoChoicesEventExecutorChooser(executors);
+    }
+
+    /**
+     * Returns the current load of the given {@link EventExecutor}. Lower values mean less loaded. This method may be
+     * called from any thread and so must be cheap and must not block.
+     */
+    protected long load(EventExecutor executor) {
+        if (executor instanceof SingleThreadEventExecutor) {
+            return ((SingleThreadEventExecutor) executor).pendingTasks();
+        }
+        return 0;
+    }
+
+    private final class PowerOfTwoChoicesEventExecutorChooser implements EventExecutorChooser {
+        private final EventExecutor[] executors;
+
+        PowerOfTwoChoicesEventExecutorChooser(EventExecutor[] executors) {
+            this.executors = executors;
+        }
+
+        @Override
+        public EventExecutor next() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int length = executors.length;
+            int a = random.nextInt(length);
+            // Pick a second index which is guaranteed to be different from the first one.
+            int b = (a + 1 + random.nextInt(length - 1)) % length;
+            EventExecutor first = executors[a];
+            EventExecutor second = executors[b];
+            return load(second) < load(first) ? second : first;
+        }
+    }
+}
@@ -15,7 +15,9 @@
  */
 package io.netty.util.concurrent;
 
+import io.netty.util.internal.InternalThreadLocalMap;
 import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
@@ -27,7 +29,6 @@ import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executor;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
@@ -41,9 +42,26 @@ import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
  */
 public abstract class SingleThreadEventExecutor extends AbstractScheduledEventExecutor {
 
+    static final int DEFAULT_MAX_PENDING_EXECUTOR_TASKS = Math.max(16,
+            SystemPropertyUtil.getInt("io.netty.eventexecutor.maxPendingTasks", Integer.MAX_VALUE));
+
     private static final InternalLogger logger =
             InternalLoggerFactory.getInstance(SingleThreadEventExecutor.class);
 
+    private static final boolean DEFAULT_METRICS_ENABLED =
+            SystemPropertyUtil.getBoolean("io.netty.eventexecutor.metrics", false);
+    private static final long SLOW_TASK_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(
+            Math.max(1, SystemPropertyUtil.getLong("io.netty.eventexecutor.slowTaskThresholdMillis", 100)));
+
+    static {
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.eventexecutor.maxPendingTasks: {}", DEFAULT_MAX_PENDING_EXECUTOR_TASKS);
+            logger.debug("-Dio.netty.eventexecutor.metrics: {}", DEFAULT_METRICS_ENABLED);
+            logger.debug("-Dio.netty.eventexecutor.slowTaskThresholdMillis: {}",
+                    TimeUnit.NANOSECONDS.toMillis(SLOW_TASK_THRESHOLD_NANOS));
+        }
+    }
+
     private static final int ST_NOT_STARTED = 1;
     private static final int ST_STARTED = 2;
     private static final int ST_SHUTTING_DOWN = 3;
@@ -89,10 +107,15 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
     private volatile ThreadProperties threadProperties;
     private final Executor executor;
     private volatile boolean interrupted;
+    // the index of this executor which is unique across all MultithreadEventExecutorGroups, or -1
+    private volatile int executorIndex = -1;
 
     private final Semaphore threadLock = new Semaphore(0);
     private final Set<Runnable> shutdownHooks = new LinkedHashSet<Runnable>();
     private final boolean addTaskWakesUp;
+    private final int maxPendingTasks;
+    private final RejectedExecutionHandler rejectedExecutionHandler;
+    private volatile EventExecutorMetrics metrics;
 
     private long lastExecutionTime;
 
@@ -118,6 +141,22 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         this(parent, new ThreadPerTaskExecutor(threadFactory), addTaskWakesUp);
     }
 
+    /**
+     * Create a new instance
+     *
+     * @param parent            the {@link EventExecutorGroup} which is the parent of this instance and belongs to it
+     * @param threadFactory     the {@link ThreadFactory} which will be used for the used {@link Thread}
+     * @param addTaskWakesUp    {@code true} if and only if invocation of {@link #addTask(Runnable)} will wake up the
+     *                          executor thread
+     * @param maxPendingTasks   the maximum number of pending tasks before new tasks will be rejected.
+     * @param rejectedHandler   the {@link RejectedExecutionHandler} to use.
+     */
+    protected SingleThreadEventExecutor(
+            EventExecutorGroup parent, ThreadFactory threadFactory,
+            boolean addTaskWakesUp, int maxPendingTasks, RejectedExecutionHandler rejectedHandler) {
+        this(parent, new ThreadPerTaskExecutor(threadFactory), addTaskWakesUp, maxPendingTasks, rejectedHandler);
+    }
+
     /**
      * Create a new instance
      *
@@ -127,25 +166,62 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
      *                          executor thread
      */
     protected SingleThreadEventExecutor(EventExecutorGroup parent, Executor executor, boolean addTaskWakesUp) {
+        this(parent, executor, addTaskWakesUp, DEFAULT_MAX_PENDING_EXECUTOR_TASKS, RejectedExecutionHandlers.reject());
+    }
+
+    /**
+     * Create a new instance
+     *
+     * @param parent            the {@link EventExecutorGroup} which is the parent of this instance and belongs to it
+     * @param executor          the {@link Executor} which will be used for executing
+     * @param addTaskWakesUp    {@code true} if and only if invocation of {@link #addTask(Runnable)} will wake up the
+     *                          executor thread
+     * @param maxPendingTasks   the maximum number of pending tasks before new tasks will be rejected.
+     * @param rejectedHandler   the {@link RejectedExecutionHandler} to use.
+     */
+    protected SingleThreadEventExecutor(EventExecutorGroup parent, Executor executor,
+                                        boolean addTaskWakesUp, int maxPendingTasks,
+                                        RejectedExecutionHandler rejectedHandler) {
         super(parent);
 
         if (executor == null) {
             throw new NullPointerException("executor");
         }
+        if (rejectedHandler == null) {
+            throw new NullPointerException("rejectedHandler");
+        }
 
         this.addTaskWakesUp = addTaskWakesUp;
+        this.maxPendingTasks = Math.max(16, maxPendingTasks);
         this.executor = executor;
+        rejectedExecutionHandler = rejectedHandler;
         taskQueue = newTaskQueue();
+        if (DEFAULT_METRICS_ENABLED) {
+            metrics = new EventExecutorMetrics(this, SLOW_TASK_THRESHOLD_NANOS);
+        }
     }
 
     /**
-     * Create a new {@link Queue} which will holds the tasks to execute. This default implementation will return a
-     * {@link LinkedBlockingQueue} but if your sub-class of {@link SingleThreadEventExecutor} will not do any blocking
-     * calls on the this {@link Queue} it may make sense to {@code @Override} this and return some more performant
-     * implementation that does not support blocking operations at all.
+     * Create a new {@link Queue} which will holds the tasks to execute. This default implementation calls
+     * {@link #newTaskQueue(int)} with the maximum number of pending tasks this instance was created with.
      */
     protected Queue<Runnable> newTaskQueue() {
-        return new LinkedBlockingQueue<Runnable>();
+        return newTaskQueue(maxPendingTasks);
+    }
+
+    /**
+     * Create a new {@link Queue} which will holds the tasks to execute. This default implementation will return a
+     * lock-free multi-producer {@link BlockingQueue} which parks the executor thread in {@link #takeTask()}, but if
+     * your sub-class of {@link SingleThreadEventExecutor} will not do any blocking calls on the this {@link Queue} it
+     * may make sense to {@code @Override} this and return some more performant implementation that does not support
+     * blocking operations at all.
+     *
+     * @param maxPendingTasks   the maximum number of tasks the {@link Queue} may hold, or {@link Integer#MAX_VALUE}
+     *                          if it is unbounded.
+     */
+    protected Queue<Runnable> newTaskQueue(int maxPendingTasks) {
+        return maxPendingTasks == Integer.MAX_VALUE ? PlatformDependent.<Runnable>newMpscBlockingQueue()
+                : PlatformDependent.<Runnable>newFixedMpscBlockingQueue(maxPendingTasks);
     }
 
     /**
@@ -230,7 +306,12 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         }
     }
 
-    private void fetchFromScheduledTaskQueue() {
+    /**
+     * Moves the scheduled tasks which are due into the task queue.
+     *
+     * @return {@code false} if the task queue was full and so not all scheduled tasks which are due could be moved.
+     */
+    private boolean fetchFromScheduledTaskQueue() {
         if (hasScheduledTasks()) {
             long nanoTime = AbstractScheduledEventExecutor.nanoTime();
             for (;;) {
@@ -238,9 +319,14 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
                 if (scheduledTask == null) {
                     break;
                 }
-                taskQueue.add(scheduledTask);
+                if (!taskQueue.offer(scheduledTask)) {
+                    // No space left in the task queue, add it back to the scheduledTaskQueue so we pick it up again.
+                    scheduledTaskQueue().add((ScheduledFutureTask<?>) scheduledTask);
+                    return false;
+                }
             }
         }
+        return true;
     }
 
     /**
@@ -269,6 +355,72 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         return taskQueue.size();
     }
 
+    /**
+     * Returns the {@link EventExecutorMetrics} of this executor, or {@code null} if metrics are disabled.
+     */
+    public final EventExecutorMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Enables or disables the collection of {@link EventExecutorMetrics}. Enabling starts with fresh metrics.
+     */
+    public final void setMetricsEnabled(boolean enabled) {
+        if (enabled) {
+            if (metrics == null) {
+                metrics = new EventExecutorMetrics(this, SLOW_TASK_THRESHOLD_NANOS);
+            }
+        } else {
+            metrics = null;
+        }
+    }
+
+    /**
+     * Returns {@code true} if {@link EventExecutorMetrics} are collected and so sub-classes should measure the time
+     * spent for I/O.
+     */
+    protected final boolean isMetricsEnabled() {
+        return metrics != null;
+    }
+
+    /**
+     * Records the time spent waiting for I/O, like in {@code select()}, if metrics are enabled.
+     */
+    protected final void recordIoWaitTime(long nanos) {
+        EventExecutorMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.recordIoWait(nanos);
+        }
+    }
+
+    /**
+     * Records the time spent processing I/O events if metrics are enabled.
+     */
+    protected final void recordIoProcessingTime(long nanos) {
+        EventExecutorMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.recordIoProcessing(nanos);
+        }
+    }
+
+    /**
+     * Runs the given task and records its execution time if metrics are enabled. Exceptions thrown by the task are
+     * propagated to the caller.
+     */
+    protected final void runTask(Runnable task) {
+        EventExecutorMetrics metrics = this.metrics;
+        if (metrics == null) {
+            task.run();
+            return;
+        }
+        long startTime = System.nanoTime();
+        try {
+            task.run();
+        } finally {
+            metrics.recordTask(task, startTime, System.nanoTime());
+        }
+    }
+
     /**
      * Add a task to the task queue, or throws a {@link RejectedExecutionException} if this instance was shutdown
      * before.
@@ -277,10 +429,16 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         if (task == null) {
             throw new NullPointerException("task");
         }
+        if (!offerTask(task)) {
+            rejectedExecutionHandler.rejected(task, this);
+        }
+    }
+
+    final boolean offerTask(Runnable task) {
         if (isShutdown()) {
             reject();
         }
-        taskQueue.add(task);
+        return taskQueue.offer(task);
     }
 
     /**
@@ -299,25 +457,30 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
      * @return {@code true} if and only if at least one task was run
      */
     protected boolean runAllTasks() {
-        fetchFromScheduledTaskQueue();
-        Runnable task = pollTask();
-        if (task == null) {
-            return false;
-        }
-
-        for (;;) {
-            try {
-                task.run();
-            } catch (Throwable t) {
-                logger.warn("A task raised an exception.", t);
+        boolean fetchedAll;
+        boolean ranAtLeastOne = false;
+        do {
+            fetchedAll = fetchFromScheduledTaskQueue();
+            Runnable task = pollTask();
+            if (task == null) {
+                break;
             }
 
-            task = pollTask();
-            if (task == null) {
-                lastExecutionTime = ScheduledFutureTask.nanoTime();
-                return true;
+            for (;;) {
+                safeRunTask(task);
+
+                task = pollTask();
+                if (task == null) {
+                    break;
+                }
             }
+            ranAtLeastOne = true;
+        } while (!fetchedAll); // keep on processing until we fetched all scheduled tasks.
+
+        if (ranAtLeastOne) {
+            lastExecutionTime = ScheduledFutureTask.nanoTime();
         }
+        return ranAtLeastOne;
     }
 
     /**
@@ -335,11 +498,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         long runTasks = 0;
         long lastExecutionTime;
         for (;;) {
-            try {
-                task.run();
-            } catch (Throwable t) {
-                logger.warn("A task raised an exception.", t);
-            }
+            safeRunTask(task);
 
             runTasks ++;
 
@@ -363,6 +522,73 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         return true;
     }
 
+    /**
+     * Runs tasks with separate time budgets for scheduled tasks and for the tasks in the task queue. Scheduled tasks
+     * which are expired already are run first, directly from the scheduled task queue, until there are no more or
+     * {@code scheduledTaskBudgetNanos} is used up. Then the tasks in the task queue are run until there are no more or
+     * {@code taskBudgetNanos} is used up. The budgets are checked every {@code checkInterval} tasks because
+     * {@code nanoTime()} is relatively expensive.
+     *
+     * @return {@code true} if at least one task was run.
+     */
+    protected boolean runAllTasks(long taskBudgetNanos, long scheduledTaskBudgetNanos, int checkInterval) {
+        assert inEventLoop();
+        if (checkInterval <= 0) {
+            throw new IllegalArgumentException("checkInterval: " + checkInterval + " (expected: > 0)");
+        }
+
+        boolean ranAtLeastOne = false;
+        long currentTime = ScheduledFutureTask.nanoTime();
+        // Only run the tasks that are expired at the start so periodic tasks can not keep us here forever.
+        final long scheduledTasksStartTime = currentTime;
+        long deadline = currentTime + scheduledTaskBudgetNanos;
+        int tasksSinceCheck = 0;
+        Runnable task = pollScheduledTask(scheduledTasksStartTime);
+        while (task != null) {
+            ranAtLeastOne = true;
+            safeRunTask(task);
+            if (++tasksSinceCheck == checkInterval) {
+                tasksSinceCheck = 0;
+                currentTime = ScheduledFutureTask.nanoTime();
+                if (currentTime >= deadline) {
+                    break;
+                }
+            }
+            task = pollScheduledTask(scheduledTasksStartTime);
+        }
+
+        task = pollTask();
+        if (task != null) {
+            ranAtLeastOne = true;
+            currentTime = ScheduledFutureTask.nanoTime();
+            deadline = currentTime + taskBudgetNanos;
+            tasksSinceCheck = 0;
+            do {
+                safeRunTask(task);
+                if (++tasksSinceCheck == checkInterval) {
+                    tasksSinceCheck = 0;
+                    if (ScheduledFutureTask.nanoTime() >= deadline) {
+                        break;
+                    }
+                }
+                task = pollTask();
+            } while (task != null);
+        }
+
+        if (ranAtLeastOne) {
+            lastExecutionTime = ScheduledFutureTask.nanoTime();
+        }
+        return ranAtLeastOne;
+    }
+
+    private void safeRunTask(Runnable task) {
+        try {
+            runTask(task);
+        } catch (Throwable t) {
+            logger.warn("A task raised an exception.", t);
+        }
+    }
+
     /**
      * Returns the amount of time left until the scheduled task with the closest dead line is executed.
      */
@@ -400,7 +626,9 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
 
     protected void wakeup(boolean inEventLoop) {
         if (!inEventLoop || STATE_UPDATER.get(this) == ST_SHUTTING_DOWN) {
-            taskQueue.add(WAKEUP_TASK);
+            // Use offer as we actually only need this to unblock the thread and if offer fails we do not care as
+            // there is already something in the queue.
+            taskQueue.offer(WAKEUP_TASK);
         }
     }
 
@@ -670,8 +898,17 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         } else {
             startThread();
             addTask(task);
-            if (isShutdown() && removeTask(task)) {
-                reject();
+            if (isShutdown()) {
+                boolean reject = false;
+                try {
+                    reject = removeTask(task);
+                } catch (UnsupportedOperationException e) {
+                    // The task queue does not support removal so the best thing we can do is to just move on and
+                    // hope we will be able to pick-up the task before its completely terminated.
+                }
+                if (reject) {
+                    reject();
+                }
             }
         }
 
@@ -718,6 +955,13 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
 
     private static final long SCHEDULE_PURGE_INTERVAL = TimeUnit.SECONDS.toNanos(1);
 
+    /**
+     * Sets the index of this executor, which is unique across all {@link MultithreadEventExecutorGroup}s.
+     */
+    final void executorIndex(int executorIndex) {
+        this.executorIndex = executorIndex;
+    }
+
     private void startThread() {
         if (STATE_UPDATER.get(this) == ST_NOT_STARTED) {
             if (STATE_UPDATER.compareAndSet(this, ST_NOT_STARTED, ST_STARTED)) {
@@ -735,6 +979,11 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
                 if (interrupted) {
                     thread.interrupt();
                 }
+                if (executorIndex >= 0) {
+                    // Expose the index so that per-thread resources like the arenas of a pooled allocator can be
+                    // bound to this executor deterministically, even if its thread is replaced.
+                    InternalThreadLocalMap.get().setEventExecutorIndex(executorIndex);
+                }
 
                 boolean success = false;
                 updateLastExecutionTime();
@@ -778,6 +1027,11 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
                                                 "non-empty task queue (" + taskQueue.size() + ')');
                             }
 
+                            if (executorIndex >= 0) {
+                                // The thread may be reused by the Executor for something else.
+                                InternalThreadLocalMap.get().setEventExecutorIndex(-1);
+                            }
+
                             terminationFuture.setSuccess(null);
                         }
                     }
@@ -123,6 +123,9 @@ public final class InternalThreadLocalMap extends UnpaddedInternalThreadLocalMap
         if (localChannelReaderStackDepth != 0) {
             count ++;
         }
+        if (eventExecutorIndex >= 0) {
+            count ++;
+        }
         if (handlerSharableCache != null) {
             count ++;
         }
@@ -260,6 +263,19 @@ public final class InternalThreadLocalMap extends UnpaddedInternalThreadLocalMap
         this.localChannelReaderStackDepth = localChannelReaderStackDepth;
     }
 
+    /**
+     * Returns the index of the event executor that is run by the current thread, or {@code -1} if the current thread
+     * does not run an executor of a {@link io.netty.util.concurrent.MultithreadEventExecutorGroup}. The index is
+     * unique across all groups, and the executors of the same group have consecutive indices.
+     */
+    public int eventExecutorIndex() {
+        return eventExecutorIndex;
+    }
+
+    public void setEventExecutorIndex(int eventExecutorIndex) {
+        this.eventExecutorIndex = eventExecutorIndex;
+    }
+
     public Object indexedVariable(int index) {
         Object[] lookup = indexedVariables;
         return index < lookup.length? lookup[index] : UNSET;
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.internal;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link BlockingQueue} which is safe to use for multiple producers (different threads) and a single consumer
+ * (one thread!).  Unlike {@link java.util.concurrent.LinkedBlockingQueue} it never takes a lock: producers offer to
+ * a lock-free MPSC queue and only unpark the consumer if it is currently waiting in {@link #take()} or
+ * {@link #poll(long, TimeUnit)}.
+ * <p>
+ * If the queue is bounded, {@link #put(Object)} and {@link #offer(Object, long, TimeUnit)} back off by parking the
+ * producer for a short time until there is space left, as there is no lock to wait on.
+ */
+public final class MpscBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    private static final long PRODUCER_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final Queue<E> queue;
+    private final int capacity;
+    private volatile Thread waiter;
+
+    MpscBlockingQueue(Queue<E> queue, int capacity) {
+        this.queue = queue;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException("e");
+        }
+        if (!queue.offer(e)) {
+            return false;
+        }
+        Thread waiter = this.waiter;
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+        return true;
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        while (!offer(e)) {
+            LockSupport.parkNanos(this, PRODUCER_BACKOFF_NANOS);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!offer(e)) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            LockSupport.parkNanos(this, Math.min(remaining, PRODUCER_BACKOFF_NANOS));
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        return queue.poll();
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        E e = queue.poll();
+        if (e != null) {
+            return e;
+        }
+
+        waiter = Thread.currentThread();
+        try {
+            for (;;) {
+                e = queue.poll();
+                if (e != null) {
+                    return e;
+                }
+                // Only park if no producer has started an offer yet. Otherwise the element is about to become
+                // visible and it is cheaper to spin than to wait for an unpark.
+                if (queue.isEmpty()) {
+                    LockSupport.park(this);
+                } else {
+                    Thread.yield();
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            waiter = null;
+        }
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E e = queue.poll();
+        if (e != null) {
+            return e;
+        }
+
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        waiter = Thread.currentThread();
+        try {
+            for (;;) {
+                e = queue.poll();
+                if (e != null) {
+                    return e;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return null;
+                }
+                if (queue.isEmpty()) {
+                    LockSupport.parkNanos(this, remaining);
+                } else {
+                    Thread.yield();
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            waiter = null;
+        }
+    }
+
+    @Override
+    public E peek() {
+        return queue.peek();
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        if (capacity == Integer.MAX_VALUE) {
+            return Integer.MAX_VALUE;
+        }
+        return Math.max(0, capacity - queue.size());
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return queue.contains(o);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return queue.remove(o);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return queue.iterator();
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null) {
+            throw new NullPointerException("c");
+        }
+        if (c == this) {
+            throw new IllegalArgumentException("c == this");
+        }
+        int i = 0;
+        for (; i < maxElements; i ++) {
+            E e = queue.poll();
+            if (e == null) {
+                break;
+            }
+            c.add(e);
+        }
+        return i;
+    }
+}
@@ -94,11 +94,39 @@ public final class PlatformDependent {
     private static final int ADDRESS_SIZE = addressSize0();
     public static final boolean BIG_ENDIAN_NATIVE_ORDER = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
 
+    private static final boolean USE_DIRECT_BUFFER_NO_CLEANER;
+    private static final AtomicLong DIRECT_MEMORY_COUNTER;
+    private static final long DIRECT_MEMORY_LIMIT;
+
     static {
         if (logger.isDebugEnabled()) {
             logger.debug("-Dio.netty.noPreferDirect: {}", !DIRECT_BUFFER_PREFERRED);
         }
 
+        // Here is how the system property is used:
+        //
+        // * <  0  - Don't use cleaner, and inherit max direct memory from java. In this case the
+        //           "practical max direct memory" would be 2 * max memory as defined by the JDK.
+        // * == 0  - Use cleaner, Netty will not enforce max memory, and instead will defer to JDK.
+        // * >  0  - Don't use cleaner. This will limit Netty's total direct memory
+        //           (note: that JDK's direct memory limit is independent of this).
+        long maxDirectMemory = SystemPropertyUtil.getLong("io.netty.maxDirectMemory", -1);
+
+        if (maxDirectMemory == 0 || !hasUnsafe() || !PlatformDependent0.hasDirectBufferNoCleanerConstructor()) {
+            USE_DIRECT_BUFFER_NO_CLEANER = false;
+            DIRECT_MEMORY_COUNTER = null;
+        } else {
+            USE_DIRECT_BUFFER_NO_CLEANER = true;
+            if (maxDirectMemory < 0) {
+                maxDirectMemory = maxDirectMemory();
+            }
+            DIRECT_MEMORY_COUNTER = maxDirectMemory > 0 ? new AtomicLong() : null;
+        }
+        DIRECT_MEMORY_LIMIT = maxDirectMemory;
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.maxDirectMemory: {} bytes", maxDirectMemory);
+        }
+
         if (!hasUnsafe() && !isAndroid()) {
             logger.info(
                     "Your platform does not provide complete low-level API for accessing direct buffers reliably. " +
@@ -314,6 +342,102 @@ public final class PlatformDependent {
         }
     }
 
+    /**
+     * Returns {@code true} if direct buffers should be allocated via {@link #allocateDirectNoCleaner(int)} and freed
+     * via {@link #freeDirectNoCleaner(ByteBuffer)}.
+     */
+    public static boolean useDirectBufferNoCleaner() {
+        return USE_DIRECT_BUFFER_NO_CLEANER;
+    }
+
+    /**
+     * Allocate a new direct {@link ByteBuffer} with the given {@code capacity} without registering a
+     * {@code Cleaner}, so the memory must be released via {@link #freeDirectNoCleaner(ByteBuffer)}. This bypasses
+     * the synchronized accounting of the JDK and never calls {@link System#gc()}, instead the memory is accounted by
+     * {@link #usedDirectMemory()}.
+     *
+     * @throws OutOfDirectMemoryError if the allocation would exceed {@code io.netty.maxDirectMemory}
+     */
+    public static ByteBuffer allocateDirectNoCleaner(int capacity) {
+        assert USE_DIRECT_BUFFER_NO_CLEANER;
+
+        incrementMemoryCounter(capacity);
+        try {
+            return PlatformDependent0.allocateDirectNoCleaner(capacity);
+        } catch (Throwable e) {
+            decrementMemoryCounter(capacity);
+            throwException(e);
+            return null;
+        }
+    }
+
+    /**
+     * Reallocate a direct {@link ByteBuffer} which was allocated by {@link #allocateDirectNoCleaner(int)}.
+     */
+    public static ByteBuffer reallocateDirectNoCleaner(ByteBuffer buffer, int capacity) {
+        assert USE_DIRECT_BUFFER_NO_CLEANER;
+
+        int len = capacity - buffer.capacity();
+        incrementMemoryCounter(len);
+        try {
+            return PlatformDependent0.reallocateDirectNoCleaner(buffer, capacity);
+        } catch (Throwable e) {
+            decrementMemoryCounter(len);
+            throwException(e);
+            return null;
+        }
+    }
+
+    /**
+     * Release the memory of a direct {@link ByteBuffer} which was allocated by {@link #allocateDirectNoCleaner(int)}.
+     */
+    public static void freeDirectNoCleaner(ByteBuffer buffer) {
+        assert USE_DIRECT_BUFFER_NO_CLEANER;
+
+        int capacity = buffer.capacity();
+        PlatformDependent0.freeMemory(PlatformDependent0.directBufferAddress(buffer));
+        decrementMemoryCounter(capacity);
+    }
+
+    /**
+     * Returns the number of bytes of direct memory which are currently allocated via
+     * {@link #allocateDirectNoCleaner(int)} or {@code -1} if the direct memory is not accounted.
+     */
+    public static long usedDirectMemory() {
+        return DIRECT_MEMORY_COUNTER != null ? DIRECT_MEMORY_COUNTER.get() : -1;
+    }
+
+    /**
+     * Returns the maximum number of bytes which may be allocated via {@link #allocateDirectNoCleaner(int)} or
+     * {@code -1} if the direct memory is not accounted.
+     */
+    public static long directMemoryLimit() {
+        return DIRECT_MEMORY_COUNTER != null ? DIRECT_MEMORY_LIMIT : -1;
+    }
+
+    private static void incrementMemoryCounter(int capacity) {
+        if (DIRECT_MEMORY_COUNTER != null) {
+            for (;;) {
+                long usedMemory = DIRECT_MEMORY_COUNTER.get();
+                long newUsedMemory = usedMemory + capacity;
+                if (newUsedMemory > DIRECT_MEMORY_LIMIT) {
+                    throw new OutOfDirectMemoryError("failed to allocate " + capacity
+                            + " byte(s) of direct memory (used: " + usedMemory + ", max: " + DIRECT_MEMORY_LIMIT + ')');
+                }
+                if (DIRECT_MEMORY_COUNTER.compareAndSet(usedMemory, newUsedMemory)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private static void decrementMemoryCounter(int capacity) {
+        if (DIRECT_MEMORY_COUNTER != null) {
+            long usedMemory = DIRECT_MEMORY_COUNTER.addAndGet(-capacity);
+            assert usedMemory >= 0;
+        }
+    }
+
     public static long directBufferAddress(ByteBuffer buffer) {
         return PlatformDependent0.directBufferAddress(buffer);
     }
@@ -350,6 +474,14 @@ public final class PlatformDependent {
         return PlatformDependent0.getLong(address);
     }
 
+    /**
+     * Reads an {@code int} from the given native memory address with volatile semantics. This is needed for memory
+     * which is shared with the kernel or other threads.
+     */
+    public static int getIntVolatile(long address) {
+        return PlatformDependent0.getIntVolatile(address);
+    }
+
     public static byte getByte(byte[] data, int index) {
         return PlatformDependent0.getByte(data, index);
     }
@@ -468,6 +600,14 @@ public final class PlatformDependent {
         PlatformDependent0.putLong(address, value);
     }
 
+    /**
+     * Writes an {@code int} to the given native memory address with ordered (lazy set) semantics, so all previous
+     * writes are visible before the value itself.
+     */
+    public static void putIntOrdered(long address, int value) {
+        PlatformDependent0.putIntOrdered(address, value);
+    }
+
     public static void putByte(byte[] data, int index, byte value) {
         PlatformDependent0.putByte(data, index, value);
     }
@@ -610,6 +750,22 @@ public final class PlatformDependent {
         return new MpscLinkedQueue<T>();
     }
 
+    /**
+     * Create a new {@link BlockingQueue} which is safe to use for multiple producers (different threads) and a single
+     * consumer (one thread!).
+     */
+    public static <T> BlockingQueue<T> newMpscBlockingQueue() {
+        return new MpscBlockingQueue<T>(new MpscLinkedQueue<T>(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Create a new {@link BlockingQueue} which is safe to use for multiple producers (different threads) and a single
+     * consumer (one thread!) with the given fixes {@code capacity}.
+     */
+    public static <T> BlockingQueue<T> newFixedMpscBlockingQueue(int capacity) {
+        return new MpscBlockingQueue<T>(PlatformDependent.<T>newFixedMpscQueue(capacity), capacity);
+    }
+
     /**
      * Create a new {@link Queue} which is safe to use for single producer (one thread!) and a single
      * consumer (one thread!).
@@ -19,6 +19,7 @@ import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 import sun.misc.Unsafe;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.nio.Buffer;
@@ -54,6 +55,9 @@ final class PlatformDependent0 {
 
     private static final boolean UNALIGNED;
 
+    // The private DirectByteBuffer(long address, int capacity) constructor which does not register a Cleaner.
+    private static final Constructor<?> DIRECT_BUFFER_CONSTRUCTOR;
+
     static {
         ByteBuffer direct = ByteBuffer.allocateDirect(1);
         Field addressField;
@@ -111,6 +115,27 @@ final class PlatformDependent0 {
 
         UNSAFE = unsafe;
 
+        Constructor<?> directBufferConstructor = null;
+        if (unsafe != null) {
+            long address = -1;
+            try {
+                directBufferConstructor = direct.getClass().getDeclaredConstructor(long.class, int.class);
+                directBufferConstructor.setAccessible(true);
+                address = unsafe.allocateMemory(1);
+                // Ensure the constructor works as expected.
+                directBufferConstructor.newInstance(address, 1);
+            } catch (Throwable t) {
+                directBufferConstructor = null;
+            } finally {
+                if (address != -1) {
+                    unsafe.freeMemory(address);
+                }
+            }
+        }
+        DIRECT_BUFFER_CONSTRUCTOR = directBufferConstructor;
+        logger.debug("direct buffer constructor: {}",
+                DIRECT_BUFFER_CONSTRUCTOR != null ? "available" : "unavailable");
+
         if (unsafe == null) {
             ADDRESS_FIELD_OFFSET = -1;
             BYTE_ARRAY_BASE_OFFSET = CHAR_ARRAY_BASE_OFFSET = CHAR_ARRAY_INDEX_SCALE = -1;
@@ -198,6 +223,32 @@ final class PlatformDependent0 {
         UNSAFE.throwException(checkNotNull(cause, "cause"));
     }
 
+    static boolean hasDirectBufferNoCleanerConstructor() {
+        return DIRECT_BUFFER_CONSTRUCTOR != null;
+    }
+
+    static ByteBuffer allocateDirectNoCleaner(int capacity) {
+        // Allocate at least one byte so the address is never 0, just like ByteBuffer.allocateDirect(0) does.
+        return newDirectBuffer(UNSAFE.allocateMemory(Math.max(1, capacity)), capacity);
+    }
+
+    static ByteBuffer reallocateDirectNoCleaner(ByteBuffer buffer, int capacity) {
+        return newDirectBuffer(UNSAFE.reallocateMemory(directBufferAddress(buffer), Math.max(1, capacity)), capacity);
+    }
+
+    private static ByteBuffer newDirectBuffer(long address, int capacity) {
+        try {
+            return (ByteBuffer) DIRECT_BUFFER_CONSTRUCTOR.newInstance(address, capacity);
+        } catch (Throwable cause) {
+            // Not expected to ever happen as the constructor was tested in the static initializer.
+            UNSAFE.freeMemory(address);
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new Error(cause);
+        }
+    }
+
     static void freeDirectBuffer(ByteBuffer buffer) {
         // Delegate to other class to not break on android
         // See https://github.com/netty/netty/issues/2604
@@ -248,6 +299,10 @@ final class PlatformDependent0 {
         return UNSAFE.getLong(address);
     }
 
+    static int getIntVolatile(long address) {
+        return UNSAFE.getIntVolatile(null, address);
+    }
+
     static byte getByte(byte[] data, int index) {
         return UNSAFE.getByte(data, BYTE_ARRAY_BASE_OFFSET + index);
     }
@@ -284,6 +339,10 @@ final class PlatformDependent0 {
         UNSAFE.putLong(address, value);
     }
 
+    static void putIntOrdered(long address, int value) {
+        UNSAFE.putOrderedInt(null, address, value);
+    }
+
     static void putByte(byte[] data, int index, byte value) {
         UNSAFE.putByte(data, BYTE_ARRAY_BASE_OFFSET + index, value);
     }
@@ -41,6 +41,7 @@ class UnpaddedInternalThreadLocalMap {
     // Core thread-locals
     int futureListenerStackDepth;
     int localChannelReaderStackDepth;
+    int eventExecutorIndex = -1;
     Map<Class<?>, Boolean> handlerSharableCache;
     IntegerHolder counterHashCode;
     ThreadLocalRandom random;
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HierarchicalWheelTimerTest {
+
+    @Test
+    public void testScheduleTimeoutShouldNotRunBeforeDelay() throws InterruptedException {
+        final Timer timer = new HierarchicalWheelTimer();
+        final CountDownLatch barrier = new CountDownLatch(1);
+        final Timeout timeout = timer.newTimeout(new TimerTask() {
+            @Override
+            public void run(Timeout timeout) throws Exception {
+                fail("This should not have run");
+                barrier.countDown();
+            }
+        }, 10, TimeUnit.SECONDS);
+        assertFalse(barrier.await(3, TimeUnit.SECONDS));
+        assertFalse("timer should not expire", timeout.isExpired());
+        timer.stop();
+    }
+
+    @Test
+    public void testScheduleTimeoutShouldRunAfterDelay() throws InterruptedException {
+        final Timer timer = new HierarchicalWheelTimer();
+        final CountDownLatch barrier = new CountDownLatch(1);
+        final Timeout timeout = timer.newTimeout(new TimerTask() {
+            @Override
+            public void run(Timeout timeout) throws Exception {
+                barrier.countDown();
+            }
+        }, 2, TimeUnit.SECONDS);
+        assertTrue(barrier.await(3, TimeUnit.SECONDS));
+        assertTrue("timer should expire", timeout.isExpired());
+        timer.stop();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSingleLevelIsRejected() {
+        new HierarchicalWheelTimer(Executors.defaultThreadFactory(), 10, TimeUnit.MILLISECONDS, 4, 1);
+    }
+
+    @Test(timeout = 5000)
+    public void testDelayLongerThanOneRotation() throws InterruptedException {
+        // 4 ticks of 10 milliseconds per wheel, so both timeouts need to be cascaded from the second level.
+        final HierarchicalWheelTimer timer = new HierarchicalWheelTimer(
+                Executors.defaultThreadFactory(), 10, TimeUnit.MILLISECONDS, 4, 2);
+        final CountDownLatch latch = new CountDownLatch(2);
+        final long start = System.nanoTime();
+        final AtomicReference<Throwable> cause = new AtomicReference<Throwable>();
+        for (final int delay: new int[] { 100, 200 }) {
+            timer.newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout timeout) throws Exception {
+                    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    if (elapsed < delay) {
+                        cause.compareAndSet(null, new AssertionError(
+                                "expired after " + elapsed + " ms (expected: >= " + delay + " ms)"));
+                    }
+                    latch.countDown();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+        latch.await();
+        if (cause.get() != null) {
+            throw (AssertionError) cause.get();
+        }
+        assertTrue(timer.stop().isEmpty());
+    }
+
+    @Test
+    public void testExecutionOnTimeAcrossLevels() throws InterruptedException {
+        // 4 ticks per wheel and 2 levels only cover 16 ticks, so all timeouts need to be cascaded and the longer ones
+        // also exceed the range of the highest level.
+        final HierarchicalWheelTimer timer = new HierarchicalWheelTimer(
+                Executors.defaultThreadFactory(), 10, TimeUnit.MILLISECONDS, 4, 2);
+        final BlockingQueue<Long> queue = new LinkedBlockingQueue<Long>();
+        int[] timeouts = { 5, 35, 95, 155, 330, 510 };
+        for (final int timeout: timeouts) {
+            final long start = System.nanoTime();
+            timer.newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout t) throws Exception {
+                    queue.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) - timeout);
+                }
+            }, timeout, TimeUnit.MILLISECONDS);
+        }
+        for (int i = 0; i < timeouts.length; i++) {
+            long late = queue.take();
+            assertTrue("late: " + late, late >= 0 && late < 200);
+        }
+        assertTrue(timer.stop().isEmpty());
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        final Timer timer = new HierarchicalWheelTimer(10, TimeUnit.MILLISECONDS);
+        final CountDownLatch barrier = new CountDownLatch(1);
+        Timeout cancelled = timer.newTimeout(new TimerTask() {
+            @Override
+            public void run(Timeout timeout) throws Exception {
+                fail("This should not have run");
+            }
+        }, 200, TimeUnit.MILLISECONDS);
+        // Let the worker transfer the timeout into its bucket before it is cancelled.
+        Thread.sleep(50);
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertTrue(cancelled.isCancelled());
+        timer.newTimeout(new TimerTask() {
+            @Override
+            public void run(Timeout timeout) throws Exception {
+                barrier.countDown();
+            }
+        }, 300, TimeUnit.MILLISECONDS);
+        barrier.await();
+        assertFalse(cancelled.isExpired());
+        assertTrue(timer.stop().isEmpty());
+    }
+
+    @Test
+    public void testCancelWhileCascading() throws InterruptedException {
+        // Few ticks per wheel so the timeouts are cascaded while they are cancelled from other threads.
+        final HierarchicalWheelTimer timer = new HierarchicalWheelTimer(
+                Executors.defaultThreadFactory(), 1, TimeUnit.MILLISECONDS, 4, 3);
+        final AtomicInteger runs = new AtomicInteger();
+        TimerTask task = new TimerTask() {
+            @Override
+            public void run(Timeout timeout) throws Exception {
+                runs.incrementAndGet();
+            }
+        };
+        final List<Timeout> timeouts = new ArrayList<Timeout>();
+        for (int i = 0; i < 2000; i++) {
+            timeouts.add(timer.newTimeout(task, 100 + i % 100, TimeUnit.MILLISECONDS));
+        }
+        Thread.sleep(20);
+        Thread[] threads = new Thread[2];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = offset; i < timeouts.size(); i += 2) {
+                        assertTrue(timeouts.get(i).cancel());
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread: threads) {
+            thread.join();
+        }
+        final CountDownLatch latch = new CountDownLatch(1);
+        timer.newTimeout(new TimerTask() {
+            @Override
+            public void run(Timeout timeout) throws Exception {
+                latch.countDown();
+            }
+        }, 250, TimeUnit.MILLISECONDS);
+        latch.await();
+        assertEquals(0, runs.get());
+        for (Timeout timeout: timeouts) {
+            assertFalse(timeout.isExpired());
+        }
+        assertTrue(timer.stop().isEmpty());
+    }
+
+    @Test
+    public void testStopTimer() throws InterruptedException {
+        final Timer timer = new HierarchicalWheelTimer();
+        for (int i = 0; i < 5; i ++) {
+            timer.newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout timeout) throws Exception {
+                }
+            }, 5, TimeUnit.SECONDS);
+        }
+        Thread.sleep(1000L); // sleep for a second
+        assertEquals(5, timer.stop().size());
+    }
+
+    @Test
+    public void testTaskExecutor() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        final HierarchicalWheelTimer timer = new HierarchicalWheelTimer(
+                Executors.defaultThreadFactory(), 10, TimeUnit.MILLISECONDS, 256, 4, executor);
+        final int tasks = HierarchicalWheelTimer.MAX_BATCH_SIZE * 3;
+        final CountDownLatch latch = new CountDownLatch(tasks);
+        final AtomicReference<Thread> thread = new AtomicReference<Thread>();
+        for (int i = 0; i < tasks; i++) {
+            timer.newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout timeout) throws Exception {
+                    thread.set(Thread.currentThread());
+                    latch.countDown();
+                }
+            }, 50, TimeUnit.MILLISECONDS);
+        }
+        latch.await();
+        assertNotSame(Thread.currentThread(), thread.get());
+        assertTrue(timer.stop().isEmpty());
+        executor.shutdown();
+    }
+}
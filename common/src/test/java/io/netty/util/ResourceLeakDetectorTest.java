@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util;
+
+import io.netty.util.ResourceLeakDetector.AllocationSite;
+import io.netty.util.ResourceLeakDetector.Level;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class ResourceLeakDetectorTest {
+
+    private Level oldLevel;
+
+    @Before
+    public void setUp() {
+        oldLevel = ResourceLeakDetector.getLevel();
+        ResourceLeakDetector.clearAllocationSites();
+    }
+
+    @After
+    public void tearDown() {
+        ResourceLeakDetector.setLevel(oldLevel);
+        ResourceLeakDetector.clearAllocationSites();
+    }
+
+    @Test
+    public void testSampling() {
+        ResourceLeakDetector.setLevel(Level.SIMPLE);
+        ResourceLeakDetector<Object> detector =
+                new ResourceLeakDetector<Object>("testSampling", 4, Long.MAX_VALUE, 0, 4);
+        List<Object> objects = new ArrayList<Object>();
+        int tracked = 0;
+        for (int i = 0; i < 64; i++) {
+            Object obj = new Object();
+            objects.add(obj);
+            ResourceLeak leak = detector.open(obj);
+            if (leak != null) {
+                tracked++;
+                assertTrue(leak.close());
+            }
+        }
+        assertEquals(16, tracked);
+        // No allocation sites are aggregated unless enabled.
+        assertTrue(ResourceLeakDetector.allocationSites().isEmpty());
+    }
+
+    @Test
+    public void testSiteSampling() {
+        ResourceLeakDetector.setLevel(Level.SIMPLE);
+        ResourceLeakDetector<Object> detector =
+                new ResourceLeakDetector<Object>("testSiteSampling", 1, Long.MAX_VALUE, 1, 4);
+        List<Object> objects = new ArrayList<Object>();
+        for (int i = 0; i < 10; i++) {
+            Object obj = new Object();
+            objects.add(obj);
+            assertTrue(detector.open(obj).close());
+        }
+        List<AllocationSite> sites = ResourceLeakDetector.allocationSites();
+        assertEquals(1, sites.size());
+        assertEquals("testSiteSampling", sites.get(0).resourceType());
+        assertEquals(10, sites.get(0).sampledAllocations());
+        assertEquals(0, sites.get(0).leaks());
+    }
+
+    @Test
+    public void testRecordBackOff() {
+        ResourceLeakDetector.setLevel(Level.ADVANCED);
+        ResourceLeakDetector<Object> detector =
+                new ResourceLeakDetector<Object>("testRecordBackOff", 1, Long.MAX_VALUE, 0, 4);
+        Object obj = new Object();
+        ResourceLeak leak = detector.open(obj);
+        final int records = 1000;
+        for (int i = 0; i < records; i++) {
+            // Distinct hints so no record is dropped as a duplicate.
+            leak.record(i);
+        }
+        String report = leak.toString();
+        assertTrue(leak.close());
+
+        int removed = count(report, "(\\d+) leak records were discarded");
+        int dropped = count(report, "(\\d+) leak records were not taken");
+        int kept = count(report, "Recent access records: (\\d+)");
+        assertEquals(4, kept);
+        assertEquals(records, kept + removed + dropped);
+        // Every evicted record halves the chance to take the next one.
+        assertTrue("removed: " + removed, removed < 64);
+        assertTrue("dropped: " + dropped, dropped > removed);
+    }
+
+    @Test(timeout = 30000)
+    public void testLeakReportedOncePerSite() throws Exception {
+        ResourceLeakDetector.setLevel(Level.ADVANCED);
+        final List<String> reports = new ArrayList<String>();
+        ResourceLeakDetector<Object> detector =
+                new ResourceLeakDetector<Object>("testLeakReportedOncePerSite", 1, Long.MAX_VALUE, 1, 4);
+        detector.leakListener(new ResourceLeakDetector.LeakListener() {
+            @Override
+            public void onLeak(String resourceType, String records) {
+                reports.add(records);
+            }
+        });
+
+        final int leaks = 10;
+        for (int i = 0; i < leaks; i++) {
+            // Every leaked resource has different access records, but they are all allocated at the same site.
+            detector.open(new Object()).record(i);
+        }
+
+        AllocationSite site = ResourceLeakDetector.allocationSites().get(0);
+        assertEquals(leaks, site.sampledAllocations());
+        while (site.leaks() < leaks) {
+            System.gc();
+            Thread.sleep(10);
+            // Detecting leaks is triggered by opening a new resource.
+            assertTrue(detector.open(new Object()).close());
+        }
+        assertEquals(leaks, site.leaks());
+        assertEquals(1, reports.size());
+        assertTrue(reports.get(0).contains("Created at:"));
+    }
+
+    private static int count(String report, String regex) {
+        Matcher m = Pattern.compile(regex).matcher(report);
+        return m.find() ? Integer.parseInt(m.group(1)) : 0;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class EventExecutorTimerWheelTest {
+
+    private DefaultEventExecutor executor;
+
+    @Before
+    public void setUp() {
+        executor = new DefaultEventExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Test
+    public void testSameInstancePerExecutor() throws Exception {
+        EventExecutorTimerWheel wheel = executor.submit(new Callable<EventExecutorTimerWheel>() {
+            @Override
+            public EventExecutorTimerWheel call() {
+                return EventExecutorTimerWheel.of(executor);
+            }
+        }).sync().getNow();
+        assertSame(wheel, EventExecutorTimerWheel.of(executor));
+        assertSame(executor, wheel.executor());
+    }
+
+    @Test(timeout = 10000)
+    public void testEntriesNeverExpireEarly() throws Exception {
+        final BlockingQueue<Long> queue = new LinkedBlockingQueue<Long>();
+        // 10 ms ticks with 64 buckets per level, so the longer delays need to be cascaded.
+        final long[] delays = { 0, 5, 30, 250, 700, 1500 };
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                EventExecutorTimerWheel wheel = EventExecutorTimerWheel.of(executor);
+                for (final long delay: delays) {
+                    final long start = System.nanoTime();
+                    wheel.schedule(new EventExecutorTimerWheel.Entry() {
+                        @Override
+                        public void run() {
+                            queue.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) - delay);
+                        }
+                    }, delay, TimeUnit.MILLISECONDS);
+                }
+            }
+        });
+        for (int i = 0; i < delays.length; i++) {
+            long late = queue.take();
+            assertTrue("late: " + late, late >= 0 && late < 200);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testCancelAndReschedule() throws Exception {
+        final BlockingQueue<String> queue = new LinkedBlockingQueue<String>();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final EventExecutorTimerWheel timerWheel = EventExecutorTimerWheel.of(executor);
+                EventExecutorTimerWheel.Entry cancelled = new EventExecutorTimerWheel.Entry() {
+                    @Override
+                    public void run() {
+                        queue.add("cancelled");
+                    }
+                };
+                timerWheel.schedule(cancelled, 50, TimeUnit.MILLISECONDS);
+                assertTrue(cancelled.isScheduled());
+                assertTrue(timerWheel.cancel(cancelled));
+                assertFalse(cancelled.isScheduled());
+                assertFalse(timerWheel.cancel(cancelled));
+
+                timerWheel.schedule(new EventExecutorTimerWheel.Entry() {
+                    private int runs;
+
+                    @Override
+                    public void run() {
+                        if (++ runs < 3) {
+                            timerWheel.schedule(this, 20, TimeUnit.MILLISECONDS);
+                        } else {
+                            queue.add("rescheduled");
+                        }
+                    }
+                }, 20, TimeUnit.MILLISECONDS);
+                assertEquals(1, timerWheel.size());
+            }
+        });
+        assertEquals("rescheduled", queue.take());
+        assertNull(queue.poll(100, TimeUnit.MILLISECONDS));
+    }
+}
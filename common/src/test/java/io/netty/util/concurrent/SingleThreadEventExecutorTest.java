@@ -15,10 +15,22 @@
  */
 package io.netty.util.concurrent;
 
+import io.netty.util.internal.InternalThreadLocalMap;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 public class SingleThreadEventExecutorTest {
 
@@ -49,4 +61,222 @@ public class SingleThreadEventExecutorTest {
         Assert.assertTrue(threadProperties.stackTrace().length > 0);
         executor.shutdownGracefully();
     }
+
+    @Test(timeout = 10000)
+    public void testTasksFromManyProducers() throws Exception {
+        final int producers = 8;
+        final int tasksPerProducer = 10000;
+        final DefaultEventExecutor executor = new DefaultEventExecutor();
+        final AtomicInteger counter = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(producers * tasksPerProducer);
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                counter.incrementAndGet();
+                latch.countDown();
+            }
+        };
+        Thread[] threads = new Thread[producers];
+        for (int i = 0; i < producers; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < tasksPerProducer; j++) {
+                        executor.execute(task);
+                        if ((j & 0xFF) == 0) {
+                            // Give the executor a chance to block in takeTask().
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread t: threads) {
+            t.join();
+        }
+        latch.await();
+        Assert.assertEquals(producers * tasksPerProducer, counter.get());
+        executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Test(timeout = 10000)
+    public void testScheduledTaskWakesUpTakeTask() throws Exception {
+        DefaultEventExecutor executor = new DefaultEventExecutor();
+        final CountDownLatch latch = new CountDownLatch(1);
+        executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 100, TimeUnit.MILLISECONDS);
+        latch.await();
+        executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Test(timeout = 10000)
+    public void testRejectWhenMaxPendingTasksReached() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        DefaultEventExecutor executor = new DefaultEventExecutor(
+                null, new ThreadPerTaskExecutor(new DefaultThreadFactory("test")), 16,
+                RejectedExecutionHandlers.reject());
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    blocker.await();
+                } catch (InterruptedException ignore) {
+                    // ignore
+                }
+            }
+        });
+        started.await();
+        final CountDownLatch latch = new CountDownLatch(16);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        };
+        for (int i = 0; i < 16; i++) {
+            executor.execute(task);
+        }
+        try {
+            executor.execute(task);
+            Assert.fail();
+        } catch (RejectedExecutionException expected) {
+            // expected
+        }
+        blocker.countDown();
+        latch.await();
+        executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Test(timeout = 10000)
+    public void testMetrics() throws Exception {
+        DefaultEventExecutor executor = new DefaultEventExecutor();
+        Assert.assertNull(executor.metrics());
+        executor.setMetricsEnabled(true);
+        EventExecutorMetrics metrics = executor.metrics();
+        Assert.assertNotNull(metrics);
+
+        final CountDownLatch slowTaskDone = new CountDownLatch(1);
+        final class SlowTask implements Runnable {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(150);
+                } catch (InterruptedException ignore) {
+                    // ignore
+                }
+                slowTaskDone.countDown();
+            }
+        }
+        executor.execute(new SlowTask());
+        slowTaskDone.await();
+        // The probe for the task queue latency was submitted after the slow task, so wait until it ran.
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                // NOOP
+            }
+        }).syncUninterruptibly();
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                // NOOP
+            }
+        }).syncUninterruptibly();
+
+        Assert.assertTrue(metrics.completedTasks() >= 2);
+        Assert.assertEquals(1, metrics.slowTasks());
+        Assert.assertSame(SlowTask.class, metrics.lastSlowTaskClass());
+        Assert.assertTrue(metrics.lastSlowTaskNanos() >= TimeUnit.MILLISECONDS.toNanos(100));
+        Assert.assertTrue(metrics.taskProcessingNanos() >= metrics.lastSlowTaskNanos());
+
+        long samples = 0;
+        for (long count: metrics.taskQueueLatencyHistogram()) {
+            samples += count;
+        }
+        Assert.assertTrue(samples > 0);
+
+        executor.setMetricsEnabled(false);
+        Assert.assertNull(executor.metrics());
+        executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Test(timeout = 10000)
+    public void testRunAllTasksWithBudgetRunsExpiredScheduledTasksFirst() throws Exception {
+        final SingleThreadEventExecutor executor = new SingleThreadEventExecutor(
+                null, new DefaultThreadFactory("test"), false) {
+            @Override
+            protected void run() {
+                while (!confirmShutdown()) {
+                    // Check the budget after every task, a task budget of 1ns means only one task runs per call.
+                    if (!runAllTasks(1, TimeUnit.SECONDS.toNanos(1), 1)) {
+                        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                    }
+                }
+            }
+        };
+        final Queue<String> order = new ConcurrentLinkedQueue<String>();
+        final CountDownLatch latch = new CountDownLatch(2);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        order.add("task");
+                        latch.countDown();
+                    }
+                });
+                executor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        order.add("scheduled");
+                        latch.countDown();
+                    }
+                }, 0, TimeUnit.NANOSECONDS);
+            }
+        });
+        latch.await();
+        Assert.assertEquals("scheduled", order.poll());
+        Assert.assertEquals("task", order.poll());
+        executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Test(timeout = 10000)
+    public void testExecutorIndexClearedWhenThreadIsReused() throws Exception {
+        // A user supplied Executor which runs every executor on the same thread.
+        final ExecutorService threadPool = Executors.newSingleThreadExecutor();
+        try {
+            MultithreadEventExecutorGroup group = new MultithreadEventExecutorGroup(1, threadPool) {
+                @Override
+                protected EventExecutor newChild(Executor executor, Object... args) {
+                    return new DefaultEventExecutor(this, executor);
+                }
+            };
+            int executorIndex = group.next().submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return InternalThreadLocalMap.get().eventExecutorIndex();
+                }
+            }).get();
+            Assert.assertTrue(executorIndex >= 0);
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+
+            int indexAfterShutdown = threadPool.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return InternalThreadLocalMap.get().eventExecutorIndex();
+                }
+            }).get();
+            Assert.assertEquals(-1, indexAfterShutdown);
+        } finally {
+            threadPool.shutdown();
+        }
+    }
 }
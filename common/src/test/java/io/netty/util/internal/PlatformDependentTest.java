@@ -17,12 +17,15 @@ package io.netty.util.internal;
 
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
 public class PlatformDependentTest {
     private static final Random r = new Random();
@@ -107,4 +110,44 @@ public class PlatformDependentTest {
                     PlatformDependent.hashCodeAscii(string));
         }
     }
+
+    @Test
+    public void testAllocateDirectNoCleaner() {
+        assumeTrue(PlatformDependent.useDirectBufferNoCleaner());
+
+        long usedMemory = PlatformDependent.usedDirectMemory();
+        ByteBuffer buffer = PlatformDependent.allocateDirectNoCleaner(128);
+        try {
+            assertTrue(buffer.isDirect());
+            assertEquals(128, buffer.capacity());
+            if (usedMemory != -1) {
+                assertEquals(usedMemory + 128, PlatformDependent.usedDirectMemory());
+            }
+            buffer.putLong(0, 42);
+
+            buffer = PlatformDependent.reallocateDirectNoCleaner(buffer, 256);
+            assertEquals(256, buffer.capacity());
+            assertEquals(42, buffer.getLong(0));
+            if (usedMemory != -1) {
+                assertEquals(usedMemory + 256, PlatformDependent.usedDirectMemory());
+            }
+        } finally {
+            PlatformDependent.freeDirectNoCleaner(buffer);
+        }
+        assertEquals(usedMemory, PlatformDependent.usedDirectMemory());
+    }
+
+    @Test
+    public void testAllocateDirectNoCleanerExceedsLimit() {
+        long limit = PlatformDependent.directMemoryLimit();
+        assumeTrue(PlatformDependent.useDirectBufferNoCleaner() && limit > 0 && limit < Integer.MAX_VALUE);
+
+        long usedMemory = PlatformDependent.usedDirectMemory();
+        try {
+            PlatformDependent.allocateDirectNoCleaner((int) (limit - usedMemory + 1));
+            fail();
+        } catch (OutOfDirectMemoryError expected) {
+            assertEquals(usedMemory, PlatformDependent.usedDirectMemory());
+        }
+    }
 }
@@ -23,9 +23,8 @@ import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPromise;
-import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorTimerWheel;
 
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -110,15 +109,17 @@ public class IdleStateHandler extends ChannelDuplexHandler {
     private final long writerIdleTimeNanos;
     private final long allIdleTimeNanos;
 
-    volatile ScheduledFuture<?> readerIdleTimeout;
+    private EventExecutorTimerWheel timerWheel;
+
+    private ReaderIdleTimeoutTask readerIdleTimeout;
     volatile long lastReadTime;
     private boolean firstReaderIdleEvent = true;
 
-    volatile ScheduledFuture<?> writerIdleTimeout;
+    private WriterIdleTimeoutTask writerIdleTimeout;
     volatile long lastWriteTime;
     private boolean firstWriterIdleEvent = true;
 
-    volatile ScheduledFuture<?> allIdleTimeout;
+    private AllIdleTimeoutTask allIdleTimeout;
     private boolean firstAllIdleEvent = true;
 
     private volatile int state; // 0 - none, 1 - initialized, 2 - destroyed
@@ -242,6 +243,17 @@ public class IdleStateHandler extends ChannelDuplexHandler {
         super.channelRegistered(ctx);
     }
 
+    @Override
+    public void channelUnregistered(ChannelHandlerContext ctx) throws Exception {
+        if (state == 1 && ctx.channel().isOpen()) {
+            // The channel was deregistered without being closed, for example to move it to another EventLoop.
+            // The timeouts belong to the timer wheel of the old EventLoop, so start over once registered again.
+            destroy();
+            state = 0;
+        }
+        super.channelUnregistered(ctx);
+    }
+
     @Override
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
         // This method will be invoked only if this handler was added
@@ -298,23 +310,22 @@ public class IdleStateHandler extends ChannelDuplexHandler {
 
         state = 1;
 
-        EventExecutor loop = ctx.executor();
+        // All timeouts are scheduled on the timer wheel of the event loop. Reads and writes only update the
+        // timestamps, and the timeout tasks reschedule themselves for the remaining time when they expire.
+        EventExecutorTimerWheel timerWheel = this.timerWheel = EventExecutorTimerWheel.of(ctx.executor());
 
         lastReadTime = lastWriteTime = System.nanoTime();
         if (readerIdleTimeNanos > 0) {
-            readerIdleTimeout = loop.schedule(
-                    new ReaderIdleTimeoutTask(ctx),
-                    readerIdleTimeNanos, TimeUnit.NANOSECONDS);
+            readerIdleTimeout = new ReaderIdleTimeoutTask(ctx);
+            timerWheel.schedule(readerIdleTimeout, readerIdleTimeNanos, TimeUnit.NANOSECONDS);
         }
         if (writerIdleTimeNanos > 0) {
-            writerIdleTimeout = loop.schedule(
-                    new WriterIdleTimeoutTask(ctx),
-                    writerIdleTimeNanos, TimeUnit.NANOSECONDS);
+            writerIdleTimeout = new WriterIdleTimeoutTask(ctx);
+            timerWheel.schedule(writerIdleTimeout, writerIdleTimeNanos, TimeUnit.NANOSECONDS);
         }
         if (allIdleTimeNanos > 0) {
-            allIdleTimeout = loop.schedule(
-                    new AllIdleTimeoutTask(ctx),
-                    allIdleTimeNanos, TimeUnit.NANOSECONDS);
+            allIdleTimeout = new AllIdleTimeoutTask(ctx);
+            timerWheel.schedule(allIdleTimeout, allIdleTimeNanos, TimeUnit.NANOSECONDS);
         }
     }
 
@@ -322,15 +333,15 @@ public class IdleStateHandler extends ChannelDuplexHandler {
         state = 2;
 
         if (readerIdleTimeout != null) {
-            readerIdleTimeout.cancel(false);
+            timerWheel.cancel(readerIdleTimeout);
             readerIdleTimeout = null;
         }
         if (writerIdleTimeout != null) {
-            writerIdleTimeout.cancel(false);
+            timerWheel.cancel(writerIdleTimeout);
             writerIdleTimeout = null;
         }
         if (allIdleTimeout != null) {
-            allIdleTimeout.cancel(false);
+            timerWheel.cancel(allIdleTimeout);
             allIdleTimeout = null;
         }
     }
@@ -343,7 +354,7 @@ public class IdleStateHandler extends ChannelDuplexHandler {
         ctx.fireUserEventTriggered(evt);
     }
 
-    private final class ReaderIdleTimeoutTask implements Runnable {
+    private final class ReaderIdleTimeoutTask extends EventExecutorTimerWheel.Entry {
 
         private final ChannelHandlerContext ctx;
 
@@ -364,8 +375,7 @@ public class IdleStateHandler extends ChannelDuplexHandler {
 
             if (nextDelay <= 0) {
                 // Reader is idle - set a new timeout and notify the callback.
-                readerIdleTimeout =
-                    ctx.executor().schedule(this, readerIdleTimeNanos, TimeUnit.NANOSECONDS);
+                timerWheel.schedule(this, readerIdleTimeNanos, TimeUnit.NANOSECONDS);
                 try {
                     IdleStateEvent event;
                     if (firstReaderIdleEvent) {
@@ -380,12 +390,12 @@ public class IdleStateHandler extends ChannelDuplexHandler {
                 }
             } else {
                 // Read occurred before the timeout - set a new timeout with shorter delay.
-                readerIdleTimeout = ctx.executor().schedule(this, nextDelay, TimeUnit.NANOSECONDS);
+                timerWheel.schedule(this, nextDelay, TimeUnit.NANOSECONDS);
             }
         }
     }
 
-    private final class WriterIdleTimeoutTask implements Runnable {
+    private final class WriterIdleTimeoutTask extends EventExecutorTimerWheel.Entry {
 
         private final ChannelHandlerContext ctx;
 
@@ -403,8 +413,7 @@ public class IdleStateHandler extends ChannelDuplexHandler {
             long nextDelay = writerIdleTimeNanos - (System.nanoTime() - lastWriteTime);
             if (nextDelay <= 0) {
                 // Writer is idle - set a new timeout and notify the callback.
-                writerIdleTimeout = ctx.executor().schedule(
-                        this, writerIdleTimeNanos, TimeUnit.NANOSECONDS);
+                timerWheel.schedule(this, writerIdleTimeNanos, TimeUnit.NANOSECONDS);
                 try {
                     IdleStateEvent event;
                     if (firstWriterIdleEvent) {
@@ -419,12 +428,12 @@ public class IdleStateHandler extends ChannelDuplexHandler {
                 }
             } else {
                 // Write occurred before the timeout - set a new timeout with shorter delay.
-                writerIdleTimeout = ctx.executor().schedule(this, nextDelay, TimeUnit.NANOSECONDS);
+                timerWheel.schedule(this, nextDelay, TimeUnit.NANOSECONDS);
             }
         }
     }
 
-    private final class AllIdleTimeoutTask implements Runnable {
+    private final class AllIdleTimeoutTask extends EventExecutorTimerWheel.Entry {
 
         private final ChannelHandlerContext ctx;
 
@@ -445,8 +454,7 @@ public class IdleStateHandler extends ChannelDuplexHandler {
             if (nextDelay <= 0) {
                 // Both reader and writer are idle - set a new timeout and
                 // notify the callback.
-                allIdleTimeout = ctx.executor().schedule(
-                        this, allIdleTimeNanos, TimeUnit.NANOSECONDS);
+                timerWheel.schedule(this, allIdleTimeNanos, TimeUnit.NANOSECONDS);
                 try {
                     IdleStateEvent event;
                     if (firstAllIdleEvent) {
@@ -462,7 +470,7 @@ public class IdleStateHandler extends ChannelDuplexHandler {
             } else {
                 // Either read or write occurred before the timeout - set a new
                 // timeout with shorter delay.
-                allIdleTimeout = ctx.executor().schedule(this, nextDelay, TimeUnit.NANOSECONDS);
+                timerWheel.schedule(this, nextDelay, TimeUnit.NANOSECONDS);
             }
         }
     }
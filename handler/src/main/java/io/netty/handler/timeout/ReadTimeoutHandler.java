@@ -21,8 +21,8 @@ import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
+import io.netty.util.concurrent.EventExecutorTimerWheel;
 
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -68,7 +68,8 @@ public class ReadTimeoutHandler extends ChannelInboundHandlerAdapter {
 
     private long lastReadTime;
 
-    private volatile ScheduledFuture<?> timeout;
+    private EventExecutorTimerWheel timerWheel;
+    private ReadTimeoutTask timeout;
 
     private volatile int state; // 0 - none, 1 - Initialized, 2 - Destroyed;
 
@@ -131,6 +132,17 @@ public class ReadTimeoutHandler extends ChannelInboundHandlerAdapter {
         super.channelRegistered(ctx);
     }
 
+    @Override
+    public void channelUnregistered(ChannelHandlerContext ctx) throws Exception {
+        if (state == 1 && ctx.channel().isOpen()) {
+            // The channel was deregistered without being closed, for example to move it to another EventLoop.
+            // The timeouts belong to the timer wheel of the old EventLoop, so start over once registered again.
+            destroy();
+            state = 0;
+        }
+        super.channelUnregistered(ctx);
+    }
+
     @Override
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
         // This method will be invoked only if this handler was added
@@ -172,9 +184,10 @@ public class ReadTimeoutHandler extends ChannelInboundHandlerAdapter {
 
         lastReadTime = System.nanoTime();
         if (timeoutNanos > 0) {
-            timeout = ctx.executor().schedule(
-                    new ReadTimeoutTask(ctx),
-                    timeoutNanos, TimeUnit.NANOSECONDS);
+            // Reads only update lastReadTime, the task reschedules itself for the remaining time when it expires.
+            timerWheel = EventExecutorTimerWheel.of(ctx.executor());
+            timeout = new ReadTimeoutTask(ctx);
+            timerWheel.schedule(timeout, timeoutNanos, TimeUnit.NANOSECONDS);
         }
     }
 
@@ -182,7 +195,7 @@ public class ReadTimeoutHandler extends ChannelInboundHandlerAdapter {
         state = 2;
 
         if (timeout != null) {
-            timeout.cancel(false);
+            timerWheel.cancel(timeout);
             timeout = null;
         }
     }
@@ -198,7 +211,7 @@ public class ReadTimeoutHandler extends ChannelInboundHandlerAdapter {
         }
     }
 
-    private final class ReadTimeoutTask implements Runnable {
+    private final class ReadTimeoutTask extends EventExecutorTimerWheel.Entry {
 
         private final ChannelHandlerContext ctx;
 
@@ -219,7 +232,7 @@ public class ReadTimeoutHandler extends ChannelInboundHandlerAdapter {
 
             if (nextDelay <= 0) {
                 // Read timed out - set a new timeout and notify the callback.
-                timeout = ctx.executor().schedule(this, timeoutNanos, TimeUnit.NANOSECONDS);
+                timerWheel.schedule(this, timeoutNanos, TimeUnit.NANOSECONDS);
                 try {
                     readTimedOut(ctx);
                 } catch (Throwable t) {
@@ -227,7 +240,7 @@ public class ReadTimeoutHandler extends ChannelInboundHandlerAdapter {
                 }
             } else {
                 // Read occurred before the timeout - set a new timeout with shorter delay.
-                timeout = ctx.executor().schedule(this, nextDelay, TimeUnit.NANOSECONDS);
+                timerWheel.schedule(this, nextDelay, TimeUnit.NANOSECONDS);
             }
         }
     }
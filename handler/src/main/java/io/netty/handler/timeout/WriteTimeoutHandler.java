@@ -22,11 +22,9 @@ import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
-import io.netty.channel.ChannelOutboundHandlerAdapter;
 import io.netty.channel.ChannelPromise;
-import io.netty.util.internal.OneTimeTask;
+import io.netty.util.concurrent.EventExecutorTimerWheel;
 
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -63,16 +61,23 @@ import java.util.concurrent.TimeUnit;
  * @see ReadTimeoutHandler
  * @see IdleStateHandler
  */
-public class WriteTimeoutHandler extends ChannelOutboundHandlerAdapter {
+public class WriteTimeoutHandler extends ChannelDuplexHandler {
     private static final long MIN_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
 
     private final long timeoutNanos;
 
     /**
-     * A doubly-linked list to track all WriteTimeoutTasks
+     * A doubly-linked list to track all WriteTimeoutTasks, ordered by their deadline.
      */
+    private WriteTimeoutTask firstTask;
     private WriteTimeoutTask lastTask;
 
+    /**
+     * The single timer wheel entry of this handler, which is scheduled for the deadline of {@link #firstTask}.
+     */
+    private WriteTimeoutCheck timeoutCheck;
+    private EventExecutorTimerWheel timerWheel;
+
     private boolean closed;
 
     /**
@@ -114,35 +119,65 @@ public class WriteTimeoutHandler extends ChannelOutboundHandlerAdapter {
         ctx.write(msg, promise);
     }
 
+    @Override
+    public void channelRegistered(ChannelHandlerContext ctx) throws Exception {
+        if (firstTask != null && timeoutCheck == null) {
+            // Writes are still pending from before the channel was moved to this EventLoop.
+            scheduleTimeoutCheck(ctx, Math.max(0, firstTask.deadline - System.nanoTime()));
+        }
+        super.channelRegistered(ctx);
+    }
+
+    @Override
+    public void channelUnregistered(ChannelHandlerContext ctx) throws Exception {
+        if (timeoutCheck != null) {
+            // The check belongs to the timer wheel of the EventLoop the channel was deregistered from.
+            timerWheel.cancel(timeoutCheck);
+            timeoutCheck = null;
+            timerWheel = null;
+        }
+        super.channelUnregistered(ctx);
+    }
+
     @Override
     public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
-        WriteTimeoutTask task = lastTask;
-        lastTask = null;
+        if (timeoutCheck != null) {
+            timerWheel.cancel(timeoutCheck);
+        }
+        WriteTimeoutTask task = firstTask;
+        firstTask = lastTask = null;
         while (task != null) {
-            task.scheduledFuture.cancel(false);
-            WriteTimeoutTask prev = task.prev;
+            WriteTimeoutTask next = task.next;
             task.prev = null;
             task.next = null;
-            task = prev;
+            task = next;
         }
     }
 
     private void scheduleTimeout(final ChannelHandlerContext ctx, final ChannelPromise promise) {
-        // Schedule a timeout.
-        final WriteTimeoutTask task = new WriteTimeoutTask(ctx, promise);
-        task.scheduledFuture = ctx.executor().schedule(task, timeoutNanos, TimeUnit.NANOSECONDS);
+        final WriteTimeoutTask task = new WriteTimeoutTask(promise, System.nanoTime() + timeoutNanos);
+        addWriteTimeoutTask(task);
 
-        if (!task.scheduledFuture.isDone()) {
-            addWriteTimeoutTask(task);
+        // Cancel the timeout if the flush promise is complete.
+        promise.addListener(task);
 
-            // Cancel the scheduled timeout if the flush promise is complete.
-            promise.addListener(task);
+        if (timeoutCheck == null || !timeoutCheck.isScheduled()) {
+            // All writes use the same timeout, so only the oldest pending write needs to be tracked by the timer.
+            scheduleTimeoutCheck(ctx, timeoutNanos);
         }
     }
 
+    private void scheduleTimeoutCheck(ChannelHandlerContext ctx, long delayNanos) {
+        if (timeoutCheck == null) {
+            timerWheel = EventExecutorTimerWheel.of(ctx.executor());
+            timeoutCheck = new WriteTimeoutCheck(ctx);
+        }
+        timerWheel.schedule(timeoutCheck, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
     private void addWriteTimeoutTask(WriteTimeoutTask task) {
         if (lastTask == null) {
-            lastTask = task;
+            firstTask = lastTask = task;
         } else {
             lastTask.next = task;
             task.prev = lastTask;
@@ -151,22 +186,21 @@ public class WriteTimeoutHandler extends ChannelOutboundHandlerAdapter {
     }
 
     private void removeWriteTimeoutTask(WriteTimeoutTask task) {
-        if (task == lastTask) {
-            // task is the tail of list
-            assert task.next == null;
-            lastTask = lastTask.prev;
-            if (lastTask != null) {
-                lastTask.next = null;
-            }
-        } else if (task.prev == null && task.next == null) {
-            // Since task is not lastTask, then it has been removed or not been added.
+        WriteTimeoutTask prev = task.prev;
+        WriteTimeoutTask next = task.next;
+        if (prev == null && next == null && firstTask != task) {
+            // Not in the list, either removed already or the handler was removed.
             return;
-        } else if (task.prev == null) {
-            // task is the head of list and the list has at least 2 nodes
-            task.next.prev = null;
+        }
+        if (prev != null) {
+            prev.next = next;
         } else {
-            task.prev.next = task.next;
-            task.next.prev = task.prev;
+            firstTask = next;
+        }
+        if (next != null) {
+            next.prev = prev;
+        } else {
+            lastTask = prev;
         }
         task.prev = null;
         task.next = null;
@@ -183,42 +217,61 @@ public class WriteTimeoutHandler extends ChannelOutboundHandlerAdapter {
         }
     }
 
-    private final class WriteTimeoutTask extends OneTimeTask implements ChannelFutureListener {
+    private final class WriteTimeoutTask implements ChannelFutureListener {
 
-        private final ChannelHandlerContext ctx;
         private final ChannelPromise promise;
+        private final long deadline;
 
         // WriteTimeoutTask is also a node of a doubly-linked list
         WriteTimeoutTask prev;
         WriteTimeoutTask next;
 
-        ScheduledFuture<?> scheduledFuture;
-
-        WriteTimeoutTask(ChannelHandlerContext ctx, ChannelPromise promise) {
-            this.ctx = ctx;
+        WriteTimeoutTask(ChannelPromise promise, long deadline) {
             this.promise = promise;
+            this.deadline = deadline;
         }
 
         @Override
-        public void run() {
-            // Was not written yet so issue a write timeout
-            // The promise itself will be failed with a ClosedChannelException once the close() was issued
-            // See https://github.com/netty/netty/issues/2159
-            if (!promise.isDone()) {
-                try {
-                    writeTimedOut(ctx);
-                } catch (Throwable t) {
-                    ctx.fireExceptionCaught(t);
-                }
-            }
+        public void operationComplete(ChannelFuture future) throws Exception {
+            // Only unlink the task, the timer entry checks the next pending write once it expires.
             removeWriteTimeoutTask(this);
         }
+    }
+
+    private final class WriteTimeoutCheck extends EventExecutorTimerWheel.Entry {
+
+        private final ChannelHandlerContext ctx;
+
+        WriteTimeoutCheck(ChannelHandlerContext ctx) {
+            this.ctx = ctx;
+        }
 
         @Override
-        public void operationComplete(ChannelFuture future) throws Exception {
-            // scheduledFuture has already be set when reaching here
-            scheduledFuture.cancel(false);
-            removeWriteTimeoutTask(this);
+        public void run() {
+            final long currentTime = System.nanoTime();
+            for (;;) {
+                WriteTimeoutTask task = firstTask;
+                if (task == null) {
+                    return;
+                }
+                long nextDelay = task.deadline - currentTime;
+                if (nextDelay > 0) {
+                    timerWheel.schedule(this, nextDelay, TimeUnit.NANOSECONDS);
+                    return;
+                }
+                removeWriteTimeoutTask(task);
+
+                // Was not written yet so issue a write timeout
+                // The promise itself will be failed with a ClosedChannelException once the close() was issued
+                // See https://github.com/netty/netty/issues/2159
+                if (!task.promise.isDone()) {
+                    try {
+                        writeTimedOut(ctx);
+                    } catch (Throwable t) {
+                        ctx.fireExceptionCaught(t);
+                    }
+                }
+            }
         }
     }
 }
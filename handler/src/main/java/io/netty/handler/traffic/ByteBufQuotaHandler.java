@@ -0,0 +1,179 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.handler.traffic;
+
+import io.netty.buffer.AccountingByteBufAllocator;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufQuota;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Installs an {@link AccountingByteBufAllocator} for the {@link io.netty.channel.Channel} and applies backpressure
+ * by disabling {@link ChannelConfig#setAutoRead(boolean) auto read} while the soft limit of the
+ * {@link ByteBufQuota} (or one of its parents) is exceeded.  Auto read is enabled again once enough memory was
+ * released, which is checked every {@code checkInterval} milliseconds.
+ * <p>
+ * The same {@link ByteBufQuota} may be shared by the handlers of many {@link io.netty.channel.Channel}s to limit
+ * the memory used by a group of connections, but a new handler must be created for each
+ * {@link io.netty.channel.Channel}.
+ */
+public class ByteBufQuotaHandler extends ChannelInboundHandlerAdapter {
+
+    /**
+     * Default delay between two checks of the soft limit while auto read is suspended: 100 ms.
+     */
+    public static final long DEFAULT_CHECK_INTERVAL = 100;
+
+    private final ByteBufQuota quota;
+    private final long checkInterval;
+    private final Runnable checkTask = new Runnable() {
+        @Override
+        public void run() {
+            checkQuota();
+        }
+    };
+
+    private ChannelHandlerContext ctx;
+    private ByteBufAllocator replacedAllocator;
+    private ByteBufAllocator installedAllocator;
+    private ScheduledFuture<?> checkFuture;
+    private boolean suspended;
+
+    /**
+     * Create a new instance using {@link #DEFAULT_CHECK_INTERVAL}.
+     *
+     * @param quota the {@link ByteBufQuota} charged for all buffers allocated by the {@link io.netty.channel.Channel}
+     */
+    public ByteBufQuotaHandler(ByteBufQuota quota) {
+        this(quota, DEFAULT_CHECK_INTERVAL);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param quota         the {@link ByteBufQuota} charged for all buffers allocated by the
+     *                      {@link io.netty.channel.Channel}
+     * @param checkInterval the delay in milliseconds between two checks of the soft limit while auto read is
+     *                      suspended
+     */
+    public ByteBufQuotaHandler(ByteBufQuota quota, long checkInterval) {
+        if (quota == null) {
+            throw new NullPointerException("quota");
+        }
+        if (checkInterval <= 0) {
+            throw new IllegalArgumentException("checkInterval: " + checkInterval + " (expected: > 0)");
+        }
+        this.quota = quota;
+        this.checkInterval = checkInterval;
+    }
+
+    /**
+     * Returns the {@link ByteBufQuota} charged for all buffers allocated by the {@link io.netty.channel.Channel}.
+     */
+    public ByteBufQuota quota() {
+        return quota;
+    }
+
+    /**
+     * Returns {@code true} if auto read is currently disabled by this handler.
+     */
+    public boolean isSuspended() {
+        return suspended;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+        ChannelConfig config = ctx.channel().config();
+        ByteBufAllocator alloc = config.getAllocator();
+        if (!(alloc instanceof AccountingByteBufAllocator) || ((AccountingByteBufAllocator) alloc).quota() != quota) {
+            replacedAllocator = alloc;
+            installedAllocator = new AccountingByteBufAllocator(alloc, quota);
+            config.setAllocator(installedAllocator);
+        }
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        cancelCheck();
+        resume();
+        if (installedAllocator != null) {
+            ChannelConfig config = ctx.channel().config();
+            // Only restore if nobody replaced our allocator in the meantime.
+            if (config.getAllocator() == installedAllocator) {
+                config.setAllocator(replacedAllocator);
+            }
+            installedAllocator = null;
+            replacedAllocator = null;
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        cancelCheck();
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        if (!suspended && quota.isSoftLimitExceeded()) {
+            ChannelConfig config = ctx.channel().config();
+            if (config.isAutoRead()) {
+                suspended = true;
+                config.setAutoRead(false);
+                scheduleCheck();
+            }
+        }
+        ctx.fireChannelReadComplete();
+    }
+
+    private void checkQuota() {
+        checkFuture = null;
+        if (!suspended || !ctx.channel().isActive()) {
+            return;
+        }
+        if (quota.isSoftLimitExceeded()) {
+            scheduleCheck();
+        } else {
+            resume();
+        }
+    }
+
+    private void scheduleCheck() {
+        checkFuture = ctx.executor().schedule(checkTask, checkInterval, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelCheck() {
+        ScheduledFuture<?> checkFuture = this.checkFuture;
+        if (checkFuture != null) {
+            this.checkFuture = null;
+            checkFuture.cancel(false);
+        }
+    }
+
+    private void resume() {
+        if (suspended) {
+            suspended = false;
+            ctx.channel().config().setAutoRead(true);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.handler.timeout;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class IdleStateHandlerTest {
+
+    @Test
+    public void testReaderIdle() throws Exception {
+        final List<Object> events = new ArrayList<Object>();
+        EmbeddedChannel ch = new EmbeddedChannel(
+                new IdleStateHandler(100, 0, 0, TimeUnit.MILLISECONDS), new ChannelInboundHandlerAdapter() {
+            @Override
+            public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+                events.add(evt);
+            }
+        });
+
+        Thread.sleep(50);
+        ch.writeInbound("read");
+        assertEquals("read", ch.readInbound());
+        Thread.sleep(70);
+        ch.runPendingTasks();
+        // The read pushed the deadline back, so the reader is not idle yet.
+        assertTrue(events.isEmpty());
+
+        Thread.sleep(100);
+        ch.runPendingTasks();
+        assertEquals(1, events.size());
+        assertSame(IdleStateEvent.FIRST_READER_IDLE_STATE_EVENT, events.get(0));
+
+        Thread.sleep(150);
+        ch.runPendingTasks();
+        assertEquals(2, events.size());
+        assertSame(IdleStateEvent.READER_IDLE_STATE_EVENT, events.get(1));
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testNoEventAfterClose() throws Exception {
+        final List<Object> events = new ArrayList<Object>();
+        EmbeddedChannel ch = new EmbeddedChannel(
+                new IdleStateHandler(0, 0, 50, TimeUnit.MILLISECONDS), new ChannelInboundHandlerAdapter() {
+            @Override
+            public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+                events.add(evt);
+            }
+        });
+        ch.close().syncUninterruptibly();
+        Thread.sleep(100);
+        ch.runPendingTasks();
+        assertTrue(events.isEmpty());
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.handler.timeout;
+
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class WriteTimeoutHandlerTest {
+
+    @Test
+    public void testFlushedWriteDoesNotTimeOut() throws Exception {
+        EmbeddedChannel ch = new EmbeddedChannel(new WriteTimeoutHandler(50, TimeUnit.MILLISECONDS));
+        assertTrue(ch.writeOutbound("msg"));
+        Thread.sleep(100);
+        ch.runPendingTasks();
+        ch.checkException();
+        assertTrue(ch.isOpen());
+        assertEquals("msg", ch.readOutbound());
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testPendingWriteTimesOut() throws Exception {
+        EmbeddedChannel ch = new EmbeddedChannel(new WriteTimeoutHandler(50, TimeUnit.MILLISECONDS));
+        ChannelFuture future = ch.write("msg");
+        assertFalse(future.isDone());
+        Thread.sleep(100);
+        ch.runPendingTasks();
+        try {
+            ch.checkException();
+            fail();
+        } catch (WriteTimeoutException expected) {
+            // expected
+        }
+        assertFalse(ch.isOpen());
+        assertTrue(future.isDone());
+    }
+}
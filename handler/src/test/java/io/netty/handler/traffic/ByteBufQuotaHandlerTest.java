@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.handler.traffic;
+
+import io.netty.buffer.AccountingByteBufAllocator;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufQuota;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ByteBufQuotaHandlerTest {
+
+    @Test
+    public void testAllocatorRestoredOnRemove() {
+        ByteBufQuota quota = new ByteBufQuota("test", 0, 0);
+        ByteBufQuotaHandler handler = new ByteBufQuotaHandler(quota);
+        EmbeddedChannel ch = new EmbeddedChannel();
+        ByteBufAllocator original = ch.config().getAllocator();
+
+        ch.pipeline().addLast(handler);
+        ByteBufAllocator alloc = ch.config().getAllocator();
+        assertTrue(alloc instanceof AccountingByteBufAllocator);
+        assertSame(quota, ((AccountingByteBufAllocator) alloc).quota());
+
+        ch.pipeline().remove(handler);
+        assertSame(original, ch.config().getAllocator());
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testAutoReadSuspendedWhileSoftLimitExceeded() throws Exception {
+        ByteBufQuota quota = new ByteBufQuota("test", 64, 0);
+        ByteBufQuotaHandler handler = new ByteBufQuotaHandler(quota, 10);
+        EmbeddedChannel ch = new EmbeddedChannel(handler);
+
+        ByteBuf buf = ch.alloc().buffer(128);
+        assertEquals(128, quota.usedBytes());
+        assertTrue(ch.writeInbound("msg"));
+        assertEquals("msg", ch.readInbound());
+        assertFalse(ch.config().isAutoRead());
+        assertTrue(handler.isSuspended());
+
+        // Still above the soft limit, so the check reschedules itself.
+        Thread.sleep(20);
+        ch.runPendingTasks();
+        assertFalse(ch.config().isAutoRead());
+
+        buf.release();
+        assertEquals(0, quota.usedBytes());
+        Thread.sleep(20);
+        ch.runPendingTasks();
+        assertTrue(ch.config().isAutoRead());
+        assertFalse(handler.isSuspended());
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testAutoReadResumedOnRemove() {
+        ByteBufQuota quota = new ByteBufQuota("test", 64, 0);
+        ByteBufQuotaHandler handler = new ByteBufQuotaHandler(quota);
+        EmbeddedChannel ch = new EmbeddedChannel(handler);
+
+        ByteBuf buf = ch.alloc().buffer(128);
+        assertTrue(ch.writeInbound("msg"));
+        assertEquals("msg", ch.readInbound());
+        assertFalse(ch.config().isAutoRead());
+
+        ch.pipeline().remove(handler);
+        assertTrue(ch.config().isAutoRead());
+        buf.release();
+        assertFalse(ch.finish());
+    }
+}
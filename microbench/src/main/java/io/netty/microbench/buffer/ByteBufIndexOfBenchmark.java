@@ -0,0 +1,89 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.ByteProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the word-at-a-time search which is used for {@link ByteBuf#indexOf(int, int, byte)} and the common
+ * {@link ByteProcessor}s with calling a {@link ByteProcessor} for each byte.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+public class ByteBufIndexOfBenchmark extends AbstractMicrobenchmark {
+
+    // Not one of the ByteProcessor constants, so it is called for each byte.
+    private static final ByteProcessor FIND_LF_PER_BYTE = new ByteProcessor() {
+        @Override
+        public boolean process(byte value) {
+            return value != '\n';
+        }
+    };
+
+    @Param({ "16", "256", "4096" })
+    public int size;
+
+    @Param({ "true", "false" })
+    public boolean direct;
+
+    private ByteBuf buffer;
+
+    @Setup
+    public void setup() {
+        buffer = direct ? Unpooled.directBuffer(size) : Unpooled.buffer(size);
+        for (int i = 0; i < size - 1; i ++) {
+            buffer.writeByte('a' + i % 26);
+        }
+        buffer.writeByte('\n');
+    }
+
+    @TearDown
+    public void tearDown() {
+        buffer.release();
+    }
+
+    @Benchmark
+    public int indexOf() {
+        return buffer.indexOf(0, size, (byte) '\n');
+    }
+
+    @Benchmark
+    public int forEachByteFindLf() {
+        return buffer.forEachByte(ByteProcessor.FIND_LF);
+    }
+
+    @Benchmark
+    public int forEachByteFindCrLf() {
+        return buffer.forEachByte(ByteProcessor.FIND_CRLF);
+    }
+
+    @Benchmark
+    public int forEachBytePerByte() {
+        return buffer.forEachByte(FIND_LF_PER_BYTE);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.microbench.channel;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Promise;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class benchmarks the round-trip latency of a one byte ping-pong over the loopback interface with and without
+ * busy spinning in the event loops. Use the percentiles reported by the {@link Mode#SampleTime} mode to compare the
+ * tail latencies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EventLoopBusySpinBenchmark extends AbstractMicrobenchmark {
+
+    /**
+     * The busy spin time in microseconds, {@code -1} means to never block.
+     */
+    @Param({ "0", "50", "-1" })
+    public long busySpinMicros;
+
+    private NioEventLoopGroup serverGroup;
+    private NioEventLoopGroup clientGroup;
+    private Channel serverChannel;
+    private Channel clientChannel;
+    private ByteBuf ping;
+    private volatile Promise<Void> pong;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        serverGroup = new NioEventLoopGroup(1);
+        clientGroup = new NioEventLoopGroup(1);
+        long busySpin = busySpinMicros < 0 ? Long.MAX_VALUE : busySpinMicros;
+        serverGroup.setBusySpin(busySpin, TimeUnit.MICROSECONDS);
+        clientGroup.setBusySpin(busySpin, TimeUnit.MICROSECONDS);
+
+        serverChannel = new ServerBootstrap().group(serverGroup).channel(NioServerSocketChannel.class)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new EchoHandler())
+                .bind(new InetSocketAddress("127.0.0.1", 0)).syncUninterruptibly().channel();
+        clientChannel = new Bootstrap().group(clientGroup).channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .handler(new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        ReferenceCountUtil.release(msg);
+                        pong.setSuccess(null);
+                    }
+                })
+                .connect(serverChannel.localAddress()).syncUninterruptibly().channel();
+        ping = Unpooled.unreleasableBuffer(Unpooled.directBuffer(1).writeByte('x'));
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        clientChannel.close().syncUninterruptibly();
+        serverChannel.close().syncUninterruptibly();
+        clientGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+        serverGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Benchmark
+    public void pingPong() {
+        Promise<Void> pong = clientChannel.eventLoop().newPromise();
+        this.pong = pong;
+        clientChannel.writeAndFlush(ping.duplicate());
+        pong.syncUninterruptibly();
+    }
+
+    @Sharable
+    private static final class EchoHandler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ctx.writeAndFlush(msg);
+        }
+    }
+}
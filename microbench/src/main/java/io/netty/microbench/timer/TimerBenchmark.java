@@ -0,0 +1,112 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.microbench.timer;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.HierarchicalWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class benchmarks scheduling and cancelling timeouts of {@link HashedWheelTimer} and
+ * {@link HierarchicalWheelTimer} while a large number of long timeouts is pending, which is the typical pattern of
+ * request timeouts.
+ */
+@State(Scope.Benchmark)
+@Threads(4)
+@Measurement(iterations = 10)
+public class TimerBenchmark extends AbstractMicrobenchmark {
+
+    private static final TimerTask NOOP = new TimerTask() {
+        @Override
+        public void run(Timeout timeout) throws Exception {
+            // NOOP
+        }
+    };
+
+    @Param({ "hashed", "hierarchical" })
+    public String timerType;
+
+    @Param({ "10000", "1000000" })
+    public int pendingTimeouts;
+
+    private Timer timer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        if ("hashed".equals(timerType)) {
+            timer = new HashedWheelTimer(Executors.defaultThreadFactory(), 10, TimeUnit.MILLISECONDS, 512);
+        } else {
+            timer = new HierarchicalWheelTimer(Executors.defaultThreadFactory(), 10, TimeUnit.MILLISECONDS, 256, 4);
+        }
+        for (int i = 0; i < pendingTimeouts; i++) {
+            // Spread the timeouts between 1 and 10 minutes so they stay pending during the benchmark.
+            timer.newTimeout(NOOP, 60 + i % 540, TimeUnit.SECONDS);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        timer.stop();
+    }
+
+    /**
+     * Cancels a timeout right after it was scheduled, usually before the worker thread transferred it to a bucket.
+     */
+    @Benchmark
+    public boolean scheduleAndCancel() {
+        return timer.newTimeout(NOOP, 30, TimeUnit.SECONDS).cancel();
+    }
+
+    /**
+     * Cancels the timeout which was scheduled {@value ThreadTimeouts#SIZE} invocations before, which was transferred
+     * to a bucket by the worker thread in the meantime, and schedules a new one.  So the cancellations contend with
+     * the worker thread while it cascades and expires the pending timeouts.
+     */
+    @Benchmark
+    public boolean rescheduleTransferred(ThreadTimeouts timeouts) {
+        Timeout[] ring = timeouts.ring;
+        int idx = timeouts.index;
+        timeouts.index = (idx + 1) & (ThreadTimeouts.SIZE - 1);
+        Timeout old = ring[idx];
+        ring[idx] = timer.newTimeout(NOOP, 30, TimeUnit.SECONDS);
+        return old != null && old.cancel();
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadTimeouts {
+        // Large enough that a timeout is older than a few ticks when it is cancelled.
+        static final int SIZE = 1 << 16;
+
+        final Timeout[] ring = new Timeout[SIZE];
+        int index;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.testsuite.transport.socket;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelMigration;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.channel.MultithreadEventLoopGroup;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.Assert.*;
+
+public class SocketMigrationTest extends AbstractSocketTest {
+
+    private static final int WRITES = 2048;
+    private static final int INTS_PER_WRITE = 1024;
+
+    @Test(timeout = 30000)
+    public void testMigrateWithWritesInFlight() throws Throwable {
+        run();
+    }
+
+    public void testMigrateWithWritesInFlight(ServerBootstrap sb, Bootstrap cb) throws Throwable {
+        final BlockingQueue<Channel> accepted = new LinkedBlockingQueue<Channel>();
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        final AtomicReferenceArray<ChannelPromise> promises = new AtomicReferenceArray<ChannelPromise>(WRITES);
+        final CountDownLatch completedAll = new CountDownLatch(WRITES);
+        sb.childHandler(new ChannelDuplexHandler() {
+            @Override
+            public void channelActive(ChannelHandlerContext ctx) throws Exception {
+                accepted.add(ctx.channel());
+                ctx.fireChannelActive();
+            }
+
+            @Override
+            public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+                if (!ctx.channel().eventLoop().inEventLoop()) {
+                    error.compareAndSet(null, new AssertionError(
+                            "write() called from " + Thread.currentThread() + " instead of " +
+                            ctx.channel().eventLoop()));
+                }
+                // The promises must be completed in the order of the writes. The listeners may be notified later,
+                // so check that the promise of the previous write was completed already.
+                final int index = ((ByteBuf) msg).getInt(0) / INTS_PER_WRITE;
+                promises.set(index, promise);
+                ctx.write(msg, promise.addListener(new ChannelFutureListener() {
+                    @Override
+                    public void operationComplete(ChannelFuture future) throws Exception {
+                        if (!future.isSuccess()) {
+                            error.compareAndSet(null, future.cause());
+                        } else if (index > 0 && !promises.get(index - 1).isSuccess()) {
+                            error.compareAndSet(null, new AssertionError(
+                                    "write " + index + " completed before write " + (index - 1)));
+                        }
+                        completedAll.countDown();
+                    }
+                }));
+            }
+        });
+
+        final ByteBuf received = Unpooled.buffer(WRITES * INTS_PER_WRITE * 4);
+        final CountDownLatch receivedAll = new CountDownLatch(1);
+        // Don't read until the channel was moved, so the written data piles up in its outbound buffer.
+        cb.option(ChannelOption.AUTO_READ, false);
+        cb.handler(new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+                ByteBuf buf = (ByteBuf) msg;
+                received.writeBytes(buf);
+                ReferenceCountUtil.release(buf);
+                if (!received.isWritable()) {
+                    receivedAll.countDown();
+                }
+            }
+        });
+
+        Channel sc = sb.bind().sync().channel();
+        Channel cc = cb.connect().sync().channel();
+        Channel child = accepted.take();
+        try {
+            if (!(child.eventLoop().parent() instanceof MultithreadEventLoopGroup)) {
+                // The thread-per-channel transport has nothing to move the channel to.
+                return;
+            }
+            EventLoop target = null;
+            for (EventLoop loop: child.eventLoop().parent().<EventLoop>children()) {
+                if (loop != child.eventLoop()) {
+                    target = loop;
+                    break;
+                }
+            }
+            assertNotNull(target);
+
+            // The write tasks may still be queued by the current EventLoop when the migration starts.
+            write(child, 0, WRITES / 2);
+            ChannelFuture migration = ChannelMigration.migrate(child, target);
+            assertTrue(migration.await(10, TimeUnit.SECONDS));
+            assertNull(migration.cause());
+            assertSame(target, child.eventLoop());
+            assertTrue(child.isActive());
+            write(child, WRITES / 2, WRITES);
+
+            cc.config().setAutoRead(true);
+            assertTrue(completedAll.await(10, TimeUnit.SECONDS));
+            assertTrue(receivedAll.await(10, TimeUnit.SECONDS));
+
+            if (error.get() != null) {
+                throw error.get();
+            }
+            for (int i = 0; i < WRITES * INTS_PER_WRITE; i++) {
+                assertEquals(i, received.readInt());
+            }
+        } finally {
+            received.release();
+            child.close().sync();
+            cc.close().sync();
+            sc.close().sync();
+        }
+    }
+
+    private static void write(Channel channel, int from, int to) {
+        for (int i = from; i < to; i++) {
+            ByteBuf buf = Unpooled.buffer(INTS_PER_WRITE * 4);
+            for (int j = 0; j < INTS_PER_WRITE; j++) {
+                buf.writeInt(i * INTS_PER_WRITE + j);
+            }
+            channel.write(buf);
+            if (i % 16 == 0) {
+                channel.flush();
+            }
+        }
+        channel.flush();
+    }
+}
@@ -35,6 +35,7 @@
 #include <limits.h>
 #include <inttypes.h>
 #include <link.h>
+#include <linux/errqueue.h>
 #include "netty_unix_filedescriptor.h"
 #include "netty_unix_socket.h"
 #include "netty_unix_errors.h"
@@ -67,6 +68,50 @@
 #define TCP_FASTOPEN 23
 #endif
 
+// SOL_UDP is not defined by all libc versions.
+#ifndef SOL_UDP
+#define SOL_UDP 17
+#endif
+
+// UDP_SEGMENT is defined in linux 4.18. We define this here so older kernels can compile.
+#ifndef UDP_SEGMENT
+#define UDP_SEGMENT 103
+#endif
+
+// UDP_GRO is defined in linux 5.0. We define this here so older kernels can compile.
+#ifndef UDP_GRO
+#define UDP_GRO 104
+#endif
+
+// SO_BUSY_POLL is defined in linux 3.11. We define this here so older kernels can compile.
+#ifndef SO_BUSY_POLL
+#define SO_BUSY_POLL 46
+#endif
+
+// SO_PREFER_BUSY_POLL is defined in linux 5.11. We define this here so older kernels can compile.
+#ifndef SO_PREFER_BUSY_POLL
+#define SO_PREFER_BUSY_POLL 69
+#endif
+
+// SO_ZEROCOPY, MSG_ZEROCOPY and SO_EE_ORIGIN_ZEROCOPY are defined in linux 4.14. We define these here so older
+// kernels can compile.
+#ifndef SO_ZEROCOPY
+#define SO_ZEROCOPY 60
+#endif
+
+#ifndef MSG_ZEROCOPY
+#define MSG_ZEROCOPY 0x4000000
+#endif
+
+#ifndef SO_EE_ORIGIN_ZEROCOPY
+#define SO_EE_ORIGIN_ZEROCOPY 5
+#endif
+
+// EPOLLEXCLUSIVE is defined in linux 4.5. We define this here so older kernels can compile.
+#ifndef EPOLLEXCLUSIVE
+#define EPOLLEXCLUSIVE (1u << 28)
+#endif
+
 /**
  * On older Linux kernels, epoll can't handle timeout
  * values bigger than (LONG_MAX - 999ULL)/HZ.
@@ -82,6 +127,7 @@ extern int epoll_create1(int flags) __attribute__((weak));
 
 #ifdef IO_NETTY_SENDMMSG_NOT_FOUND
 extern int sendmmsg(int sockfd, struct mmsghdr* msgvec, unsigned int vlen, unsigned int flags) __attribute__((weak));
+extern int recvmmsg(int sockfd, struct mmsghdr* msgvec, unsigned int vlen, unsigned int flags, struct timespec* timeout) __attribute__((weak));
 
 #ifndef __USE_GNU
 struct mmsghdr {
@@ -98,10 +144,13 @@ jfieldID fdFieldId = NULL;
 jfieldID fileDescriptorFieldId = NULL;
 
 jfieldID packetAddrFieldId = NULL;
+jfieldID packetAddrLenFieldId = NULL;
 jfieldID packetScopeIdFieldId = NULL;
 jfieldID packetPortFieldId = NULL;
 jfieldID packetMemoryAddressFieldId = NULL;
 jfieldID packetCountFieldId = NULL;
+jfieldID packetSegmentSizeFieldId = NULL;
+jfieldID packetTruncatedFieldId = NULL;
 
 // util methods
 static int getSysctlValue(const char * property, int* returnValue) {
@@ -232,27 +281,42 @@ static jint netty_epoll_native_epollCtlDel0(JNIEnv* env, jclass clazz, jint efd,
 
 static jint netty_epoll_native_sendmmsg0(JNIEnv* env, jclass clazz, jint fd, jobjectArray packets, jint offset, jint len) {
     struct mmsghdr msg[len];
+    // Each message needs its own address as msg_name is only read by sendmmsg(...).
+    struct sockaddr_storage addr[len];
+    char control[len][CMSG_SPACE(sizeof(uint16_t))];
     int i;
 
     memset(msg, 0, sizeof(msg));
+    memset(control, 0, sizeof(control));
 
     for (i = 0; i < len; i++) {
-        struct sockaddr_storage addr;
-
         jobject packet = (*env)->GetObjectArrayElement(env, packets, i + offset);
         jbyteArray address = (jbyteArray) (*env)->GetObjectField(env, packet, packetAddrFieldId);
         jint scopeId = (*env)->GetIntField(env, packet, packetScopeIdFieldId);
         jint port = (*env)->GetIntField(env, packet, packetPortFieldId);
+        jint segmentSize = (*env)->GetIntField(env, packet, packetSegmentSizeFieldId);
 
-        if (netty_unix_socket_initSockaddr(env, address, scopeId, port, &addr) == -1) {
+        if (netty_unix_socket_initSockaddr(env, address, scopeId, port, &addr[i]) == -1) {
             return -1;
         }
 
-        msg[i].msg_hdr.msg_name = &addr;
-        msg[i].msg_hdr.msg_namelen = sizeof(addr);
+        msg[i].msg_hdr.msg_name = &addr[i];
+        msg[i].msg_hdr.msg_namelen = sizeof(addr[i]);
 
         msg[i].msg_hdr.msg_iov = (struct iovec*) (intptr_t) (*env)->GetLongField(env, packet, packetMemoryAddressFieldId);
-        msg[i].msg_hdr.msg_iovlen = (*env)->GetIntField(env, packet, packetCountFieldId);;
+        msg[i].msg_hdr.msg_iovlen = (*env)->GetIntField(env, packet, packetCountFieldId);
+
+        if (segmentSize > 0) {
+            // Let the kernel split the buffer into datagrams of segmentSize bytes (UDP GSO).
+            msg[i].msg_hdr.msg_control = control[i];
+            msg[i].msg_hdr.msg_controllen = sizeof(control[i]);
+
+            struct cmsghdr* cm = CMSG_FIRSTHDR(&msg[i].msg_hdr);
+            cm->cmsg_level = SOL_UDP;
+            cm->cmsg_type = UDP_SEGMENT;
+            cm->cmsg_len = CMSG_LEN(sizeof(uint16_t));
+            *((uint16_t*) CMSG_DATA(cm)) = (uint16_t) segmentSize;
+        }
     }
 
     ssize_t res;
@@ -267,6 +331,84 @@ static jint netty_epoll_native_sendmmsg0(JNIEnv* env, jclass clazz, jint fd, job
     }
     return (jint) res;
 }
+static jint netty_epoll_native_recvmmsg0(JNIEnv* env, jclass clazz, jint fd, jobjectArray packets, jint offset, jint len) {
+    struct mmsghdr msg[len];
+    struct sockaddr_storage addr[len];
+    char control[len][CMSG_SPACE(sizeof(int))];
+    int i;
+
+    memset(msg, 0, sizeof(msg));
+
+    for (i = 0; i < len; i++) {
+        jobject packet = (*env)->GetObjectArrayElement(env, packets, i + offset);
+
+        msg[i].msg_hdr.msg_name = &addr[i];
+        msg[i].msg_hdr.msg_namelen = (socklen_t) sizeof(struct sockaddr_storage);
+
+        // Used to receive the segment size if UDP_GRO is enabled.
+        msg[i].msg_hdr.msg_control = control[i];
+        msg[i].msg_hdr.msg_controllen = sizeof(control[i]);
+
+        msg[i].msg_hdr.msg_iov = (struct iovec*) (intptr_t) (*env)->GetLongField(env, packet, packetMemoryAddressFieldId);
+        msg[i].msg_hdr.msg_iovlen = (*env)->GetIntField(env, packet, packetCountFieldId);
+    }
+
+    int res;
+    int err;
+    do {
+       res = recvmmsg(fd, msg, len, 0, NULL);
+       // keep on reading if it was interrupted
+    } while (res == -1 && ((err = errno) == EINTR));
+
+    if (res < 0) {
+        return -err;
+    }
+
+    for (i = 0; i < res; i++) {
+        jobject packet = (*env)->GetObjectArrayElement(env, packets, i + offset);
+        jbyteArray address = (jbyteArray) (*env)->GetObjectField(env, packet, packetAddrFieldId);
+
+        // Store the number of received bytes in the count field.
+        (*env)->SetIntField(env, packet, packetCountFieldId, msg[i].msg_len);
+
+        jint segmentSize = 0;
+        struct cmsghdr* cm;
+        for (cm = CMSG_FIRSTHDR(&msg[i].msg_hdr); cm != NULL; cm = CMSG_NXTHDR(&msg[i].msg_hdr, cm)) {
+            if (cm->cmsg_level == SOL_UDP && cm->cmsg_type == UDP_GRO) {
+                // The datagrams were coalesced and need to be split into segments of this size.
+                segmentSize = *((int*) CMSG_DATA(cm));
+                break;
+            }
+        }
+        (*env)->SetIntField(env, packet, packetSegmentSizeFieldId, segmentSize);
+        // The datagram (or the coalesced datagrams) did not fit into the buffer and the rest was discarded.
+        (*env)->SetBooleanField(env, packet, packetTruncatedFieldId,
+                (msg[i].msg_hdr.msg_flags & MSG_TRUNC) != 0 ? JNI_TRUE : JNI_FALSE);
+
+        if (addr[i].ss_family == AF_INET) {
+            struct sockaddr_in* s = (struct sockaddr_in*) &addr[i];
+            (*env)->SetByteArrayRegion(env, address, 0, 4, (jbyte*) &s->sin_addr.s_addr);
+            (*env)->SetIntField(env, packet, packetAddrLenFieldId, 4);
+            (*env)->SetIntField(env, packet, packetScopeIdFieldId, 0);
+            (*env)->SetIntField(env, packet, packetPortFieldId, ntohs(s->sin_port));
+        } else {
+            struct sockaddr_in6* s = (struct sockaddr_in6*) &addr[i];
+            if (IN6_IS_ADDR_V4MAPPED(&s->sin6_addr)) {
+                // IPv4-mapped-on-IPv6, we only need the last 4 bytes.
+                (*env)->SetByteArrayRegion(env, address, 0, 4, (jbyte*) &(s->sin6_addr.s6_addr[12]));
+                (*env)->SetIntField(env, packet, packetAddrLenFieldId, 4);
+                (*env)->SetIntField(env, packet, packetScopeIdFieldId, 0);
+            } else {
+                (*env)->SetByteArrayRegion(env, address, 0, 16, (jbyte*) &(s->sin6_addr.s6_addr));
+                (*env)->SetIntField(env, packet, packetAddrLenFieldId, 16);
+                (*env)->SetIntField(env, packet, packetScopeIdFieldId, s->sin6_scope_id);
+            }
+            (*env)->SetIntField(env, packet, packetPortFieldId, ntohs(s->sin6_port));
+        }
+    }
+    return (jint) res;
+}
+
 static jint netty_epoll_native_recvFd0(JNIEnv* env, jclass clazz, jint fd) {
     int socketFd;
     struct msghdr descriptorMessage = { 0 };
@@ -351,6 +493,70 @@ static jint netty_epoll_native_sendFd0(JNIEnv* env, jclass clazz, jint socketFd,
     return -1;
 }
 
+static jint netty_epoll_native_sendZeroCopy0(JNIEnv* env, jclass clazz, jint fd, jlong address, jint pos, jint limit) {
+    ssize_t res;
+    int err;
+    do {
+        res = send(fd, (void*) (intptr_t) (address + pos), (size_t) (limit - pos), MSG_ZEROCOPY);
+        // keep on writing if it was interrupted
+    } while (res == -1 && ((err = errno) == EINTR));
+
+    if (res < 0) {
+        return -err;
+    }
+    return (jint) res;
+}
+
+static jint netty_epoll_native_recvZeroCopyCompletions0(JNIEnv* env, jclass clazz, jint fd, jintArray ranges) {
+    jint maxRanges = (*env)->GetArrayLength(env, ranges) / 2;
+    jint count = 0;
+
+    while (count < maxRanges) {
+        char control[CMSG_SPACE(sizeof(struct sock_extended_err) + sizeof(struct sockaddr_in6))];
+        struct msghdr msg = { 0 };
+        msg.msg_control = control;
+        msg.msg_controllen = sizeof(control);
+
+        ssize_t res;
+        int err;
+        do {
+            res = recvmsg(fd, &msg, MSG_ERRQUEUE);
+            // keep on reading if it was interrupted
+        } while (res == -1 && ((err = errno) == EINTR));
+
+        if (res < 0) {
+            if (err == EAGAIN || err == EWOULDBLOCK) {
+                // The error queue is drained.
+                break;
+            }
+            return -err;
+        }
+
+        struct cmsghdr* cm;
+        for (cm = CMSG_FIRSTHDR(&msg); cm != NULL; cm = CMSG_NXTHDR(&msg, cm)) {
+            if ((cm->cmsg_level == SOL_IP && cm->cmsg_type == IP_RECVERR) ||
+                    (cm->cmsg_level == SOL_IPV6 && cm->cmsg_type == IPV6_RECVERR)) {
+                struct sock_extended_err* serr = (struct sock_extended_err*) CMSG_DATA(cm);
+                if (serr->ee_errno == 0 && serr->ee_origin == SO_EE_ORIGIN_ZEROCOPY) {
+                    // The notification covers all sends with an id in the range [ee_info, ee_data].
+                    jint range[2] = { (jint) serr->ee_info, (jint) serr->ee_data };
+                    (*env)->SetIntArrayRegion(env, ranges, count * 2, 2, range);
+                    ++count;
+                }
+            }
+        }
+    }
+    return count;
+}
+
+static jint netty_epoll_native_dup0(JNIEnv* env, jclass clazz, jint fd) {
+    int res = dup(fd);
+    if (res < 0) {
+        return -errno;
+    }
+    return res;
+}
+
 static jlong netty_epoll_native_sendfile0(JNIEnv* env, jclass clazz, jint fd, jobject fileRegion, jlong base_off, jlong off, jlong len) {
     jobject fileChannel = (*env)->GetObjectField(env, fileRegion, fileChannelFieldId);
     if (fileChannel == NULL) {
@@ -433,6 +639,22 @@ static void netty_epoll_native_setIpFreeBind(JNIEnv* env, jclass clazz, jint fd,
     netty_unix_socket_setOption(env, fd, IPPROTO_IP, IP_FREEBIND, &optval, sizeof(optval));
 }
 
+static void netty_epoll_native_setSoBusyPoll(JNIEnv* env, jclass clazz, jint fd, jint optval) {
+    netty_unix_socket_setOption(env, fd, SOL_SOCKET, SO_BUSY_POLL, &optval, sizeof(optval));
+}
+
+static void netty_epoll_native_setSoPreferBusyPoll(JNIEnv* env, jclass clazz, jint fd, jint optval) {
+    netty_unix_socket_setOption(env, fd, SOL_SOCKET, SO_PREFER_BUSY_POLL, &optval, sizeof(optval));
+}
+
+static void netty_epoll_native_setSoZeroCopy(JNIEnv* env, jclass clazz, jint fd, jint optval) {
+    netty_unix_socket_setOption(env, fd, SOL_SOCKET, SO_ZEROCOPY, &optval, sizeof(optval));
+}
+
+static void netty_epoll_native_setUdpGro(JNIEnv* env, jclass clazz, jint fd, jint optval) {
+    netty_unix_socket_setOption(env, fd, SOL_UDP, UDP_GRO, &optval, sizeof(optval));
+}
+
 static jint netty_epoll_native_isReuseAddress(JNIEnv* env, jclass clazz, jint fd) {
     int optval;
     if (netty_unix_socket_getOption(env, fd, SOL_SOCKET, SO_REUSEADDR, &optval, sizeof(optval)) == -1) {
@@ -513,6 +735,30 @@ static jint netty_epoll_Native_isIpFreeBind(JNIEnv* env, jclass clazz, jint fd)
      return optval;
 }
 
+static jint netty_epoll_native_getSoBusyPoll(JNIEnv* env, jclass clazz, jint fd) {
+     int optval;
+     if (netty_unix_socket_getOption(env, fd, SOL_SOCKET, SO_BUSY_POLL, &optval, sizeof(optval)) == -1) {
+         return -1;
+     }
+     return optval;
+}
+
+static jint netty_epoll_native_isSoZeroCopy(JNIEnv* env, jclass clazz, jint fd) {
+     int optval;
+     if (netty_unix_socket_getOption(env, fd, SOL_SOCKET, SO_ZEROCOPY, &optval, sizeof(optval)) == -1) {
+         return -1;
+     }
+     return optval;
+}
+
+static jint netty_epoll_native_isSoPreferBusyPoll(JNIEnv* env, jclass clazz, jint fd) {
+     int optval;
+     if (netty_unix_socket_getOption(env, fd, SOL_SOCKET, SO_PREFER_BUSY_POLL, &optval, sizeof(optval)) == -1) {
+         return -1;
+     }
+     return optval;
+}
+
 static void netty_epoll_native_tcpInfo0(JNIEnv* env, jclass clazz, jint fd, jintArray array) {
      struct tcp_info tcp_info;
      if (netty_unix_socket_getOption(env, fd, IPPROTO_TCP, TCP_INFO, &tcp_info, sizeof(tcp_info)) == -1) {
@@ -582,6 +828,75 @@ static jboolean netty_epoll_native_isSupportingSendmmsg(JNIEnv* env, jclass claz
     return JNI_FALSE;
 }
 
+static jboolean netty_epoll_native_isSupportingRecvmmsg(JNIEnv* env, jclass clazz) {
+    if (recvmmsg) {
+        return JNI_TRUE;
+    }
+    return JNI_FALSE;
+}
+
+static jboolean isSupportingUdpOption(int optname) {
+    int fd = socket(AF_INET, SOCK_DGRAM, 0);
+    if (fd == -1) {
+        return JNI_FALSE;
+    }
+    // Setting the option to 0 is harmless and fails with ENOPROTOOPT if the kernel does not support it.
+    int optval = 0;
+    int res = setsockopt(fd, SOL_UDP, optname, &optval, sizeof(optval));
+    close(fd);
+    return res == 0 ? JNI_TRUE : JNI_FALSE;
+}
+
+static jboolean netty_epoll_native_isSupportingUdpSegment(JNIEnv* env, jclass clazz) {
+    return isSupportingUdpOption(UDP_SEGMENT);
+}
+
+static jboolean netty_epoll_native_isSupportingUdpGro(JNIEnv* env, jclass clazz) {
+    return isSupportingUdpOption(UDP_GRO);
+}
+
+static jboolean netty_epoll_native_isSupportingMsgZeroCopy(JNIEnv* env, jclass clazz) {
+    int fd = socket(AF_INET, SOCK_STREAM, 0);
+    if (fd == -1) {
+        return JNI_FALSE;
+    }
+    // Setting SO_ZEROCOPY to 0 is harmless and fails with ENOPROTOOPT if the kernel does not support it.
+    int optval = 0;
+    int res = setsockopt(fd, SOL_SOCKET, SO_ZEROCOPY, &optval, sizeof(optval));
+    close(fd);
+    return res == 0 ? JNI_TRUE : JNI_FALSE;
+}
+
+static jboolean netty_epoll_native_isSupportingEpollExclusive(JNIEnv* env, jclass clazz) {
+    int efd = epoll_create(1);
+    if (efd == -1) {
+        return JNI_FALSE;
+    }
+    int fd = eventfd(0, EFD_CLOEXEC | EFD_NONBLOCK);
+    if (fd == -1) {
+        close(efd);
+        return JNI_FALSE;
+    }
+    // Kernels older than 4.5 ignore EPOLLEXCLUSIVE, so only EPOLL_CTL_MOD tells if it was applied as it fails with
+    // EINVAL for a file descriptor which was added with EPOLLEXCLUSIVE.
+    jboolean supported = JNI_FALSE;
+    struct epoll_event ev = { 0 };
+    ev.events = EPOLLIN | EPOLLEXCLUSIVE;
+    if (epoll_ctl(efd, EPOLL_CTL_ADD, fd, &ev) == 0) {
+        ev.events = EPOLLIN;
+        if (epoll_ctl(efd, EPOLL_CTL_MOD, fd, &ev) == -1 && errno == EINVAL) {
+            supported = JNI_TRUE;
+        }
+    }
+    close(fd);
+    close(efd);
+    return supported;
+}
+
+static jint netty_epoll_native_errnoENOBUFS(JNIEnv* env, jclass clazz) {
+    return ENOBUFS;
+}
+
 static jboolean netty_epoll_native_isSupportingTcpFastopen(JNIEnv* env, jclass clazz) {
     int fastopen = 0;
     getSysctlValue("/proc/sys/net/ipv4/tcp_fastopen", &fastopen);
@@ -611,6 +926,10 @@ static jint netty_epoll_native_epollerr(JNIEnv* env, jclass clazz) {
     return EPOLLERR;
 }
 
+static jint netty_epoll_native_epollexclusive(JNIEnv* env, jclass clazz) {
+    return EPOLLEXCLUSIVE;
+}
+
 static jint netty_epoll_native_sizeofEpollEvent(JNIEnv* env, jclass clazz) {
     return sizeof(struct epoll_event);
 }
@@ -699,11 +1018,18 @@ static const JNINativeMethod statically_referenced_fixed_method_table[] = {
   { "epollout", "()I", (void *) netty_epoll_native_epollout },
   { "epollrdhup", "()I", (void *) netty_epoll_native_epollrdhup },
   { "epollerr", "()I", (void *) netty_epoll_native_epollerr },
+  { "epollexclusive", "()I", (void *) netty_epoll_native_epollexclusive },
   { "ssizeMax", "()J", (void *) netty_epoll_native_ssizeMax },
   { "tcpMd5SigMaxKeyLen", "()I", (void *) netty_epoll_native_tcpMd5SigMaxKeyLen },
   { "iovMax", "()I", (void *) netty_epoll_native_iovMax },
   { "uioMaxIov", "()I", (void *) netty_epoll_native_uioMaxIov },
   { "isSupportingSendmmsg", "()Z", (void *) netty_epoll_native_isSupportingSendmmsg },
+  { "isSupportingRecvmmsg", "()Z", (void *) netty_epoll_native_isSupportingRecvmmsg },
+  { "isSupportingUdpSegment", "()Z", (void *) netty_epoll_native_isSupportingUdpSegment },
+  { "isSupportingUdpGro", "()Z", (void *) netty_epoll_native_isSupportingUdpGro },
+  { "isSupportingMsgZeroCopy", "()Z", (void *) netty_epoll_native_isSupportingMsgZeroCopy },
+  { "isSupportingEpollExclusive", "()Z", (void *) netty_epoll_native_isSupportingEpollExclusive },
+  { "errnoENOBUFS", "()I", (void *) netty_epoll_native_errnoENOBUFS },
   { "isSupportingTcpFastopen", "()Z", (void *) netty_epoll_native_isSupportingTcpFastopen },
   { "kernelVersion", "()Ljava/lang/String;", (void *) netty_epoll_native_kernelVersion }
 };
@@ -718,8 +1044,12 @@ static const JNINativeMethod fixed_method_table[] = {
   { "epollCtlMod0", "(III)I", (void *) netty_epoll_native_epollCtlMod0 },
   { "epollCtlDel0", "(II)I", (void *) netty_epoll_native_epollCtlDel0 },
   // "sendmmsg0" has a dynamic signature
+  // "recvmmsg0" has a dynamic signature
   { "recvFd0", "(I)I", (void *) netty_epoll_native_recvFd0 },
   { "sendFd0", "(II)I", (void *) netty_epoll_native_sendFd0 },
+  { "sendZeroCopy0", "(IJII)I", (void *) netty_epoll_native_sendZeroCopy0 },
+  { "recvZeroCopyCompletions0", "(I[I)I", (void *) netty_epoll_native_recvZeroCopyCompletions0 },
+  { "dup0", "(I)I", (void *) netty_epoll_native_dup0 },
   // "sendFile0" has a dynamic signature
   { "setReuseAddress", "(II)V", (void *) netty_epoll_native_setReuseAddress },
   { "setReusePort", "(II)V", (void *) netty_epoll_native_setReusePort },
@@ -732,6 +1062,10 @@ static const JNINativeMethod fixed_method_table[] = {
   { "setTcpKeepCnt", "(II)V", (void *) netty_epoll_native_setTcpKeepCnt },
   { "setTcpUserTimeout", "(II)V", (void *) netty_epoll_native_setTcpUserTimeout },
   { "setIpFreeBind", "(II)V", (void *) netty_epoll_native_setIpFreeBind },
+  { "setSoBusyPoll", "(II)V", (void *) netty_epoll_native_setSoBusyPoll },
+  { "setSoPreferBusyPoll", "(II)V", (void *) netty_epoll_native_setSoPreferBusyPoll },
+  { "setSoZeroCopy", "(II)V", (void *) netty_epoll_native_setSoZeroCopy },
+  { "setUdpGro", "(II)V", (void *) netty_epoll_native_setUdpGro },
   { "isReuseAddress", "(I)I", (void *) netty_epoll_native_isReuseAddress },
   { "isReusePort", "(I)I", (void *) netty_epoll_native_isReusePort },
   { "getTcpNotSentLowAt", "(I)I", (void *) netty_epoll_native_getTcpNotSentLowAt },
@@ -742,6 +1076,9 @@ static const JNINativeMethod fixed_method_table[] = {
   { "getTcpKeepCnt", "(I)I", (void *) netty_epoll_native_getTcpKeepCnt },
   { "getTcpUserTimeout", "(I)I", (void *) netty_epoll_native_getTcpUserTimeout },
   { "isIpFreeBind", "(I)I", (void *) netty_epoll_Native_isIpFreeBind },
+  { "getSoBusyPoll", "(I)I", (void *) netty_epoll_native_getSoBusyPoll },
+  { "isSoPreferBusyPoll", "(I)I", (void *) netty_epoll_native_isSoPreferBusyPoll },
+  { "isSoZeroCopy", "(I)I", (void *) netty_epoll_native_isSoZeroCopy },
   { "tcpInfo0", "(I[I)V", (void *) netty_epoll_native_tcpInfo0 },
   { "sizeofEpollEvent", "()I", (void *) netty_epoll_native_sizeofEpollEvent },
   { "offsetofEpollData", "()I", (void *) netty_epoll_native_offsetofEpollData },
@@ -751,7 +1088,7 @@ static const JNINativeMethod fixed_method_table[] = {
 static const jint fixed_method_table_size = sizeof(fixed_method_table) / sizeof(fixed_method_table[0]);
 
 static jint dynamicMethodsTableSize() {
-    return fixed_method_table_size + 2;
+    return fixed_method_table_size + 3;
 }
 
 static JNINativeMethod* createDynamicMethodsTable(const char* packagePrefix) {
@@ -764,6 +1101,12 @@ static JNINativeMethod* createDynamicMethodsTable(const char* packagePrefix) {
     dynamicMethod->fnPtr = (void *) netty_epoll_native_sendmmsg0;
     free(dynamicTypeName);
     ++dynamicMethod;
+    dynamicTypeName = netty_unix_util_prepend(packagePrefix, "io/netty/channel/epoll/NativeDatagramPacketArray$NativeDatagramPacket;II)I");
+    dynamicMethod->name = "recvmmsg0";
+    dynamicMethod->signature = netty_unix_util_prepend("(I[L", dynamicTypeName);
+    dynamicMethod->fnPtr = (void *) netty_epoll_native_recvmmsg0;
+    free(dynamicTypeName);
+    ++dynamicMethod;
     dynamicTypeName = netty_unix_util_prepend(packagePrefix, "io/netty/channel/DefaultFileRegion;JJJ)J");
     dynamicMethod->name = "sendfile0";
     dynamicMethod->signature = netty_unix_util_prepend("(IL", dynamicTypeName);
@@ -868,6 +1211,11 @@ static jint netty_epoll_native_JNI_OnLoad(JNIEnv* env, const char* packagePrefix
         netty_unix_errors_throwRuntimeException(env, "failed to get field ID: NativeDatagramPacket.addr");
         return JNI_ERR;
     }
+    packetAddrLenFieldId = (*env)->GetFieldID(env, nativeDatagramPacketCls, "addrLen", "I");
+    if (packetAddrLenFieldId == NULL) {
+        netty_unix_errors_throwRuntimeException(env, "failed to get field ID: NativeDatagramPacket.addrLen");
+        return JNI_ERR;
+    }
     packetScopeIdFieldId = (*env)->GetFieldID(env, nativeDatagramPacketCls, "scopeId", "I");
     if (packetScopeIdFieldId == NULL) {
         netty_unix_errors_throwRuntimeException(env, "failed to get field ID: NativeDatagramPacket.scopeId");
@@ -890,6 +1238,18 @@ static jint netty_epoll_native_JNI_OnLoad(JNIEnv* env, const char* packagePrefix
         return JNI_ERR;
     }
 
+    packetSegmentSizeFieldId = (*env)->GetFieldID(env, nativeDatagramPacketCls, "segmentSize", "I");
+    if (packetSegmentSizeFieldId == NULL) {
+        netty_unix_errors_throwRuntimeException(env, "failed to get field ID: NativeDatagramPacket.segmentSize");
+        return JNI_ERR;
+    }
+
+    packetTruncatedFieldId = (*env)->GetFieldID(env, nativeDatagramPacketCls, "truncated", "Z");
+    if (packetTruncatedFieldId == NULL) {
+        netty_unix_errors_throwRuntimeException(env, "failed to get field ID: NativeDatagramPacket.truncated");
+        return JNI_ERR;
+    }
+
     return JNI_VERSION_1_6;
 }
 
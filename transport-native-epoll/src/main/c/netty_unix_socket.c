@@ -428,6 +428,49 @@ static jint netty_unix_socket_accept(JNIEnv* env, jclass clazz, jint fd, jbyteAr
     return socketFd;
 }
 
+static jint netty_unix_socket_acceptBatch(JNIEnv* env, jclass clazz, jint fd, jintArray acceptedFds, jbyteArray acceptedAddresses, jint addressSize) {
+    jint maxAccepts = (*env)->GetArrayLength(env, acceptedFds);
+    jint count = 0;
+    jint socketFd;
+    int err;
+    struct sockaddr_storage addr;
+    socklen_t address_len;
+
+    while (count < maxAccepts) {
+        address_len = sizeof(addr);
+        do {
+            if (accept4) {
+                socketFd = accept4(fd, (struct sockaddr*) &addr, &address_len, SOCK_NONBLOCK | SOCK_CLOEXEC);
+            } else  {
+                socketFd = accept(fd, (struct sockaddr*) &addr, &address_len);
+            }
+        } while (socketFd == -1 && ((err = errno) == EINTR));
+
+        if (socketFd == -1) {
+            // The error is reported by the next call if connections were accepted already.
+            return count == 0 ? -err : count;
+        }
+
+        if (!accept4) {
+            // accept4 was not present so need two more sys-calls ...
+            if (fcntl(socketFd, F_SETFD, FD_CLOEXEC) == -1 || fcntl(socketFd, F_SETFL, O_NONBLOCK) == -1) {
+                err = errno;
+                close(socketFd);
+                return count == 0 ? -err : count;
+            }
+        }
+
+        // Fill in remote address details, each one is stored in its own addressSize bytes.
+        int len = addressLength(&addr);
+        jbyte lenByte = (jbyte) len;
+        (*env)->SetByteArrayRegion(env, acceptedAddresses, count * addressSize, 1, &lenByte);
+        initInetSocketAddressArray(env, &addr, acceptedAddresses, count * addressSize + 1, len);
+        (*env)->SetIntArrayRegion(env, acceptedFds, count, 1, &socketFd);
+        count++;
+    }
+    return count;
+}
+
 static jbyteArray netty_unix_socket_remoteAddress(JNIEnv* env, jclass clazz, jint fd) {
     struct sockaddr_storage addr;
     socklen_t len = sizeof(addr);
@@ -685,6 +728,7 @@ static const JNINativeMethod fixed_method_table[] = {
   { "connect", "(I[BII)I", (void *) netty_unix_socket_connect },
   { "finishConnect", "(I)I", (void *) netty_unix_socket_finishConnect },
   { "accept", "(I[B)I", (void *) netty_unix_socket_accept },
+  { "acceptBatch", "(I[I[BI)I", (void *) netty_unix_socket_acceptBatch },
   { "remoteAddress", "(I)[B", (void *) netty_unix_socket_remoteAddress },
   { "localAddress", "(I)[B", (void *) netty_unix_socket_localAddress },
   { "newSocketDgramFd", "()I", (void *) netty_unix_socket_newSocketDgramFd },
@@ -22,10 +22,14 @@ import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.EventLoop;
+import io.netty.channel.MaxMessagesRecvByteBufAllocator;
+import io.netty.channel.RecvByteBufAllocator;
 import io.netty.channel.ServerChannel;
 import io.netty.channel.unix.FileDescriptor;
 import io.netty.channel.unix.Socket;
+import io.netty.util.internal.EmptyArrays;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 
@@ -92,11 +96,24 @@ public abstract class AbstractEpollServerChannel extends AbstractEpollChannel im
 
     abstract Channel newChildChannel(int fd, byte[] remote, int offset, int len) throws Exception;
 
+    private static int maxMessagesPerRead(ChannelConfig config) {
+        RecvByteBufAllocator allocator = config.getRecvByteBufAllocator();
+        if (allocator instanceof MaxMessagesRecvByteBufAllocator) {
+            return ((MaxMessagesRecvByteBufAllocator) allocator).maxMessagesPerRead();
+        }
+        return 1;
+    }
+
     final class EpollServerSocketUnsafe extends AbstractEpollUnsafe {
-        // Will hold the remote address after accept(...) was successful.
+        // Will hold the remote addresses after accept(...) was successful, one after the other.
         // We need 24 bytes for the address as maximum + 1 byte for storing the length.
         // So use 26 bytes as it's a power of two.
-        private final byte[] acceptedAddress = new byte[26];
+        private static final int ACCEPTED_ADDRESS_SIZE = 26;
+        // The maximal number of connections which are accepted with one native call.
+        private static final int MAX_ACCEPT_BATCH_SIZE = 64;
+
+        private int[] acceptedFds = EmptyArrays.EMPTY_INTS;
+        private byte[] acceptedAddresses = EmptyArrays.EMPTY_BYTES;
 
         @Override
         public void connect(SocketAddress socketAddress, SocketAddress socketAddress2, ChannelPromise channelPromise) {
@@ -122,23 +139,31 @@ public abstract class AbstractEpollServerChannel extends AbstractEpollChannel im
             final ChannelPipeline pipeline = pipeline();
             allocHandle.reset(config);
 
+            // Accept up to maxMessagesPerRead connections with one accept4(...) loop in native code.
+            final int batchSize = Math.max(1, Math.min(MAX_ACCEPT_BATCH_SIZE, maxMessagesPerRead(config)));
+            if (acceptedFds.length != batchSize) {
+                acceptedFds = new int[batchSize];
+                acceptedAddresses = new byte[batchSize * ACCEPTED_ADDRESS_SIZE];
+            }
+
             Throwable exception = null;
             try {
                 try {
                     do {
-                        // lastBytesRead represents the fd. We use lastBytesRead because it must be set so that the
-                        // EpollRecvByteAllocatorHandle knows if it should try to read again or not when autoRead is
-                        // enabled.
-                        allocHandle.lastBytesRead(fd().accept(acceptedAddress));
+                        // lastBytesRead represents the number of accepted connections. We use lastBytesRead because
+                        // it must be set so that the EpollRecvByteAllocatorHandle knows if it should try to read
+                        // again or not when autoRead is enabled. Only a full batch is a hint that more connections
+                        // are pending.
+                        allocHandle.attemptedBytesRead(batchSize);
+                        allocHandle.lastBytesRead(fd().accept(acceptedFds, acceptedAddresses, ACCEPTED_ADDRESS_SIZE));
                         epollInReadAttempted();
                         if (allocHandle.lastBytesRead() == -1) {
                             // this means everything was handled for now
                             break;
                         }
-                        allocHandle.incMessagesRead(1);
-
-                        int len = acceptedAddress[0];
-                        pipeline.fireChannelRead(newChildChannel(allocHandle.lastBytesRead(), acceptedAddress, 1, len));
+                        int accepted = allocHandle.lastBytesRead();
+                        allocHandle.incMessagesRead(accepted);
+                        fireChildChannels(pipeline, accepted);
                     } while (allocHandle.continueReading());
                 } catch (Throwable t) {
                     exception = t;
@@ -155,5 +180,31 @@ public abstract class AbstractEpollServerChannel extends AbstractEpollChannel im
                 epollInFinally(config);
             }
         }
+
+        /**
+         * Creates the child channels of the given number of accepted connections and passes them through the
+         * pipeline, which hands them over to the {@link EventLoop}s they are registered with.
+         */
+        private void fireChildChannels(ChannelPipeline pipeline, int accepted) throws Exception {
+            final int[] fds = acceptedFds;
+            final byte[] addresses = acceptedAddresses;
+            int i = 0;
+            try {
+                for (; i < accepted; i++) {
+                    int offset = i * ACCEPTED_ADDRESS_SIZE;
+                    int len = addresses[offset];
+                    pipeline.fireChannelRead(newChildChannel(fds[i], addresses, offset + 1, len));
+                }
+            } finally {
+                // Close the connections which were accepted but for which no channel could be created.
+                for (; i < accepted; i++) {
+                    try {
+                        new FileDescriptor(fds[i]).close();
+                    } catch (IOException ignore) {
+                        // ignore
+                    }
+                }
+            }
+        }
     }
 }
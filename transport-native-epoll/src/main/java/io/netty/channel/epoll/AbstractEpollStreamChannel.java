@@ -32,11 +32,13 @@ import io.netty.channel.RecvByteBufAllocator;
 import io.netty.channel.socket.DuplexChannel;
 import io.netty.channel.unix.FileDescriptor;
 import io.netty.channel.unix.Socket;
+import io.netty.util.ReferenceCountUtil;
 import io.netty.util.internal.EmptyArrays;
 import io.netty.util.internal.MpscLinkedQueueNode;
 import io.netty.util.internal.OneTimeTask;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
@@ -44,6 +46,7 @@ import java.io.IOException;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
 import java.util.Queue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledFuture;
@@ -60,6 +63,11 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(AbstractEpollStreamChannel.class);
     static final ClosedChannelException CLOSED_CHANNEL_EXCEPTION = new ClosedChannelException();
 
+    // How long to wait for the MSG_ZEROCOPY completions of a closed channel before its buffers are abandoned.
+    private static final long ZEROCOPY_LINGER_NANOS = TimeUnit.MILLISECONDS.toNanos(
+            Math.max(0, SystemPropertyUtil.getLong("io.netty.epoll.zeroCopyLingerMillis", 30000)));
+    private static final long ZEROCOPY_LINGER_INTERVAL_MILLIS = 10;
+
     static {
         CLOSED_CHANNEL_EXCEPTION.setStackTrace(EmptyArrays.EMPTY_STACK_TRACE);
     }
@@ -77,6 +85,11 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
     private FileDescriptor pipeIn;
     private FileDescriptor pipeOut;
 
+    // Lazy init these if we need to write via MSG_ZEROCOPY
+    private ArrayDeque<ZeroCopyWrite> zeroCopyWrites;
+    private int[] zeroCopyRanges;
+    private int nextZeroCopyId;
+
     /**
      * @deprecated Use {@link #AbstractEpollStreamChannel(Channel, Socket)}.
      */
@@ -256,13 +269,16 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
     private boolean writeBytes(ChannelOutboundBuffer in, ByteBuf buf, int writeSpinCount) throws Exception {
         int readableBytes = buf.readableBytes();
         if (readableBytes == 0) {
-            in.remove();
+            removeWritten(in);
             return true;
         }
 
+        if (isZeroCopyWrite(buf)) {
+            return writeBytesZeroCopy(in, buf, writeSpinCount);
+        }
         if (buf.hasMemoryAddress() || buf.nioBufferCount() == 1) {
             int writtenBytes = doWriteBytes(buf, writeSpinCount);
-            in.removeBytes(writtenBytes);
+            removeWrittenBytes(in, writtenBytes);
             return writtenBytes == readableBytes;
         } else {
             ByteBuffer[] nioBuffers = buf.nioBuffers();
@@ -270,6 +286,214 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         }
     }
 
+    /**
+     * Returns {@code true} if the given {@link ByteBuf} should be written via {@code MSG_ZEROCOPY}. The
+     * {@link ByteBuf} must have a memory address in this case.
+     */
+    boolean isZeroCopyWrite(ByteBuf buf) {
+        return false;
+    }
+
+    /**
+     * Write bytes from the given {@link ByteBuf} via {@code MSG_ZEROCOPY}. Once written completely the
+     * {@link ByteBuf} is removed from the {@link ChannelOutboundBuffer}, but it is only released and its
+     * {@link ChannelPromise} is only notified once the kernel notified the completion of the send.
+     */
+    private boolean writeBytesZeroCopy(ChannelOutboundBuffer in, ByteBuf buf, int writeSpinCount) throws Exception {
+        final long memoryAddress = buf.memoryAddress();
+        for (int i = writeSpinCount - 1; i >= 0; i--) {
+            final int readerIndex = buf.readerIndex();
+            final int readableBytes = buf.writerIndex() - readerIndex;
+            final int localWrittenBytes = Native.sendZeroCopy(
+                    fd().intValue(), memoryAddress, readerIndex, buf.writerIndex());
+            if (localWrittenBytes < 0) {
+                // The kernel can not pin more memory at the moment, so copy the remaining bytes instead. The promise
+                // is still notified only after the completion of the parts which were sent via MSG_ZEROCOPY.
+                int writtenBytes = doWriteBytes(buf, writeSpinCount);
+                removeWrittenBytes(in, writtenBytes);
+                return writtenBytes == readableBytes;
+            }
+            if (localWrittenBytes == 0) {
+                return false;
+            }
+            in.progress(localWrittenBytes);
+            if (localWrittenBytes == readableBytes) {
+                // Take over the buffer and the promise, both are handled once the kernel notified the completion.
+                addZeroCopyWrite(buf, in.removeDeferred());
+                return true;
+            }
+            buf.readerIndex(readerIndex + localWrittenBytes);
+            // The kernel still references the written part, so keep the buffer alive until it notified the
+            // completion of this send.
+            addZeroCopyWrite(buf.retain(), null);
+        }
+        return false;
+    }
+
+    private void addZeroCopyWrite(ByteBuf buf, ChannelPromise promise) {
+        if (zeroCopyWrites == null) {
+            zeroCopyWrites = new ArrayDeque<ZeroCopyWrite>();
+            zeroCopyRanges = new int[32];
+        }
+        // The kernel assigns the ids in the order of the successful sends, starting with 0 for each socket.
+        zeroCopyWrites.add(new ZeroCopyWrite(nextZeroCopyId++, buf, promise));
+    }
+
+    /**
+     * Removes the current message once it was written completely. While writes via {@code MSG_ZEROCOPY} are waiting
+     * for their completion, the {@link ChannelPromise} is queued behind them, so the promises are still notified in
+     * the order of the writes.
+     */
+    final void removeWritten(ChannelOutboundBuffer in) {
+        if (zeroCopyWrites == null || zeroCopyWrites.isEmpty()) {
+            in.remove();
+            return;
+        }
+        Object msg = in.current();
+        ChannelPromise promise = in.removeDeferred();
+        if (promise != null) {
+            // The data was copied into the kernel, so the message can be released right away.
+            ReferenceCountUtil.safeRelease(msg);
+            zeroCopyWrites.add(new ZeroCopyWrite(nextZeroCopyId, null, promise, true));
+        }
+    }
+
+    /**
+     * Removes the fully written messages and updates the reader index of the partially written one, like
+     * {@link ChannelOutboundBuffer#removeBytes(long)} does, but uses {@link #removeWritten(ChannelOutboundBuffer)}.
+     */
+    private void removeWrittenBytes(ChannelOutboundBuffer in, long writtenBytes) {
+        if (zeroCopyWrites == null || zeroCopyWrites.isEmpty()) {
+            in.removeBytes(writtenBytes);
+            return;
+        }
+        for (;;) {
+            Object msg = in.current();
+            if (!(msg instanceof ByteBuf)) {
+                assert writtenBytes == 0;
+                break;
+            }
+
+            final ByteBuf buf = (ByteBuf) msg;
+            final int readerIndex = buf.readerIndex();
+            final int readableBytes = buf.writerIndex() - readerIndex;
+
+            if (readableBytes <= writtenBytes) {
+                if (writtenBytes != 0) {
+                    in.progress(readableBytes);
+                    writtenBytes -= readableBytes;
+                }
+                removeWritten(in);
+            } else { // readableBytes > writtenBytes
+                if (writtenBytes != 0) {
+                    buf.readerIndex(readerIndex + (int) writtenBytes);
+                    in.progress(writtenBytes);
+                }
+                break;
+            }
+        }
+    }
+
+    private void releaseZeroCopyWrites() throws IOException {
+        releaseZeroCopyWrites(fd().intValue(), zeroCopyWrites, zeroCopyRanges);
+    }
+
+    /**
+     * Read the {@code MSG_ZEROCOPY} completion notifications from the error queue, and release the buffers and
+     * notify the promises of all completed writes in the order they were written.
+     */
+    private static void releaseZeroCopyWrites(int fd, ArrayDeque<ZeroCopyWrite> zeroCopyWrites, int[] ranges)
+            throws IOException {
+        final int maxRanges = ranges.length >> 1;
+        int count;
+        do {
+            count = Native.recvZeroCopyCompletions(fd, ranges);
+            for (int i = 0; i < count; i++) {
+                int lo = ranges[i << 1];
+                int hi = ranges[(i << 1) + 1];
+                for (ZeroCopyWrite write: zeroCopyWrites) {
+                    // Ids are unsigned 32 bit values which wrap around, so compare the distances. Copied writes
+                    // carry the id of the next send, so they never end the loop too early.
+                    if (write.id - hi > 0) {
+                        break;
+                    }
+                    if (write.id - lo >= 0) {
+                        write.done = true;
+                    }
+                }
+            }
+        } while (count == maxRanges);
+
+        for (;;) {
+            ZeroCopyWrite write = zeroCopyWrites.peek();
+            if (write == null || !write.done) {
+                break;
+            }
+            zeroCopyWrites.remove();
+            ReferenceCountUtil.safeRelease(write.buf);
+            if (write.promise != null) {
+                write.promise.trySuccess();
+            }
+        }
+    }
+
+    /**
+     * Hand over the writes which were not completed yet to a {@link ZeroCopyLinger}. The kernel may still transmit
+     * from their buffers after the channel was closed, so they must not be released before their completion was
+     * notified.
+     */
+    private void lingerZeroCopyWrites() {
+        final int lingerFd;
+        try {
+            // Keep the socket and so its error queue alive after the file descriptor of the channel was closed.
+            lingerFd = Native.dup(fd().intValue());
+        } catch (IOException e) {
+            logger.warn("Failed to wait for the MSG_ZEROCOPY completions of a closed channel: {}", this, e);
+            return;
+        }
+        try {
+            // Send the FIN now as closing the file descriptor of the channel does not close the socket anymore.
+            fd().shutdown(true, true);
+        } catch (IOException ignore) {
+            // Not connected anymore.
+        }
+        ZeroCopyLinger linger = new ZeroCopyLinger(
+                eventLoop(), new FileDescriptor(lingerFd), zeroCopyWrites, zeroCopyRanges);
+        zeroCopyWrites = null;
+        linger.run();
+    }
+
+    private void clearZeroCopyWrites() {
+        if (zeroCopyWrites != null) {
+            abandonZeroCopyWrites(zeroCopyWrites);
+        }
+    }
+
+    /**
+     * Fail the given writes without releasing their buffers. Their completion can not be notified anymore, so the
+     * kernel may still reference the memory and it must never be reused.
+     */
+    private static void abandonZeroCopyWrites(ArrayDeque<ZeroCopyWrite> zeroCopyWrites) {
+        if (!zeroCopyWrites.isEmpty()) {
+            logger.warn("Abandoned {} MSG_ZEROCOPY write(s) whose completion was not notified; " +
+                    "their buffers are not released.", zeroCopyWrites.size());
+        }
+        for (;;) {
+            ZeroCopyWrite write = zeroCopyWrites.poll();
+            if (write == null) {
+                break;
+            }
+            if (write.promise != null) {
+                if (write.buf == null) {
+                    // Was copied into the kernel and so written.
+                    write.promise.trySuccess();
+                } else {
+                    write.promise.tryFailure(CLOSED_CHANNEL_EXCEPTION);
+                }
+            }
+        }
+    }
+
     private boolean writeBytesMultiple(
             ChannelOutboundBuffer in, IovArray array, int writeSpinCount) throws IOException {
 
@@ -309,7 +533,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
                 }
             } while (offset < end && localWrittenBytes > 0);
         }
-        in.removeBytes(initialExpectedWrittenBytes - expectedWrittenBytes);
+        removeWrittenBytes(in, initialExpectedWrittenBytes - expectedWrittenBytes);
         return done;
     }
 
@@ -351,7 +575,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             } while (offset < end && localWrittenBytes > 0);
         }
 
-        in.removeBytes(initialExpectedWrittenBytes - expectedWrittenBytes);
+        removeWrittenBytes(in, initialExpectedWrittenBytes - expectedWrittenBytes);
         return done;
     }
 
@@ -365,7 +589,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             ChannelOutboundBuffer in, DefaultFileRegion region, int writeSpinCount) throws Exception {
         final long regionCount = region.count();
         if (region.transfered() >= regionCount) {
-            in.remove();
+            removeWritten(in);
             return true;
         }
 
@@ -393,7 +617,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         }
 
         if (done) {
-            in.remove();
+            removeWritten(in);
         }
         return done;
     }
@@ -411,8 +635,10 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
                 return;
             }
 
-            // Do gathering write if the outbounf buffer entries start with more than one ByteBuf.
-            if (msgCount > 1 && in.current() instanceof ByteBuf) {
+            // Do gathering write if the outbound buffer entries start with more than one ByteBuf, unless the first
+            // one is written via MSG_ZEROCOPY.
+            Object msg = in.current();
+            if (msgCount > 1 && msg instanceof ByteBuf && !isZeroCopyWrite((ByteBuf) msg)) {
                 if (!doWriteMultiple(in, writeSpinCount)) {
                     // Break the loop and so set EPOLLOUT flag.
                     break;
@@ -454,7 +680,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             if (!((SpliceOutTask) msg).spliceOut()) {
                 return false;
             }
-            in.remove();
+            removeWritten(in);
         } else {
             // Should never reach here.
             throw new Error();
@@ -478,7 +704,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
                     return false;
                 }
             } else { // cnt == 0, which means the outbound buffer contained empty buffers only.
-                in.removeBytes(0);
+                removeWrittenBytes(in, 0);
             }
         } else {
             ByteBuffer[] buffers = in.nioBuffers();
@@ -491,7 +717,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
                     return false;
                 }
             } else { // cnt == 0, which means the outbound buffer contained empty buffers only.
-                in.removeBytes(0);
+                removeWrittenBytes(in, 0);
             }
         }
 
@@ -595,12 +821,24 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
                 future.cancel(false);
                 connectTimeoutFuture = null;
             }
+            if (zeroCopyWrites != null && !zeroCopyWrites.isEmpty()) {
+                try {
+                    // Release what completed in the meantime.
+                    releaseZeroCopyWrites();
+                } catch (IOException ignore) {
+                    // The channel is closed anyway.
+                }
+                if (!zeroCopyWrites.isEmpty()) {
+                    lingerZeroCopyWrites();
+                }
+            }
             // Calling super.doClose() first so splceTo(...) will fail on next call.
             super.doClose();
         } finally {
             safeClosePipe(pipeIn);
             safeClosePipe(pipeOut);
             clearSpliceQueue();
+            clearZeroCopyWrites();
         }
     }
 
@@ -794,6 +1032,18 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             }
         }
 
+        @Override
+        void epollErrReady() {
+            if (zeroCopyWrites != null && !zeroCopyWrites.isEmpty()) {
+                try {
+                    releaseZeroCopyWrites();
+                } catch (IOException e) {
+                    pipeline().fireExceptionCaught(e);
+                    close(voidPromise());
+                }
+            }
+        }
+
         @Override
         void epollOutReady() {
             if (connectPromise != null) {
@@ -1114,4 +1364,68 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             }
         }
     }
+
+    /**
+     * Waits for the {@code MSG_ZEROCOPY} completions of a closed channel by polling the error queue of a duplicate of
+     * its file descriptor, and releases the buffers and notifies the promises like the channel would have done.
+     */
+    private static final class ZeroCopyLinger implements Runnable {
+        private final EventLoop eventLoop;
+        private final FileDescriptor fd;
+        private final ArrayDeque<ZeroCopyWrite> zeroCopyWrites;
+        private final int[] ranges;
+        private final long deadline = System.nanoTime() + ZEROCOPY_LINGER_NANOS;
+
+        ZeroCopyLinger(EventLoop eventLoop, FileDescriptor fd, ArrayDeque<ZeroCopyWrite> zeroCopyWrites,
+                       int[] ranges) {
+            this.eventLoop = eventLoop;
+            this.fd = fd;
+            this.zeroCopyWrites = zeroCopyWrites;
+            this.ranges = ranges;
+        }
+
+        @Override
+        public void run() {
+            boolean done;
+            try {
+                releaseZeroCopyWrites(fd.intValue(), zeroCopyWrites, ranges);
+                done = zeroCopyWrites.isEmpty() || System.nanoTime() - deadline >= 0 || eventLoop.isShuttingDown();
+            } catch (IOException e) {
+                done = true;
+            }
+            if (!done) {
+                eventLoop.schedule(this, ZEROCOPY_LINGER_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                return;
+            }
+            abandonZeroCopyWrites(zeroCopyWrites);
+            try {
+                fd.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close a file descriptor.", e);
+            }
+        }
+    }
+
+    /**
+     * A buffer written via {@code MSG_ZEROCOPY} that is held until the kernel notified the completion of the send
+     * with the given id, or the {@link ChannelPromise} of a copied write which is notified once all writes before it
+     * completed.
+     */
+    private static final class ZeroCopyWrite {
+        final int id;
+        final ByteBuf buf;
+        final ChannelPromise promise;
+        boolean done;
+
+        ZeroCopyWrite(int id, ByteBuf buf, ChannelPromise promise) {
+            this(id, buf, promise, false);
+        }
+
+        ZeroCopyWrite(int id, ByteBuf buf, ChannelPromise promise, boolean done) {
+            this.id = id;
+            this.buf = buf;
+            this.promise = promise;
+            this.done = done;
+        }
+    }
 }
@@ -36,11 +36,18 @@ public final class EpollChannelOption<T> extends ChannelOption<T> {
     public static final ChannelOption<Integer> TCP_FASTOPEN = valueOf(T, "TCP_FASTOPEN");
     public static final ChannelOption<Integer> TCP_DEFER_ACCEPT = ChannelOption.valueOf(T, "TCP_DEFER_ACCEPT");
     public static final ChannelOption<Boolean> TCP_QUICKACK = ChannelOption.valueOf(T, "TCP_QUICKACK");
+    public static final ChannelOption<Integer> SO_BUSY_POLL = ChannelOption.valueOf(T, "SO_BUSY_POLL");
+    public static final ChannelOption<Boolean> SO_PREFER_BUSY_POLL = ChannelOption.valueOf(T, "SO_PREFER_BUSY_POLL");
+    public static final ChannelOption<Integer> UDP_SEGMENT = ChannelOption.valueOf(T, "UDP_SEGMENT");
+    public static final ChannelOption<Boolean> UDP_GRO = ChannelOption.valueOf(T, "UDP_GRO");
+    public static final ChannelOption<Boolean> SO_ZEROCOPY = ChannelOption.valueOf(T, "SO_ZEROCOPY");
+    public static final ChannelOption<Integer> ZEROCOPY_THRESHOLD = ChannelOption.valueOf(T, "ZEROCOPY_THRESHOLD");
 
     public static final ChannelOption<DomainSocketReadMode> DOMAIN_SOCKET_READ_MODE =
             ChannelOption.valueOf(T, "DOMAIN_SOCKET_READ_MODE");
     public static final ChannelOption<EpollMode> EPOLL_MODE =
             ChannelOption.valueOf(T, "EPOLL_MODE");
+    public static final ChannelOption<Boolean> EPOLL_EXCLUSIVE = ChannelOption.valueOf(T, "EPOLL_EXCLUSIVE");
 
     public static final ChannelOption<Map<InetAddress, byte[]>> TCP_MD5SIG = valueOf("TCP_MD5SIG");
 
@@ -26,6 +26,9 @@ import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.DefaultAddressedEnvelope;
+import io.netty.channel.MaxMessagesRecvByteBufAllocator;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.epoll.NativeDatagramPacketArray.NativeDatagramPacket;
 import io.netty.channel.socket.DatagramChannel;
 import io.netty.channel.socket.DatagramChannelConfig;
 import io.netty.channel.socket.DatagramPacket;
@@ -60,6 +63,8 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
             StringUtil.simpleClassName(ByteBuf.class) + ", " +
             StringUtil.simpleClassName(InetSocketAddress.class) + ">, " +
             StringUtil.simpleClassName(ByteBuf.class) + ')';
+    // The maximal size of the datagrams which are coalesced by the kernel if UDP_GRO is enabled.
+    private static final int UDP_GRO_MAX_SIZE = 65535;
 
     private volatile InetSocketAddress local;
     private volatile InetSocketAddress remote;
@@ -290,6 +295,7 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
 
     @Override
     protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        final int segmentSize = config().getUdpSegmentSize();
         for (;;) {
             Object msg = in.current();
             if (msg == null) {
@@ -300,8 +306,9 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
 
             try {
                 // Check if sendmmsg(...) is supported which is only the case for GLIBC 2.14+
-                if (Native.IS_SUPPORTING_SENDMMSG && in.size() > 1) {
-                    NativeDatagramPacketArray array = NativeDatagramPacketArray.getInstance(in);
+                if (Native.IS_SUPPORTING_SENDMMSG &&
+                        (in.size() > 1 || segmentSize > 0 && Native.IS_SUPPORTING_UDP_SEGMENT)) {
+                    NativeDatagramPacketArray array = NativeDatagramPacketArray.getInstance(in, segmentSize);
                     int cnt = array.count();
 
                     if (cnt >= 1) {
@@ -327,7 +334,7 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
                 }
                 boolean done = false;
                 for (int i = config().getWriteSpinCount() - 1; i >= 0; i--) {
-                    if (doWriteMessage(msg)) {
+                    if (doWriteMessage(msg, segmentSize)) {
                         done = true;
                         break;
                     }
@@ -349,7 +356,7 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
         }
     }
 
-    private boolean doWriteMessage(Object msg) throws Exception {
+    private boolean doWriteMessage(Object msg, int segmentSize) throws Exception {
         final ByteBuf data;
         InetSocketAddress remoteAddress;
         if (msg instanceof AddressedEnvelope) {
@@ -375,6 +382,21 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
             }
         }
 
+        if (segmentSize > 0 && dataLen > segmentSize) {
+            // UDP_SEGMENT can not be used, so split the data into datagrams of segmentSize bytes.
+            do {
+                ByteBuf segment = data.slice(data.readerIndex(), Math.min(segmentSize, data.readableBytes()));
+                if (sendTo(segment, remoteAddress) <= 0) {
+                    return false;
+                }
+                data.skipBytes(segment.readableBytes());
+            } while (data.isReadable());
+            return true;
+        }
+        return sendTo(data, remoteAddress) > 0;
+    }
+
+    private int sendTo(ByteBuf data, InetSocketAddress remoteAddress) throws IOException {
         final int writtenBytes;
         if (data.hasMemoryAddress()) {
             long memoryAddress = data.memoryAddress();
@@ -393,8 +415,7 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
             writtenBytes = fd().sendTo(nioData, nioData.position(), nioData.limit(),
                     remoteAddress.getAddress(), remoteAddress.getPort());
         }
-
-        return writtenBytes > 0;
+        return writtenBytes;
     }
 
     @Override
@@ -480,8 +501,17 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
         connected = false;
     }
 
+    private static int maxMessagesPerRead(DatagramChannelConfig config) {
+        RecvByteBufAllocator allocator = config.getRecvByteBufAllocator();
+        if (allocator instanceof MaxMessagesRecvByteBufAllocator) {
+            return ((MaxMessagesRecvByteBufAllocator) allocator).maxMessagesPerRead();
+        }
+        return 1;
+    }
+
     final class EpollDatagramChannelUnsafe extends AbstractEpollUnsafe {
         private final List<Object> readBuf = new ArrayList<Object>();
+        private ByteBuf[] recvBuffers;
 
         @Override
         public void connect(SocketAddress remote, SocketAddress local, ChannelPromise channelPromise) {
@@ -526,7 +556,7 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
             if (fd().isInputShutdown()) {
                 return;
             }
-            DatagramChannelConfig config = config();
+            EpollDatagramChannelConfig config = config();
             final EpollRecvByteAllocatorHandle allocHandle = recvBufAllocHandle();
             allocHandle.edgeTriggered(isFlagSet(Native.EPOLLET));
 
@@ -542,40 +572,22 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
 
             Throwable exception = null;
             try {
-                ByteBuf data = null;
+                final int maxMessagesPerRead = maxMessagesPerRead(config);
+                // UDP_GRO needs recvmmsg(...) to receive the segment size of coalesced datagrams.
+                final boolean scattering = Native.IS_SUPPORTING_RECVMMSG &&
+                        (maxMessagesPerRead > 1 || config.isUdpGro());
+                boolean budgetUsed = false;
                 try {
-                    do {
-                        data = allocHandle.allocate(allocator);
-                        allocHandle.attemptedBytesRead(data.writableBytes());
-                        final DatagramSocketAddress remoteAddress;
-                        if (data.hasMemoryAddress()) {
-                            // has a memory address so use optimized call
-                            remoteAddress = fd().recvFromAddress(data.memoryAddress(), data.writerIndex(),
-                                                                 data.capacity());
-                        } else {
-                            ByteBuffer nioData = data.internalNioBuffer(data.writerIndex(), data.writableBytes());
-                            remoteAddress = fd().recvFrom(nioData, nioData.position(), nioData.limit());
-                        }
-
-                        epollInReadAttempted();
-                        if (remoteAddress == null) {
-                            allocHandle.lastBytesRead(-1);
-                            data.release();
-                            data = null;
-                            break;
-                        }
-
-                        allocHandle.incMessagesRead(1);
-                        allocHandle.lastBytesRead(remoteAddress.receivedAmount());
-                        data.writerIndex(data.writerIndex() + allocHandle.lastBytesRead());
-
-                        readBuf.add(new DatagramPacket(data, (InetSocketAddress) localAddress(), remoteAddress));
-                        data = null;
-                    } while (allocHandle.continueReading());
-                } catch (Throwable t) {
-                    if (data != null) {
-                        data.release();
+                    if (scattering) {
+                        budgetUsed = recvmmsg(allocHandle, allocator, maxMessagesPerRead, config.isUdpGro());
+                    } else {
+                        do {
+                            if (!recvFrom(allocHandle, allocator)) {
+                                break;
+                            }
+                        } while (allocHandle.continueReading());
                     }
+                } catch (Throwable t) {
                     exception = t;
                 }
 
@@ -591,10 +603,174 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
                 if (exception != null) {
                     pipeline.fireExceptionCaught(exception);
                     checkResetEpollIn(allocHandle.isEdgeTriggered());
+                } else if (budgetUsed && config.isAutoRead()) {
+                    // More datagrams may be left, but in ET mode we will not be notified about them again.
+                    checkResetEpollIn(allocHandle.isEdgeTriggered());
                 }
             } finally {
                 epollInFinally(config);
             }
         }
+
+        /**
+         * Reads one datagram via {@code recvfrom(...)} and returns {@code false} if nothing was left to read.
+         */
+        private boolean recvFrom(EpollRecvByteAllocatorHandle allocHandle, ByteBufAllocator allocator)
+                throws Exception {
+            ByteBuf data = allocHandle.allocate(allocator);
+            try {
+                allocHandle.attemptedBytesRead(data.writableBytes());
+                final DatagramSocketAddress remoteAddress;
+                if (data.hasMemoryAddress()) {
+                    // has a memory address so use optimized call
+                    remoteAddress = fd().recvFromAddress(data.memoryAddress(), data.writerIndex(),
+                                                         data.capacity());
+                } else {
+                    ByteBuffer nioData = data.internalNioBuffer(data.writerIndex(), data.writableBytes());
+                    remoteAddress = fd().recvFrom(nioData, nioData.position(), nioData.limit());
+                }
+
+                epollInReadAttempted();
+                if (remoteAddress == null) {
+                    allocHandle.lastBytesRead(-1);
+                    return false;
+                }
+
+                allocHandle.incMessagesRead(1);
+                allocHandle.lastBytesRead(remoteAddress.receivedAmount());
+                data.writerIndex(data.writerIndex() + allocHandle.lastBytesRead());
+
+                readBuf.add(new DatagramPacket(data, (InetSocketAddress) localAddress(), remoteAddress));
+                data = null;
+                return true;
+            } finally {
+                if (data != null) {
+                    data.release();
+                }
+            }
+        }
+
+        /**
+         * Reads up to {@code maxMessages} datagrams in batches via {@code recvmmsg(...)} and returns {@code true} if
+         * all of them were read, so more datagrams may be left. If {@code udpGro} is {@code true} the buffers are big
+         * enough to hold the datagrams which are coalesced by the kernel.
+         */
+        private boolean recvmmsg(EpollRecvByteAllocatorHandle allocHandle, ByteBufAllocator allocator,
+                                 int maxMessages, boolean udpGro) throws Exception {
+            int remaining = maxMessages;
+            do {
+                // Start every batch with an empty array, as the packets of the previous batch are still in it.
+                NativeDatagramPacketArray array = NativeDatagramPacketArray.getInstance();
+                NativeDatagramPacket[] packets = array.packets();
+                int batchSize = Math.min(remaining, packets.length);
+                int received = recvmmsg(allocHandle, allocator, array, batchSize, udpGro);
+                if (received <= 0) {
+                    if (received == 0 || !recvFrom(allocHandle, allocator)) {
+                        return false;
+                    }
+                    // The allocator did not return a buffer which can be used with recvmmsg(...), so one datagram
+                    // was read via recvfrom(...).
+                    received = 1;
+                } else if (received < batchSize) {
+                    // The socket was drained, another recvmmsg(...) call would only return EAGAIN.
+                    return false;
+                }
+                remaining -= received;
+            } while (remaining > 0 && allocHandle.continueReading());
+            return remaining == 0;
+        }
+
+        /**
+         * Reads up to {@code batchSize} datagrams with one {@code recvmmsg(...)} call. Returns the number of
+         * datagrams which were read, {@code 0} if nothing was left to read, or {@code -1} if the allocator did not
+         * return a buffer which can be used with {@code recvmmsg(...)}. If fewer buffers than {@code batchSize}
+         * could be added to the {@link NativeDatagramPacketArray}, a full batch of these counts as
+         * {@code batchSize} datagrams, as the socket may not be drained yet.
+         */
+        private int recvmmsg(EpollRecvByteAllocatorHandle allocHandle, ByteBufAllocator allocator,
+                             NativeDatagramPacketArray array, int batchSize, boolean udpGro) throws Exception {
+            NativeDatagramPacket[] packets = array.packets();
+            ByteBuf[] buffers = recvBuffers;
+            if (buffers == null || buffers.length < batchSize) {
+                recvBuffers = buffers = new ByteBuf[batchSize];
+            }
+            int count = 0;
+            try {
+                while (count < batchSize) {
+                    ByteBuf data = udpGro ?
+                            allocator.directBuffer(Math.max(allocHandle.guess(), UDP_GRO_MAX_SIZE)) :
+                            allocHandle.allocate(allocator);
+                    if (!data.hasMemoryAddress() || !array.addWritable(data)) {
+                        data.release();
+                        break;
+                    }
+                    buffers[count++] = data;
+                }
+                if (count == 0) {
+                    return -1;
+                }
+
+                allocHandle.attemptedBytesRead(buffers[count - 1].writableBytes());
+                int received = Native.recvmmsg(fd().intValue(), packets, 0, count);
+                epollInReadAttempted();
+                if (received == 0) {
+                    allocHandle.lastBytesRead(-1);
+                    return 0;
+                }
+
+                final InetSocketAddress localAddress = (InetSocketAddress) localAddress();
+                int truncated = 0;
+                int truncatedBufferSize = 0;
+                for (int i = 0; i < received; i++) {
+                    NativeDatagramPacket packet = packets[i];
+                    allocHandle.attemptedBytesRead(buffers[i].writableBytes());
+                    allocHandle.incMessagesRead(1);
+                    if (packet.isTruncated()) {
+                        // Never pass on partial data, the buffer is released in the finally block.
+                        truncated++;
+                        truncatedBufferSize = buffers[i].writableBytes();
+                        continue;
+                    }
+                    allocHandle.lastBytesRead(packet.received());
+                    DatagramPacket datagram = packet.newDatagramPacket(buffers[i], localAddress);
+                    buffers[i] = null;
+                    int segmentSize = packet.segmentSize();
+                    if (segmentSize > 0 && datagram.content().readableBytes() > segmentSize) {
+                        addSegments(datagram, segmentSize);
+                    } else {
+                        readBuf.add(datagram);
+                    }
+                }
+                if (truncated > 0) {
+                    throw new IOException("Dropped " + truncated + " truncated datagram(s) (receive buffer size: " +
+                            truncatedBufferSize + ')');
+                }
+                return received == count ? batchSize : received;
+            } finally {
+                // Release the buffers which were not filled.
+                for (int i = 0; i < count; i++) {
+                    ByteBuf data = buffers[i];
+                    if (data != null) {
+                        data.release();
+                        buffers[i] = null;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Splits a buffer which was coalesced by the kernel via {@code UDP_GRO} into the original datagrams.
+         */
+        private void addSegments(DatagramPacket datagram, int segmentSize) {
+            try {
+                ByteBuf content = datagram.content();
+                while (content.isReadable()) {
+                    ByteBuf segment = content.readRetainedSlice(Math.min(segmentSize, content.readableBytes()));
+                    readBuf.add(new DatagramPacket(segment, datagram.recipient(), datagram.sender()));
+                }
+            } finally {
+                datagram.release();
+            }
+        }
     }
 }
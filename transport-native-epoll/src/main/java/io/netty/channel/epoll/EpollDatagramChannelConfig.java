@@ -32,6 +32,8 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
     private static final RecvByteBufAllocator DEFAULT_RCVBUF_ALLOCATOR = new FixedRecvByteBufAllocator(2048);
     private final EpollDatagramChannel datagramChannel;
     private boolean activeOnOpen;
+    private volatile int udpSegmentSize;
+    private volatile boolean udpGro;
 
     EpollDatagramChannelConfig(EpollDatagramChannel channel) {
         super(channel);
@@ -48,7 +50,8 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
                 ChannelOption.SO_REUSEADDR, ChannelOption.IP_MULTICAST_LOOP_DISABLED,
                 ChannelOption.IP_MULTICAST_ADDR, ChannelOption.IP_MULTICAST_IF, ChannelOption.IP_MULTICAST_TTL,
                 ChannelOption.IP_TOS, ChannelOption.DATAGRAM_CHANNEL_ACTIVE_ON_REGISTRATION,
-                EpollChannelOption.SO_REUSEPORT);
+                EpollChannelOption.SO_REUSEPORT, EpollChannelOption.SO_BUSY_POLL,
+                EpollChannelOption.SO_PREFER_BUSY_POLL, EpollChannelOption.UDP_SEGMENT, EpollChannelOption.UDP_GRO);
     }
 
     @SuppressWarnings({ "unchecked", "deprecation" })
@@ -87,6 +90,18 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
         if (option == EpollChannelOption.SO_REUSEPORT) {
             return (T) Boolean.valueOf(isReusePort());
         }
+        if (option == EpollChannelOption.SO_BUSY_POLL) {
+            return (T) Integer.valueOf(getSoBusyPoll());
+        }
+        if (option == EpollChannelOption.SO_PREFER_BUSY_POLL) {
+            return (T) Boolean.valueOf(isSoPreferBusyPoll());
+        }
+        if (option == EpollChannelOption.UDP_SEGMENT) {
+            return (T) Integer.valueOf(getUdpSegmentSize());
+        }
+        if (option == EpollChannelOption.UDP_GRO) {
+            return (T) Boolean.valueOf(isUdpGro());
+        }
         return super.getOption(option);
     }
 
@@ -117,6 +132,14 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
             setActiveOnOpen((Boolean) value);
         } else if (option == EpollChannelOption.SO_REUSEPORT) {
             setReusePort((Boolean) value);
+        } else if (option == EpollChannelOption.SO_BUSY_POLL) {
+            setSoBusyPoll((Integer) value);
+        } else if (option == EpollChannelOption.SO_PREFER_BUSY_POLL) {
+            setSoPreferBusyPoll((Boolean) value);
+        } else if (option == EpollChannelOption.UDP_SEGMENT) {
+            setUdpSegmentSize((Integer) value);
+        } else if (option == EpollChannelOption.UDP_GRO) {
+            setUdpGro((Boolean) value);
         } else {
             return super.setOption(option, value);
         }
@@ -359,4 +382,105 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
             throw new ChannelException(e);
         }
     }
+
+    /**
+     * Set the {@code SO_BUSY_POLL} option on the socket, which is the approximate time in microseconds to busy poll
+     * the device queue on blocking receives when no data is available. See {@code man 7 socket} for more details.
+     */
+    public EpollDatagramChannelConfig setSoBusyPoll(int busyPollMicros) {
+        if (busyPollMicros < 0) {
+            throw new IllegalArgumentException("busyPollMicros: " + busyPollMicros + " (expected: >= 0)");
+        }
+        try {
+            Native.setSoBusyPoll(datagramChannel.fd().intValue(), busyPollMicros);
+            return this;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Get the {@code SO_BUSY_POLL} option on the socket. See {@code man 7 socket} for more details.
+     */
+    public int getSoBusyPoll() {
+        try {
+            return Native.getSoBusyPoll(datagramChannel.fd().intValue());
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Set the {@code SO_PREFER_BUSY_POLL} option on the socket. If enabled the kernel will prefer busy polling
+     * over interrupt driven processing of the device queue, which only takes effect with linux 5.11 or newer.
+     */
+    public EpollDatagramChannelConfig setSoPreferBusyPoll(boolean preferBusyPoll) {
+        try {
+            Native.setSoPreferBusyPoll(datagramChannel.fd().intValue(), preferBusyPoll ? 1 : 0);
+            return this;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Returns {@code true} if the {@code SO_PREFER_BUSY_POLL} option is set.
+     */
+    public boolean isSoPreferBusyPoll() {
+        try {
+            return Native.isSoPreferBusyPoll(datagramChannel.fd().intValue()) == 1;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Returns the segment size which is used to split written datagrams, {@code 0} means disabled.
+     */
+    public int getUdpSegmentSize() {
+        return udpSegmentSize;
+    }
+
+    /**
+     * Set the segment size which is used to split written datagrams whose content is larger than the segment size.
+     * If the kernel supports {@code UDP_SEGMENT} (linux 4.18+) such a datagram is passed to the kernel with one
+     * {@code sendmmsg(...)} call and split there (UDP GSO), otherwise it is split before it is written.
+     * Use {@code 0} to disable segmentation.
+     */
+    public EpollDatagramChannelConfig setUdpSegmentSize(int udpSegmentSize) {
+        if (udpSegmentSize < 0 || udpSegmentSize > 0xFFFF) {
+            throw new IllegalArgumentException(
+                    "udpSegmentSize: " + udpSegmentSize + " (expected: 0-65535)");
+        }
+        this.udpSegmentSize = udpSegmentSize;
+        return this;
+    }
+
+    /**
+     * Returns {@code true} if the {@code UDP_GRO} option is set.
+     */
+    public boolean isUdpGro() {
+        return udpGro;
+    }
+
+    /**
+     * Set the {@code UDP_GRO} option on the socket, which allows the kernel to coalesce received datagrams of the
+     * same flow into one buffer. The coalesced buffer is split into
+     * {@link io.netty.channel.socket.DatagramPacket}s again when it is read.
+     * This is only supported with linux 5.0+. On older kernels enabling it has no effect and {@link #isUdpGro()}
+     * keeps returning {@code false}.
+     */
+    public EpollDatagramChannelConfig setUdpGro(boolean udpGro) {
+        if (udpGro && !(Native.IS_SUPPORTING_UDP_GRO && Native.IS_SUPPORTING_RECVMMSG)) {
+            // The segment size can only be received via recvmmsg(...), so keep reading datagrams one by one.
+            return this;
+        }
+        try {
+            Native.setUdpGro(datagramChannel.fd().intValue(), udpGro ? 1 : 0);
+            this.udpGro = udpGro;
+            return this;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
 }
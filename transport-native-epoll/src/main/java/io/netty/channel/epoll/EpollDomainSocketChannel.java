@@ -118,7 +118,7 @@ public final class EpollDomainSocketChannel extends AbstractEpollStreamChannel i
         Object msg = in.current();
         if (msg instanceof FileDescriptor && Native.sendFd(fd().intValue(), ((FileDescriptor) msg).intValue()) > 0) {
             // File descriptor was written, so remove it.
-            in.remove();
+            removeWritten(in);
             return true;
         }
         return super.doWriteSingle(in, writeSpinCount);
@@ -16,6 +16,7 @@
 package io.netty.channel.epoll;
 
 import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopBudget;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.SingleThreadEventLoop;
 import io.netty.channel.epoll.AbstractEpollChannel.AbstractEpollUnsafe;
@@ -31,6 +32,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Queue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
@@ -58,6 +60,15 @@ final class EpollEventLoop extends SingleThreadEventLoop {
 
     private volatile int wakenUp;
     private volatile int ioRatio = 50;
+    private volatile EventLoopBudget budget;
+    private volatile long busySpinNanos;
+
+    // Ready events which were not processed yet because the I/O budget of the last iteration was used up.
+    private int pendingReadyIndex;
+    private int pendingReady;
+    // The channels the pending ready events belonged to when they were returned by epoll_wait. A pending event is
+    // dropped if its channel was closed in the meantime and the file descriptor was reused by another channel.
+    private AbstractEpollChannel[] pendingReadyChannels;
 
     EpollEventLoop(EventLoopGroup parent, Executor executor, int maxEvents) {
         super(parent, executor, false);
@@ -131,7 +142,14 @@ final class EpollEventLoop extends SingleThreadEventLoop {
      */
     void modify(AbstractEpollChannel ch) throws IOException {
         assert inEventLoop();
-        Native.epollCtlMod(epollFd.intValue(), ch.fd().intValue(), ch.flags);
+        if (ch.isFlagSet(Native.EPOLLEXCLUSIVE)) {
+            // EPOLL_CTL_MOD fails for a file descriptor which was added with EPOLLEXCLUSIVE, so add it again.
+            int fd = ch.fd().intValue();
+            Native.epollCtlDel(epollFd.intValue(), fd);
+            Native.epollCtlAdd(epollFd.intValue(), fd, ch.flags);
+        } else {
+            Native.epollCtlMod(epollFd.intValue(), ch.fd().intValue(), ch.flags);
+        }
     }
 
     /**
@@ -151,9 +169,10 @@ final class EpollEventLoop extends SingleThreadEventLoop {
     }
 
     @Override
-    protected Queue<Runnable> newTaskQueue() {
+    protected Queue<Runnable> newTaskQueue(int maxPendingTasks) {
         // This event loop never calls takeTask()
-        return PlatformDependent.newMpscQueue();
+        return maxPendingTasks == Integer.MAX_VALUE ? PlatformDependent.<Runnable>newMpscQueue()
+                                                    : PlatformDependent.<Runnable>newFixedMpscQueue(maxPendingTasks);
     }
 
     /**
@@ -174,6 +193,74 @@ final class EpollEventLoop extends SingleThreadEventLoop {
         this.ioRatio = ioRatio;
     }
 
+    /**
+     * Returns the {@link EventLoopBudget} of this event loop, or {@code null} if the {@code ioRatio} is used.
+     */
+    public EventLoopBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * Sets the {@link EventLoopBudget} which is used instead of the {@code ioRatio} to bound the time spent for I/O,
+     * tasks and scheduled tasks in each iteration, or {@code null} to use the {@code ioRatio} again.
+     */
+    public void setBudget(EventLoopBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Returns the time in nanoseconds this event loop busy spins on a non-blocking {@code epoll_wait} before it
+     * blocks. {@code 0} means busy spinning is disabled.
+     */
+    public long getBusySpinNanos() {
+        return busySpinNanos;
+    }
+
+    /**
+     * Sets the time this event loop busy spins on a non-blocking {@code epoll_wait} before it blocks. Busy spinning
+     * trades CPU time for lower wake-up latency. Use {@code 0} to disable busy spinning and {@link Long#MAX_VALUE}
+     * to never block at all.
+     */
+    public void setBusySpin(long busySpin, TimeUnit unit) {
+        if (unit == null) {
+            throw new NullPointerException("unit");
+        }
+        if (busySpin < 0) {
+            throw new IllegalArgumentException("busySpin: " + busySpin + " (expected: >= 0)");
+        }
+        busySpinNanos = busySpin == Long.MAX_VALUE ? Long.MAX_VALUE : unit.toNanos(busySpin);
+    }
+
+    /**
+     * Polls with a non-blocking {@code epoll_wait} until events are ready, a task is ready for processing or the
+     * given time elapsed, but never past the deadline of the next scheduled task. Returns the number of ready events
+     * if there is work to do, {@code -1} otherwise.
+     */
+    private int busySpin(long spinNanos) throws IOException {
+        // Claim the wake-up flag while spinning so other threads will not write to the eventfd.
+        if (!WAKEN_UP_UPDATER.compareAndSet(this, 0, 1)) {
+            return 0;
+        }
+        try {
+            final long startTime = System.nanoTime();
+            // Stop spinning when the next scheduled task is due, so it is not delayed by the spin.
+            final long scheduledDelayNanos = nextScheduledTaskNano();
+            if (scheduledDelayNanos >= 0 && scheduledDelayNanos < spinNanos) {
+                spinNanos = scheduledDelayNanos;
+            }
+            do {
+                int ready = Native.epollWait(epollFd.intValue(), events, 0);
+                if (ready != 0 || hasTasks() || isShuttingDown()) {
+                    return ready;
+                }
+            } while (System.nanoTime() - startTime < spinNanos);
+        } finally {
+            wakenUp = 0;
+        }
+        // Check again as a task may have been added before the flag was released without writing to the eventfd.
+        return hasTasks() || hasScheduledTasks() ? 0 : -1;
+    }
+
     private int epollWait(boolean oldWakenUp) throws IOException {
         int selectCnt = 0;
         long currentTimeNanos = System.nanoTime();
@@ -210,10 +297,22 @@ final class EpollEventLoop extends SingleThreadEventLoop {
         for (;;) {
             boolean oldWakenUp = WAKEN_UP_UPDATER.getAndSet(this, 0) == 1;
             try {
+                final EventLoopBudget budget = this.budget;
+                final boolean recordMetrics = isMetricsEnabled();
+                final long epollWaitStartTime = recordMetrics ? System.nanoTime() : 0;
                 int ready;
-                if (hasTasks()) {
+                int readyIndex = 0;
+                final boolean pending = pendingReady > 0;
+                if (pending) {
+                    // Process the events which are left from the last iteration before waiting again.
+                    ready = pendingReady;
+                    readyIndex = pendingReadyIndex;
+                    pendingReady = 0;
+                } else if (hasTasks()) {
                     // Non blocking just return what is ready directly without block
                     ready = Native.epollWait(epollFd.intValue(), events, 0);
+                } else if (busySpinNanos > 0 && (ready = busySpin(busySpinNanos)) >= 0) {
+                    // Busy spinning found ready events or work to do, so there is no need to block.
                 } else {
                     ready = epollWait(oldWakenUp);
 
@@ -251,22 +350,43 @@ final class EpollEventLoop extends SingleThreadEventLoop {
                 }
 
                 final int ioRatio = this.ioRatio;
-                if (ioRatio == 100) {
+                if (budget != null) {
+                    final long ioStartTime = System.nanoTime();
+                    if (recordMetrics) {
+                        recordIoWaitTime(ioStartTime - epollWaitStartTime);
+                    }
+
+                    if (ready > 0) {
+                        processReady(events, readyIndex, ready, pending, ioStartTime + budget.ioBudgetNanos(),
+                                budget.checkInterval());
+                    }
+
+                    recordIoProcessingTime(System.nanoTime() - ioStartTime);
+                    runAllTasks(budget.taskBudgetNanos(), budget.scheduledTaskBudgetNanos(), budget.checkInterval());
+                } else if (ioRatio == 100 && !recordMetrics) {
                     if (ready > 0) {
-                        processReady(events, ready);
+                        processReady(events, readyIndex, ready, pending);
                     }
                     runAllTasks();
                 } else {
                     final long ioStartTime = System.nanoTime();
+                    if (recordMetrics) {
+                        recordIoWaitTime(ioStartTime - epollWaitStartTime);
+                    }
 
                     if (ready > 0) {
-                        processReady(events, ready);
+                        processReady(events, readyIndex, ready, pending);
                     }
 
                     final long ioTime = System.nanoTime() - ioStartTime;
-                    runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
+                    recordIoProcessingTime(ioTime);
+                    if (ioRatio == 100) {
+                        runAllTasks();
+                    } else {
+                        runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
+                    }
                 }
-                if (allowGrowing && ready == events.length()) {
+                if (allowGrowing && ready == events.length() && pendingReady == 0) {
                     //increase the size of the array as we needed the whole space for the events
                     events.increase();
                 }
@@ -307,8 +427,36 @@ final class EpollEventLoop extends SingleThreadEventLoop {
         }
     }
 
-    private void processReady(EpollEventArray events, int ready) {
-        for (int i = 0; i < ready; i ++) {
+    private void processReady(EpollEventArray events, int readyIndex, int ready, boolean pending) {
+        processReady(events, readyIndex, ready, pending, Long.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    private void processReady(EpollEventArray events, int readyIndex, int ready, boolean pending,
+                              long deadline, int checkInterval) {
+        int processed = 0;
+        for (int i = readyIndex; i < ready; i ++) {
+            if (++processed > checkInterval) {
+                processed = 1;
+                if (System.nanoTime() >= deadline) {
+                    // The I/O budget is used up, continue with the remaining events in the next iteration.
+                    if (!pending) {
+                        savePendingReadyChannels(events, i, ready);
+                    }
+                    pendingReadyIndex = i;
+                    pendingReady = ready;
+                    return;
+                }
+            }
+            if (pending) {
+                AbstractEpollChannel expected = pendingReadyChannels[i];
+                pendingReadyChannels[i] = null;
+                if (channels.get(events.fd(i)) != expected) {
+                    // The channel was closed by a task in the meantime and the file descriptor is used by another
+                    // channel now, so the event is stale.
+                    continue;
+                }
+            }
+
             final int fd = events.fd(i);
             if (fd == eventFd.intValue()) {
                 // consume wakeup event
@@ -332,6 +480,11 @@ final class EpollEventLoop extends SingleThreadEventLoop {
                     // In either case epollOutReady() will do the correct thing (finish connecting, or fail
                     // the connection).
                     // See https://github.com/netty/netty/issues/3848
+                    // Read the MSG_ZEROCOPY completions from the error queue before flushing more data.
+                    if ((ev & Native.EPOLLERR) != 0) {
+                        unsafe.epollErrReady();
+                    }
+
                     if ((ev & (Native.EPOLLERR | Native.EPOLLOUT)) != 0) {
                         // Force flush of data as the epoll is writable again
                         unsafe.epollOutReady();
@@ -368,6 +521,16 @@ final class EpollEventLoop extends SingleThreadEventLoop {
         }
     }
 
+    private void savePendingReadyChannels(EpollEventArray events, int readyIndex, int ready) {
+        AbstractEpollChannel[] pendingReadyChannels = this.pendingReadyChannels;
+        if (pendingReadyChannels == null || pendingReadyChannels.length < ready) {
+            this.pendingReadyChannels = pendingReadyChannels = new AbstractEpollChannel[events.length()];
+        }
+        for (int i = readyIndex; i < ready; i ++) {
+            pendingReadyChannels[i] = channels.get(events.fd(i));
+        }
+    }
+
     @Override
     protected void cleanup() {
         try {
@@ -16,12 +16,15 @@
 package io.netty.channel.epoll;
 
 import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopBudget;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.MultithreadEventLoopGroup;
 import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorChooserFactory;
 
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * {@link EventLoopGroup} which uses epoll under the covers. Because of this
@@ -51,6 +54,14 @@ public final class EpollEventLoopGroup extends MultithreadEventLoopGroup {
         this(nThreads, threadFactory, 0);
     }
 
+    /**
+     * Create a new instance using the specified number of threads, the given {@link Executor} and the given
+     * {@link EventExecutorChooserFactory}.
+     */
+    public EpollEventLoopGroup(int nThreads, Executor executor, EventExecutorChooserFactory chooserFactory) {
+        super(nThreads, executor, chooserFactory, 0);
+    }
+
     /**
      * Create a new instance using the specified number of threads, the given {@link ThreadFactory} and the given
      * maximal amount of epoll events to handle per epollWait(...).
@@ -73,6 +84,27 @@ public final class EpollEventLoopGroup extends MultithreadEventLoopGroup {
         }
     }
 
+    /**
+     * Sets the {@link EventLoopBudget} of the child event loops, which is used instead of the {@code ioRatio} to
+     * bound the time spent for I/O, tasks and scheduled tasks in each iteration. Use {@code null} to use the
+     * {@code ioRatio} again.
+     */
+    public void setBudget(EventLoopBudget budget) {
+        for (EventExecutor e: children()) {
+            ((EpollEventLoop) e).setBudget(budget);
+        }
+    }
+
+    /**
+     * Sets the time the child event loops busy spin on a non-blocking {@code epoll_wait} before they block.
+     * Use {@code 0} to disable busy spinning and {@link Long#MAX_VALUE} to never block at all.
+     */
+    public void setBusySpin(long busySpin, TimeUnit unit) {
+        for (EventExecutor e: children()) {
+            ((EpollEventLoop) e).setBusySpin(busySpin, unit);
+        }
+    }
+
     @Override
     protected EventLoop newChild(Executor executor, Object... args) throws Exception {
         return new EpollEventLoop(this, executor, (Integer) args[0]);
@@ -41,7 +41,8 @@ public class EpollServerChannelConfig extends EpollChannelConfig {
 
     @Override
     public Map<ChannelOption<?>, Object> getOptions() {
-        return getOptions(super.getOptions(), SO_RCVBUF, SO_REUSEADDR, SO_BACKLOG, EpollChannelOption.TCP_FASTOPEN);
+        return getOptions(super.getOptions(), SO_RCVBUF, SO_REUSEADDR, SO_BACKLOG, EpollChannelOption.TCP_FASTOPEN,
+                EpollChannelOption.EPOLL_EXCLUSIVE);
     }
 
     @SuppressWarnings("unchecked")
@@ -59,6 +60,9 @@ public class EpollServerChannelConfig extends EpollChannelConfig {
         if (option == EpollChannelOption.TCP_FASTOPEN) {
             return (T) Integer.valueOf(getTcpFastopen());
         }
+        if (option == EpollChannelOption.EPOLL_EXCLUSIVE) {
+            return (T) Boolean.valueOf(isEpollExclusive());
+        }
         return super.getOption(option);
     }
 
@@ -74,6 +78,8 @@ public class EpollServerChannelConfig extends EpollChannelConfig {
             setBacklog((Integer) value);
         } else if (option == EpollChannelOption.TCP_FASTOPEN) {
             setTcpFastopen((Integer) value);
+        } else if (option == EpollChannelOption.EPOLL_EXCLUSIVE) {
+            setEpollExclusive((Boolean) value);
         } else {
             return super.setOption(option, value);
         }
@@ -153,6 +159,38 @@ public class EpollServerChannelConfig extends EpollChannelConfig {
         return this;
     }
 
+    /**
+     * Returns {@code true} if the channel is registered with {@code EPOLLEXCLUSIVE}.
+     */
+    public boolean isEpollExclusive() {
+        return channel.isFlagSet(Native.EPOLLEXCLUSIVE);
+    }
+
+    /**
+     * Registers the channel with {@code EPOLLEXCLUSIVE}, so if the listening socket is shared by channels of several
+     * {@link EpollEventLoop}s only one of them is woken up for an incoming connection instead of all of them. This
+     * has no effect if the kernel does not support it, which is the case before linux 4.5.
+     *
+     * <strong>Be aware this config setting can only be adjusted before the channel was registered.</strong>
+     */
+    public EpollServerChannelConfig setEpollExclusive(boolean epollExclusive) {
+        if (channel.isRegistered()) {
+            throw new IllegalStateException("EPOLL_EXCLUSIVE can only be changed before channel is registered");
+        }
+        try {
+            if (epollExclusive) {
+                if (Native.IS_SUPPORTING_EPOLLEXCLUSIVE) {
+                    channel.setFlag(Native.EPOLLEXCLUSIVE);
+                }
+            } else {
+                channel.clearFlag(Native.EPOLLEXCLUSIVE);
+            }
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+        return this;
+    }
+
     @Override
     public EpollServerChannelConfig setConnectTimeoutMillis(int connectTimeoutMillis) {
         super.setConnectTimeoutMillis(connectTimeoutMillis);
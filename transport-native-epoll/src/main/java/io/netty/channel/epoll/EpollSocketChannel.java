@@ -15,6 +15,7 @@
  */
 package io.netty.channel.epoll;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelException;
 import io.netty.channel.socket.ServerSocketChannel;
@@ -113,6 +114,13 @@ public final class EpollSocketChannel extends AbstractEpollStreamChannel impleme
         }
     }
 
+    @Override
+    boolean isZeroCopyWrite(ByteBuf buf) {
+        EpollSocketChannelConfig config = this.config;
+        return config.isSoZeroCopy() && buf.hasMemoryAddress() &&
+                buf.readableBytes() >= config.getZeroCopyThreshold();
+    }
+
     @Override
     public InetSocketAddress remoteAddress() {
         return (InetSocketAddress) super.remoteAddress();
@@ -31,8 +31,12 @@ import static io.netty.channel.ChannelOption.*;
 
 public final class EpollSocketChannelConfig extends EpollChannelConfig implements SocketChannelConfig {
     private static final long MAX_UINT32_T = 0xFFFFFFFFL;
+    // Below this size pinning the pages and reading the completion notification costs more than copying the data.
+    private static final int DEFAULT_ZEROCOPY_THRESHOLD = 10 * 1024;
     private final EpollSocketChannel channel;
     private volatile boolean allowHalfClosure;
+    private volatile boolean zeroCopy;
+    private volatile int zeroCopyThreshold = DEFAULT_ZEROCOPY_THRESHOLD;
 
     /**
      * Creates a new instance.
@@ -53,7 +57,9 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
                 SO_RCVBUF, SO_SNDBUF, TCP_NODELAY, SO_KEEPALIVE, SO_REUSEADDR, SO_LINGER, IP_TOS,
                 ALLOW_HALF_CLOSURE, EpollChannelOption.TCP_CORK, EpollChannelOption.TCP_NOTSENT_LOWAT,
                 EpollChannelOption.TCP_KEEPCNT, EpollChannelOption.TCP_KEEPIDLE, EpollChannelOption.TCP_KEEPINTVL,
-                EpollChannelOption.TCP_MD5SIG, EpollChannelOption.TCP_QUICKACK);
+                EpollChannelOption.TCP_MD5SIG, EpollChannelOption.TCP_QUICKACK, EpollChannelOption.SO_BUSY_POLL,
+                EpollChannelOption.SO_PREFER_BUSY_POLL, EpollChannelOption.SO_ZEROCOPY,
+                EpollChannelOption.ZEROCOPY_THRESHOLD);
     }
 
     @SuppressWarnings("unchecked")
@@ -104,6 +110,18 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
         if (option == EpollChannelOption.TCP_QUICKACK) {
             return (T) Boolean.valueOf(isTcpQuickAck());
         }
+        if (option == EpollChannelOption.SO_BUSY_POLL) {
+            return (T) Integer.valueOf(getSoBusyPoll());
+        }
+        if (option == EpollChannelOption.SO_PREFER_BUSY_POLL) {
+            return (T) Boolean.valueOf(isSoPreferBusyPoll());
+        }
+        if (option == EpollChannelOption.SO_ZEROCOPY) {
+            return (T) Boolean.valueOf(isSoZeroCopy());
+        }
+        if (option == EpollChannelOption.ZEROCOPY_THRESHOLD) {
+            return (T) Integer.valueOf(getZeroCopyThreshold());
+        }
         return super.getOption(option);
     }
 
@@ -145,6 +163,14 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
             setTcpMd5Sig(m);
         } else if (option == EpollChannelOption.TCP_QUICKACK) {
             setTcpQuickAck((Boolean) value);
+        } else if (option == EpollChannelOption.SO_BUSY_POLL) {
+            setSoBusyPoll((Integer) value);
+        } else if (option == EpollChannelOption.SO_PREFER_BUSY_POLL) {
+            setSoPreferBusyPoll((Boolean) value);
+        } else if (option == EpollChannelOption.SO_ZEROCOPY) {
+            setSoZeroCopy((Boolean) value);
+        } else if (option == EpollChannelOption.ZEROCOPY_THRESHOLD) {
+            setZeroCopyThreshold((Integer) value);
         } else {
             return super.setOption(option, value);
         }
@@ -473,6 +499,106 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
         }
     }
 
+    /**
+     * Set the {@code SO_BUSY_POLL} option on the socket, which is the approximate time in microseconds to busy poll
+     * the device queue on blocking receives when no data is available. See {@code man 7 socket} for more details.
+     */
+    public EpollSocketChannelConfig setSoBusyPoll(int busyPollMicros) {
+        if (busyPollMicros < 0) {
+            throw new IllegalArgumentException("busyPollMicros: " + busyPollMicros + " (expected: >= 0)");
+        }
+        try {
+            Native.setSoBusyPoll(channel.fd().intValue(), busyPollMicros);
+            return this;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Get the {@code SO_BUSY_POLL} option on the socket. See {@code man 7 socket} for more details.
+     */
+    public int getSoBusyPoll() {
+        try {
+            return Native.getSoBusyPoll(channel.fd().intValue());
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Set the {@code SO_PREFER_BUSY_POLL} option on the socket. If enabled the kernel will prefer busy polling
+     * over interrupt driven processing of the device queue, which only takes effect with linux 5.11 or newer.
+     */
+    public EpollSocketChannelConfig setSoPreferBusyPoll(boolean preferBusyPoll) {
+        try {
+            Native.setSoPreferBusyPoll(channel.fd().intValue(), preferBusyPoll ? 1 : 0);
+            return this;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Returns {@code true} if the {@code SO_PREFER_BUSY_POLL} option is set.
+     */
+    public boolean isSoPreferBusyPoll() {
+        try {
+            return Native.isSoPreferBusyPoll(channel.fd().intValue()) == 1;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Returns {@code true} if the {@code SO_ZEROCOPY} option is set.
+     */
+    public boolean isSoZeroCopy() {
+        return zeroCopy;
+    }
+
+    /**
+     * Set the {@code SO_ZEROCOPY} option on the socket. If enabled, buffers with a memory address and at least
+     * {@link #getZeroCopyThreshold()} readable bytes are written via {@code MSG_ZEROCOPY}. Such a buffer is not
+     * copied into the kernel, so it is only released and its write is only completed once the kernel notified that
+     * it is done with the data. The writes which follow it are not held back, but their promises are still
+     * notified in write order, so after the one of the {@code MSG_ZEROCOPY} write.
+     * See {@code Documentation/networking/msg_zerocopy.rst} for more details.
+     * This is only supported with linux 4.14+. On older kernels enabling it has no effect and {@link #isSoZeroCopy()}
+     * keeps returning {@code false}.
+     */
+    public EpollSocketChannelConfig setSoZeroCopy(boolean zeroCopy) {
+        if (zeroCopy && !Native.IS_SUPPORTING_MSG_ZEROCOPY) {
+            return this;
+        }
+        try {
+            Native.setSoZeroCopy(channel.fd().intValue(), zeroCopy ? 1 : 0);
+            this.zeroCopy = zeroCopy;
+            return this;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Returns the minimum number of readable bytes a buffer needs to have to be written via {@code MSG_ZEROCOPY}.
+     */
+    public int getZeroCopyThreshold() {
+        return zeroCopyThreshold;
+    }
+
+    /**
+     * Set the minimum number of readable bytes a buffer needs to have to be written via {@code MSG_ZEROCOPY} if
+     * {@link #isSoZeroCopy()} is {@code true}. Smaller buffers are copied into the kernel as usual.
+     */
+    public EpollSocketChannelConfig setZeroCopyThreshold(int zeroCopyThreshold) {
+        if (zeroCopyThreshold < 1) {
+            throw new IllegalArgumentException("zeroCopyThreshold: " + zeroCopyThreshold + " (expected: >= 1)");
+        }
+        this.zeroCopyThreshold = zeroCopyThreshold;
+        return this;
+    }
+
     @Override
     public boolean isAllowHalfClosure() {
         return allowHalfClosure;
@@ -28,18 +28,26 @@ import java.net.InetAddress;
 import java.util.Locale;
 
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.epollerr;
+import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.epollexclusive;
+import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.errnoENOBUFS;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.epollet;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.epollin;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.epollout;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.epollrdhup;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.iovMax;
+import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.isSupportingEpollExclusive;
+import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.isSupportingMsgZeroCopy;
+import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.isSupportingRecvmmsg;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.isSupportingSendmmsg;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.isSupportingTcpFastopen;
+import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.isSupportingUdpGro;
+import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.isSupportingUdpSegment;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.kernelVersion;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.ssizeMax;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.tcpMd5SigMaxKeyLen;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.uioMaxIov;
 import static io.netty.channel.unix.Errors.ERRNO_EAGAIN_NEGATIVE;
+import static io.netty.channel.unix.Errors.ERRNO_ECONNRESET_NEGATIVE;
 import static io.netty.channel.unix.Errors.ERRNO_EPIPE_NEGATIVE;
 import static io.netty.channel.unix.Errors.ERRNO_EWOULDBLOCK_NEGATIVE;
 import static io.netty.channel.unix.Errors.ioResult;
@@ -67,26 +75,39 @@ public final class Native {
     public static final int EPOLLRDHUP = epollrdhup();
     public static final int EPOLLET = epollet();
     public static final int EPOLLERR = epollerr();
+    public static final int EPOLLEXCLUSIVE = epollexclusive();
 
     public static final int IOV_MAX = iovMax();
     public static final int UIO_MAX_IOV = uioMaxIov();
     public static final boolean IS_SUPPORTING_SENDMMSG = isSupportingSendmmsg();
+    public static final boolean IS_SUPPORTING_RECVMMSG = isSupportingRecvmmsg();
+    public static final boolean IS_SUPPORTING_UDP_SEGMENT = isSupportingUdpSegment();
+    public static final boolean IS_SUPPORTING_UDP_GRO = isSupportingUdpGro();
+    public static final boolean IS_SUPPORTING_MSG_ZEROCOPY = isSupportingMsgZeroCopy();
     public static final boolean IS_SUPPORTING_TCP_FASTOPEN = isSupportingTcpFastopen();
+    public static final boolean IS_SUPPORTING_EPOLLEXCLUSIVE = isSupportingEpollExclusive();
     public static final long SSIZE_MAX = ssizeMax();
     public static final int TCP_MD5SIG_MAXKEYLEN = tcpMd5SigMaxKeyLen();
     public static final String KERNEL_VERSION = kernelVersion();
 
     private static final NativeIoException CONNECTION_RESET_EXCEPTION_SENDFILE;
     private static final NativeIoException CONNECTION_RESET_EXCEPTION_SENDMMSG;
+    private static final NativeIoException CONNECTION_RESET_EXCEPTION_RECVMMSG;
     private static final NativeIoException CONNECTION_RESET_EXCEPTION_SPLICE;
+    private static final NativeIoException CONNECTION_RESET_EXCEPTION_SEND_ZEROCOPY;
+    private static final int ERRNO_ENOBUFS_NEGATIVE = -errnoENOBUFS();
 
     static {
         CONNECTION_RESET_EXCEPTION_SENDFILE = newConnectionResetException("syscall:sendfile(...)",
                 ERRNO_EPIPE_NEGATIVE);
         CONNECTION_RESET_EXCEPTION_SENDMMSG = newConnectionResetException("syscall:sendmmsg(...)",
                 ERRNO_EPIPE_NEGATIVE);
+        CONNECTION_RESET_EXCEPTION_RECVMMSG = newConnectionResetException("syscall:recvmmsg(...)",
+                ERRNO_ECONNRESET_NEGATIVE);
         CONNECTION_RESET_EXCEPTION_SPLICE = newConnectionResetException("syscall:splice(...)",
                 ERRNO_EPIPE_NEGATIVE);
+        CONNECTION_RESET_EXCEPTION_SEND_ZEROCOPY = newConnectionResetException("syscall:send(...)",
+                ERRNO_EPIPE_NEGATIVE);
     }
 
     public static FileDescriptor newEventFd() {
@@ -175,6 +196,23 @@ public final class Native {
     private static native int sendmmsg0(
             int fd, NativeDatagramPacketArray.NativeDatagramPacket[] msgs, int offset, int len);
 
+    /**
+     * Receives up to {@code len} datagrams into the given {@link NativeDatagramPacketArray.NativeDatagramPacket}s
+     * with one <a href="http://man7.org/linux/man-pages/man2/recvmmsg.2.html">recvmmsg(...)</a> call and returns
+     * the number of received datagrams, which is {@code 0} if nothing was left to read.
+     */
+    public static int recvmmsg(
+            int fd, NativeDatagramPacketArray.NativeDatagramPacket[] msgs, int offset, int len) throws IOException {
+        int res = recvmmsg0(fd, msgs, offset, len);
+        if (res >= 0) {
+            return res;
+        }
+        return ioResult("recvmmsg", res, CONNECTION_RESET_EXCEPTION_RECVMMSG);
+    }
+
+    private static native int recvmmsg0(
+            int fd, NativeDatagramPacketArray.NativeDatagramPacket[] msgs, int offset, int len);
+
     public static int recvFd(int fd) throws IOException {
         int res = recvFd0(fd);
         if (res > 0) {
@@ -207,6 +245,57 @@ public final class Native {
 
     private static native int sendFd0(int socketFd, int fd);
 
+    /**
+     * Write the bytes between {@code pos} and {@code limit} of the given memory address via {@code MSG_ZEROCOPY}.
+     * The memory must not be modified or freed before the completion of the send was reported by
+     * {@link #recvZeroCopyCompletions(int, int[])}.
+     *
+     * @return the number of bytes written, {@code 0} if the socket is not writable at the moment or {@code -1} if
+     * the kernel can not pin more memory at the moment and the data needs to be copied instead.
+     */
+    public static int sendZeroCopy(int fd, long address, int pos, int limit) throws IOException {
+        int res = sendZeroCopy0(fd, address, pos, limit);
+        if (res >= 0) {
+            return res;
+        }
+        if (res == ERRNO_ENOBUFS_NEGATIVE) {
+            return -1;
+        }
+        return ioResult("send", res, CONNECTION_RESET_EXCEPTION_SEND_ZEROCOPY);
+    }
+
+    private static native int sendZeroCopy0(int fd, long address, int pos, int limit);
+
+    /**
+     * Read the {@code MSG_ZEROCOPY} completion notifications from the error queue of the socket. Each notification
+     * covers the sends with an id between {@code ranges[2 * i]} and {@code ranges[2 * i + 1]} (both inclusive).
+     *
+     * @return the number of ranges stored in the given array.
+     */
+    public static int recvZeroCopyCompletions(int fd, int[] ranges) throws IOException {
+        int res = recvZeroCopyCompletions0(fd, ranges);
+        if (res >= 0) {
+            return res;
+        }
+        throw newIOException("recvmsg", res);
+    }
+
+    private static native int recvZeroCopyCompletions0(int fd, int[] ranges);
+
+    /**
+     * Returns a new file descriptor which refers to the same socket as the given one. The socket is only closed
+     * once all of its file descriptors were closed.
+     */
+    public static int dup(int fd) throws IOException {
+        int res = dup0(fd);
+        if (res >= 0) {
+            return res;
+        }
+        throw newIOException("dup", res);
+    }
+
+    private static native int dup0(int fd);
+
     // Socket option operations
     public static native int isReuseAddress(int fd) throws IOException;
     public static native int isReusePort(int fd) throws IOException;
@@ -218,6 +307,9 @@ public final class Native {
     public static native int getTcpKeepCnt(int fd) throws IOException;
     public static native int getTcpUserTimeout(int milliseconds) throws IOException;
     public static native int isIpFreeBind(int fd)throws IOException;
+    public static native int getSoBusyPoll(int fd) throws IOException;
+    public static native int isSoPreferBusyPoll(int fd) throws IOException;
+    public static native int isSoZeroCopy(int fd) throws IOException;
 
     public static native void setReuseAddress(int fd, int reuseAddress) throws IOException;
     public static native void setReusePort(int fd, int reuseAddress) throws IOException;
@@ -230,6 +322,10 @@ public final class Native {
     public static native void setTcpKeepCnt(int fd, int probes) throws IOException;
     public static native void setTcpUserTimeout(int fd, int milliseconds)throws IOException;
     public static native void setIpFreeBind(int fd, int freeBind) throws IOException;
+    public static native void setSoBusyPoll(int fd, int busyPollMicros) throws IOException;
+    public static native void setSoPreferBusyPoll(int fd, int preferBusyPoll) throws IOException;
+    public static native void setSoZeroCopy(int fd, int zeroCopy) throws IOException;
+    public static native void setUdpGro(int fd, int gro) throws IOException;
     public static void tcpInfo(int fd, EpollTcpInfo info) throws IOException {
         tcpInfo0(fd, info.info);
     }
@@ -24,9 +24,12 @@ import io.netty.util.concurrent.FastThreadLocal;
 import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
 
 /**
- * Support <a href="http://linux.die.net/man/2/sendmmsg">sendmmsg(...)</a> on linux with GLIBC 2.14+
+ * Support <a href="http://linux.die.net/man/2/sendmmsg">sendmmsg(...)</a> on linux with GLIBC 2.14+ and
+ * <a href="http://man7.org/linux/man-pages/man2/recvmmsg.2.html">recvmmsg(...)</a> on linux with GLIBC 2.12+
  */
 final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessageProcessor {
 
@@ -47,9 +50,14 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
                 }
             };
 
+    // The limits of UDP_SEGMENT, see UDP_MAX_SEGMENTS in linux/udp.h and the maximal payload of an IPv4 datagram.
+    private static final int UDP_MAX_SEGMENTS = 64;
+    private static final int UDP_MAX_PAYLOAD = 65507;
+
     // Use UIO_MAX_IOV as this is the maximum number we can write with one sendmmsg(...) call.
     private final NativeDatagramPacket[] packets = new NativeDatagramPacket[Native.UIO_MAX_IOV];
     private int count;
+    private int segmentSize;
 
     private NativeDatagramPacketArray() {
         for (int i = 0; i < packets.length; i++) {
@@ -70,9 +78,17 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
         if (len == 0) {
             return true;
         }
+        int segmentSize = 0;
+        if (this.segmentSize > 0 && len > this.segmentSize) {
+            if (!canSegment(len, this.segmentSize)) {
+                // Needs to be split before it is written.
+                return false;
+            }
+            segmentSize = this.segmentSize;
+        }
         NativeDatagramPacket p = packets[count];
         InetSocketAddress recipient = packet.recipient();
-        if (!p.init(content, recipient)) {
+        if (!p.init(content, recipient, segmentSize)) {
             return false;
         }
 
@@ -80,6 +96,21 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
         return true;
     }
 
+    /**
+     * Try to add the given {@link ByteBuf} so its writable bytes are filled by {@code recvmmsg(...)}.
+     * Returns {@code true} on success, {@code false} otherwise.
+     */
+    boolean addWritable(ByteBuf buf) {
+        if (count == packets.length) {
+            return false;
+        }
+        if (!packets[count].initWritable(buf)) {
+            return false;
+        }
+        count++;
+        return true;
+    }
+
     @Override
     public boolean processMessage(Object msg) throws Exception {
         return msg instanceof DatagramPacket && add((DatagramPacket) msg);
@@ -101,15 +132,34 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
 
     /**
      * Returns a {@link NativeDatagramPacketArray} which is filled with the flushed messages of
-     * {@link ChannelOutboundBuffer}.
+     * {@link ChannelOutboundBuffer}. Datagrams which are larger than {@code segmentSize} are split by the kernel
+     * via {@code UDP_SEGMENT}, {@code 0} disables segmentation.
      */
-    static NativeDatagramPacketArray getInstance(ChannelOutboundBuffer buffer) throws Exception {
+    static NativeDatagramPacketArray getInstance(ChannelOutboundBuffer buffer, int segmentSize) throws Exception {
         NativeDatagramPacketArray array = ARRAY.get();
         array.count = 0;
+        array.segmentSize = segmentSize;
         buffer.forEachFlushedMessage(array);
         return array;
     }
 
+    /**
+     * Returns {@code true} if a datagram of {@code len} bytes can be split by the kernel into segments of
+     * {@code segmentSize} bytes via {@code UDP_SEGMENT}.
+     */
+    static boolean canSegment(int len, int segmentSize) {
+        return Native.IS_SUPPORTING_UDP_SEGMENT && len <= UDP_MAX_PAYLOAD && len <= segmentSize * UDP_MAX_SEGMENTS;
+    }
+
+    /**
+     * Returns an empty {@link NativeDatagramPacketArray} which can be filled via {@link #addWritable(ByteBuf)}.
+     */
+    static NativeDatagramPacketArray getInstance() {
+        NativeDatagramPacketArray array = ARRAY.get();
+        array.count = 0;
+        return array;
+    }
+
     /**
      * Used to pass needed data to JNI.
      */
@@ -122,11 +172,18 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
 
         // This is the actual struct iovec*
         private long memoryAddress;
+        // The number of iovecs, or the number of received bytes after recvmmsg(...) returned
         private int count;
 
         private byte[] addr;
+        // The length of the address which was filled by recvmmsg(...), which is either 4 or 16
+        private int addrLen;
         private int scopeId;
         private int port;
+        // The UDP_SEGMENT size to use for sendmmsg(...), or the UDP_GRO size filled by recvmmsg(...)
+        private int segmentSize;
+        // Set by recvmmsg(...) if the received data did not fit into the buffer
+        private boolean truncated;
 
         private void release() {
             array.release();
@@ -135,7 +192,7 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
         /**
          * Init this instance and return {@code true} if the init was successful.
          */
-        private boolean init(ByteBuf buf, InetSocketAddress recipient) {
+        private boolean init(ByteBuf buf, InetSocketAddress recipient, int segmentSize) {
             array.clear();
             if (!array.add(buf)) {
                 return false;
@@ -153,7 +210,64 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
                 scopeId = 0;
             }
             port = recipient.getPort();
+            this.segmentSize = segmentSize;
             return true;
         }
+
+        /**
+         * Init this instance for receiving into the given {@link ByteBuf} and return {@code true} if the init was
+         * successful.
+         */
+        private boolean initWritable(ByteBuf buf) {
+            array.clear();
+            if (!array.addWritable(buf)) {
+                return false;
+            }
+            memoryAddress = array.memoryAddress(0);
+            count = array.count();
+            if (addr == null || addr.length != 16) {
+                addr = new byte[16];
+            }
+            segmentSize = 0;
+            truncated = false;
+            return true;
+        }
+
+        /**
+         * Returns a new {@link DatagramPacket} which holds the given {@link ByteBuf} filled by
+         * {@code recvmmsg(...)} and the address of the sender.
+         */
+        DatagramPacket newDatagramPacket(ByteBuf buffer, InetSocketAddress localAddress) throws UnknownHostException {
+            final InetAddress address;
+            if (addrLen == 4) {
+                address = InetAddress.getByAddress(Arrays.copyOf(addr, 4));
+            } else {
+                address = Inet6Address.getByAddress(null, addr.clone(), scopeId);
+            }
+            buffer.writerIndex(buffer.writerIndex() + count);
+            return new DatagramPacket(buffer, localAddress, new InetSocketAddress(address, port));
+        }
+
+        /**
+         * Returns the number of bytes received by {@code recvmmsg(...)}.
+         */
+        int received() {
+            return count;
+        }
+
+        /**
+         * Returns the size of the segments if the kernel coalesced multiple received datagrams via {@code UDP_GRO},
+         * {@code 0} otherwise.
+         */
+        int segmentSize() {
+            return segmentSize;
+        }
+
+        /**
+         * Returns {@code true} if the received data did not fit into the buffer and so was truncated by the kernel.
+         */
+        boolean isTruncated() {
+            return truncated;
+        }
     }
 }
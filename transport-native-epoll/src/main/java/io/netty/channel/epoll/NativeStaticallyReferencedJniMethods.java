@@ -35,11 +35,18 @@ final class NativeStaticallyReferencedJniMethods {
     static native int epollrdhup();
     static native int epollet();
     static native int epollerr();
+    static native int epollexclusive();
     static native long ssizeMax();
     static native int tcpMd5SigMaxKeyLen();
     static native int iovMax();
     static native int uioMaxIov();
     static native boolean isSupportingSendmmsg();
+    static native boolean isSupportingRecvmmsg();
+    static native boolean isSupportingUdpSegment();
+    static native boolean isSupportingUdpGro();
+    static native boolean isSupportingMsgZeroCopy();
+    static native boolean isSupportingEpollExclusive();
+    static native int errnoENOBUFS();
     static native boolean isSupportingTcpFastopen();
     static native String kernelVersion();
 }
@@ -220,6 +220,25 @@ public final class Socket extends FileDescriptor {
         throw newIOException("accept", res);
     }
 
+    /**
+     * Accepts up to {@code fds.length} connections with one native call. The file descriptors are stored in
+     * {@code fds} and the remote address of each connection in its own {@code addressSize} bytes of
+     * {@code addresses}, encoded as by {@link #accept(byte[])}.
+     *
+     * @return the number of accepted connections, or {@code -1} if there was no connection to accept.
+     */
+    public int accept(int[] fds, byte[] addresses, int addressSize) throws IOException {
+        int res = acceptBatch(fd, fds, addresses, addressSize);
+        if (res >= 0) {
+            return res;
+        }
+        if (res == ERRNO_EAGAIN_NEGATIVE || res == ERRNO_EWOULDBLOCK_NEGATIVE) {
+            // Everything consumed so just return -1 here.
+            return -1;
+        }
+        throw newIOException("accept", res);
+    }
+
     public InetSocketAddress remoteAddress() {
         byte[] addr = remoteAddress(fd);
         // addr may be null if getpeername failed.
@@ -347,6 +366,7 @@ public final class Socket extends FileDescriptor {
     private static native int bindDomainSocket(int fd, byte[] path);
     private static native int listen(int fd, int backlog);
     private static native int accept(int fd, byte[] addr);
+    private static native int acceptBatch(int fd, int[] fds, byte[] addresses, int addressSize);
 
     private static native byte[] remoteAddress(int fd);
     private static native byte[] localAddress(int fd);
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.DatagramPacket;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+public class EpollDatagramChannelTest {
+
+    private static EventLoopGroup group;
+
+    @BeforeClass
+    public static void before() {
+        group = new EpollEventLoopGroup(2);
+    }
+
+    @AfterClass
+    public static void after() {
+        group.shutdownGracefully();
+    }
+
+    @Test(timeout = 10000)
+    public void testReadIsLimitedByMaxMessagesPerRead() throws Throwable {
+        final int maxMessagesPerRead = 4;
+        final int datagrams = 10;
+        final List<Integer> reads = new ArrayList<Integer>();
+        final CountDownLatch received = new CountDownLatch(datagrams);
+        Channel receiver = new Bootstrap().group(group).channel(EpollDatagramChannel.class)
+                .option(ChannelOption.MAX_MESSAGES_PER_READ, maxMessagesPerRead)
+                .handler(new SimpleChannelInboundHandler<DatagramPacket>() {
+                    private int read;
+
+                    @Override
+                    protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket msg) {
+                        read++;
+                        received.countDown();
+                    }
+
+                    @Override
+                    public void channelReadComplete(ChannelHandlerContext ctx) {
+                        reads.add(read);
+                        read = 0;
+                    }
+                })
+                .bind(new InetSocketAddress("127.0.0.1", 0)).syncUninterruptibly().channel();
+        Channel sender = new Bootstrap().group(group).channel(EpollDatagramChannel.class)
+                .handler(new SimpleChannelInboundHandler<DatagramPacket>() {
+                    @Override
+                    protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket msg) {
+                        // Nothing is sent back.
+                    }
+                })
+                .bind(new InetSocketAddress("127.0.0.1", 0)).syncUninterruptibly().channel();
+        assertNotSame(receiver.eventLoop(), sender.eventLoop());
+
+        final CountDownLatch sent = new CountDownLatch(1);
+        try {
+            // Block the event loop of the receiver until all datagrams were queued in its socket.
+            receiver.eventLoop().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        sent.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            for (int i = 0; i < datagrams; i++) {
+                sender.writeAndFlush(new DatagramPacket(Unpooled.directBuffer(8).writeLong(i),
+                        (InetSocketAddress) receiver.localAddress())).syncUninterruptibly();
+            }
+            sent.countDown();
+
+            assertTrue(received.await(5, TimeUnit.SECONDS));
+            receiver.eventLoop().submit(new Runnable() {
+                @Override
+                public void run() {
+                    // Make sure the last channelReadComplete() was seen.
+                }
+            }).syncUninterruptibly();
+            int total = 0;
+            for (int read: reads) {
+                assertTrue("read " + read + " datagrams at once", read <= maxMessagesPerRead);
+                total += read;
+            }
+            assertEquals(datagrams, total);
+        } finally {
+            sent.countDown();
+            sender.close().syncUninterruptibly();
+            receiver.close().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testReadMoreThanOnePacketArray() throws Throwable {
+        // More datagrams than fit into one NativeDatagramPacketArray, so recvmmsg(...) is called several times
+        // within the same read.
+        final int datagrams = Native.UIO_MAX_IOV * 2 + 10;
+        final List<Integer> reads = new ArrayList<Integer>();
+        final List<Long> values = new ArrayList<Long>();
+        final CountDownLatch received = new CountDownLatch(datagrams);
+        Channel receiver = new Bootstrap().group(group).channel(EpollDatagramChannel.class)
+                .option(ChannelOption.MAX_MESSAGES_PER_READ, datagrams * 2)
+                .option(ChannelOption.SO_RCVBUF, 8 * 1024 * 1024)
+                .handler(new SimpleChannelInboundHandler<DatagramPacket>() {
+                    private int read;
+
+                    @Override
+                    protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket msg) {
+                        assertEquals(8, msg.content().readableBytes());
+                        values.add(msg.content().readLong());
+                        read++;
+                        received.countDown();
+                    }
+
+                    @Override
+                    public void channelReadComplete(ChannelHandlerContext ctx) {
+                        reads.add(read);
+                        read = 0;
+                    }
+                })
+                .bind(new InetSocketAddress("127.0.0.1", 0)).syncUninterruptibly().channel();
+        Channel sender = new Bootstrap().group(group).channel(EpollDatagramChannel.class)
+                .handler(new SimpleChannelInboundHandler<DatagramPacket>() {
+                    @Override
+                    protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket msg) {
+                        // Nothing is sent back.
+                    }
+                })
+                .bind(new InetSocketAddress("127.0.0.1", 0)).syncUninterruptibly().channel();
+        assertNotSame(receiver.eventLoop(), sender.eventLoop());
+
+        final CountDownLatch sent = new CountDownLatch(1);
+        try {
+            // The kernel may limit the receive buffer, in which case datagrams would be dropped.
+            assumeTrue(((EpollDatagramChannel) receiver).config().getReceiveBufferSize() >= datagrams * 2048);
+
+            // Block the event loop of the receiver until all datagrams were queued in its socket.
+            receiver.eventLoop().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        sent.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            for (int i = 0; i < datagrams; i++) {
+                sender.writeAndFlush(new DatagramPacket(Unpooled.directBuffer(8).writeLong(i),
+                        (InetSocketAddress) receiver.localAddress())).syncUninterruptibly();
+            }
+            sent.countDown();
+
+            assertTrue(received.await(20, TimeUnit.SECONDS));
+            receiver.eventLoop().submit(new Runnable() {
+                @Override
+                public void run() {
+                    // Make sure the last channelReadComplete() was seen.
+                }
+            }).syncUninterruptibly();
+            assertEquals(datagrams, values.size());
+            for (int i = 0; i < datagrams; i++) {
+                assertEquals(i, (long) values.get(i));
+            }
+            assertEquals(datagrams, (int) reads.get(0));
+        } finally {
+            sent.countDown();
+            sender.close().syncUninterruptibly();
+            receiver.close().syncUninterruptibly();
+        }
+    }
+}
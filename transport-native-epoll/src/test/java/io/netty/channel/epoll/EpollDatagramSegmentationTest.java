@@ -0,0 +1,170 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.DatagramPacket;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class EpollDatagramSegmentationTest {
+
+    private static final int SEGMENT_SIZE = 100;
+    private static final int SEGMENTS = 10;
+
+    private static EventLoopGroup group;
+
+    @BeforeClass
+    public static void before() {
+        group = new EpollEventLoopGroup(1);
+    }
+
+    @AfterClass
+    public static void after() {
+        group.shutdownGracefully();
+    }
+
+    @Test(timeout = 10000)
+    public void testSegmentedWrite() throws Throwable {
+        testSegmentation(false);
+    }
+
+    @Test(timeout = 10000)
+    public void testSegmentedWriteWithUdpGro() throws Throwable {
+        testSegmentation(true);
+    }
+
+    @Test(timeout = 10000)
+    public void testUdpGroExceedsReceiveBufferSize() throws Throwable {
+        // The coalesced datagrams are much bigger than the receive buffers of the default allocator.
+        testSegmentation(true, 1000, 40);
+    }
+
+    @Test(timeout = 10000)
+    public void testTruncatedDatagramIsDropped() throws Throwable {
+        final AtomicInteger received = new AtomicInteger();
+        final AtomicReference<Throwable> cause = new AtomicReference<Throwable>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        Channel receiver = new Bootstrap().group(group).channel(EpollDatagramChannel.class)
+                .option(EpollChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(1024))
+                // Use recvmmsg(...) which reports truncated datagrams.
+                .option(EpollChannelOption.MAX_MESSAGES_PER_READ, 16)
+                .handler(new SimpleChannelInboundHandler<DatagramPacket>() {
+                    @Override
+                    protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket msg) {
+                        received.incrementAndGet();
+                    }
+
+                    @Override
+                    public void exceptionCaught(ChannelHandlerContext ctx, Throwable t) {
+                        cause.set(t);
+                        latch.countDown();
+                    }
+                })
+                .bind(new InetSocketAddress("127.0.0.1", 0)).syncUninterruptibly().channel();
+        Channel sender = new Bootstrap().group(group).channel(EpollDatagramChannel.class)
+                .handler(new SimpleChannelInboundHandler<DatagramPacket>() {
+                    @Override
+                    protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket msg) {
+                        // Nothing is sent back.
+                    }
+                })
+                .bind(new InetSocketAddress("127.0.0.1", 0)).syncUninterruptibly().channel();
+        try {
+            sender.writeAndFlush(new DatagramPacket(Unpooled.directBuffer(4096).writeZero(4096),
+                    (InetSocketAddress) receiver.localAddress())).syncUninterruptibly();
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertTrue(cause.get() instanceof IOException);
+            assertEquals(0, received.get());
+        } finally {
+            sender.close().syncUninterruptibly();
+            receiver.close().syncUninterruptibly();
+        }
+    }
+
+    private static void testSegmentation(boolean udpGro) throws Throwable {
+        testSegmentation(udpGro, SEGMENT_SIZE, SEGMENTS);
+    }
+
+    private static void testSegmentation(boolean udpGro, final int segmentSize, int segments) throws Throwable {
+        final CountDownLatch latch = new CountDownLatch(segments);
+        final AtomicInteger invalidSegments = new AtomicInteger();
+        Channel receiver = new Bootstrap().group(group).channel(EpollDatagramChannel.class)
+                .option(EpollChannelOption.UDP_GRO, udpGro)
+                .handler(new SimpleChannelInboundHandler<DatagramPacket>() {
+                    @Override
+                    protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket msg) {
+                        ByteBuf content = msg.content();
+                        if (content.readableBytes() != segmentSize) {
+                            invalidSegments.incrementAndGet();
+                        } else {
+                            // Each segment is filled with its index.
+                            byte index = content.getByte(0);
+                            for (int i = 1; i < segmentSize; i++) {
+                                if (content.getByte(i) != index) {
+                                    invalidSegments.incrementAndGet();
+                                    break;
+                                }
+                            }
+                        }
+                        latch.countDown();
+                    }
+                })
+                .bind(new InetSocketAddress("127.0.0.1", 0)).syncUninterruptibly().channel();
+        Channel sender = new Bootstrap().group(group).channel(EpollDatagramChannel.class)
+                .option(EpollChannelOption.UDP_SEGMENT, segmentSize)
+                .handler(new SimpleChannelInboundHandler<DatagramPacket>() {
+                    @Override
+                    protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket msg) {
+                        // Nothing is sent back.
+                    }
+                })
+                .bind(new InetSocketAddress("127.0.0.1", 0)).syncUninterruptibly().channel();
+        try {
+            ByteBuf data = Unpooled.directBuffer(segmentSize * segments);
+            for (int i = 0; i < segments; i++) {
+                for (int j = 0; j < segmentSize; j++) {
+                    data.writeByte(i);
+                }
+            }
+            sender.writeAndFlush(new DatagramPacket(data, (InetSocketAddress) receiver.localAddress()))
+                    .syncUninterruptibly();
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(0, invalidSegments.get());
+        } finally {
+            sender.close().syncUninterruptibly();
+            receiver.close().syncUninterruptibly();
+        }
+    }
+}
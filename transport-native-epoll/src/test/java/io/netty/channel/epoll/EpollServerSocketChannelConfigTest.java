@@ -68,6 +68,11 @@ public class EpollServerSocketChannelConfigTest {
         assertTrue(ch.config().isReusePort());
     }
 
+    @Test(expected = IllegalStateException.class)
+    public void testEpollExclusiveAfterRegistration() {
+        ch.config().setEpollExclusive(true);
+    }
+
     @Test
     public void testFreeBind() {
         ch.config().setFreeBind(false);
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFactory;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.unix.Socket;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+public class EpollServerSocketChannelTest {
+
+    @Test(timeout = 30000)
+    public void testAcceptsBacklogInBatches() throws Exception {
+        final int numConnections = 200;
+        EventLoopGroup group = new EpollEventLoopGroup(1);
+        List<java.net.Socket> clients = new ArrayList<java.net.Socket>();
+        try {
+            final CountDownLatch latch = new CountDownLatch(numConnections);
+            Channel serverChannel = new ServerBootstrap().group(group)
+                    .channel(EpollServerSocketChannel.class)
+                    .option(ChannelOption.AUTO_READ, false)
+                    .childHandler(new CountingHandler(latch))
+                    .bind(new InetSocketAddress(0)).syncUninterruptibly().channel();
+            InetSocketAddress address = (InetSocketAddress) serverChannel.localAddress();
+
+            // Fill the backlog before the server channel starts to accept.
+            for (int i = 0; i < numConnections; i++) {
+                clients.add(new java.net.Socket(address.getAddress(), address.getPort()));
+            }
+            serverChannel.config().setAutoRead(true);
+
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            serverChannel.close().syncUninterruptibly();
+        } finally {
+            for (java.net.Socket client: clients) {
+                client.close();
+            }
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testEpollExclusiveSharedListener() throws Exception {
+        Assume.assumeTrue(Native.IS_SUPPORTING_EPOLLEXCLUSIVE);
+
+        final int numConnections = 20;
+        EventLoopGroup group = new EpollEventLoopGroup(2);
+        List<java.net.Socket> clients = new ArrayList<java.net.Socket>();
+        try {
+            final CountDownLatch latch = new CountDownLatch(numConnections);
+            ServerBootstrap sb = new ServerBootstrap().group(group)
+                    .option(EpollChannelOption.EPOLL_EXCLUSIVE, true)
+                    .childHandler(new CountingHandler(latch));
+            final EpollServerSocketChannel serverChannel = (EpollServerSocketChannel) sb.clone()
+                    .channel(EpollServerSocketChannel.class)
+                    .bind(new InetSocketAddress(0)).syncUninterruptibly().channel();
+            assertTrue(serverChannel.config().isEpollExclusive());
+
+            // Register a second channel for the same listening socket, which is served by the other EventLoop.
+            EpollServerSocketChannel sharedChannel = (EpollServerSocketChannel) sb.clone()
+                    .channelFactory(new ChannelFactory<ServerChannel>() {
+                        @Override
+                        public ServerChannel newChannel() {
+                            return new EpollServerSocketChannel(new Socket(serverChannel.fd().intValue()), true);
+                        }
+                    }).register().syncUninterruptibly().channel();
+            assertTrue(sharedChannel.config().isEpollExclusive());
+
+            InetSocketAddress address = serverChannel.localAddress();
+            for (int i = 0; i < numConnections; i++) {
+                clients.add(new java.net.Socket(address.getAddress(), address.getPort()));
+            }
+
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            // Only deregister the shared channel, as closing it would close the listening socket.
+            sharedChannel.deregister().syncUninterruptibly();
+            serverChannel.close().syncUninterruptibly();
+        } finally {
+            for (java.net.Socket client: clients) {
+                client.close();
+            }
+            group.shutdownGracefully();
+        }
+    }
+
+    @Sharable
+    private static final class CountingHandler extends ChannelInboundHandlerAdapter {
+        private final CountDownLatch latch;
+
+        CountingHandler(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            latch.countDown();
+            ctx.close();
+        }
+    }
+}
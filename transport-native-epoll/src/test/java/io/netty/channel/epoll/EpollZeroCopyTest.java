@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class EpollZeroCopyTest {
+
+    private static final int WRITES = 64;
+    private static final int WRITE_SIZE = 16 * 1024;
+    // Below the threshold which is used by the tests, so written by copying.
+    private static final int SMALL_WRITE_SIZE = 512;
+
+    private static EventLoopGroup group;
+
+    @BeforeClass
+    public static void before() {
+        Assume.assumeTrue(Native.IS_SUPPORTING_MSG_ZEROCOPY);
+        group = new EpollEventLoopGroup(2);
+    }
+
+    @AfterClass
+    public static void after() {
+        if (group != null) {
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testWriteAndClose() throws Throwable {
+        testZeroCopy(true, false);
+    }
+
+    @Test(timeout = 30000)
+    public void testWrite() throws Throwable {
+        testZeroCopy(false, false);
+    }
+
+    @Test(timeout = 30000)
+    public void testMixedWritesCompleteInOrder() throws Throwable {
+        // The promises of copied writes must not be notified before the ones of earlier MSG_ZEROCOPY writes.
+        testZeroCopy(false, true);
+    }
+
+    @Test(timeout = 30000)
+    public void testMixedWritesAndClose() throws Throwable {
+        testZeroCopy(true, true);
+    }
+
+    private static int writeSize(int index, boolean mixed) {
+        return mixed && (index & 1) == 1 ? SMALL_WRITE_SIZE : WRITE_SIZE;
+    }
+
+    private static void testZeroCopy(boolean closeAfterWrite, boolean mixed) throws Throwable {
+        int totalBytes = 0;
+        for (int i = 0; i < WRITES; i++) {
+            totalBytes += writeSize(i, mixed);
+        }
+        final int expectedBytes = totalBytes;
+        final AtomicInteger receivedBytes = new AtomicInteger();
+        final AtomicReference<Throwable> cause = new AtomicReference<Throwable>();
+        final CountDownLatch received = new CountDownLatch(1);
+        Channel server = new ServerBootstrap().group(group).channel(EpollServerSocketChannel.class)
+                .childHandler(new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        ByteBuf buf = (ByteBuf) msg;
+                        try {
+                            int offset = receivedBytes.get();
+                            for (int i = buf.readerIndex(); i < buf.writerIndex(); i++, offset++) {
+                                if (buf.getByte(i) != expectedByte(offset)) {
+                                    cause.compareAndSet(null, new AssertionError("Unexpected byte at " + offset));
+                                }
+                            }
+                            if (receivedBytes.addAndGet(buf.readableBytes()) == expectedBytes) {
+                                received.countDown();
+                            }
+                        } finally {
+                            buf.release();
+                        }
+                    }
+                })
+                .bind(new InetSocketAddress("127.0.0.1", 0)).syncUninterruptibly().channel();
+        Channel client = new Bootstrap().group(group).channel(EpollSocketChannel.class)
+                .option(EpollChannelOption.SO_ZEROCOPY, true)
+                .option(EpollChannelOption.ZEROCOPY_THRESHOLD, 1024)
+                .option(ChannelOption.SO_SNDBUF, 4 * expectedBytes)
+                .handler(new ChannelInboundHandlerAdapter())
+                .connect(server.localAddress()).syncUninterruptibly().channel();
+        try {
+            final List<Integer> completed = new ArrayList<Integer>();
+            final CountDownLatch writesDone = new CountDownLatch(WRITES);
+            List<ByteBuf> buffers = new ArrayList<ByteBuf>();
+            int offset = 0;
+            for (int i = 0; i < WRITES; i++) {
+                int size = writeSize(i, mixed);
+                ByteBuf buf = Unpooled.directBuffer(size);
+                for (int j = 0; j < size; j++) {
+                    buf.writeByte(expectedByte(offset++));
+                }
+                assertTrue(buf.hasMemoryAddress());
+                buffers.add(buf);
+
+                final int index = i;
+                client.write(buf).addListener(new ChannelFutureListener() {
+                    @Override
+                    public void operationComplete(ChannelFuture future) {
+                        if (!future.isSuccess()) {
+                            cause.compareAndSet(null, future.cause());
+                        }
+                        synchronized (completed) {
+                            completed.add(index);
+                        }
+                        writesDone.countDown();
+                    }
+                });
+            }
+            client.flush();
+            if (closeAfterWrite) {
+                // Close before the completions were notified, the buffers must be kept until they were.
+                client.close();
+            }
+
+            assertTrue(writesDone.await(20, TimeUnit.SECONDS));
+            assertTrue(received.await(20, TimeUnit.SECONDS));
+            if (cause.get() != null) {
+                throw cause.get();
+            }
+            assertEquals(expectedBytes, receivedBytes.get());
+            synchronized (completed) {
+                for (int i = 0; i < WRITES; i++) {
+                    assertEquals(i, (int) completed.get(i));
+                }
+            }
+            for (ByteBuf buf: buffers) {
+                assertEquals(0, buf.refCnt());
+            }
+        } finally {
+            client.close().syncUninterruptibly();
+            server.close().syncUninterruptibly();
+        }
+    }
+
+    private static byte expectedByte(int offset) {
+        return (byte) (offset * 31 + (offset >>> 8));
+    }
+}
@@ -0,0 +1,378 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+#define _GNU_SOURCE
+#include <jni.h>
+#include <stdio.h>
+#include <stdint.h>
+#include <stdlib.h>
+#include <string.h>
+#include <errno.h>
+#include <signal.h>
+#include <unistd.h>
+#include <dlfcn.h>
+#include <poll.h>
+#include <sys/mman.h>
+#include <sys/socket.h>
+#include <sys/syscall.h>
+#include <linux/io_uring.h>
+#include "netty_unix_util.h"
+
+#ifndef __NR_io_uring_setup
+#define __NR_io_uring_setup 425
+#endif
+#ifndef __NR_io_uring_enter
+#define __NR_io_uring_enter 426
+#endif
+#ifndef __NR_io_uring_register
+#define __NR_io_uring_register 427
+#endif
+
+// Indexes of the values which are stored by setup0(...) in the given long array.
+// Keep in sync with RingBuffer in Native.java!
+#define RING_FD 0
+#define RING_FEATURES 1
+#define SQ_RING_ADDRESS 2
+#define SQ_RING_SIZE 3
+#define CQ_RING_ADDRESS 4
+#define CQ_RING_SIZE 5
+#define SQES_ADDRESS 6
+#define SQES_SIZE 7
+#define SQ_HEAD 8
+#define SQ_TAIL 9
+#define SQ_RING_MASK 10
+#define SQ_RING_ENTRIES 11
+#define SQ_FLAGS 12
+#define SQ_ARRAY 13
+#define CQ_HEAD 14
+#define CQ_TAIL 15
+#define CQ_RING_MASK 16
+#define CQ_RING_ENTRIES 17
+#define CQ_OVERFLOW 18
+#define CQ_CQES 19
+#define RING_VALUES 20
+
+static int sys_io_uring_setup(unsigned int entries, struct io_uring_params* p) {
+    return (int) syscall(__NR_io_uring_setup, entries, p);
+}
+
+static int sys_io_uring_enter(int fd, unsigned int toSubmit, unsigned int minComplete, unsigned int flags,
+                              void* arg, size_t argSize) {
+    return (int) syscall(__NR_io_uring_enter, fd, toSubmit, minComplete, flags, arg, argSize);
+}
+
+static int sys_io_uring_register(int fd, unsigned int opcode, void* arg, unsigned int nrArgs) {
+    return (int) syscall(__NR_io_uring_register, fd, opcode, arg, nrArgs);
+}
+
+// JNI Registered Methods Begin
+static jint netty_io_uring_native_errnoECANCELED(JNIEnv* env, jclass clazz) {
+    return ECANCELED;
+}
+
+static jint netty_io_uring_native_errnoENOBUFS(JNIEnv* env, jclass clazz) {
+    return ENOBUFS;
+}
+
+static jint netty_io_uring_native_errnoETIME(JNIEnv* env, jclass clazz) {
+    return ETIME;
+}
+
+static jint netty_io_uring_native_errnoEINTR(JNIEnv* env, jclass clazz) {
+    return EINTR;
+}
+
+static jint netty_io_uring_native_errnoEBUSY(JNIEnv* env, jclass clazz) {
+    return EBUSY;
+}
+
+static jint netty_io_uring_native_pollout(JNIEnv* env, jclass clazz) {
+    return POLLOUT;
+}
+
+static jint netty_io_uring_native_afInet(JNIEnv* env, jclass clazz) {
+    return AF_INET;
+}
+
+static jint netty_io_uring_native_afInet6(JNIEnv* env, jclass clazz) {
+    return AF_INET6;
+}
+
+static jint netty_io_uring_native_msgNosignal(JNIEnv* env, jclass clazz) {
+    return MSG_NOSIGNAL;
+}
+
+static jint netty_io_uring_native_msgWaitall(JNIEnv* env, jclass clazz) {
+    return MSG_WAITALL;
+}
+
+static jint netty_io_uring_native_setup0(JNIEnv* env, jclass clazz, jint entries, jint flags, jlongArray values) {
+    struct io_uring_params p;
+    memset(&p, 0, sizeof(p));
+    p.flags = (unsigned int) flags;
+
+    int fd = sys_io_uring_setup((unsigned int) entries, &p);
+    if (fd < 0) {
+        return -errno;
+    }
+
+    size_t sqRingSize = p.sq_off.array + p.sq_entries * sizeof(unsigned int);
+    size_t cqRingSize = p.cq_off.cqes + p.cq_entries * sizeof(struct io_uring_cqe);
+    if ((p.features & IORING_FEAT_SINGLE_MMAP) != 0) {
+        // Both rings are mapped by one mmap(...) call, so just use the bigger size for both of them.
+        if (cqRingSize > sqRingSize) {
+            sqRingSize = cqRingSize;
+        }
+        cqRingSize = sqRingSize;
+    }
+
+    void* sqRing = mmap(NULL, sqRingSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, fd, IORING_OFF_SQ_RING);
+    if (sqRing == MAP_FAILED) {
+        int err = errno;
+        close(fd);
+        return -err;
+    }
+    void* cqRing = sqRing;
+    if ((p.features & IORING_FEAT_SINGLE_MMAP) == 0) {
+        cqRing = mmap(NULL, cqRingSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, fd, IORING_OFF_CQ_RING);
+        if (cqRing == MAP_FAILED) {
+            int err = errno;
+            munmap(sqRing, sqRingSize);
+            close(fd);
+            return -err;
+        }
+    }
+    size_t sqesSize = p.sq_entries * sizeof(struct io_uring_sqe);
+    void* sqes = mmap(NULL, sqesSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, fd, IORING_OFF_SQES);
+    if (sqes == MAP_FAILED) {
+        int err = errno;
+        if (cqRing != sqRing) {
+            munmap(cqRing, cqRingSize);
+        }
+        munmap(sqRing, sqRingSize);
+        close(fd);
+        return -err;
+    }
+
+    char* sq = (char*) sqRing;
+    char* cq = (char*) cqRing;
+    jlong result[RING_VALUES];
+    result[RING_FD] = fd;
+    result[RING_FEATURES] = p.features;
+    result[SQ_RING_ADDRESS] = (jlong) sqRing;
+    result[SQ_RING_SIZE] = (jlong) sqRingSize;
+    result[CQ_RING_ADDRESS] = (jlong) cqRing;
+    result[CQ_RING_SIZE] = (jlong) cqRingSize;
+    result[SQES_ADDRESS] = (jlong) sqes;
+    result[SQES_SIZE] = (jlong) sqesSize;
+    result[SQ_HEAD] = (jlong) (sq + p.sq_off.head);
+    result[SQ_TAIL] = (jlong) (sq + p.sq_off.tail);
+    result[SQ_RING_MASK] = (jlong) (sq + p.sq_off.ring_mask);
+    result[SQ_RING_ENTRIES] = (jlong) (sq + p.sq_off.ring_entries);
+    result[SQ_FLAGS] = (jlong) (sq + p.sq_off.flags);
+    result[SQ_ARRAY] = (jlong) (sq + p.sq_off.array);
+    result[CQ_HEAD] = (jlong) (cq + p.cq_off.head);
+    result[CQ_TAIL] = (jlong) (cq + p.cq_off.tail);
+    result[CQ_RING_MASK] = (jlong) (cq + p.cq_off.ring_mask);
+    result[CQ_RING_ENTRIES] = (jlong) (cq + p.cq_off.ring_entries);
+    result[CQ_OVERFLOW] = (jlong) (cq + p.cq_off.overflow);
+    result[CQ_CQES] = (jlong) (cq + p.cq_off.cqes);
+    (*env)->SetLongArrayRegion(env, values, 0, RING_VALUES, result);
+    return fd;
+}
+
+static jint netty_io_uring_native_enter0(JNIEnv* env, jclass clazz, jint ringFd, jint toSubmit, jint minComplete,
+                                         jint flags, jlong timeoutNanos) {
+    int res;
+    if (timeoutNanos >= 0 && (flags & IORING_ENTER_GETEVENTS) != 0) {
+        struct __kernel_timespec ts;
+        ts.tv_sec = timeoutNanos / 1000000000;
+        ts.tv_nsec = timeoutNanos % 1000000000;
+
+        struct io_uring_getevents_arg arg;
+        memset(&arg, 0, sizeof(arg));
+        arg.sigmask_sz = _NSIG / 8;
+        arg.ts = (uint64_t) (uintptr_t) &ts;
+        res = sys_io_uring_enter(ringFd, (unsigned int) toSubmit, (unsigned int) minComplete,
+                                 (unsigned int) flags | IORING_ENTER_EXT_ARG, &arg, sizeof(arg));
+    } else {
+        res = sys_io_uring_enter(ringFd, (unsigned int) toSubmit, (unsigned int) minComplete,
+                                 (unsigned int) flags, NULL, _NSIG / 8);
+    }
+    return res < 0 ? -errno : res;
+}
+
+static jint netty_io_uring_native_register0(JNIEnv* env, jclass clazz, jint ringFd, jint opcode, jlong arg,
+                                            jint nrArgs) {
+    int res = sys_io_uring_register(ringFd, (unsigned int) opcode, (void*) (uintptr_t) arg, (unsigned int) nrArgs);
+    return res < 0 ? -errno : res;
+}
+
+static jint netty_io_uring_native_exit0(JNIEnv* env, jclass clazz, jint ringFd, jlong sqRingAddress,
+                                        jlong sqRingSize, jlong cqRingAddress, jlong cqRingSize, jlong sqesAddress,
+                                        jlong sqesSize) {
+    munmap((void*) (uintptr_t) sqesAddress, (size_t) sqesSize);
+    if (cqRingAddress != sqRingAddress) {
+        munmap((void*) (uintptr_t) cqRingAddress, (size_t) cqRingSize);
+    }
+    munmap((void*) (uintptr_t) sqRingAddress, (size_t) sqRingSize);
+    return close(ringFd) < 0 ? -errno : 0;
+}
+
+static jint netty_io_uring_native_socketDomain0(JNIEnv* env, jclass clazz, jint fd) {
+    int domain;
+    socklen_t len = sizeof(domain);
+    if (getsockopt(fd, SOL_SOCKET, SO_DOMAIN, &domain, &len) < 0) {
+        return -errno;
+    }
+    return domain;
+}
+
+static jint netty_io_uring_native_sockNonblock(JNIEnv* env, jclass clazz) {
+    return SOCK_NONBLOCK;
+}
+
+static jint netty_io_uring_native_sockCloexec(JNIEnv* env, jclass clazz) {
+    return SOCK_CLOEXEC;
+}
+
+static jint netty_io_uring_native_sizeofMsghdr(JNIEnv* env, jclass clazz) {
+    return sizeof(struct msghdr);
+}
+
+static jint netty_io_uring_native_sizeofIovec(JNIEnv* env, jclass clazz) {
+    return sizeof(struct iovec);
+}
+// JNI Registered Methods End
+
+// JNI Method Registration Table Begin
+static const JNINativeMethod statically_referenced_fixed_method_table[] = {
+  { "errnoECANCELED", "()I", (void *) netty_io_uring_native_errnoECANCELED },
+  { "errnoENOBUFS", "()I", (void *) netty_io_uring_native_errnoENOBUFS },
+  { "errnoETIME", "()I", (void *) netty_io_uring_native_errnoETIME },
+  { "errnoEINTR", "()I", (void *) netty_io_uring_native_errnoEINTR },
+  { "errnoEBUSY", "()I", (void *) netty_io_uring_native_errnoEBUSY },
+  { "pollout", "()I", (void *) netty_io_uring_native_pollout },
+  { "afInet", "()I", (void *) netty_io_uring_native_afInet },
+  { "afInet6", "()I", (void *) netty_io_uring_native_afInet6 },
+  { "msgNosignal", "()I", (void *) netty_io_uring_native_msgNosignal },
+  { "msgWaitall", "()I", (void *) netty_io_uring_native_msgWaitall },
+  { "sockNonblock", "()I", (void *) netty_io_uring_native_sockNonblock },
+  { "sockCloexec", "()I", (void *) netty_io_uring_native_sockCloexec },
+  { "sizeofMsghdr", "()I", (void *) netty_io_uring_native_sizeofMsghdr },
+  { "sizeofIovec", "()I", (void *) netty_io_uring_native_sizeofIovec }
+};
+static const jint statically_referenced_fixed_method_table_size = sizeof(statically_referenced_fixed_method_table) / sizeof(statically_referenced_fixed_method_table[0]);
+static const JNINativeMethod method_table[] = {
+  { "setup0", "(II[J)I", (void *) netty_io_uring_native_setup0 },
+  { "enter0", "(IIIIJ)I", (void *) netty_io_uring_native_enter0 },
+  { "register0", "(IIJI)I", (void *) netty_io_uring_native_register0 },
+  { "exit0", "(IJJJJJJ)I", (void *) netty_io_uring_native_exit0 },
+  { "socketDomain0", "(I)I", (void *) netty_io_uring_native_socketDomain0 }
+};
+static const jint method_table_size = sizeof(method_table) / sizeof(method_table[0]);
+// JNI Method Registration Table End
+
+static jint netty_io_uring_native_JNI_OnLoad(JNIEnv* env, const char* packagePrefix) {
+    // We must register the statically referenced methods first!
+    if (netty_unix_util_register_natives(env,
+            packagePrefix,
+            "io/netty/channel/uring/NativeStaticallyReferencedJniMethods",
+            statically_referenced_fixed_method_table,
+            statically_referenced_fixed_method_table_size) != 0) {
+        return JNI_ERR;
+    }
+    if (netty_unix_util_register_natives(env,
+            packagePrefix,
+            "io/netty/channel/uring/Native",
+            method_table,
+            method_table_size) != 0) {
+        return JNI_ERR;
+    }
+    return JNI_VERSION_1_6;
+}
+
+/**
+ * The expected format of the library name is "lib<>netty-transport-native-io_uring" where the <> portion is what we
+ * will return.
+ */
+static char* parsePackagePrefix(const char* libraryPathName, jint* status) {
+    char* packageNameEnd = strstr(libraryPathName, "netty-transport-native-io_uring");
+    if (packageNameEnd == NULL) {
+        *status = JNI_ERR;
+        return NULL;
+    }
+    char* packagePrefix = netty_unix_util_rstrstr(packageNameEnd, libraryPathName, "lib");
+    if (packagePrefix == NULL) {
+        *status = JNI_ERR;
+        return NULL;
+    }
+    packagePrefix += 3;
+    if (packagePrefix == packageNameEnd) {
+        return NULL;
+    }
+    // packagePrefix length is > 0
+    // Make a copy so we can modify the value without impacting libraryPathName.
+    size_t packagePrefixLen = packageNameEnd - packagePrefix;
+    packagePrefix = strndup(packagePrefix, packagePrefixLen);
+    // Make sure the packagePrefix is in the correct format for the JNI functions it will be used with.
+    char* temp = packagePrefix;
+    packageNameEnd = packagePrefix + packagePrefixLen;
+    // Package names must be sanitized, in JNI packages names are separated by '/' characters.
+    for (; temp != packageNameEnd; ++temp) {
+        if (*temp == '-') {
+            *temp = '/';
+        }
+    }
+    // Make sure packagePrefix is terminated with the '/' JNI package separator.
+    if(*(--temp) != '/') {
+        temp = packagePrefix;
+        packagePrefix = netty_unix_util_prepend(packagePrefix, "/");
+        free(temp);
+    }
+    return packagePrefix;
+}
+
+jint JNI_OnLoad(JavaVM* vm, void* reserved) {
+    JNIEnv* env;
+    if ((*vm)->GetEnv(vm, (void**) &env, JNI_VERSION_1_6) != JNI_OK) {
+        return JNI_ERR;
+    }
+
+    Dl_info dlinfo;
+    jint status = 0;
+    // We need to use an address of a function that is uniquely part of this library, so choose a static
+    // function. See https://github.com/netty/netty/issues/4840.
+    if (!dladdr((void*) parsePackagePrefix, &dlinfo)) {
+        fprintf(stderr, "FATAL: transport-native-io_uring JNI call to dladdr failed!\n");
+        return JNI_ERR;
+    }
+    char* packagePrefix = parsePackagePrefix(dlinfo.dli_fname, &status);
+    if (status == JNI_ERR) {
+        fprintf(stderr, "FATAL: transport-native-io_uring JNI encountered unexpected dlinfo.dli_fname: %s\n",
+                dlinfo.dli_fname);
+        return JNI_ERR;
+    }
+
+    jint ret = netty_io_uring_native_JNI_OnLoad(env, packagePrefix);
+
+    if (packagePrefix != NULL) {
+      free(packagePrefix);
+      packagePrefix = NULL;
+    }
+
+    return ret;
+}
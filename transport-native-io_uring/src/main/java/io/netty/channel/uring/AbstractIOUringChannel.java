@@ -0,0 +1,340 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.AbstractChannel;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.EventLoop;
+import io.netty.channel.unix.Socket;
+import io.netty.channel.unix.UnixChannel;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.internal.OneTimeTask;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.UnresolvedAddressException;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+abstract class AbstractIOUringChannel extends AbstractChannel implements UnixChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(false);
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+            // NOOP
+        }
+    };
+
+    private final Socket socket;
+    // The id the operations of the current registration are submitted with, 0 if not registered.
+    private int id;
+
+    protected volatile boolean active;
+
+    AbstractIOUringChannel(Channel parent, Socket fd, boolean active) {
+        super(parent);
+        socket = checkNotNull(fd, "fd");
+        this.active = active;
+    }
+
+    @Override
+    public final Socket fd() {
+        return socket;
+    }
+
+    @Override
+    public abstract IOUringChannelConfig config();
+
+    @Override
+    public boolean isActive() {
+        return active;
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        active = false;
+        try {
+            doDeregister();
+        } finally {
+            socket.close();
+        }
+    }
+
+    @Override
+    protected void doDisconnect() throws Exception {
+        doClose();
+    }
+
+    @Override
+    protected boolean isCompatible(EventLoop loop) {
+        return loop instanceof IOUringEventLoop;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return socket.isOpen();
+    }
+
+    @Override
+    protected void doRegister() throws Exception {
+        id = ((IOUringEventLoop) eventLoop()).add(this);
+    }
+
+    @Override
+    protected void doDeregister() throws Exception {
+        if (id != 0) {
+            int id = this.id;
+            this.id = 0;
+            AbstractIOUringUnsafe unsafe = (AbstractIOUringUnsafe) unsafe();
+            int pendingOps = unsafe.pendingOps;
+            unsafe.pendingOps = 0;
+            unsafe.readSubmitted = false;
+            ((IOUringEventLoop) eventLoop()).remove(id, pendingOps, unsafe.detach());
+        }
+    }
+
+    @Override
+    protected final void doBeginRead() throws Exception {
+        // Channel.read() or ChannelHandlerContext.read() was called
+        AbstractIOUringUnsafe unsafe = (AbstractIOUringUnsafe) unsafe();
+        unsafe.readPending = true;
+        if (!unsafe.readSubmitted) {
+            unsafe.submitRead0();
+        }
+    }
+
+    /**
+     * Called once {@link IOUringChannelConfig#setAutoRead(boolean)} switched auto read off.
+     */
+    final void autoReadCleared() {
+        if (isRegistered()) {
+            final EventLoop loop = eventLoop();
+            final AbstractIOUringUnsafe unsafe = (AbstractIOUringUnsafe) unsafe();
+            if (loop.inEventLoop()) {
+                unsafe.autoReadCleared();
+            } else {
+                loop.execute(new OneTimeTask() {
+                    @Override
+                    public void run() {
+                        if (!config().isAutoRead() && !unsafe.readPending) {
+                            // Still no read triggered so stop reading now
+                            unsafe.autoReadCleared();
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    final IOUringEventLoop ioUringEventLoop() {
+        return (IOUringEventLoop) eventLoop();
+    }
+
+    final IOUringSubmissionQueue submissionQueue() {
+        return ioUringEventLoop().submissionQueue();
+    }
+
+    /**
+     * Returns the user data an operation of this channel must be submitted with.
+     */
+    final long userData(byte op, int data) {
+        assert id != 0;
+        return IOUringEventLoop.userData(id, op, data);
+    }
+
+    @Override
+    protected abstract AbstractIOUringUnsafe newUnsafe();
+
+    /**
+     * Returns an off-heap copy of the specified {@link ByteBuf}, and releases the original one.
+     */
+    protected final ByteBuf newDirectBuffer(ByteBuf buf) {
+        return newDirectBuffer(buf, buf);
+    }
+
+    /**
+     * Returns an off-heap copy of the specified {@link ByteBuf}, and releases the specified holder.
+     * The caller must ensure that the holder releases the original {@link ByteBuf} when the holder is released by
+     * this method.
+     */
+    protected final ByteBuf newDirectBuffer(Object holder, ByteBuf buf) {
+        final int readableBytes = buf.readableBytes();
+        if (readableBytes == 0) {
+            ReferenceCountUtil.safeRelease(holder);
+            return Unpooled.EMPTY_BUFFER;
+        }
+
+        final ByteBufAllocator alloc = alloc();
+        if (alloc.isDirectBufferPooled()) {
+            return newDirectBuffer0(holder, buf, alloc, readableBytes);
+        }
+
+        final ByteBuf directBuf = ByteBufUtil.threadLocalDirectBuffer();
+        if (directBuf == null) {
+            return newDirectBuffer0(holder, buf, alloc, readableBytes);
+        }
+
+        directBuf.writeBytes(buf, buf.readerIndex(), readableBytes);
+        ReferenceCountUtil.safeRelease(holder);
+        return directBuf;
+    }
+
+    private static ByteBuf newDirectBuffer0(Object holder, ByteBuf buf, ByteBufAllocator alloc, int capacity) {
+        final ByteBuf directBuf = alloc.directBuffer(capacity);
+        directBuf.writeBytes(buf, buf.readerIndex(), capacity);
+        ReferenceCountUtil.safeRelease(holder);
+        return directBuf;
+    }
+
+    /**
+     * Allocates the buffer for the next receive out of the {@link io.netty.channel.RecvByteBufAllocator.Handle}.
+     * The kernel writes into the buffer asynchronously so it must be backed by a memory address.
+     */
+    protected final ByteBuf allocateReceiveBuffer() {
+        ByteBufAllocator alloc = alloc();
+        ByteBuf buf = unsafe().recvBufAllocHandle().allocate(alloc);
+        if (!buf.hasMemoryAddress()) {
+            int capacity = buf.capacity();
+            buf.release();
+            buf = alloc.directBuffer(capacity);
+            if (!buf.hasMemoryAddress()) {
+                buf.release();
+                buf = Unpooled.directBuffer(capacity);
+            }
+        }
+        return buf;
+    }
+
+    protected static void checkResolvable(InetSocketAddress addr) {
+        if (addr.isUnresolved()) {
+            throw new UnresolvedAddressException();
+        }
+    }
+
+    protected abstract class AbstractIOUringUnsafe extends AbstractUnsafe {
+        protected boolean readPending;
+        protected boolean readSubmitted;
+        // The number of operations of the current registration the kernel did not complete yet.
+        int pendingOps;
+
+        /**
+         * Submits the operation which reads from the channel. Its completion is passed to
+         * {@link #readComplete(int, int, int)}.
+         */
+        abstract void submitRead() throws IOException;
+
+        /**
+         * Called once the operation submitted by {@link #submitRead()} completed.
+         */
+        abstract void readComplete(int res, int flags, int data);
+
+        /**
+         * Called once a write operation completed.
+         */
+        void writeComplete(int res, int data) {
+            // NOOP
+        }
+
+        /**
+         * Called once a poll for {@code POLLOUT} completed.
+         */
+        void pollOutComplete(int res) {
+            // NOOP
+        }
+
+        /**
+         * Called once auto read was switched off and no read is pending.
+         */
+        void autoReadCleared() {
+            // NOOP
+        }
+
+        /**
+         * Hands over the resources the operations of the current registration use, as the channel is deregistered.
+         * The returned {@link Runnable} is run once the operations completed and the resources can be released
+         * safely.
+         */
+        Runnable detach() {
+            return NOOP;
+        }
+
+        /**
+         * Counts an operation which was submitted with {@link #userData(byte, int)}.
+         */
+        final void submitted() {
+            pendingOps++;
+        }
+
+        final void submitRead0() {
+            try {
+                submitRead();
+                readSubmitted = true;
+            } catch (IOException e) {
+                pipeline().fireExceptionCaught(e);
+                close(voidPromise());
+            }
+        }
+
+        /**
+         * Submits the next read if the channel is still interested in reading.
+         */
+        final void readFinally() {
+            // Check if there is a readPending which was not processed yet.
+            // This could be for two reasons:
+            // * The user called Channel.read() or ChannelHandlerContext.read() in channelRead(...) method
+            // * The user called Channel.read() or ChannelHandlerContext.read() in channelReadComplete(...) method
+            //
+            // See https://github.com/netty/netty/issues/2254
+            if (!readSubmitted && isOpen() && isRegistered() && !fd().isInputShutdown() &&
+                    (readPending || config().isAutoRead())) {
+                submitRead0();
+            }
+        }
+
+        final void completed(byte op, int data, int res, int flags) {
+            if ((flags & Native.IORING_CQE_F_MORE) == 0) {
+                pendingOps--;
+            }
+            switch (op) {
+            case Native.IORING_OP_RECV:
+            case Native.IORING_OP_RECVMSG:
+            case Native.IORING_OP_ACCEPT:
+                readComplete(res, flags, data);
+                break;
+            case Native.IORING_OP_SEND:
+            case Native.IORING_OP_SENDMSG:
+                writeComplete(res, data);
+                break;
+            case Native.IORING_OP_POLL_ADD:
+                pollOutComplete(res);
+                break;
+            default:
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,580 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelOutboundBuffer.MessageProcessor;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.ConnectTimeoutException;
+import io.netty.channel.EventLoop;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.socket.ChannelInputShutdownEvent;
+import io.netty.channel.socket.DuplexChannel;
+import io.netty.channel.unix.Socket;
+import io.netty.util.internal.EmptyArrays;
+import io.netty.util.internal.OneTimeTask;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.channel.unix.Errors.newIOException;
+
+abstract class AbstractIOUringStreamChannel extends AbstractIOUringChannel implements DuplexChannel {
+
+    private static final String EXPECTED_TYPES =
+            " (expected: " + StringUtil.simpleClassName(ByteBuf.class) + ')';
+    static final ClosedChannelException CLOSED_CHANNEL_EXCEPTION = new ClosedChannelException();
+    // The maximal number of sends which are linked into one chain.
+    private static final int MAX_LINKED_SENDS = 64;
+
+    static {
+        CLOSED_CHANNEL_EXCEPTION.setStackTrace(EmptyArrays.EMPTY_STACK_TRACE);
+    }
+
+    /**
+     * The future of the current connection attempt.  If not null, subsequent
+     * connection attempts will fail.
+     */
+    private ChannelPromise connectPromise;
+    private ScheduledFuture<?> connectTimeoutFuture;
+    private SocketAddress requestedRemoteAddress;
+
+    // The sends of the chain which is in flight, and the buffers they were submitted from.
+    private final long[] sendAddresses = new long[MAX_LINKED_SENDS];
+    private final int[] sendLengths = new int[MAX_LINKED_SENDS];
+    private ByteBuf[] writeBuffers = new ByteBuf[MAX_LINKED_SENDS];
+    private int sendCount;
+    private int sendLimit;
+    private int writeBufferCount;
+    private int writesPending;
+    private long writtenBytes;
+    private int writeError;
+
+    private final MessageProcessor sendCollector = new MessageProcessor() {
+        @Override
+        public boolean processMessage(Object msg) throws Exception {
+            return addSends((ByteBuf) msg);
+        }
+    };
+
+    AbstractIOUringStreamChannel(Channel parent, Socket fd) {
+        super(parent, fd, true);
+    }
+
+    AbstractIOUringStreamChannel(Socket fd, boolean active) {
+        super(null, fd, active);
+    }
+
+    @Override
+    protected AbstractIOUringUnsafe newUnsafe() {
+        return new IOUringStreamUnsafe();
+    }
+
+    /**
+     * Adds the sends for the given buffer, or returns {@code false} if they do not fit into the current chain.
+     */
+    private boolean addSends(ByteBuf buf) {
+        final int readableBytes = buf.readableBytes();
+        if (readableBytes == 0) {
+            return true;
+        }
+        if (buf.hasMemoryAddress()) {
+            if (sendCount == sendLimit) {
+                return false;
+            }
+            sendAddresses[sendCount] = buf.memoryAddress() + buf.readerIndex();
+            sendLengths[sendCount++] = readableBytes;
+        } else {
+            // A direct CompositeByteBuf, see filterOutboundMessage(...).
+            if (sendCount + buf.nioBufferCount() > sendLimit) {
+                return false;
+            }
+            for (ByteBuffer nioBuffer: buf.nioBuffers()) {
+                int length = nioBuffer.remaining();
+                if (length != 0) {
+                    sendAddresses[sendCount] = PlatformDependent.directBufferAddress(nioBuffer) + nioBuffer.position();
+                    sendLengths[sendCount++] = length;
+                }
+            }
+        }
+        // Keep the buffer alive until the kernel is done with it, even if the channel is closed in the meantime.
+        writeBuffers[writeBufferCount++] = buf.retain();
+        return true;
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        if (writesPending != 0) {
+            // The completion of the chain which is in flight will flush again.
+            return;
+        }
+        if (writeError != 0) {
+            int error = writeError;
+            writeError = 0;
+            throw newIOException("send", error);
+        }
+
+        // Submit the whole chain at once, as the link is broken at the end of a submission.
+        final IOUringSubmissionQueue submissionQueue = submissionQueue();
+        submissionQueue.ensureCapacity(Math.min(MAX_LINKED_SENDS, submissionQueue.capacity()));
+        sendLimit = Math.min(MAX_LINKED_SENDS, submissionQueue.remaining());
+
+        in.forEachFlushedMessage(sendCollector);
+        final int cnt = sendCount;
+        if (cnt == 0) {
+            // The outbound buffer contained empty buffers only.
+            releaseWriteBuffers();
+            in.removeBytes(0);
+            return;
+        }
+
+        final AbstractIOUringUnsafe unsafe = (AbstractIOUringUnsafe) unsafe();
+        final int fd = fd().intValue();
+        for (int i = 0; i < cnt; i++) {
+            // A failed or short send cancels the rest of the chain, so the data is never sent out of order.
+            submissionQueue.addSend(fd, sendAddresses[i], sendLengths[i], i < cnt - 1,
+                    userData(Native.IORING_OP_SEND, i));
+            unsafe.submitted();
+            writesPending++;
+        }
+        sendCount = 0;
+        submissionQueue.submit();
+    }
+
+    private void releaseWriteBuffers() {
+        for (int i = 0; i < writeBufferCount; i++) {
+            writeBuffers[i].release();
+            writeBuffers[i] = null;
+        }
+        writeBufferCount = 0;
+        sendCount = 0;
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) {
+        if (msg instanceof ByteBuf) {
+            ByteBuf buf = (ByteBuf) msg;
+            if (!buf.hasMemoryAddress()) {
+                if (buf instanceof CompositeByteBuf) {
+                    // Special handling of CompositeByteBuf to reduce memory copies if all of the Components
+                    // in the CompositeByteBuf are direct, as each one is sent on its own.
+                    CompositeByteBuf comp = (CompositeByteBuf) buf;
+                    if (!comp.isDirect() || comp.nioBufferCount() > MAX_LINKED_SENDS) {
+                        buf = newDirectBuffer(buf);
+                        assert buf.hasMemoryAddress();
+                    }
+                } else {
+                    // We can only handle buffers with memory address so we need to copy if a non direct is
+                    // passed to write.
+                    buf = newDirectBuffer(buf);
+                    assert buf.hasMemoryAddress();
+                }
+            }
+            return buf;
+        }
+
+        throw new UnsupportedOperationException(
+                "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
+    }
+
+    protected void shutdownOutput0(final ChannelPromise promise) {
+        try {
+            fd().shutdown(false, true);
+            promise.setSuccess();
+        } catch (Throwable cause) {
+            promise.setFailure(cause);
+        }
+    }
+
+    @Override
+    public boolean isInputShutdown() {
+        return fd().isInputShutdown();
+    }
+
+    @Override
+    public boolean isOutputShutdown() {
+        return fd().isOutputShutdown();
+    }
+
+    @Override
+    public ChannelFuture shutdownOutput() {
+        return shutdownOutput(newPromise());
+    }
+
+    @Override
+    public ChannelFuture shutdownOutput(final ChannelPromise promise) {
+        EventLoop loop = eventLoop();
+        if (loop.inEventLoop()) {
+            shutdownOutput0(promise);
+        } else {
+            loop.execute(new OneTimeTask() {
+                @Override
+                public void run() {
+                    shutdownOutput0(promise);
+                }
+            });
+        }
+        return promise;
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        ChannelPromise promise = connectPromise;
+        if (promise != null) {
+            // Use tryFailure() instead of setFailure() to avoid the race against cancel().
+            promise.tryFailure(CLOSED_CHANNEL_EXCEPTION);
+            connectPromise = null;
+        }
+
+        ScheduledFuture<?> future = connectTimeoutFuture;
+        if (future != null) {
+            future.cancel(false);
+            connectTimeoutFuture = null;
+        }
+        super.doClose();
+    }
+
+    /**
+     * Connect to the remote peer
+     */
+    protected boolean doConnect(SocketAddress remoteAddress, SocketAddress localAddress) throws Exception {
+        if (localAddress != null) {
+            fd().bind(localAddress);
+        }
+
+        boolean success = false;
+        try {
+            boolean connected = fd().connect(remoteAddress);
+            if (!connected) {
+                submitPollOut();
+            }
+            success = true;
+            return connected;
+        } finally {
+            if (!success) {
+                doClose();
+            }
+        }
+    }
+
+    private void submitPollOut() throws IOException {
+        submissionQueue().addPollOut(fd().intValue(), userData(Native.IORING_OP_POLL_ADD, 0));
+        ((AbstractIOUringUnsafe) unsafe()).submitted();
+    }
+
+    class IOUringStreamUnsafe extends AbstractIOUringUnsafe {
+        private ByteBuf readBuffer;
+        // Set once the kernel ran out of provided buffers, so the next receive brings its own buffer.
+        private boolean providedBuffersExhausted;
+
+        @Override
+        void submitRead() throws IOException {
+            final IOUringEventLoop loop = ioUringEventLoop();
+            final ProvidedBufferPool bufferPool = loop.bufferPool();
+            if (bufferPool != null && !providedBuffersExhausted) {
+                loop.submissionQueue().addRecvSelectBuffer(
+                        fd().intValue(), bufferPool.group(), userData(Native.IORING_OP_RECV, 0));
+            } else {
+                providedBuffersExhausted = false;
+                ByteBuf byteBuf = allocateReceiveBuffer();
+                try {
+                    recvBufAllocHandle().attemptedBytesRead(byteBuf.writableBytes());
+                    loop.submissionQueue().addRecv(fd().intValue(), byteBuf.memoryAddress() + byteBuf.writerIndex(),
+                            byteBuf.writableBytes(), userData(Native.IORING_OP_RECV, 0));
+                } catch (IOException e) {
+                    byteBuf.release();
+                    throw e;
+                }
+                readBuffer = byteBuf;
+            }
+            submitted();
+        }
+
+        @Override
+        void readComplete(int res, int flags, int data) {
+            assert eventLoop().inEventLoop();
+            readSubmitted = false;
+
+            ByteBuf byteBuf = readBuffer;
+            readBuffer = null;
+            if ((flags & Native.IORING_CQE_F_BUFFER) != 0) {
+                if (res > 0) {
+                    byteBuf = ioUringEventLoop().takeProvidedBuffer(flags, res);
+                } else {
+                    ioUringEventLoop().recycleProvidedBuffer(flags);
+                }
+            } else if (byteBuf != null && res > 0) {
+                byteBuf.writerIndex(byteBuf.writerIndex() + res);
+            }
+
+            final ChannelPipeline pipeline = pipeline();
+            try {
+                if (res == Native.ERRNO_ENOBUFS_NEGATIVE) {
+                    // No provided buffer was left, try again with an allocated one.
+                    providedBuffersExhausted = true;
+                    return;
+                }
+                if (res == Native.ERRNO_ECANCELED_NEGATIVE) {
+                    return;
+                }
+                readPending = false;
+                final RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+                allocHandle.reset(config());
+                if (res > 0) {
+                    allocHandle.lastBytesRead(res);
+                    allocHandle.incMessagesRead(1);
+                    pipeline.fireChannelRead(byteBuf);
+                    byteBuf = null;
+                    allocHandle.readComplete();
+                    pipeline.fireChannelReadComplete();
+                } else if (res == 0) {
+                    allocHandle.readComplete();
+                    shutdownInput();
+                } else {
+                    allocHandle.readComplete();
+                    pipeline.fireExceptionCaught(newIOException("recv", res));
+                    shutdownInput();
+                }
+            } finally {
+                if (byteBuf != null) {
+                    byteBuf.release();
+                }
+                readFinally();
+            }
+        }
+
+        /**
+         * Shutdown the input side of the channel.
+         */
+        void shutdownInput() {
+            if (!fd().isInputShutdown()) {
+                if (Boolean.TRUE.equals(config().getOption(ChannelOption.ALLOW_HALF_CLOSURE))) {
+                    try {
+                        fd().shutdown(true, false);
+                        pipeline().fireUserEventTriggered(ChannelInputShutdownEvent.INSTANCE);
+                    } catch (IOException ignored) {
+                        // We attempted to shutdown and failed, which means the input has already effectively been
+                        // shutdown.
+                        pipeline().fireUserEventTriggered(ChannelInputShutdownEvent.INSTANCE);
+                        close(voidPromise());
+                    }
+                } else {
+                    close(voidPromise());
+                }
+            }
+        }
+
+        @Override
+        void writeComplete(int res, int data) {
+            if (res >= 0) {
+                writtenBytes += res;
+            } else if (res != Native.ERRNO_ECANCELED_NEGATIVE && writeError == 0) {
+                writeError = res;
+            }
+            if (--writesPending != 0) {
+                return;
+            }
+
+            releaseWriteBuffers();
+            long written = writtenBytes;
+            writtenBytes = 0;
+            ChannelOutboundBuffer in = outboundBuffer();
+            if (in == null) {
+                // The channel was closed in the meantime.
+                writeError = 0;
+                return;
+            }
+            in.removeBytes(written);
+            if (in.isEmpty()) {
+                writeError = 0;
+            } else {
+                // Write what was flushed in the meantime, or fail the rest if the send failed.
+                flush0();
+            }
+        }
+
+        @Override
+        Runnable detach() {
+            final ByteBuf readBuffer = this.readBuffer;
+            final ByteBuf[] writeBuffers = AbstractIOUringStreamChannel.this.writeBuffers;
+            final int writeBufferCount = AbstractIOUringStreamChannel.this.writeBufferCount;
+            this.readBuffer = null;
+            AbstractIOUringStreamChannel.this.writeBuffers = new ByteBuf[MAX_LINKED_SENDS];
+            AbstractIOUringStreamChannel.this.writeBufferCount = 0;
+            writesPending = 0;
+            writtenBytes = 0;
+            return new Runnable() {
+                @Override
+                public void run() {
+                    if (readBuffer != null) {
+                        readBuffer.release();
+                    }
+                    for (int i = 0; i < writeBufferCount; i++) {
+                        writeBuffers[i].release();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public void connect(
+                final SocketAddress remoteAddress, final SocketAddress localAddress, final ChannelPromise promise) {
+            if (!promise.setUncancellable() || !ensureOpen(promise)) {
+                return;
+            }
+
+            try {
+                if (connectPromise != null) {
+                    throw new IllegalStateException("connection attempt already made");
+                }
+
+                boolean wasActive = isActive();
+                if (doConnect(remoteAddress, localAddress)) {
+                    fulfillConnectPromise(promise, wasActive);
+                } else {
+                    connectPromise = promise;
+                    requestedRemoteAddress = remoteAddress;
+
+                    // Schedule connect timeout.
+                    int connectTimeoutMillis = config().getConnectTimeoutMillis();
+                    if (connectTimeoutMillis > 0) {
+                        connectTimeoutFuture = eventLoop().schedule(new OneTimeTask() {
+                            @Override
+                            public void run() {
+                                ChannelPromise connectPromise = AbstractIOUringStreamChannel.this.connectPromise;
+                                ConnectTimeoutException cause =
+                                        new ConnectTimeoutException("connection timed out: " + remoteAddress);
+                                if (connectPromise != null && connectPromise.tryFailure(cause)) {
+                                    close(voidPromise());
+                                }
+                            }
+                        }, connectTimeoutMillis, TimeUnit.MILLISECONDS);
+                    }
+
+                    promise.addListener(new ChannelFutureListener() {
+                        @Override
+                        public void operationComplete(ChannelFuture future) throws Exception {
+                            if (future.isCancelled()) {
+                                if (connectTimeoutFuture != null) {
+                                    connectTimeoutFuture.cancel(false);
+                                }
+                                connectPromise = null;
+                                close(voidPromise());
+                            }
+                        }
+                    });
+                }
+            } catch (Throwable t) {
+                closeIfClosed();
+                promise.tryFailure(annotateConnectException(t, remoteAddress));
+            }
+        }
+
+        private void fulfillConnectPromise(ChannelPromise promise, boolean wasActive) {
+            if (promise == null) {
+                // Closed via cancellation and the promise has been notified already.
+                return;
+            }
+            active = true;
+
+            // trySuccess() will return false if a user cancelled the connection attempt.
+            boolean promiseSet = promise.trySuccess();
+
+            // Regardless if the connection attempt was cancelled, channelActive() event should be triggered,
+            // because what happened is what happened.
+            if (!wasActive && isActive()) {
+                pipeline().fireChannelActive();
+            }
+
+            // If a user cancelled the connection attempt, close the channel, which is followed by channelInactive().
+            if (!promiseSet) {
+                close(voidPromise());
+            }
+        }
+
+        private void fulfillConnectPromise(ChannelPromise promise, Throwable cause) {
+            if (promise == null) {
+                // Closed via cancellation and the promise has been notified already.
+                return;
+            }
+
+            // Use tryFailure() instead of setFailure() to avoid the race against cancel().
+            promise.tryFailure(cause);
+            closeIfClosed();
+        }
+
+        private void finishConnect() {
+            // Note this method is invoked by the event loop only if the connection attempt was
+            // neither cancelled nor timed out.
+
+            assert eventLoop().inEventLoop();
+
+            boolean connectStillInProgress = false;
+            try {
+                boolean wasActive = isActive();
+                if (!doFinishConnect()) {
+                    connectStillInProgress = true;
+                    return;
+                }
+                fulfillConnectPromise(connectPromise, wasActive);
+            } catch (Throwable t) {
+                fulfillConnectPromise(connectPromise, annotateConnectException(t, requestedRemoteAddress));
+            } finally {
+                if (!connectStillInProgress) {
+                    // Check for null as the connectTimeoutFuture is only created if a connectTimeoutMillis > 0 is used
+                    // See https://github.com/netty/netty/issues/1770
+                    if (connectTimeoutFuture != null) {
+                        connectTimeoutFuture.cancel(false);
+                    }
+                    connectPromise = null;
+                }
+            }
+        }
+
+        @Override
+        void pollOutComplete(int res) {
+            if (connectPromise != null) {
+                // pending connect which is now complete so handle it.
+                finishConnect();
+            }
+        }
+
+        /**
+         * Finish the connect
+         */
+        boolean doFinishConnect() throws Exception {
+            if (fd().finishConnect()) {
+                return true;
+            }
+            submitPollOut();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel.uring;
+
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * Tells if <a href="http://netty.io/wiki/native-transports.html">{@code netty-transport-native-io_uring}</a> is
+ * supported. This needs at least Linux 5.19, as older kernels miss multishot accept and do not retry short sends
+ * of a linked write chain.
+ */
+public final class IOUring {
+
+    private static final Throwable UNAVAILABILITY_CAUSE;
+
+    static  {
+        Throwable cause = null;
+        RingBuffer ringBuffer = null;
+        try {
+            ringBuffer = Native.createRingBuffer(8);
+            if (!ringBuffer.hasFeatures(Native.IORING_FEAT_NODROP | Native.IORING_FEAT_FAST_POLL |
+                    Native.IORING_FEAT_EXT_ARG | Native.IORING_FEAT_CQE_SKIP)) {
+                cause = new UnsupportedOperationException("io_uring features missing, Linux 5.19+ is required");
+            } else if (!Native.isSupported(ringBuffer.fd(), Native.IORING_OP_POLL_ADD, Native.IORING_OP_SENDMSG,
+                    Native.IORING_OP_RECVMSG, Native.IORING_OP_ACCEPT, Native.IORING_OP_ASYNC_CANCEL,
+                    Native.IORING_OP_READ, Native.IORING_OP_SEND, Native.IORING_OP_RECV,
+                    Native.IORING_OP_PROVIDE_BUFFERS, Native.IORING_OP_SOCKET)) {
+                // IORING_OP_SOCKET is not used, but was added in the same release as multishot accept.
+                cause = new UnsupportedOperationException("io_uring operations missing, Linux 5.19+ is required");
+            } else if (Native.SIZEOF_MSGHDR != 56 || Native.SIZEOF_IOVEC != 16) {
+                // MsgHdrMemoryArray uses the struct layout of 64-bit linux.
+                cause = new UnsupportedOperationException("only 64-bit linux is supported");
+            }
+        } catch (Throwable t) {
+            cause = t;
+        } finally {
+            if (ringBuffer != null) {
+                try {
+                    ringBuffer.close();
+                } catch (Exception ignore) {
+                    // ignore
+                }
+            }
+        }
+
+        if (cause != null) {
+            UNAVAILABILITY_CAUSE = cause;
+        } else {
+            UNAVAILABILITY_CAUSE = PlatformDependent.hasUnsafe() ? null :
+                    new IllegalStateException("sun.misc.Unsafe not available");
+        }
+    }
+
+    /**
+     * Returns {@code true} if and only if the
+     * <a href="http://netty.io/wiki/native-transports.html">{@code netty-transport-native-io_uring}</a> is
+     * available.
+     */
+    public static boolean isAvailable() {
+        return UNAVAILABILITY_CAUSE == null;
+    }
+
+    /**
+     * Ensure that <a href="http://netty.io/wiki/native-transports.html">{@code netty-transport-native-io_uring}</a>
+     * is available.
+     *
+     * @throws UnsatisfiedLinkError if unavailable
+     */
+    public static void ensureAvailability() {
+        if (UNAVAILABILITY_CAUSE != null) {
+            throw (Error) new UnsatisfiedLinkError(
+                    "failed to load the required native library").initCause(UNAVAILABILITY_CAUSE);
+        }
+    }
+
+    /**
+     * Returns the cause of unavailability of
+     * <a href="http://netty.io/wiki/native-transports.html">{@code netty-transport-native-io_uring}</a>.
+     *
+     * @return the cause if unavailable. {@code null} if available.
+     */
+    public static Throwable unavailabilityCause() {
+        return UNAVAILABILITY_CAUSE;
+    }
+
+    private IOUring() { }
+}
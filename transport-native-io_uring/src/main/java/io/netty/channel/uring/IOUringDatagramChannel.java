@@ -0,0 +1,608 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.AddressedEnvelope;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelOutboundBuffer.MessageProcessor;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultAddressedEnvelope;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.channel.unix.Socket;
+import io.netty.util.internal.StringUtil;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.nio.channels.NotYetConnectedException;
+import java.nio.channels.UnsupportedAddressTypeException;
+
+import static io.netty.channel.unix.Errors.newIOException;
+import static io.netty.channel.unix.Socket.newSocketDgram;
+
+/**
+ * {@link DatagramChannel} implementation that uses linux io_uring for maximal performance.
+ */
+public final class IOUringDatagramChannel extends AbstractIOUringChannel implements DatagramChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(true);
+    private static final String EXPECTED_TYPES =
+            " (expected: " + StringUtil.simpleClassName(DatagramPacket.class) + ", " +
+            StringUtil.simpleClassName(AddressedEnvelope.class) + '<' +
+            StringUtil.simpleClassName(ByteBuf.class) + ", " +
+            StringUtil.simpleClassName(InetSocketAddress.class) + ">, " +
+            StringUtil.simpleClassName(ByteBuf.class) + ')';
+    // The maximal number of datagrams which are in flight at the same time.
+    private static final int MAX_SENDS = 16;
+    // The slot of the msghdr the datagrams are received with, the sends use the slots after it.
+    private static final int RECEIVE_SLOT = 0;
+
+    private volatile InetSocketAddress local;
+    private volatile InetSocketAddress remote;
+    private volatile boolean connected;
+    private final IOUringDatagramChannelConfig config;
+
+    public IOUringDatagramChannel() {
+        super(null, newSocketDgram(), false);
+        config = new IOUringDatagramChannelConfig(this);
+    }
+
+    public IOUringDatagramChannel(Socket fd) {
+        super(null, fd, true);
+        // As we create an IOUringDatagramChannel from a Socket we should try to obtain the local address from it.
+        // This is needed as the Socket may be bound already.
+        local = fd.localAddress();
+        config = new IOUringDatagramChannelConfig(this);
+    }
+
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return (InetSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) super.localAddress();
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public boolean isActive() {
+        return fd().isOpen() &&
+                (config.getOption(ChannelOption.DATAGRAM_CHANNEL_ACTIVE_ON_REGISTRATION) && isRegistered()
+                        || active);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public ChannelFuture joinGroup(InetAddress multicastAddress) {
+        return joinGroup(multicastAddress, newPromise());
+    }
+
+    @Override
+    public ChannelFuture joinGroup(InetAddress multicastAddress, ChannelPromise promise) {
+        try {
+            return joinGroup(
+                    multicastAddress,
+                    NetworkInterface.getByInetAddress(localAddress().getAddress()),
+                    null, promise);
+        } catch (SocketException e) {
+            promise.setFailure(e);
+        }
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture joinGroup(
+            InetSocketAddress multicastAddress, NetworkInterface networkInterface) {
+        return joinGroup(multicastAddress, networkInterface, newPromise());
+    }
+
+    @Override
+    public ChannelFuture joinGroup(
+            InetSocketAddress multicastAddress, NetworkInterface networkInterface,
+            ChannelPromise promise) {
+        return joinGroup(multicastAddress.getAddress(), networkInterface, null, promise);
+    }
+
+    @Override
+    public ChannelFuture joinGroup(
+            InetAddress multicastAddress, NetworkInterface networkInterface, InetAddress source) {
+        return joinGroup(multicastAddress, networkInterface, source, newPromise());
+    }
+
+    @Override
+    public ChannelFuture joinGroup(
+            final InetAddress multicastAddress, final NetworkInterface networkInterface,
+            final InetAddress source, final ChannelPromise promise) {
+
+        if (multicastAddress == null) {
+            throw new NullPointerException("multicastAddress");
+        }
+
+        if (networkInterface == null) {
+            throw new NullPointerException("networkInterface");
+        }
+
+        promise.setFailure(new UnsupportedOperationException("Multicast not supported"));
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(InetAddress multicastAddress) {
+        return leaveGroup(multicastAddress, newPromise());
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(InetAddress multicastAddress, ChannelPromise promise) {
+        try {
+            return leaveGroup(
+                    multicastAddress, NetworkInterface.getByInetAddress(localAddress().getAddress()), null, promise);
+        } catch (SocketException e) {
+            promise.setFailure(e);
+        }
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(
+            InetSocketAddress multicastAddress, NetworkInterface networkInterface) {
+        return leaveGroup(multicastAddress, networkInterface, newPromise());
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(
+            InetSocketAddress multicastAddress,
+            NetworkInterface networkInterface, ChannelPromise promise) {
+        return leaveGroup(multicastAddress.getAddress(), networkInterface, null, promise);
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(
+            InetAddress multicastAddress, NetworkInterface networkInterface, InetAddress source) {
+        return leaveGroup(multicastAddress, networkInterface, source, newPromise());
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(
+            final InetAddress multicastAddress, final NetworkInterface networkInterface, final InetAddress source,
+            final ChannelPromise promise) {
+        if (multicastAddress == null) {
+            throw new NullPointerException("multicastAddress");
+        }
+        if (networkInterface == null) {
+            throw new NullPointerException("networkInterface");
+        }
+
+        promise.setFailure(new UnsupportedOperationException("Multicast not supported"));
+
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture block(
+            InetAddress multicastAddress, NetworkInterface networkInterface,
+            InetAddress sourceToBlock) {
+        return block(multicastAddress, networkInterface, sourceToBlock, newPromise());
+    }
+
+    @Override
+    public ChannelFuture block(
+            final InetAddress multicastAddress, final NetworkInterface networkInterface,
+            final InetAddress sourceToBlock, final ChannelPromise promise) {
+        if (multicastAddress == null) {
+            throw new NullPointerException("multicastAddress");
+        }
+        if (sourceToBlock == null) {
+            throw new NullPointerException("sourceToBlock");
+        }
+
+        if (networkInterface == null) {
+            throw new NullPointerException("networkInterface");
+        }
+        promise.setFailure(new UnsupportedOperationException("Multicast not supported"));
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture block(InetAddress multicastAddress, InetAddress sourceToBlock) {
+        return block(multicastAddress, sourceToBlock, newPromise());
+    }
+
+    @Override
+    public ChannelFuture block(
+            InetAddress multicastAddress, InetAddress sourceToBlock, ChannelPromise promise) {
+        try {
+            return block(
+                    multicastAddress,
+                    NetworkInterface.getByInetAddress(localAddress().getAddress()),
+                    sourceToBlock, promise);
+        } catch (Throwable e) {
+            promise.setFailure(e);
+        }
+        return promise;
+    }
+
+    @Override
+    protected AbstractIOUringUnsafe newUnsafe() {
+        return new IOUringDatagramChannelUnsafe();
+    }
+
+    @Override
+    protected InetSocketAddress localAddress0() {
+        return local;
+    }
+
+    @Override
+    protected InetSocketAddress remoteAddress0() {
+        return remote;
+    }
+
+    @Override
+    protected void doBind(SocketAddress localAddress) throws Exception {
+        InetSocketAddress addr = (InetSocketAddress) localAddress;
+        checkResolvable(addr);
+        fd().bind(addr);
+        local = fd().localAddress();
+        active = true;
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        ((IOUringDatagramChannelUnsafe) unsafe()).submitSends(in);
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) {
+        // The datagrams are sent out of a single iovec, so everything which is not backed by a memory address
+        // is copied.
+        if (msg instanceof DatagramPacket) {
+            DatagramPacket packet = (DatagramPacket) msg;
+            ByteBuf content = packet.content();
+            if (content.hasMemoryAddress()) {
+                return msg;
+            }
+            return new DatagramPacket(newDirectBuffer(packet, content), packet.recipient());
+        }
+
+        if (msg instanceof ByteBuf) {
+            ByteBuf buf = (ByteBuf) msg;
+            if (buf.hasMemoryAddress()) {
+                return buf;
+            }
+            return newDirectBuffer(buf);
+        }
+
+        if (msg instanceof AddressedEnvelope) {
+            @SuppressWarnings("unchecked")
+            AddressedEnvelope<Object, SocketAddress> e = (AddressedEnvelope<Object, SocketAddress>) msg;
+            if (e.content() instanceof ByteBuf &&
+                (e.recipient() == null || e.recipient() instanceof InetSocketAddress)) {
+
+                ByteBuf content = (ByteBuf) e.content();
+                if (content.hasMemoryAddress()) {
+                    return e;
+                }
+                return new DefaultAddressedEnvelope<ByteBuf, InetSocketAddress>(
+                        newDirectBuffer(e, content), (InetSocketAddress) e.recipient());
+            }
+        }
+
+        throw new UnsupportedOperationException(
+                "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
+    }
+
+    @Override
+    public IOUringDatagramChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    protected void doDisconnect() throws Exception {
+        connected = false;
+    }
+
+    final class IOUringDatagramChannelUnsafe extends AbstractIOUringUnsafe {
+        // Allocated on first use, as the socket address family is only known once the socket exists.
+        private MsgHdrMemoryArray msgHdrs;
+        private ByteBuf readBuffer;
+
+        // The datagrams which are in flight, and the results of the sends which completed already.
+        private ByteBuf[] sendBuffers = new ByteBuf[MAX_SENDS];
+        private final int[] sendResults = new int[MAX_SENDS];
+        private int sendCount;
+        private int writesPending;
+        // The reason why the message at which the collection of datagrams stopped can not be sent.
+        private Exception sendFailure;
+
+        private final MessageProcessor sendCollector = new MessageProcessor() {
+            @Override
+            public boolean processMessage(Object msg) throws Exception {
+                return addSend(msg);
+            }
+        };
+
+        private MsgHdrMemoryArray msgHdrs() throws IOException {
+            MsgHdrMemoryArray msgHdrs = this.msgHdrs;
+            if (msgHdrs == null) {
+                this.msgHdrs = msgHdrs = new MsgHdrMemoryArray(MAX_SENDS + 1, Native.isIPv6(fd().intValue()));
+            }
+            return msgHdrs;
+        }
+
+        @Override
+        public void connect(SocketAddress remote, SocketAddress local, ChannelPromise channelPromise) {
+            boolean success = false;
+            try {
+                try {
+                    boolean wasActive = isActive();
+                    InetSocketAddress remoteAddress = (InetSocketAddress) remote;
+                    if (local != null) {
+                        InetSocketAddress localAddress = (InetSocketAddress) local;
+                        doBind(localAddress);
+                    }
+
+                    checkResolvable(remoteAddress);
+                    IOUringDatagramChannel.this.remote = remoteAddress;
+                    IOUringDatagramChannel.this.local = fd().localAddress();
+                    success = true;
+
+                    // First notify the promise before notifying the handler.
+                    channelPromise.trySuccess();
+
+                    // Regardless if the connection attempt was cancelled, channelActive() event should be triggered,
+                    // because what happened is what happened.
+                    if (!wasActive && isActive()) {
+                        pipeline().fireChannelActive();
+                    }
+                } finally {
+                    if (!success) {
+                        doClose();
+                    } else {
+                        connected = true;
+                    }
+                }
+            } catch (Throwable cause) {
+                channelPromise.tryFailure(cause);
+            }
+        }
+
+        @Override
+        void submitRead() throws IOException {
+            MsgHdrMemoryArray msgHdrs = msgHdrs();
+            ByteBuf byteBuf = allocateReceiveBuffer();
+            try {
+                recvBufAllocHandle().attemptedBytesRead(byteBuf.writableBytes());
+                msgHdrs.setReceive(RECEIVE_SLOT, byteBuf.memoryAddress() + byteBuf.writerIndex(),
+                        byteBuf.writableBytes());
+                submissionQueue().addRecvmsg(fd().intValue(), msgHdrs.msgHdrAddress(RECEIVE_SLOT),
+                        userData(Native.IORING_OP_RECVMSG, RECEIVE_SLOT));
+            } catch (IOException e) {
+                byteBuf.release();
+                throw e;
+            }
+            readBuffer = byteBuf;
+            submitted();
+        }
+
+        @Override
+        void readComplete(int res, int flags, int data) {
+            assert eventLoop().inEventLoop();
+            readSubmitted = false;
+
+            ByteBuf byteBuf = readBuffer;
+            readBuffer = null;
+            final ChannelPipeline pipeline = pipeline();
+            try {
+                if (res == Native.ERRNO_ECANCELED_NEGATIVE) {
+                    return;
+                }
+                readPending = false;
+                final RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+                allocHandle.reset(config());
+                if (res >= 0) {
+                    byteBuf.writerIndex(byteBuf.writerIndex() + res);
+                    allocHandle.lastBytesRead(res);
+                    allocHandle.incMessagesRead(1);
+                    DatagramPacket packet = new DatagramPacket(
+                            byteBuf, (InetSocketAddress) localAddress(), msgHdrs.sender(RECEIVE_SLOT));
+                    byteBuf = null;
+                    pipeline.fireChannelRead(packet);
+                    allocHandle.readComplete();
+                    pipeline.fireChannelReadComplete();
+                } else {
+                    allocHandle.readComplete();
+                    // Continue reading on errors as a DatagramChannel can receive from multiple remote peers.
+                    pipeline.fireExceptionCaught(newIOException("recvmsg", res));
+                }
+            } finally {
+                if (byteBuf != null) {
+                    byteBuf.release();
+                }
+                readFinally();
+            }
+        }
+
+        /**
+         * Submits a {@code sendmsg} for each of the flushed datagrams, up to {@link #MAX_SENDS} at once. The
+         * datagrams are removed from the {@link ChannelOutboundBuffer} once all of the sends completed.
+         */
+        void submitSends(ChannelOutboundBuffer in) throws Exception {
+            if (writesPending != 0) {
+                // Wait until the sends which are in flight completed.
+                return;
+            }
+            final IOUringSubmissionQueue sq = submissionQueue();
+            sq.ensureCapacity(MAX_SENDS);
+            for (;;) {
+                if (in.current() == null) {
+                    // Wrote all messages.
+                    return;
+                }
+                sendCount = 0;
+                in.forEachFlushedMessage(sendCollector);
+                if (sendCount != 0) {
+                    break;
+                }
+                // The first message can not be sent, which is not a failure for an empty datagram.
+                Exception failure = sendFailure;
+                sendFailure = null;
+                if (failure == null) {
+                    in.remove();
+                } else {
+                    // Continue on write error as a DatagramChannel can write to multiple remote peers
+                    //
+                    // See https://github.com/netty/netty/issues/2665
+                    in.remove(failure);
+                }
+            }
+            sendFailure = null;
+
+            final int fd = fd().intValue();
+            for (int i = 0; i < sendCount; i++) {
+                sq.addSendmsg(fd, msgHdrs.msgHdrAddress(RECEIVE_SLOT + 1 + i), userData(Native.IORING_OP_SENDMSG, i));
+                submitted();
+                writesPending++;
+            }
+            sq.submit();
+        }
+
+        /**
+         * Prepares the send of the given message, or returns {@code false} if it must be handled on its own.
+         */
+        private boolean addSend(Object msg) throws IOException {
+            if (sendCount == MAX_SENDS) {
+                return false;
+            }
+            final ByteBuf data;
+            InetSocketAddress recipient;
+            if (msg instanceof AddressedEnvelope) {
+                @SuppressWarnings("unchecked")
+                AddressedEnvelope<ByteBuf, InetSocketAddress> envelope =
+                        (AddressedEnvelope<ByteBuf, InetSocketAddress>) msg;
+                data = envelope.content();
+                recipient = envelope.recipient();
+            } else {
+                data = (ByteBuf) msg;
+                recipient = null;
+            }
+            if (!data.isReadable()) {
+                return false;
+            }
+            if (recipient == null) {
+                recipient = remote;
+                if (recipient == null) {
+                    sendFailure = new NotYetConnectedException();
+                    return false;
+                }
+            }
+            try {
+                msgHdrs().setSend(RECEIVE_SLOT + 1 + sendCount, data.memoryAddress() + data.readerIndex(),
+                        data.readableBytes(), recipient);
+            } catch (UnsupportedAddressTypeException e) {
+                sendFailure = e;
+                return false;
+            }
+            sendBuffers[sendCount++] = data.retain();
+            return true;
+        }
+
+        @Override
+        void writeComplete(int res, int data) {
+            sendResults[data] = res;
+            if (--writesPending != 0) {
+                return;
+            }
+
+            final ChannelOutboundBuffer in = outboundBuffer();
+            final int sendCount = this.sendCount;
+            this.sendCount = 0;
+            for (int i = 0; i < sendCount; i++) {
+                sendBuffers[i].release();
+                sendBuffers[i] = null;
+                if (in == null) {
+                    // The channel was closed in the meantime.
+                    continue;
+                }
+                // Remove the writes which were cancelled before they were flushed, as they were not collected.
+                Object msg = in.current();
+                while (msg instanceof ByteBuf && !((ByteBuf) msg).isReadable()) {
+                    in.remove();
+                    msg = in.current();
+                }
+                res = sendResults[i];
+                if (res >= 0) {
+                    in.remove();
+                } else {
+                    // Continue on write error as a DatagramChannel can write to multiple remote peers
+                    //
+                    // See https://github.com/netty/netty/issues/2665
+                    in.remove(newIOException("sendmsg", res));
+                }
+            }
+            if (in != null && !in.isEmpty()) {
+                // Write what was flushed in the meantime.
+                flush0();
+            }
+        }
+
+        @Override
+        Runnable detach() {
+            final MsgHdrMemoryArray msgHdrs = this.msgHdrs;
+            final ByteBuf readBuffer = this.readBuffer;
+            final ByteBuf[] sendBuffers = this.sendBuffers;
+            final int sendCount = this.sendCount;
+            this.msgHdrs = null;
+            this.readBuffer = null;
+            this.sendBuffers = new ByteBuf[MAX_SENDS];
+            this.sendCount = 0;
+            writesPending = 0;
+            return new Runnable() {
+                @Override
+                public void run() {
+                    if (readBuffer != null) {
+                        readBuffer.release();
+                    }
+                    for (int i = 0; i < sendCount; i++) {
+                        sendBuffers[i].release();
+                    }
+                    if (msgHdrs != null) {
+                        msgHdrs.release();
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,390 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SingleThreadEventLoop;
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.channel.uring.IOUringCompletionQueue.CompletionCallback;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * {@link EventLoop} which uses io_uring under the covers. Only works on Linux!
+ */
+final class IOUringEventLoop extends SingleThreadEventLoop implements CompletionCallback {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(IOUringEventLoop.class);
+    private static final AtomicIntegerFieldUpdater<IOUringEventLoop> WAKEN_UP_UPDATER;
+
+    static {
+        AtomicIntegerFieldUpdater<IOUringEventLoop> updater =
+                PlatformDependent.newAtomicIntegerFieldUpdater(IOUringEventLoop.class, "wakenUp");
+        if (updater == null) {
+            updater = AtomicIntegerFieldUpdater.newUpdater(IOUringEventLoop.class, "wakenUp");
+        }
+        WAKEN_UP_UPDATER = updater;
+    }
+
+    // The registration id used for the operations which are owned by the event loop itself.
+    private static final int LOOP_ID = 0;
+    private static final int PROVIDED_BUFFER_GROUP = 1;
+    private static final long CLEANUP_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final RingBuffer ringBuffer;
+    private final FileDescriptor eventFd;
+    private final long eventFdBuffer;
+    private final ProvidedBufferPool bufferPool;
+    private final IntObjectMap<AbstractIOUringChannel> channels =
+            new IntObjectHashMap<AbstractIOUringChannel>(4096);
+    // Registrations of channels which were removed while operations were still in flight.
+    private final IntObjectMap<PendingRelease> draining = new IntObjectHashMap<PendingRelease>();
+
+    private int nextId = LOOP_ID;
+    private boolean eventFdReadPending;
+
+    private volatile int wakenUp;
+    private volatile int ioRatio = 50;
+
+    IOUringEventLoop(EventLoopGroup parent, Executor executor, int ringSize, int providedBufferCount,
+                     int providedBufferSize) {
+        super(parent, executor, false);
+        boolean success = false;
+        RingBuffer ringBuffer = null;
+        FileDescriptor eventFd = null;
+        try {
+            this.ringBuffer = ringBuffer = Native.createRingBuffer(ringSize);
+            this.eventFd = eventFd = io.netty.channel.epoll.Native.newEventFd();
+            success = true;
+        } finally {
+            if (!success) {
+                if (ringBuffer != null) {
+                    try {
+                        ringBuffer.close();
+                    } catch (Exception e) {
+                        // ignore
+                    }
+                }
+                if (eventFd != null) {
+                    try {
+                        eventFd.close();
+                    } catch (Exception e) {
+                        // ignore
+                    }
+                }
+            }
+        }
+        eventFdBuffer = PlatformDependent.allocateMemory(8);
+        bufferPool = providedBufferCount == 0 ? null :
+                new ProvidedBufferPool(PROVIDED_BUFFER_GROUP, providedBufferCount, providedBufferSize);
+    }
+
+    static long userData(int id, byte op, int data) {
+        return (long) id << 32 | (op & 0xFF) << 16 | data & 0xFFFF;
+    }
+
+    IOUringSubmissionQueue submissionQueue() {
+        return ringBuffer.submissionQueue();
+    }
+
+    /**
+     * Returns the pool of buffers which were provided to the kernel, or {@code null} if provided buffers are
+     * disabled.
+     */
+    ProvidedBufferPool bufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Takes the provided buffer which was selected for a completed receive.
+     */
+    ByteBuf takeProvidedBuffer(int flags, int length) {
+        return bufferPool.take(submissionQueue(), flags >>> Native.IORING_CQE_BUFFER_SHIFT, length,
+                userData(LOOP_ID, Native.IORING_OP_PROVIDE_BUFFERS, flags >>> Native.IORING_CQE_BUFFER_SHIFT));
+    }
+
+    /**
+     * Provides the buffer which was selected for a receive that will not be used again.
+     */
+    void recycleProvidedBuffer(int flags) {
+        int bufferId = flags >>> Native.IORING_CQE_BUFFER_SHIFT;
+        bufferPool.recycle(submissionQueue(), bufferId,
+                userData(LOOP_ID, Native.IORING_OP_PROVIDE_BUFFERS, bufferId));
+    }
+
+    @Override
+    protected void wakeup(boolean inEventLoop) {
+        if (!inEventLoop && WAKEN_UP_UPDATER.compareAndSet(this, 0, 1)) {
+            // write to the evfd which will then complete the pending read and so wake-up io_uring_enter(...)
+            io.netty.channel.epoll.Native.eventFdWrite(eventFd.intValue(), 1L);
+        }
+    }
+
+    /**
+     * Register the given channel with this {@link EventLoop} and return the id its operations must be submitted
+     * with.
+     */
+    int add(AbstractIOUringChannel ch) {
+        assert inEventLoop();
+        int id;
+        do {
+            id = ++nextId;
+        } while (id == LOOP_ID || channels.containsKey(id) || draining.containsKey(id));
+        channels.put(id, ch);
+        return id;
+    }
+
+    /**
+     * Deregister the channel with the given id from this {@link EventLoop}. All its operations are cancelled and
+     * {@code release} is run once the last of the {@code pendingOps} completed, so it is safe to release the memory
+     * the kernel may still access.
+     */
+    void remove(int id, int pendingOps, Runnable release) throws IOException {
+        assert inEventLoop();
+        AbstractIOUringChannel ch = channels.remove(id);
+        if (ch == null) {
+            return;
+        }
+        if (pendingOps == 0) {
+            release.run();
+            return;
+        }
+        draining.put(id, new PendingRelease(pendingOps, release));
+        if (ch.isOpen()) {
+            cancel(ch.fd().intValue());
+            // Submit directly as the file descriptor may be closed next.
+            submissionQueue().submit();
+        }
+    }
+
+    /**
+     * Cancels all pending operations of the given file descriptor, which then complete with {@code ECANCELED}.
+     */
+    void cancel(int fd) throws IOException {
+        submissionQueue().addCancel(fd, userData(LOOP_ID, Native.IORING_OP_ASYNC_CANCEL, 0));
+    }
+
+    @Override
+    protected Queue<Runnable> newTaskQueue(int maxPendingTasks) {
+        // This event loop never calls takeTask()
+        return maxPendingTasks == Integer.MAX_VALUE ? PlatformDependent.<Runnable>newMpscQueue()
+                                                    : PlatformDependent.<Runnable>newFixedMpscQueue(maxPendingTasks);
+    }
+
+    /**
+     * Returns the percentage of the desired amount of time spent for I/O in the event loop.
+     */
+    public int getIoRatio() {
+        return ioRatio;
+    }
+
+    /**
+     * Sets the percentage of the desired amount of time spent for I/O in the event loop.  The default value is
+     * {@code 50}, which means the event loop will try to spend the same amount of time for I/O as for non-I/O tasks.
+     */
+    public void setIoRatio(int ioRatio) {
+        if (ioRatio <= 0 || ioRatio > 100) {
+            throw new IllegalArgumentException("ioRatio: " + ioRatio + " (expected: 0 < ioRatio <= 100)");
+        }
+        this.ioRatio = ioRatio;
+    }
+
+    private void submitEventFdRead() throws IOException {
+        submissionQueue().addRead(eventFd.intValue(), eventFdBuffer, 8,
+                userData(LOOP_ID, Native.IORING_OP_READ, 0));
+        eventFdReadPending = true;
+    }
+
+    @Override
+    protected void run() {
+        final IOUringSubmissionQueue submissionQueue = submissionQueue();
+        final IOUringCompletionQueue completionQueue = ringBuffer.completionQueue();
+        if (bufferPool != null) {
+            try {
+                bufferPool.provideAll(submissionQueue, userData(LOOP_ID, Native.IORING_OP_PROVIDE_BUFFERS, 0));
+            } catch (IOException e) {
+                logger.warn("Failed to provide buffers, receives will allocate their own buffers.", e);
+            }
+        }
+        for (;;) {
+            try {
+                if (!eventFdReadPending) {
+                    submitEventFdRead();
+                }
+                wakenUp = 0;
+
+                final boolean recordMetrics = isMetricsEnabled();
+                final long waitStartTime = recordMetrics ? System.nanoTime() : 0;
+                if (hasTasks() || completionQueue.hasCompletions()) {
+                    // Non blocking just submit what is pending and process what is ready.
+                    submissionQueue.submit();
+                } else {
+                    // A write to the eventfd, which is done by wakeup(...), completes the pending read.
+                    submissionQueue.submitAndWait(delayNanos(System.nanoTime()));
+                }
+
+                final int ioRatio = this.ioRatio;
+                if (ioRatio == 100 && !recordMetrics) {
+                    completionQueue.process(this);
+                    runAllTasks();
+                } else {
+                    final long ioStartTime = System.nanoTime();
+                    if (recordMetrics) {
+                        recordIoWaitTime(ioStartTime - waitStartTime);
+                    }
+
+                    completionQueue.process(this);
+
+                    final long ioTime = System.nanoTime() - ioStartTime;
+                    recordIoProcessingTime(ioTime);
+                    if (ioRatio == 100) {
+                        runAllTasks();
+                    } else {
+                        runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
+                    }
+                }
+                if (isShuttingDown()) {
+                    closeAll();
+                    if (confirmShutdown()) {
+                        break;
+                    }
+                }
+            } catch (Throwable t) {
+                logger.warn("Unexpected exception in the io_uring loop.", t);
+
+                // Prevent possible consecutive immediate failures that lead to
+                // excessive CPU consumption.
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    // Ignore.
+                }
+            }
+        }
+    }
+
+    private void closeAll() {
+        Collection<AbstractIOUringChannel> array = new ArrayList<AbstractIOUringChannel>(channels.size());
+
+        for (AbstractIOUringChannel channel: channels.values()) {
+            array.add(channel);
+        }
+
+        for (AbstractIOUringChannel ch: array) {
+            ch.unsafe().close(ch.unsafe().voidPromise());
+        }
+    }
+
+    @Override
+    public void handle(int res, int flags, long userData) {
+        final int id = (int) (userData >>> 32);
+        final byte op = (byte) (userData >>> 16);
+        final int data = (int) userData & 0xFFFF;
+        if (id == LOOP_ID) {
+            if (op == Native.IORING_OP_READ) {
+                // consume wakeup event
+                eventFdReadPending = false;
+            } else if (op == Native.IORING_OP_PROVIDE_BUFFERS) {
+                logger.debug("Failed to provide the buffer with id {}: {}", data, res);
+                bufferPool.failed(data);
+            }
+            return;
+        }
+
+        AbstractIOUringChannel ch = channels.get(id);
+        if (ch != null) {
+            ((AbstractIOUringChannel.AbstractIOUringUnsafe) ch.unsafe()).completed(op, data, res, flags);
+            return;
+        }
+        if ((flags & Native.IORING_CQE_F_BUFFER) != 0) {
+            // The receive completed after the channel was removed, give the buffer back to the kernel.
+            recycleProvidedBuffer(flags);
+        }
+        PendingRelease pending = draining.get(id);
+        if (pending != null && (flags & Native.IORING_CQE_F_MORE) == 0 && --pending.pendingOps == 0) {
+            draining.remove(id);
+            pending.release.run();
+        }
+    }
+
+    @Override
+    protected void cleanup() {
+        try {
+            // Wait for the operations which are still in flight before the memory they use is released.
+            try {
+                if (eventFdReadPending) {
+                    cancel(eventFd.intValue());
+                }
+                IOUringCompletionQueue completionQueue = ringBuffer.completionQueue();
+                long deadline = System.nanoTime() + CLEANUP_TIMEOUT_NANOS;
+                long remaining;
+                while ((eventFdReadPending || !draining.isEmpty()) &&
+                        (remaining = deadline - System.nanoTime()) > 0) {
+                    submissionQueue().submitAndWait(remaining);
+                    completionQueue.process(this);
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to wait for the pending io_uring operations.", e);
+            }
+            try {
+                ringBuffer.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close the io_uring ring.", e);
+            }
+            try {
+                eventFd.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close the event fd.", e);
+            }
+        } finally {
+            // release native memory, the ring is closed so the kernel will not access it anymore.
+            for (PendingRelease pending: draining.values()) {
+                pending.release.run();
+            }
+            draining.clear();
+            if (!eventFdReadPending) {
+                // Otherwise leak the buffer rather than letting the kernel write to freed memory.
+                PlatformDependent.freeMemory(eventFdBuffer);
+            }
+            if (bufferPool != null) {
+                bufferPool.release();
+            }
+        }
+    }
+
+    private static final class PendingRelease {
+        final Runnable release;
+        int pendingOps;
+
+        PendingRelease(int pendingOps, Runnable release) {
+            this.pendingOps = pendingOps;
+            this.release = release;
+        }
+    }
+}
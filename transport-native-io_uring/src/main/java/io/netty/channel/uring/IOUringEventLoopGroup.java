@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel.uring;
+
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.MultithreadEventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorChooserFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * {@link EventLoopGroup} which uses io_uring under the covers. Because of this
+ * it only works on linux.
+ */
+public final class IOUringEventLoopGroup extends MultithreadEventLoopGroup {
+    private static final int DEFAULT_RING_SIZE = 4096;
+
+    /**
+     * Create a new instance using the default number of threads and the default {@link ThreadFactory}.
+     */
+    public IOUringEventLoopGroup() {
+        this(0);
+    }
+
+    /**
+     * Create a new instance using the specified number of threads and the default {@link ThreadFactory}.
+     */
+    public IOUringEventLoopGroup(int nThreads) {
+        this(nThreads, (ThreadFactory) null);
+    }
+
+    /**
+     * Create a new instance using the specified number of threads and the given {@link ThreadFactory}.
+     */
+    public IOUringEventLoopGroup(int nThreads, ThreadFactory threadFactory) {
+        this(nThreads, threadFactory, DEFAULT_RING_SIZE, 0, 0);
+    }
+
+    /**
+     * Create a new instance using the specified number of threads, the given {@link Executor} and the given
+     * {@link EventExecutorChooserFactory}.
+     */
+    public IOUringEventLoopGroup(int nThreads, Executor executor, EventExecutorChooserFactory chooserFactory) {
+        super(nThreads, executor, chooserFactory, DEFAULT_RING_SIZE, 0, 0);
+    }
+
+    /**
+     * Create a new instance using the specified number of threads, the given {@link ThreadFactory}, the given
+     * number of submission queue entries per ring and the given number of buffers of the given size which are
+     * provided to the kernel by each event loop.
+     *
+     * Provided buffers are only picked by a receive once data is ready, so a large number of idle connections does
+     * not pin a buffer each. Use {@code 0} as {@code providedBufferCount} to let every receive allocate its own
+     * buffer.
+     */
+    public IOUringEventLoopGroup(int nThreads, ThreadFactory threadFactory, int ringSize,
+                                 int providedBufferCount, int providedBufferSize) {
+        super(nThreads, threadFactory, checkRingSize(ringSize),
+                checkProvidedBufferCount(providedBufferCount, providedBufferSize), providedBufferSize);
+    }
+
+    private static int checkRingSize(int ringSize) {
+        // A chain of linked sends must fit into the submission queue.
+        if (ringSize < 64 || ringSize > 32768) {
+            throw new IllegalArgumentException("ringSize: " + ringSize + " (expected: 64-32768)");
+        }
+        return ringSize;
+    }
+
+    private static int checkProvidedBufferCount(int providedBufferCount, int providedBufferSize) {
+        if (providedBufferCount < 0 || providedBufferCount > 65536) {
+            throw new IllegalArgumentException(
+                    "providedBufferCount: " + providedBufferCount + " (expected: 0-65536)");
+        }
+        if (providedBufferCount > 0 && providedBufferSize <= 0) {
+            throw new IllegalArgumentException(
+                    "providedBufferSize: " + providedBufferSize + " (expected: > 0)");
+        }
+        return providedBufferCount;
+    }
+
+    /**
+     * Sets the percentage of the desired amount of time spent for I/O in the child event loops.  The default value is
+     * {@code 50}, which means the event loop will try to spend the same amount of time for I/O as for non-I/O tasks.
+     */
+    public void setIoRatio(int ioRatio) {
+        for (EventExecutor e: children()) {
+            ((IOUringEventLoop) e).setIoRatio(ioRatio);
+        }
+    }
+
+    @Override
+    protected EventLoop newChild(Executor executor, Object... args) throws Exception {
+        return new IOUringEventLoop(this, executor, (Integer) args[0], (Integer) args[1], (Integer) args[2]);
+    }
+}
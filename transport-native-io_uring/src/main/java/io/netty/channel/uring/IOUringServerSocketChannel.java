@@ -0,0 +1,188 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel.uring;
+
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.unix.Socket;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+import static io.netty.channel.unix.Errors.newIOException;
+import static io.netty.channel.unix.Socket.newSocketStream;
+
+/**
+ * {@link ServerSocketChannel} implementation that uses linux io_uring. While auto read is enabled a single multishot
+ * accept is kept in flight, which posts a completion for each accepted connection.
+ */
+public final class IOUringServerSocketChannel extends AbstractIOUringChannel implements ServerSocketChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(false, 16);
+
+    private final IOUringServerSocketChannelConfig config;
+    private volatile InetSocketAddress local;
+
+    public IOUringServerSocketChannel() {
+        super(null, newSocketStream(), false);
+        config = new IOUringServerSocketChannelConfig(this);
+    }
+
+    /**
+     * Creates a new {@link IOUringServerSocketChannel} from an existing {@link Socket}.
+     */
+    public IOUringServerSocketChannel(Socket fd, boolean active) {
+        super(null, fd, active);
+        // As we create an IOUringServerSocketChannel from a FileDescriptor we should try to obtain the local address
+        // from it. This is needed as the FileDescriptor may be bound already.
+        local = fd.localAddress();
+        config = new IOUringServerSocketChannelConfig(this);
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    protected void doBind(SocketAddress localAddress) throws Exception {
+        InetSocketAddress addr = (InetSocketAddress) localAddress;
+        checkResolvable(addr);
+        fd().bind(addr);
+        local = fd().localAddress();
+        fd().listen(config.getBacklog());
+        active = true;
+    }
+
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return (InetSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) super.localAddress();
+    }
+
+    @Override
+    public IOUringServerSocketChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    protected InetSocketAddress localAddress0() {
+        return local;
+    }
+
+    @Override
+    protected InetSocketAddress remoteAddress0() {
+        return null;
+    }
+
+    @Override
+    protected AbstractIOUringUnsafe newUnsafe() {
+        return new IOUringServerSocketUnsafe();
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
+    final class IOUringServerSocketUnsafe extends AbstractIOUringUnsafe {
+        // Whether the accept in flight keeps on accepting connections.
+        private boolean multishot;
+
+        @Override
+        public void connect(SocketAddress socketAddress, SocketAddress socketAddress2, ChannelPromise channelPromise) {
+            // Connect not supported by ServerChannel implementations
+            channelPromise.setFailure(new UnsupportedOperationException());
+        }
+
+        @Override
+        void submitRead() throws IOException {
+            // Only keep on accepting while auto read is on, otherwise accept exactly one connection per read().
+            multishot = config().isAutoRead();
+            submissionQueue().addAccept(fd().intValue(), multishot, userData(Native.IORING_OP_ACCEPT, 0));
+            submitted();
+        }
+
+        @Override
+        void readComplete(int res, int flags, int data) {
+            assert eventLoop().inEventLoop();
+            if ((flags & Native.IORING_CQE_F_MORE) == 0) {
+                readSubmitted = false;
+            }
+            try {
+                if (res == Native.ERRNO_ECANCELED_NEGATIVE) {
+                    // The multishot accept was cancelled as auto read was switched off.
+                    return;
+                }
+                readPending = false;
+                final ChannelPipeline pipeline = pipeline();
+                final RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+                allocHandle.reset(config());
+
+                Throwable exception = null;
+                if (res >= 0) {
+                    try {
+                        // lastBytesRead represents the fd, like it does for the epoll transport.
+                        allocHandle.lastBytesRead(res);
+                        allocHandle.incMessagesRead(1);
+                        Socket socket = new Socket(res);
+                        pipeline.fireChannelRead(
+                                new IOUringSocketChannel(IOUringServerSocketChannel.this, socket,
+                                        socket.remoteAddress()));
+                    } catch (Throwable t) {
+                        exception = t;
+                    }
+                } else {
+                    exception = newIOException("accept", res);
+                }
+                allocHandle.readComplete();
+                pipeline.fireChannelReadComplete();
+
+                if (exception != null) {
+                    pipeline.fireExceptionCaught(exception);
+                }
+            } finally {
+                readFinally();
+            }
+        }
+
+        @Override
+        void autoReadCleared() {
+            if (readSubmitted && multishot) {
+                try {
+                    ioUringEventLoop().cancel(fd().intValue());
+                } catch (IOException e) {
+                    pipeline().fireExceptionCaught(e);
+                    close(voidPromise());
+                }
+            }
+        }
+    }
+}
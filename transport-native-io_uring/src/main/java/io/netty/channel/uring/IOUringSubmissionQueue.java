@@ -0,0 +1,218 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel.uring;
+
+import io.netty.util.internal.PlatformDependent;
+
+import java.io.IOException;
+
+/**
+ * The submission queue of a {@link RingBuffer}. Entries are only handed over to the kernel once {@link #submit()} or
+ * {@link #submitAndWait(long)} is called.
+ */
+final class IOUringSubmissionQueue {
+    private static final int SQE_SIZE = 64;
+
+    // Offsets of the fields of struct io_uring_sqe.
+    private static final int SQE_OP_CODE_FIELD = 0;
+    private static final int SQE_FLAGS_FIELD = 1;
+    private static final int SQE_IOPRIO_FIELD = 2;
+    private static final int SQE_FD_FIELD = 4;
+    private static final int SQE_OFFSET_FIELD = 8;
+    private static final int SQE_ADDRESS_FIELD = 16;
+    private static final int SQE_LEN_FIELD = 24;
+    private static final int SQE_OP_FLAGS_FIELD = 28;
+    private static final int SQE_USER_DATA_FIELD = 32;
+    private static final int SQE_BUF_INDEX_FIELD = 40;
+
+    private final int ringFd;
+    private final long kHeadAddress;
+    private final long kTailAddress;
+    private final long kFlagsAddress;
+    private final long sqesAddress;
+    private final int ringMask;
+    private final int ringEntries;
+
+    private int head;
+    private int tail;
+
+    IOUringSubmissionQueue(int ringFd, long kHeadAddress, long kTailAddress, long kRingMaskAddress,
+                           long kRingEntriesAddress, long kFlagsAddress, long kArrayAddress, long sqesAddress) {
+        this.ringFd = ringFd;
+        this.kHeadAddress = kHeadAddress;
+        this.kTailAddress = kTailAddress;
+        this.kFlagsAddress = kFlagsAddress;
+        this.sqesAddress = sqesAddress;
+        ringMask = PlatformDependent.getIntVolatile(kRingMaskAddress);
+        ringEntries = PlatformDependent.getIntVolatile(kRingEntriesAddress);
+        head = PlatformDependent.getIntVolatile(kHeadAddress);
+        tail = PlatformDependent.getIntVolatile(kTailAddress);
+
+        // Entries are never reordered, so the index array is just an identity mapping which never changes.
+        for (int i = 0; i < ringEntries; i++) {
+            PlatformDependent.putInt(kArrayAddress + 4L * i, i);
+        }
+    }
+
+    /**
+     * Returns the number of entries which can be added without submitting first.
+     */
+    int remaining() {
+        return ringEntries - (tail - head);
+    }
+
+    /**
+     * Returns the maximal number of entries the submission queue can hold.
+     */
+    int capacity() {
+        return ringEntries;
+    }
+
+    /**
+     * Submits the pending entries if less than the given number of entries can be added.
+     */
+    void ensureCapacity(int entries) throws IOException {
+        if (remaining() < entries) {
+            submit();
+            if (remaining() < entries) {
+                throw new IOException("submission queue is full");
+            }
+        }
+    }
+
+    void addRead(int fd, long address, int length, long userData) throws IOException {
+        enqueue(Native.IORING_OP_READ, 0, 0, fd, 0, address, length, 0, userData, 0);
+    }
+
+    void addRecv(int fd, long address, int length, long userData) throws IOException {
+        enqueue(Native.IORING_OP_RECV, 0, 0, fd, 0, address, length, 0, userData, 0);
+    }
+
+    /**
+     * Adds a receive which lets the kernel pick a buffer out of the given provided buffer group.
+     */
+    void addRecvSelectBuffer(int fd, int bufferGroup, long userData) throws IOException {
+        enqueue(Native.IORING_OP_RECV, Native.IOSQE_BUFFER_SELECT, 0, fd, 0, 0, 0, 0, userData, bufferGroup);
+    }
+
+    /**
+     * Adds a send of the given memory region. If {@code link} is {@code true} the next entry will only be executed
+     * once this one completed successfully, otherwise it fails with {@code ECANCELED}.
+     */
+    void addSend(int fd, long address, int length, boolean link, long userData) throws IOException {
+        // MSG_WAITALL lets the kernel retry until all bytes are sent or an error happened, which also breaks the
+        // link. Without it a short send would still run the next send of the chain.
+        enqueue(Native.IORING_OP_SEND, link ? Native.IOSQE_IO_LINK : 0, 0, fd, 0, address, length,
+                Native.MSG_WAITALL | Native.MSG_NOSIGNAL, userData, 0);
+    }
+
+    void addRecvmsg(int fd, long msgHdrAddress, long userData) throws IOException {
+        enqueue(Native.IORING_OP_RECVMSG, 0, 0, fd, 0, msgHdrAddress, 1, 0, userData, 0);
+    }
+
+    void addSendmsg(int fd, long msgHdrAddress, long userData) throws IOException {
+        enqueue(Native.IORING_OP_SENDMSG, 0, 0, fd, 0, msgHdrAddress, 1, Native.MSG_NOSIGNAL, userData, 0);
+    }
+
+    /**
+     * Adds an accept which keeps on posting a completion for each accepted connection if {@code multishot} is
+     * {@code true}.
+     */
+    void addAccept(int fd, boolean multishot, long userData) throws IOException {
+        enqueue(Native.IORING_OP_ACCEPT, 0, multishot ? Native.IORING_ACCEPT_MULTISHOT : 0, fd, 0, 0, 0,
+                Native.SOCK_NONBLOCK | Native.SOCK_CLOEXEC, userData, 0);
+    }
+
+    void addPollOut(int fd, long userData) throws IOException {
+        enqueue(Native.IORING_OP_POLL_ADD, 0, 0, fd, 0, 0, 0, Native.POLLOUT, userData, 0);
+    }
+
+    /**
+     * Hands the given buffer over to the kernel so it can be picked by a receive of the given buffer group. Only
+     * a failure will produce a completion.
+     */
+    void addProvideBuffer(long address, int length, int bufferGroup, int bufferId, long userData)
+            throws IOException {
+        enqueue(Native.IORING_OP_PROVIDE_BUFFERS, Native.IOSQE_CQE_SKIP_SUCCESS, 0, 1, bufferId, address, length,
+                0, userData, bufferGroup);
+    }
+
+    /**
+     * Cancels all pending operations of the given file descriptor.
+     */
+    void addCancel(int fd, long userData) throws IOException {
+        enqueue(Native.IORING_OP_ASYNC_CANCEL, 0, 0, fd, 0, 0, 0,
+                Native.IORING_ASYNC_CANCEL_FD | Native.IORING_ASYNC_CANCEL_ALL, userData, 0);
+    }
+
+    private void enqueue(byte op, int flags, int ioPrio, int fd, long offset, long address, int length, int opFlags,
+                         long userData, int bufIndex) throws IOException {
+        if (tail - head == ringEntries) {
+            submit();
+            if (tail - head == ringEntries) {
+                throw new IOException("submission queue is full");
+            }
+        }
+        long sqe = sqesAddress + (long) (tail & ringMask) * SQE_SIZE;
+        PlatformDependent.putByte(sqe + SQE_OP_CODE_FIELD, op);
+        PlatformDependent.putByte(sqe + SQE_FLAGS_FIELD, (byte) flags);
+        PlatformDependent.putShort(sqe + SQE_IOPRIO_FIELD, (short) ioPrio);
+        PlatformDependent.putInt(sqe + SQE_FD_FIELD, fd);
+        PlatformDependent.putLong(sqe + SQE_OFFSET_FIELD, offset);
+        PlatformDependent.putLong(sqe + SQE_ADDRESS_FIELD, address);
+        PlatformDependent.putInt(sqe + SQE_LEN_FIELD, length);
+        PlatformDependent.putInt(sqe + SQE_OP_FLAGS_FIELD, opFlags);
+        PlatformDependent.putLong(sqe + SQE_USER_DATA_FIELD, userData);
+        // Clear buf_index / buf_group, personality, splice_fd_in and the padding.
+        PlatformDependent.putLong(sqe + SQE_BUF_INDEX_FIELD, bufIndex & 0xFFFF);
+        PlatformDependent.putLong(sqe + SQE_BUF_INDEX_FIELD + 8, 0);
+        PlatformDependent.putLong(sqe + SQE_BUF_INDEX_FIELD + 16, 0);
+        tail++;
+    }
+
+    /**
+     * Submits all pending entries without waiting for completions.
+     */
+    int submit() throws IOException {
+        return submit(0, 0, -1);
+    }
+
+    /**
+     * Submits all pending entries and waits until at least one completion is ready or the given timeout elapsed.
+     */
+    int submitAndWait(long timeoutNanos) throws IOException {
+        return submit(1, Native.IORING_ENTER_GETEVENTS, timeoutNanos);
+    }
+
+    private int submit(int minComplete, int flags, long timeoutNanos) throws IOException {
+        int toSubmit = tail - head;
+        if ((PlatformDependent.getIntVolatile(kFlagsAddress) & Native.IORING_SQ_CQ_OVERFLOW) != 0) {
+            // Completions were kept back by the kernel as the completion queue was full, let it flush them.
+            flags |= Native.IORING_ENTER_GETEVENTS;
+        } else if (toSubmit == 0 && minComplete == 0) {
+            return 0;
+        }
+        if (toSubmit > 0) {
+            PlatformDependent.putIntOrdered(kTailAddress, tail);
+        }
+        try {
+            return Native.ioUringEnter(ringFd, toSubmit, minComplete, flags, timeoutNanos);
+        } finally {
+            head = PlatformDependent.getIntVolatile(kHeadAddress);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel.uring;
+
+import io.netty.channel.unix.NativeInetAddress;
+import io.netty.util.internal.PlatformDependent;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.channels.UnsupportedAddressTypeException;
+
+/**
+ * Native memory which holds a {@code struct msghdr} per slot, together with the {@code struct iovec} and the socket
+ * address it points to, as used by {@code IORING_OP_SENDMSG} and {@code IORING_OP_RECVMSG}. The kernel reads or
+ * writes a slot until the operation completed, so a slot must not be reused or released before.
+ */
+final class MsgHdrMemoryArray {
+    // Offsets into struct msghdr and struct iovec of 64-bit linux, see IOUring.
+    private static final int MSG_NAME = 0;
+    private static final int MSG_NAMELEN = 8;
+    private static final int MSG_IOV = 16;
+    private static final int MSG_IOVLEN = 24;
+    private static final int MSG_CONTROL = 32;
+    private static final int MSG_CONTROLLEN = 40;
+    private static final int MSG_FLAGS = 48;
+    private static final int IOV_BASE = 0;
+    private static final int IOV_LEN = 8;
+
+    // Offsets into struct sockaddr_in and struct sockaddr_in6.
+    private static final int SOCKADDR_FAMILY = 0;
+    private static final int SOCKADDR_PORT = 2;
+    private static final int SOCKADDR_IN_ADDR = 4;
+    private static final int SOCKADDR_IN6_FLOWINFO = 4;
+    private static final int SOCKADDR_IN6_ADDR = 8;
+    private static final int SOCKADDR_IN6_SCOPE_ID = 24;
+    private static final int SIZEOF_SOCKADDR_IN = 16;
+    private static final int SIZEOF_SOCKADDR_IN6 = 28;
+
+    private static final int IOV_OFFSET = 56;
+    private static final int SOCKADDR_OFFSET = IOV_OFFSET + 16;
+    private static final int SLOT_SIZE = 128;
+
+    private final long memoryAddress;
+    private final boolean ipv6;
+
+    MsgHdrMemoryArray(int slots, boolean ipv6) {
+        this.ipv6 = ipv6;
+        memoryAddress = PlatformDependent.allocateMemory((long) slots * SLOT_SIZE);
+    }
+
+    /**
+     * Returns the address of the {@code struct msghdr} of the given slot.
+     */
+    long msgHdrAddress(int slot) {
+        return memoryAddress + (long) slot * SLOT_SIZE;
+    }
+
+    /**
+     * Prepares the given slot to send {@code length} bytes at {@code bufferAddress} to the given recipient.
+     */
+    void setSend(int slot, long bufferAddress, int length, InetSocketAddress recipient) {
+        long msgHdr = msgHdrAddress(slot);
+        long sockAddr = msgHdr + SOCKADDR_OFFSET;
+        int port = recipient.getPort();
+        byte[] address = recipient.getAddress().getAddress();
+        int sockAddrLength;
+        if (ipv6) {
+            int scopeId = 0;
+            if (address.length == 4) {
+                address = NativeInetAddress.ipv4MappedIpv6Address(address);
+            } else {
+                scopeId = ((Inet6Address) recipient.getAddress()).getScopeId();
+            }
+            PlatformDependent.putShort(sockAddr + SOCKADDR_FAMILY, (short) Native.AF_INET6);
+            PlatformDependent.putInt(sockAddr + SOCKADDR_IN6_FLOWINFO, 0);
+            PlatformDependent.copyMemory(address, 0, sockAddr + SOCKADDR_IN6_ADDR, 16);
+            PlatformDependent.putInt(sockAddr + SOCKADDR_IN6_SCOPE_ID, scopeId);
+            sockAddrLength = SIZEOF_SOCKADDR_IN6;
+        } else {
+            if (address.length != 4) {
+                throw new UnsupportedAddressTypeException();
+            }
+            PlatformDependent.putShort(sockAddr + SOCKADDR_FAMILY, (short) Native.AF_INET);
+            PlatformDependent.copyMemory(address, 0, sockAddr + SOCKADDR_IN_ADDR, 4);
+            PlatformDependent.putLong(sockAddr + SOCKADDR_IN_ADDR + 4, 0);
+            sockAddrLength = SIZEOF_SOCKADDR_IN;
+        }
+        // The port is in network byte order.
+        PlatformDependent.putByte(sockAddr + SOCKADDR_PORT, (byte) (port >>> 8));
+        PlatformDependent.putByte(sockAddr + SOCKADDR_PORT + 1, (byte) port);
+        setMsgHdr(msgHdr, bufferAddress, length, sockAddrLength);
+    }
+
+    /**
+     * Prepares the given slot to receive up to {@code length} bytes into {@code bufferAddress}.
+     */
+    void setReceive(int slot, long bufferAddress, int length) {
+        setMsgHdr(msgHdrAddress(slot), bufferAddress, length, SIZEOF_SOCKADDR_IN6);
+    }
+
+    private static void setMsgHdr(long msgHdr, long bufferAddress, int length, int sockAddrLength) {
+        long iov = msgHdr + IOV_OFFSET;
+        PlatformDependent.putLong(iov + IOV_BASE, bufferAddress);
+        PlatformDependent.putLong(iov + IOV_LEN, length);
+        PlatformDependent.putLong(msgHdr + MSG_NAME, msgHdr + SOCKADDR_OFFSET);
+        PlatformDependent.putInt(msgHdr + MSG_NAMELEN, sockAddrLength);
+        PlatformDependent.putLong(msgHdr + MSG_IOV, iov);
+        PlatformDependent.putLong(msgHdr + MSG_IOVLEN, 1);
+        PlatformDependent.putLong(msgHdr + MSG_CONTROL, 0);
+        PlatformDependent.putLong(msgHdr + MSG_CONTROLLEN, 0);
+        PlatformDependent.putInt(msgHdr + MSG_FLAGS, 0);
+    }
+
+    /**
+     * Returns the address the datagram which was received into the given slot was sent from.
+     */
+    InetSocketAddress sender(int slot) {
+        long sockAddr = msgHdrAddress(slot) + SOCKADDR_OFFSET;
+        int port = (PlatformDependent.getByte(sockAddr + SOCKADDR_PORT) & 0xFF) << 8 |
+                PlatformDependent.getByte(sockAddr + SOCKADDR_PORT + 1) & 0xFF;
+        try {
+            final InetAddress address;
+            if (PlatformDependent.getShort(sockAddr + SOCKADDR_FAMILY) == Native.AF_INET6) {
+                byte[] bytes = new byte[16];
+                PlatformDependent.copyMemory(sockAddr + SOCKADDR_IN6_ADDR, bytes, 0, 16);
+                int scopeId = PlatformDependent.getInt(sockAddr + SOCKADDR_IN6_SCOPE_ID);
+                // IPv4-mapped addresses are returned as Inet4Address.
+                address = scopeId == 0 ? InetAddress.getByAddress(bytes) :
+                        Inet6Address.getByAddress(null, bytes, scopeId);
+            } else {
+                byte[] bytes = new byte[4];
+                PlatformDependent.copyMemory(sockAddr + SOCKADDR_IN_ADDR, bytes, 0, 4);
+                address = InetAddress.getByAddress(bytes);
+            }
+            return new InetSocketAddress(address, port);
+        } catch (UnknownHostException e) {
+            throw new Error("Should never happen", e);
+        }
+    }
+
+    void release() {
+        PlatformDependent.freeMemory(memoryAddress);
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel.uring;
+
+import io.netty.channel.ChannelException;
+import io.netty.channel.epoll.Epoll;
+import io.netty.util.internal.NativeLibraryLoader;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.SystemPropertyUtil;
+
+import java.io.IOException;
+
+import static io.netty.channel.unix.Errors.newIOException;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.afInet;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.afInet6;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.errnoEBUSY;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.errnoECANCELED;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.errnoEINTR;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.errnoENOBUFS;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.errnoETIME;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.msgNosignal;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.msgWaitall;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.pollout;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.sizeofIovec;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.sizeofMsghdr;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.sockCloexec;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.sockNonblock;
+
+/**
+ * Native helper methods
+ * <p><strong>Internal usage only!</strong>
+ * <p>Static members which call JNI methods must be defined in {@link NativeStaticallyReferencedJniMethods}.
+ */
+final class Native {
+    static {
+        // The io.netty.channel.unix classes are backed by the epoll native library, so it must be loaded first.
+        Epoll.ensureAvailability();
+        NativeLibraryLoader.load(SystemPropertyUtil.get("io.netty.packagePrefix", "").replace('.', '-') +
+                                 "netty-transport-native-io_uring",
+                                 PlatformDependent.getClassLoader(Native.class));
+    }
+
+    static final int ERRNO_ECANCELED_NEGATIVE = -errnoECANCELED();
+    static final int ERRNO_ENOBUFS_NEGATIVE = -errnoENOBUFS();
+    static final int ERRNO_ETIME_NEGATIVE = -errnoETIME();
+    static final int ERRNO_EINTR_NEGATIVE = -errnoEINTR();
+    static final int ERRNO_EBUSY_NEGATIVE = -errnoEBUSY();
+    static final int POLLOUT = pollout();
+    static final int AF_INET = afInet();
+    static final int AF_INET6 = afInet6();
+    static final int MSG_NOSIGNAL = msgNosignal();
+    static final int MSG_WAITALL = msgWaitall();
+    static final int SOCK_NONBLOCK = sockNonblock();
+    static final int SOCK_CLOEXEC = sockCloexec();
+
+    // The values below are part of the kernel ABI, see linux/io_uring.h.
+    static final byte IORING_OP_POLL_ADD = 6;
+    static final byte IORING_OP_SENDMSG = 9;
+    static final byte IORING_OP_RECVMSG = 10;
+    static final byte IORING_OP_ACCEPT = 13;
+    static final byte IORING_OP_ASYNC_CANCEL = 14;
+    static final byte IORING_OP_READ = 22;
+    static final byte IORING_OP_SEND = 26;
+    static final byte IORING_OP_RECV = 27;
+    static final byte IORING_OP_PROVIDE_BUFFERS = 31;
+    static final byte IORING_OP_SOCKET = 45;
+
+    static final int IOSQE_IO_LINK = 1 << 2;
+    static final int IOSQE_BUFFER_SELECT = 1 << 5;
+    static final int IOSQE_CQE_SKIP_SUCCESS = 1 << 6;
+
+    static final int IORING_CQE_F_BUFFER = 1;
+    static final int IORING_CQE_F_MORE = 1 << 1;
+    static final int IORING_CQE_BUFFER_SHIFT = 16;
+
+    static final int IORING_ENTER_GETEVENTS = 1;
+    static final int IORING_SQ_CQ_OVERFLOW = 1 << 1;
+
+    static final int IORING_FEAT_NODROP = 1 << 1;
+    static final int IORING_FEAT_FAST_POLL = 1 << 5;
+    static final int IORING_FEAT_EXT_ARG = 1 << 8;
+    static final int IORING_FEAT_CQE_SKIP = 1 << 11;
+
+    static final int IORING_ACCEPT_MULTISHOT = 1;
+    static final int IORING_ASYNC_CANCEL_ALL = 1;
+    static final int IORING_ASYNC_CANCEL_FD = 1 << 1;
+
+    private static final int IORING_REGISTER_PROBE = 8;
+    private static final int IO_URING_OP_SUPPORTED = 1;
+    private static final int PROBE_OPS = 256;
+    private static final int PROBE_HEADER_SIZE = 16;
+    private static final int PROBE_OP_SIZE = 8;
+
+    // Indexes of the values which are filled in by setup0(...), keep in sync with netty_io_uring_native.c!
+    static final int RING_FD = 0;
+    static final int RING_FEATURES = 1;
+    static final int SQ_RING_ADDRESS = 2;
+    static final int SQ_RING_SIZE = 3;
+    static final int CQ_RING_ADDRESS = 4;
+    static final int CQ_RING_SIZE = 5;
+    static final int SQES_ADDRESS = 6;
+    static final int SQES_SIZE = 7;
+    static final int SQ_HEAD = 8;
+    static final int SQ_TAIL = 9;
+    static final int SQ_RING_MASK = 10;
+    static final int SQ_RING_ENTRIES = 11;
+    static final int SQ_FLAGS = 12;
+    static final int SQ_ARRAY = 13;
+    static final int CQ_HEAD = 14;
+    static final int CQ_TAIL = 15;
+    static final int CQ_RING_MASK = 16;
+    static final int CQ_RING_ENTRIES = 17;
+    static final int CQ_OVERFLOW = 18;
+    static final int CQ_CQES = 19;
+    private static final int RING_VALUES = 20;
+
+    static final int SIZEOF_MSGHDR = sizeofMsghdr();
+    static final int SIZEOF_IOVEC = sizeofIovec();
+
+    private Native() {
+        // utility
+    }
+
+    /**
+     * Creates a new io_uring instance with at least the given number of submission queue entries.
+     */
+    static RingBuffer createRingBuffer(int entries) {
+        long[] values = new long[RING_VALUES];
+        int res = setup0(entries, 0, values);
+        if (res < 0) {
+            throw new ChannelException(newIOException("io_uring_setup", res));
+        }
+        return new RingBuffer(values);
+    }
+
+    static int ioUringEnter(int ringFd, int toSubmit, int minComplete, int flags, long timeoutNanos)
+            throws IOException {
+        int res = enter0(ringFd, toSubmit, minComplete, flags, timeoutNanos);
+        if (res >= 0) {
+            return res;
+        }
+        if (res == ERRNO_EINTR_NEGATIVE || res == ERRNO_ETIME_NEGATIVE || res == ERRNO_EBUSY_NEGATIVE) {
+            // Interrupted, timed out or the completion queue needs to be drained first.
+            return 0;
+        }
+        throw newIOException("io_uring_enter", res);
+    }
+
+    static void ioUringExit(RingBuffer ring) throws IOException {
+        int res = exit0(ring.fd(), ring.sqRingAddress, ring.sqRingSize, ring.cqRingAddress, ring.cqRingSize,
+                ring.sqesAddress, ring.sqesSize);
+        if (res < 0) {
+            throw newIOException("close", res);
+        }
+    }
+
+    /**
+     * Returns {@code true} if the kernel supports all of the given operations.
+     */
+    static boolean isSupported(int ringFd, byte... ops) throws IOException {
+        int size = PROBE_HEADER_SIZE + PROBE_OPS * PROBE_OP_SIZE;
+        long probe = PlatformDependent.allocateMemory(size);
+        try {
+            for (int i = 0; i < size; i += 8) {
+                PlatformDependent.putLong(probe + i, 0);
+            }
+            int res = register0(ringFd, IORING_REGISTER_PROBE, probe, PROBE_OPS);
+            if (res < 0) {
+                throw newIOException("io_uring_register", res);
+            }
+            int opsLen = PlatformDependent.getByte(probe + 1) & 0xFF;
+            for (byte op: ops) {
+                if (op >= opsLen) {
+                    return false;
+                }
+                int flags = PlatformDependent.getShort(probe + PROBE_HEADER_SIZE + op * PROBE_OP_SIZE + 2);
+                if ((flags & IO_URING_OP_SUPPORTED) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            PlatformDependent.freeMemory(probe);
+        }
+    }
+
+    /**
+     * Returns {@code true} if the given socket was created with {@code AF_INET6}.
+     */
+    static boolean isIPv6(int fd) throws IOException {
+        int res = socketDomain0(fd);
+        if (res < 0) {
+            throw newIOException("getsockopt", res);
+        }
+        return res == AF_INET6;
+    }
+
+    private static native int setup0(int entries, int flags, long[] values);
+    private static native int enter0(int ringFd, int toSubmit, int minComplete, int flags, long timeoutNanos);
+    private static native int register0(int ringFd, int opcode, long arg, int nrArgs);
+    private static native int exit0(int ringFd, long sqRingAddress, long sqRingSize, long cqRingAddress,
+                                    long cqRingSize, long sqesAddress, long sqesSize);
+    private static native int socketDomain0(int fd);
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * A group of buffers which are handed over to the kernel up front via {@code IORING_OP_PROVIDE_BUFFERS}. A receive
+ * which selects its buffer out of the group only pins memory once data is ready, so idle connections do not hold
+ * on to a buffer. The buffers are allocated from the pooled allocator and replaced once the kernel used them.
+ */
+final class ProvidedBufferPool {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(ProvidedBufferPool.class);
+
+    private final int group;
+    private final int bufferSize;
+    private final ByteBuf[] buffers;
+
+    ProvidedBufferPool(int group, int bufferCount, int bufferSize) {
+        this.group = group;
+        this.bufferSize = bufferSize;
+        buffers = new ByteBuf[bufferCount];
+    }
+
+    int group() {
+        return group;
+    }
+
+    /**
+     * Allocates all buffers and provides them to the kernel.
+     */
+    void provideAll(IOUringSubmissionQueue submissionQueue, long userData) throws IOException {
+        for (int i = 0; i < buffers.length; i++) {
+            provide(submissionQueue, i, userData);
+        }
+    }
+
+    /**
+     * Takes the buffer which the kernel selected and filled with {@code length} bytes out of the pool, and provides
+     * a new buffer for the same id.
+     */
+    ByteBuf take(IOUringSubmissionQueue submissionQueue, int bufferId, int length, long userData) {
+        ByteBuf buffer = buffers[bufferId];
+        buffers[bufferId] = null;
+        buffer.writerIndex(length);
+        try {
+            provide(submissionQueue, bufferId, userData);
+        } catch (IOException e) {
+            logger.warn("Failed to provide a new buffer with id {}, the pool shrinks.", bufferId, e);
+        }
+        return buffer;
+    }
+
+    /**
+     * Provides the buffer with the given id to the kernel again, as it was selected but not used.
+     */
+    void recycle(IOUringSubmissionQueue submissionQueue, int bufferId, long userData) {
+        try {
+            ByteBuf buffer = buffers[bufferId];
+            submissionQueue.addProvideBuffer(buffer.memoryAddress(), bufferSize, group, bufferId, userData);
+        } catch (IOException e) {
+            logger.warn("Failed to provide the buffer with id {} again, the pool shrinks.", bufferId, e);
+        }
+    }
+
+    /**
+     * Releases the buffer with the given id as the kernel refused to take it.
+     */
+    void failed(int bufferId) {
+        ByteBuf buffer = buffers[bufferId];
+        if (buffer != null) {
+            buffers[bufferId] = null;
+            buffer.release();
+        }
+    }
+
+    /**
+     * Releases all buffers. Must only be called after the ring was closed.
+     */
+    void release() {
+        for (int i = 0; i < buffers.length; i++) {
+            failed(i);
+        }
+    }
+
+    private void provide(IOUringSubmissionQueue submissionQueue, int bufferId, long userData) throws IOException {
+        ByteBuf buffer = PooledByteBufAllocator.DEFAULT.directBuffer(bufferSize, bufferSize);
+        if (!buffer.hasMemoryAddress()) {
+            buffer.release();
+            throw new IOException("pooled direct buffers without memory address can not be provided");
+        }
+        buffers[bufferId] = buffer;
+        submissionQueue.addProvideBuffer(buffer.memoryAddress(), bufferSize, group, bufferId, userData);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel.uring;
+
+import java.io.IOException;
+
+import static io.netty.channel.uring.Native.*;
+
+/**
+ * An io_uring instance, which consists of the memory mapped submission and completion queues.
+ */
+final class RingBuffer {
+    private final int fd;
+    private final int features;
+    final long sqRingAddress;
+    final long sqRingSize;
+    final long cqRingAddress;
+    final long cqRingSize;
+    final long sqesAddress;
+    final long sqesSize;
+    private final IOUringSubmissionQueue submissionQueue;
+    private final IOUringCompletionQueue completionQueue;
+    private boolean closed;
+
+    RingBuffer(long[] values) {
+        fd = (int) values[RING_FD];
+        features = (int) values[RING_FEATURES];
+        sqRingAddress = values[SQ_RING_ADDRESS];
+        sqRingSize = values[SQ_RING_SIZE];
+        cqRingAddress = values[CQ_RING_ADDRESS];
+        cqRingSize = values[CQ_RING_SIZE];
+        sqesAddress = values[SQES_ADDRESS];
+        sqesSize = values[SQES_SIZE];
+        submissionQueue = new IOUringSubmissionQueue(fd, values[SQ_HEAD], values[SQ_TAIL], values[SQ_RING_MASK],
+                values[SQ_RING_ENTRIES], values[SQ_FLAGS], values[SQ_ARRAY], sqesAddress);
+        completionQueue = new IOUringCompletionQueue(values[CQ_HEAD], values[CQ_TAIL], values[CQ_RING_MASK],
+                values[CQ_CQES]);
+    }
+
+    int fd() {
+        return fd;
+    }
+
+    /**
+     * Returns {@code true} if the kernel supports all of the given {@code IORING_FEAT_*} features.
+     */
+    boolean hasFeatures(int features) {
+        return (this.features & features) == features;
+    }
+
+    IOUringSubmissionQueue submissionQueue() {
+        return submissionQueue;
+    }
+
+    IOUringCompletionQueue completionQueue() {
+        return completionQueue;
+    }
+
+    /**
+     * Unmaps the queues and closes the io_uring instance, which also cancels all operations which are still
+     * pending.
+     */
+    void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        Native.ioUringExit(this);
+    }
+}
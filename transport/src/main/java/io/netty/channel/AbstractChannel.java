@@ -502,6 +502,9 @@ public abstract class AbstractChannel extends DefaultAttributeMap implements Cha
                 doRegister();
                 neverRegistered = false;
                 registered = true;
+                if (eventLoop instanceof SingleThreadEventLoop) {
+                    ((SingleThreadEventLoop) eventLoop).incrementRegisteredChannels();
+                }
 
                 if (firstRegistration) {
                     // We are now registered to the EventLoop. It's time to call the callbacks for the ChannelHandlers,
@@ -523,6 +526,16 @@ public abstract class AbstractChannel extends DefaultAttributeMap implements Cha
                         // See https://github.com/netty/netty/issues/4805
                         beginRead();
                     }
+
+                    if (!firstRegistration) {
+                        // Messages may have been flushed while the channel was registered to its previous
+                        // EventLoop but not written completely. The interest in write readiness was lost with the
+                        // old registration, so try to write them again.
+                        ChannelOutboundBuffer outboundBuffer = this.outboundBuffer;
+                        if (outboundBuffer != null && !outboundBuffer.isEmpty()) {
+                            flush0();
+                        }
+                    }
                 }
             } catch (Throwable t) {
                 // Close the channel directly to avoid FD leak.
@@ -752,6 +765,9 @@ public abstract class AbstractChannel extends DefaultAttributeMap implements Cha
                         // if it was registered.
                         if (registered) {
                             registered = false;
+                            if (eventLoop instanceof SingleThreadEventLoop) {
+                                ((SingleThreadEventLoop) eventLoop).decrementRegisteredChannels();
+                            }
                             pipeline.fireChannelUnregistered();
                         }
                         safeSetSuccess(promise);
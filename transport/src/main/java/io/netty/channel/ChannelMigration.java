@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel;
+
+import io.netty.util.internal.OneTimeTask;
+
+import java.nio.channels.ClosedChannelException;
+
+/**
+ * Moves a registered {@link Channel} to another {@link EventLoop} without closing it.
+ * <p>
+ * The {@link Channel} is deregistered from its current {@link EventLoop} and then registered to the target
+ * {@link EventLoop}. Tasks which were submitted for the {@link Channel} to the former {@link EventLoop}, like writes
+ * from other threads, and are still in its queue once the {@link Channel} is moved are forwarded to the new one by
+ * the {@link DefaultChannelHandlerInvoker} and so never run concurrently with it, but may run after tasks which were
+ * submitted directly to the new {@link EventLoop} at the same time. The outbound buffer is kept by the
+ * {@link Channel} itself, and messages which were flushed but not written completely yet are written by the new
+ * {@link EventLoop} once the {@link Channel} is registered to it.
+ * <p>
+ * The {@link ChannelHandler}s of the {@link Channel} will see a {@code channelUnregistered} followed by a
+ * {@code channelRegistered} event. Handlers which keep state in their {@link EventLoop}, like timers, should
+ * release it on the former and re-create it on the latter.
+ */
+public final class ChannelMigration {
+
+    /**
+     * Moves the given {@link Channel} to the given {@link EventLoop}, which usually belongs to the same
+     * {@link EventLoopGroup}. The returned {@link ChannelFuture} is notified once the {@link Channel} was
+     * registered to {@code target}.
+     */
+    public static ChannelFuture migrate(final Channel channel, final EventLoop target) {
+        if (channel == null) {
+            throw new NullPointerException("channel");
+        }
+        if (target == null) {
+            throw new NullPointerException("target");
+        }
+
+        final ChannelPromise promise = new DefaultChannelPromise(channel, target);
+        if (!channel.isRegistered()) {
+            promise.setFailure(new IllegalStateException("channel not registered to an event loop"));
+            return promise;
+        }
+        final EventLoop current = channel.eventLoop();
+        if (current == target) {
+            promise.setSuccess();
+            return promise;
+        }
+
+        try {
+            current.execute(new OneTimeTask() {
+                @Override
+                public void run() {
+                    if (channel.eventLoop() != current || !channel.isRegistered()) {
+                        promise.setFailure(new IllegalStateException(
+                                "channel was deregistered from " + current + " concurrently"));
+                        return;
+                    }
+                    channel.deregister().addListener(new ChannelFutureListener() {
+                        @Override
+                        public void operationComplete(ChannelFuture future) throws Exception {
+                            if (!future.isSuccess()) {
+                                promise.setFailure(future.cause());
+                            } else if (!channel.isOpen()) {
+                                promise.setFailure(new ClosedChannelException());
+                            } else {
+                                target.register(channel, promise);
+                            }
+                        }
+                    });
+                }
+            });
+        } catch (Throwable cause) {
+            promise.setFailure(cause);
+        }
+        return promise;
+    }
+
+    private ChannelMigration() { }
+}
@@ -270,6 +270,37 @@ public final class ChannelOutboundBuffer {
         return true;
     }
 
+    /**
+     * Will remove the current message without releasing it or notifying its {@link ChannelPromise}, and return the
+     * {@link ChannelPromise}. The ownership of the message and the {@link ChannelPromise} is transferred to the
+     * caller, which is responsible to release the message and notify the {@link ChannelPromise} later on. This
+     * is useful for transports where the written data is still referenced after the write call returned.
+     *
+     * If no flushed message exists at the time this method is called, or the message was cancelled, it will return
+     * {@code null}.
+     */
+    public ChannelPromise removeDeferred() {
+        Entry e = flushedEntry;
+        if (e == null) {
+            clearNioBuffers();
+            return null;
+        }
+        ChannelPromise promise = e.promise;
+        int size = e.pendingSize;
+        boolean cancelled = e.cancelled;
+
+        removeEntry(e);
+
+        if (!cancelled) {
+            decrementPendingOutboundBytes(size, false, true);
+        }
+
+        // recycle the entry
+        e.recycle();
+
+        return cancelled ? null : promise;
+    }
+
     /**
      * Will remove the current message, mark its {@link ChannelPromise} as failure using the given {@link Throwable}
      * and return {@code true}. If no   flushed message exists at the time this method is called it will return
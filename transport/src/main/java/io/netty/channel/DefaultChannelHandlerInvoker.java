@@ -28,6 +28,14 @@ import java.net.SocketAddress;
 import static io.netty.channel.ChannelHandlerInvokerUtil.*;
 import static io.netty.channel.DefaultChannelPipeline.*;
 
+/**
+ * Default {@link ChannelHandlerInvoker} which executes the events on the given {@link EventExecutor}.
+ * <p>
+ * Events which are submitted from outside the {@link EventExecutor} are handed over to the current
+ * {@link ChannelHandlerContext#invoker()} when they run, if the {@link Channel} was moved to another
+ * {@link EventLoop} in the meantime (see {@link ChannelMigration}). This makes sure they never run concurrently with
+ * the {@link EventLoop} the {@link Channel} is registered to now.
+ */
 public class DefaultChannelHandlerInvoker implements ChannelHandlerInvoker {
 
     private final EventExecutor executor;
@@ -53,7 +61,11 @@ public class DefaultChannelHandlerInvoker implements ChannelHandlerInvoker {
             executor.execute(new OneTimeTask() {
                 @Override
                 public void run() {
-                    invokeChannelRegisteredNow(ctx);
+                    if (isCurrent(executor, ctx)) {
+                        invokeChannelRegisteredNow(ctx);
+                    } else {
+                        ctx.invoker().invokeChannelRegistered(ctx);
+                    }
                 }
             });
         }
@@ -67,7 +79,11 @@ public class DefaultChannelHandlerInvoker implements ChannelHandlerInvoker {
             executor.execute(new OneTimeTask() {
                 @Override
                 public void run() {
-                    invokeChannelUnregisteredNow(ctx);
+                    if (isCurrent(executor, ctx)) {
+                        invokeChannelUnregisteredNow(ctx);
+                    } else {
+                        ctx.invoker().invokeChannelUnregistered(ctx);
+                    }
                 }
             });
         }
@@ -81,7 +97,11 @@ public class DefaultChannelHandlerInvoker implements ChannelHandlerInvoker {
             executor.execute(new OneTimeTask() {
                 @Override
                 public void run() {
-                    invokeChannelActiveNow(ctx);
+                    if (isCurrent(executor, ctx)) {
+                        invokeChannelActiveNow(ctx);
+                    } else {
+                        ctx.invoker().invokeChannelActive(ctx);
+                    }
                 }
             });
         }
@@ -95,7 +115,11 @@ public class DefaultChannelHandlerInvoker implements ChannelHandlerInvoker {
             executor.execute(new OneTimeTask() {
                 @Override
                 public void run() {
-                    invokeChannelInactiveNow(ctx);
+                    if (isCurrent(executor, ctx)) {
+                        invokeChannelInactiveNow(ctx);
+                    } else {
+                        ctx.invoker().invokeChannelInactive(ctx);
+                    }
                 }
             });
         }
@@ -114,7 +138,11 @@ public class DefaultChannelHandlerInvoker implements ChannelHandlerInvoker {
                 executor.execute(new OneTimeTask() {
                     @Override
                     public void run() {
-                        invokeExceptionCaughtNow(ctx, cause);
+                        if (isCurrent(executor, ctx)) {
+                            invokeExceptionCaughtNow(ctx, cause);
+                        } else {
+                            ctx.invoker().invokeExceptionCaught(ctx, cause);
+                        }
                     }
                 });
             } catch (Throwable t) {
@@ -138,7 +166,11 @@ public class DefaultChannelHandlerInvoker implements ChannelHandlerInvoker {
             safeExecuteInbound(new OneTimeTask() {
                 @Override
                 public void run() {
-                    invokeUserEventTriggeredNow(ctx, event);
+                    if (isCurrent(executor, ctx)) {
+                        invokeUserEventTriggeredNow(ctx, event);
+                    } else {
+                        ctx.invoker().invokeUserEventTriggered(ctx, event);
+                    }
                 }
             }, event);
         }
@@ -156,7 +188,11 @@ public class DefaultChannelHandlerInvoker implements ChannelHandlerInvoker {
             safeExecuteInbound(new OneTimeTask() {
                 @Override
                 public void run() {
-                    invokeChannelReadNow(ctx, msg);
+                    if (isCurrent(executor, ctx)) {
+                        invokeChannelReadNow(ctx, msg);
+                    } else {
+                        ctx.invoker().invokeChannelRead(ctx, msg);
+                    }
                 }
             }, msg);
         }
@@ -173,7 +209,11 @@ public class DefaultChannelHandlerInvoker implements ChannelHandlerInvoker {
                 dctx.invokeChannelReadCompleteTask = task = new Runnable() {
                     @Override
                     public void run() {
-                        invokeChannelReadCompleteNow(ctx);
+                        if (isCurrent(executor, ctx)) {
+                            invokeChannelReadCompleteNow(ctx);
+                        } else {
+                            ctx.invoker().invokeChannelReadComplete(ctx);
+                        }
                     }
                 };
             }
@@ -192,7 +232,11 @@ public class DefaultChannelHandlerInvoker implements ChannelHandlerInvoker {
                 dctx.invokeChannelWritableStateChangedTask = task = new Runnable() {
                     @Override
                     public void run() {
-                        invokeChannelWritabilityChangedNow(ctx);
+                        if (isCurrent(executor, ctx)) {
+                            invokeChannelWritabilityChangedNow(ctx);
+                        } else {
+                            ctx.invoker().invokeChannelWritabilityChanged(ctx);
+                        }
                     }
                 };
             }
@@ -217,7 +261,11 @@ public class DefaultChannelHandlerInvoker implements ChannelHandlerInvoker {
             safeExecuteOutbound(new OneTimeTask() {
                 @Override
                 public void run() {
-                    invokeBindNow(ctx, localAddress, promise);
+                    if (isCurrent(executor, ctx)) {
+                        invokeBindNow(ctx, localAddress, promise);
+                    } else {
+                        ctx.invoker().invokeBind(ctx, localAddress, promise);
+                    }
                 }
             }, promise);
         }
@@ -241,7 +289,11 @@ public class DefaultChannelHandlerInvoker implements ChannelHandlerInvoker {
             safeExecuteOutbound(new OneTimeTask() {
                 @Override
                 public void run() {
-                    invokeConnectNow(ctx, remoteAddress, localAddress, promise);
+                    if (isCurrent(executor, ctx)) {
+                        invokeConnectNow(ctx, remoteAddress, localAddress, promise);
+                    } else {
+                        ctx.invoker().invokeConnect(ctx, remoteAddress, localAddress, promise);
+                    }
                 }
             }, promise);
         }
@@ -260,7 +312,11 @@ public class DefaultChannelHandlerInvoker implements ChannelHandlerInvoker {
             safeExecuteOutbound(new OneTimeTask() {
                 @Override
                 public void run() {
-                    invokeDisconnectNow(ctx, promise);
+                    if (isCurrent(executor, ctx)) {
+                        invokeDisconnectNow(ctx, promise);
+                    } else {
+                        ctx.invoker().invokeDisconnect(ctx, promise);
+                    }
                 }
             }, promise);
         }
@@ -279,7 +335,11 @@ public class DefaultChannelHandlerInvoker implements ChannelHandlerInvoker {
             safeExecuteOutbound(new OneTimeTask() {
                 @Override
                 public void run() {
-                    invokeCloseNow(ctx, promise);
+                    if (isCurrent(executor, ctx)) {
+                        invokeCloseNow(ctx, promise);
+                    } else {
+                        ctx.invoker().invokeClose(ctx, promise);
+                    }
                 }
             }, promise);
         }
@@ -298,7 +358,11 @@ public class DefaultChannelHandlerInvoker implements ChannelHandlerInvoker {
             safeExecuteOutbound(new OneTimeTask() {
                 @Override
                 public void run() {
-                    invokeDeregisterNow(ctx, promise);
+                    if (isCurrent(executor, ctx)) {
+                        invokeDeregisterNow(ctx, promise);
+                    } else {
+                        ctx.invoker().invokeDeregister(ctx, promise);
+                    }
                 }
             }, promise);
         }
@@ -315,7 +379,11 @@ public class DefaultChannelHandlerInvoker implements ChannelHandlerInvoker {
                 dctx.invokeReadTask = task = new Runnable() {
                     @Override
                     public void run() {
-                        invokeReadNow(ctx);
+                        if (isCurrent(executor, ctx)) {
+                            invokeReadNow(ctx);
+                        } else {
+                            ctx.invoker().invokeRead(ctx);
+                        }
                     }
                 };
             }
@@ -356,7 +424,11 @@ public class DefaultChannelHandlerInvoker implements ChannelHandlerInvoker {
                 dctx.invokeFlushTask = task = new Runnable() {
                     @Override
                     public void run() {
-                        invokeFlushNow(ctx);
+                        if (isCurrent(executor, ctx)) {
+                            invokeFlushNow(ctx);
+                        } else {
+                            ctx.invoker().invokeFlush(ctx);
+                        }
                     }
                 };
             }
@@ -364,6 +436,15 @@ public class DefaultChannelHandlerInvoker implements ChannelHandlerInvoker {
         }
     }
 
+    /**
+     * Returns {@code true} if a task which was submitted to the given {@link EventExecutor} can be run directly, which
+     * is not the case anymore if the {@link Channel} was moved to another {@link EventLoop} in the meantime.
+     */
+    private static boolean isCurrent(EventExecutor executor, ChannelHandlerContext ctx) {
+        EventExecutor current = ctx.executor();
+        return current == executor || current.inEventLoop();
+    }
+
     private void safeExecuteInbound(Runnable task, Object msg) {
         boolean success = false;
         try {
@@ -453,7 +534,13 @@ public class DefaultChannelHandlerInvoker implements ChannelHandlerInvoker {
                 if (ESTIMATE_TASK_SIZE_ON_SUBMIT && buffer != null) {
                     buffer.decrementPendingOutboundBytes(size);
                 }
-                invokeWriteNow(ctx, msg, promise);
+                // The task runs on the EventExecutor it was submitted to, so if that is not the one of the
+                // context anymore the Channel was moved in the meantime.
+                if (ctx.executor().inEventLoop()) {
+                    invokeWriteNow(ctx, msg, promise);
+                } else {
+                    ctx.invoker().invokeWrite(ctx, msg, promise);
+                }
             } finally {
                 // Set to null so the GC can collect them directly
                 ctx = null;
@@ -16,6 +16,7 @@
 package io.netty.channel;
 
 import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.RejectedExecutionHandler;
 
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
@@ -46,12 +47,17 @@ public class DefaultEventLoop extends SingleThreadEventLoop {
         super(parent, executor, true);
     }
 
+    public DefaultEventLoop(EventLoopGroup parent, Executor executor, int maxPendingTasks,
+                            RejectedExecutionHandler rejectedExecutionHandler) {
+        super(parent, executor, true, maxPendingTasks, rejectedExecutionHandler);
+    }
+
     @Override
     protected void run() {
         for (;;) {
             Runnable task = takeTask();
             if (task != null) {
-                task.run();
+                runTask(task);
                 updateLastExecutionTime();
             }
 
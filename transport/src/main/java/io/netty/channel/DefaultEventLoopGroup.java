@@ -15,6 +15,10 @@
  */
 package io.netty.channel;
 
+import io.netty.util.concurrent.EventExecutorChooserFactory;
+import io.netty.util.concurrent.RejectedExecutionHandler;
+import io.netty.util.concurrent.RejectedExecutionHandlers;
+
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
 
@@ -46,11 +50,37 @@ public class DefaultEventLoopGroup extends MultithreadEventLoopGroup {
      * @param threadFactory     the {@link ThreadFactory} or {@code null} to use the default
      */
     public DefaultEventLoopGroup(int nThreads, ThreadFactory threadFactory) {
-        super(nThreads, threadFactory);
+        this(nThreads, threadFactory, SingleThreadEventLoop.DEFAULT_MAX_PENDING_TASKS,
+                RejectedExecutionHandlers.reject());
+    }
+
+    /**
+     * Create a new instance
+     *
+     * @param nThreads          the number of threads to use
+     * @param threadFactory     the {@link ThreadFactory} or {@code null} to use the default
+     * @param maxPendingTasks   the maximum number of pending tasks before new tasks will be rejected.
+     * @param rejectedHandler   the {@link RejectedExecutionHandler} to use.
+     */
+    public DefaultEventLoopGroup(int nThreads, ThreadFactory threadFactory, int maxPendingTasks,
+                                 RejectedExecutionHandler rejectedHandler) {
+        super(nThreads, threadFactory, maxPendingTasks, rejectedHandler);
+    }
+
+    /**
+     * Create a new instance
+     *
+     * @param nThreads          the number of threads to use
+     * @param executor          the {@link Executor} or {@code null} to use the default
+     * @param chooserFactory    the {@link EventExecutorChooserFactory} to use.
+     */
+    public DefaultEventLoopGroup(int nThreads, Executor executor, EventExecutorChooserFactory chooserFactory) {
+        super(nThreads, executor, chooserFactory, SingleThreadEventLoop.DEFAULT_MAX_PENDING_TASKS,
+                RejectedExecutionHandlers.reject());
     }
 
     @Override
     protected EventLoop newChild(Executor executor, Object... args) throws Exception {
-        return new DefaultEventLoop(this, executor);
+        return new DefaultEventLoop(this, executor, (Integer) args[0], (RejectedExecutionHandler) args[1]);
     }
 }
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorMetrics;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rebalances long-lived {@link Channel}s between the {@link EventLoop}s of an {@link EventLoopGroup} by using
+ * {@link ChannelMigration}.
+ * <p>
+ * Each call of {@link #rebalance()} compares the {@link #load(EventLoop)} of the busiest and the idlest
+ * {@link EventLoop} and moves one of the tracked {@link Channel}s from the former to the latter if the difference
+ * exceeds the threshold. By default the load of an {@link EventLoop} is the percentage of time it was busy
+ * processing I/O or tasks since the previous call of {@link #rebalance()}, as reported by its
+ * {@link EventExecutorMetrics}. The metrics of all {@link SingleThreadEventLoop}s of the group are enabled for this.
+ */
+public class EventLoopBalancer {
+
+    private final EventLoopGroup group;
+    private final Iterable<? extends Channel> channels;
+    private final long threshold;
+    // The busy time and System.nanoTime() of each EventLoop when load(EventLoop) was called the last time.
+    private final Map<EventLoop, long[]> lastSamples = new IdentityHashMap<EventLoop, long[]>();
+
+    /**
+     * Creates a new instance which moves a {@link Channel} once the busy time of two {@link EventLoop}s differs by
+     * more than 10 percent.
+     *
+     * @param group     the {@link EventLoopGroup} whose {@link EventLoop}s are balanced
+     * @param channels  the {@link Channel}s which may be moved, for example a
+     *                  {@link io.netty.channel.group.ChannelGroup} that contains all accepted {@link Channel}s
+     */
+    public EventLoopBalancer(EventLoopGroup group, Iterable<? extends Channel> channels) {
+        this(group, channels, 10);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param group     the {@link EventLoopGroup} whose {@link EventLoop}s are balanced
+     * @param channels  the {@link Channel}s which may be moved
+     * @param threshold the difference of {@link #load(EventLoop)} above which a {@link Channel} is moved, which is
+     *                  in percent of busy time unless {@link #load(EventLoop)} is overridden
+     */
+    public EventLoopBalancer(EventLoopGroup group, Iterable<? extends Channel> channels, long threshold) {
+        if (group == null) {
+            throw new NullPointerException("group");
+        }
+        if (channels == null) {
+            throw new NullPointerException("channels");
+        }
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold: " + threshold + " (expected: >= 0)");
+        }
+        this.group = group;
+        this.channels = channels;
+        this.threshold = threshold;
+
+        for (EventExecutor e: group.<EventExecutor>children()) {
+            if (e instanceof SingleThreadEventLoop) {
+                SingleThreadEventLoop loop = (SingleThreadEventLoop) e;
+                if (loop.metrics() == null) {
+                    loop.setMetricsEnabled(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calls {@link #rebalance()} periodically on the given {@link EventExecutor} until the returned
+     * {@link ScheduledFuture} is cancelled.
+     */
+    public ScheduledFuture<?> start(EventExecutor executor, long interval, TimeUnit unit) {
+        if (executor == null) {
+            throw new NullPointerException("executor");
+        }
+        return executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                rebalance();
+            }
+        }, interval, interval, unit);
+    }
+
+    /**
+     * Moves at most one {@link Channel} from the busiest to the idlest {@link EventLoop}. Returns the
+     * {@link ChannelFuture} of the migration, or {@code null} if the {@link EventLoop}s are balanced already.
+     */
+    public synchronized ChannelFuture rebalance() {
+        EventLoop busiest = null;
+        EventLoop idlest = null;
+        long maxLoad = Long.MIN_VALUE;
+        long minLoad = Long.MAX_VALUE;
+        for (EventExecutor e: group.<EventExecutor>children()) {
+            if (!(e instanceof EventLoop) || e.isShuttingDown()) {
+                continue;
+            }
+            EventLoop loop = (EventLoop) e;
+            long load = load(loop);
+            if (load > maxLoad) {
+                maxLoad = load;
+                busiest = loop;
+            }
+            if (load < minLoad) {
+                minLoad = load;
+                idlest = loop;
+            }
+        }
+        if (busiest == null || busiest == idlest || maxLoad - minLoad <= threshold) {
+            return null;
+        }
+
+        for (Channel ch: channels) {
+            if (ch.isRegistered() && ch.isOpen() && ch.eventLoop() == busiest) {
+                return ChannelMigration.migrate(ch, idlest);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the current load of the given {@link EventLoop}. This method is called from the thread which calls
+     * {@link #rebalance()} and so must not block. By default this is the percentage of time the {@link EventLoop}
+     * was busy since the previous call, or {@code 0} for the first call. Sub-classes may use another metric, like
+     * {@link SingleThreadEventLoop#registeredChannels()}.
+     */
+    protected long load(EventLoop loop) {
+        if (!(loop instanceof SingleThreadEventLoop)) {
+            return 0;
+        }
+        EventExecutorMetrics metrics = ((SingleThreadEventLoop) loop).metrics();
+        if (metrics == null) {
+            // Metrics were disabled by the user again.
+            return 0;
+        }
+        long busyNanos = metrics.busyNanos();
+        long nowNanos = System.nanoTime();
+        long[] sample = lastSamples.get(loop);
+        if (sample == null) {
+            lastSamples.put(loop, new long[] { busyNanos, nowNanos });
+            return 0;
+        }
+        long elapsedNanos = nowNanos - sample[1];
+        long load = elapsedNanos <= 0 ? 0 : (busyNanos - sample[0]) * 100 / elapsedNanos;
+        sample[0] = busyNanos;
+        sample[1] = nowNanos;
+        return load;
+    }
+}
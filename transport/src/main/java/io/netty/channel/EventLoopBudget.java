@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Explicit time budgets for the phases of an I/O {@link EventLoop} iteration, which can be used instead of the
+ * {@code ioRatio} of the NIO and epoll transports.
+ * <p>
+ * With an {@code ioRatio} the time given to tasks depends on how long the I/O took, so a burst of tiny tasks can
+ * still starve I/O and a long I/O phase delays timers. With a budget each iteration:
+ * <ol>
+ *     <li>processes ready I/O events until they are all processed or the I/O budget is used up, the remaining
+ *     events are processed in the next iteration before waiting for new events,</li>
+ *     <li>runs expired scheduled tasks until the scheduled task budget is used up,</li>
+ *     <li>runs the other tasks until the task budget is used up.</li>
+ * </ol>
+ * The budgets are checked every {@link #checkInterval()} I/O events or tasks, so a single long running task or
+ * read may still exceed them.
+ */
+public final class EventLoopBudget {
+
+    /**
+     * The default number of I/O events or tasks after which the budget is checked.
+     */
+    public static final int DEFAULT_CHECK_INTERVAL = 64;
+
+    private final long ioBudgetNanos;
+    private final long taskBudgetNanos;
+    private final long scheduledTaskBudgetNanos;
+    private final int checkInterval;
+
+    /**
+     * Creates a new instance which checks the budgets every {@link #DEFAULT_CHECK_INTERVAL} I/O events or tasks.
+     */
+    public EventLoopBudget(long ioBudget, long taskBudget, long scheduledTaskBudget, TimeUnit unit) {
+        this(ioBudget, taskBudget, scheduledTaskBudget, unit, DEFAULT_CHECK_INTERVAL);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param ioBudget              the maximal time to spend processing I/O events per iteration
+     * @param taskBudget            the maximal time to spend running tasks per iteration
+     * @param scheduledTaskBudget   the maximal time to spend running expired scheduled tasks per iteration
+     * @param unit                  the {@link TimeUnit} of the budgets
+     * @param checkInterval         the number of I/O events or tasks after which the budget is checked
+     */
+    public EventLoopBudget(long ioBudget, long taskBudget, long scheduledTaskBudget, TimeUnit unit,
+                           int checkInterval) {
+        if (unit == null) {
+            throw new NullPointerException("unit");
+        }
+        if (ioBudget <= 0) {
+            throw new IllegalArgumentException("ioBudget: " + ioBudget + " (expected: > 0)");
+        }
+        if (taskBudget <= 0) {
+            throw new IllegalArgumentException("taskBudget: " + taskBudget + " (expected: > 0)");
+        }
+        if (scheduledTaskBudget <= 0) {
+            throw new IllegalArgumentException("scheduledTaskBudget: " + scheduledTaskBudget + " (expected: > 0)");
+        }
+        if (checkInterval <= 0) {
+            throw new IllegalArgumentException("checkInterval: " + checkInterval + " (expected: > 0)");
+        }
+        ioBudgetNanos = unit.toNanos(ioBudget);
+        taskBudgetNanos = unit.toNanos(taskBudget);
+        scheduledTaskBudgetNanos = unit.toNanos(scheduledTaskBudget);
+        this.checkInterval = checkInterval;
+    }
+
+    /**
+     * Returns the maximal time in nanoseconds to spend processing I/O events per iteration.
+     */
+    public long ioBudgetNanos() {
+        return ioBudgetNanos;
+    }
+
+    /**
+     * Returns the maximal time in nanoseconds to spend running tasks per iteration.
+     */
+    public long taskBudgetNanos() {
+        return taskBudgetNanos;
+    }
+
+    /**
+     * Returns the maximal time in nanoseconds to spend running expired scheduled tasks per iteration.
+     */
+    public long scheduledTaskBudgetNanos() {
+        return scheduledTaskBudgetNanos;
+    }
+
+    /**
+     * Returns the number of I/O events or tasks after which the budget is checked.
+     */
+    public int checkInterval() {
+        return checkInterval;
+    }
+
+    @Override
+    public String toString() {
+        return "EventLoopBudget(io: " + ioBudgetNanos + "ns, tasks: " + taskBudgetNanos +
+                "ns, scheduled tasks: " + scheduledTaskBudgetNanos + "ns, check interval: " + checkInterval + ')';
+    }
+}
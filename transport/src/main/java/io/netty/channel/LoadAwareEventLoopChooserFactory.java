@@ -0,0 +1,45 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.LoadAwareEventExecutorChooserFactory;
+
+/**
+ * {@link LoadAwareEventExecutorChooserFactory} for {@link EventLoopGroup}s which uses the number of registered
+ * {@link Channel}s of a {@link SingleThreadEventLoop} as its load, and the number of pending tasks to break ties.
+ * <p>
+ * As {@link MultithreadEventLoopGroup#register(Channel)} uses the chooser of the group, an
+ * {@link EventLoopGroup} which was created with this factory and is used as child group of a
+ * {@link io.netty.bootstrap.ServerBootstrap} will register accepted {@link Channel}s to the less loaded
+ * {@link EventLoop}s.
+ */
+public final class LoadAwareEventLoopChooserFactory extends LoadAwareEventExecutorChooserFactory {
+
+    public static final LoadAwareEventLoopChooserFactory INSTANCE = new LoadAwareEventLoopChooserFactory();
+
+    private LoadAwareEventLoopChooserFactory() { }
+
+    @Override
+    protected long load(EventExecutor executor) {
+        if (executor instanceof SingleThreadEventLoop) {
+            SingleThreadEventLoop loop = (SingleThreadEventLoop) executor;
+            return ((long) loop.registeredChannels() << 32) + loop.pendingTasks();
+        }
+        return super.load(executor);
+    }
+}
@@ -18,6 +18,7 @@ package io.netty.channel.nio;
 
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelException;
+import io.netty.channel.EventLoopBudget;
 import io.netty.channel.EventLoopException;
 import io.netty.channel.SingleThreadEventLoop;
 import io.netty.util.internal.PlatformDependent;
@@ -107,9 +108,15 @@ public final class NioEventLoop extends SingleThreadEventLoop {
     private final AtomicBoolean wakenUp = new AtomicBoolean();
 
     private volatile int ioRatio = 50;
+    private volatile EventLoopBudget budget;
+    private volatile long busySpinNanos;
     private int cancelledKeys;
     private boolean needsToSelectAgain;
 
+    // Selected keys which were not processed yet because the I/O budget of the last iteration was used up.
+    private SelectionKey[] pendingSelectedKeys;
+    private int pendingSelectedKeysIndex;
+
     NioEventLoop(NioEventLoopGroup parent, Executor executor, SelectorProvider selectorProvider) {
         super(parent, executor, false);
         if (selectorProvider == null) {
@@ -162,9 +169,10 @@ public final class NioEventLoop extends SingleThreadEventLoop {
     }
 
     @Override
-    protected Queue<Runnable> newTaskQueue() {
+    protected Queue<Runnable> newTaskQueue(int maxPendingTasks) {
         // This event loop never calls takeTask()
-        return PlatformDependent.newMpscQueue();
+        return maxPendingTasks == Integer.MAX_VALUE ? PlatformDependent.<Runnable>newMpscQueue()
+                                                    : PlatformDependent.<Runnable>newFixedMpscQueue(maxPendingTasks);
     }
 
     /**
@@ -216,6 +224,45 @@ public final class NioEventLoop extends SingleThreadEventLoop {
         this.ioRatio = ioRatio;
     }
 
+    /**
+     * Returns the {@link EventLoopBudget} of this event loop, or {@code null} if the {@code ioRatio} is used.
+     */
+    public EventLoopBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * Sets the {@link EventLoopBudget} which is used instead of the {@code ioRatio} to bound the time spent for I/O,
+     * tasks and scheduled tasks in each iteration, or {@code null} to use the {@code ioRatio} again.
+     * The I/O budget is only applied if the optimized selected key set is used.
+     */
+    public void setBudget(EventLoopBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Returns the time in nanoseconds this event loop busy spins on {@link Selector#selectNow()} before it blocks
+     * in {@link Selector#select(long)}. {@code 0} means busy spinning is disabled.
+     */
+    public long getBusySpinNanos() {
+        return busySpinNanos;
+    }
+
+    /**
+     * Sets the time this event loop busy spins on {@link Selector#selectNow()} before it blocks in
+     * {@link Selector#select(long)}. Busy spinning trades CPU time for lower wake-up latency. Use {@code 0} to
+     * disable busy spinning and {@link Long#MAX_VALUE} to never block at all.
+     */
+    public void setBusySpin(long busySpin, TimeUnit unit) {
+        if (unit == null) {
+            throw new NullPointerException("unit");
+        }
+        if (busySpin < 0) {
+            throw new IllegalArgumentException("busySpin: " + busySpin + " (expected: >= 0)");
+        }
+        busySpinNanos = busySpin == Long.MAX_VALUE ? Long.MAX_VALUE : unit.toNanos(busySpin);
+    }
+
     /**
      * Replaces the current {@link Selector} of this event loop with newly created {@link Selector}s to work
      * around the infamous epoll 100% CPU bug.
@@ -285,6 +332,8 @@ public final class NioEventLoop extends SingleThreadEventLoop {
         }
 
         selector = newSelector;
+        // The keys of the old Selector were cancelled above.
+        pendingSelectedKeys = null;
 
         try {
             // time to close the old selector as everything else is registered to the new one
@@ -303,57 +352,86 @@ public final class NioEventLoop extends SingleThreadEventLoop {
         for (;;) {
             boolean oldWakenUp = wakenUp.getAndSet(false);
             try {
-                if (hasTasks()) {
-                    selectNow();
-                } else {
-                    select(oldWakenUp);
-
-                    // 'wakenUp.compareAndSet(false, true)' is always evaluated
-                    // before calling 'selector.wakeup()' to reduce the wake-up
-                    // overhead. (Selector.wakeup() is an expensive operation.)
-                    //
-                    // However, there is a race condition in this approach.
-                    // The race condition is triggered when 'wakenUp' is set to
-                    // true too early.
-                    //
-                    // 'wakenUp' is set to true too early if:
-                    // 1) Selector is waken up between 'wakenUp.set(false)' and
-                    //    'selector.select(...)'. (BAD)
-                    // 2) Selector is waken up between 'selector.select(...)' and
-                    //    'if (wakenUp.get()) { ... }'. (OK)
-                    //
-                    // In the first case, 'wakenUp' is set to true and the
-                    // following 'selector.select(...)' will wake up immediately.
-                    // Until 'wakenUp' is set to false again in the next round,
-                    // 'wakenUp.compareAndSet(false, true)' will fail, and therefore
-                    // any attempt to wake up the Selector will fail, too, causing
-                    // the following 'selector.select(...)' call to block
-                    // unnecessarily.
-                    //
-                    // To fix this problem, we wake up the selector again if wakenUp
-                    // is true immediately after selector.select(...).
-                    // It is inefficient in that it wakes up the selector for both
-                    // the first case (BAD - wake-up required) and the second case
-                    // (OK - no wake-up required).
-
-                    if (wakenUp.get()) {
-                        selector.wakeup();
+                final EventLoopBudget budget = this.budget;
+                final boolean recordMetrics = isMetricsEnabled();
+                final long selectStartTime = recordMetrics ? System.nanoTime() : 0;
+                // The keys which are left from the last iteration are processed before selecting again.
+                if (pendingSelectedKeys == null) {
+                    if (hasTasks()) {
+                        selectNow();
+                        cancelledKeys = 0;
+                        needsToSelectAgain = false;
+                    } else if (busySpinNanos > 0 && busySpin(busySpinNanos)) {
+                        cancelledKeys = 0;
+                        needsToSelectAgain = false;
+                    } else {
+                        select(oldWakenUp);
+
+                        // 'wakenUp.compareAndSet(false, true)' is always evaluated
+                        // before calling 'selector.wakeup()' to reduce the wake-up
+                        // overhead. (Selector.wakeup() is an expensive operation.)
+                        //
+                        // However, there is a race condition in this approach.
+                        // The race condition is triggered when 'wakenUp' is set to
+                        // true too early.
+                        //
+                        // 'wakenUp' is set to true too early if:
+                        // 1) Selector is waken up between 'wakenUp.set(false)' and
+                        //    'selector.select(...)'. (BAD)
+                        // 2) Selector is waken up between 'selector.select(...)' and
+                        //    'if (wakenUp.get()) { ... }'. (OK)
+                        //
+                        // In the first case, 'wakenUp' is set to true and the
+                        // following 'selector.select(...)' will wake up immediately.
+                        // Until 'wakenUp' is set to false again in the next round,
+                        // 'wakenUp.compareAndSet(false, true)' will fail, and therefore
+                        // any attempt to wake up the Selector will fail, too, causing
+                        // the following 'selector.select(...)' call to block
+                        // unnecessarily.
+                        //
+                        // To fix this problem, we wake up the selector again if wakenUp
+                        // is true immediately after selector.select(...).
+                        // It is inefficient in that it wakes up the selector for both
+                        // the first case (BAD - wake-up required) and the second case
+                        // (OK - no wake-up required).
+
+                        if (wakenUp.get()) {
+                            selector.wakeup();
+                        }
+                        cancelledKeys = 0;
+                        needsToSelectAgain = false;
                     }
                 }
 
-                cancelledKeys = 0;
-                needsToSelectAgain = false;
                 final int ioRatio = this.ioRatio;
-                if (ioRatio == 100) {
+                if (budget != null) {
+                    final long ioStartTime = System.nanoTime();
+                    if (recordMetrics) {
+                        recordIoWaitTime(ioStartTime - selectStartTime);
+                    }
+
+                    processSelectedKeys(ioStartTime + budget.ioBudgetNanos(), budget.checkInterval());
+
+                    recordIoProcessingTime(System.nanoTime() - ioStartTime);
+                    runAllTasks(budget.taskBudgetNanos(), budget.scheduledTaskBudgetNanos(), budget.checkInterval());
+                } else if (ioRatio == 100 && !recordMetrics) {
                     processSelectedKeys();
                     runAllTasks();
                 } else {
                     final long ioStartTime = System.nanoTime();
+                    if (recordMetrics) {
+                        recordIoWaitTime(ioStartTime - selectStartTime);
+                    }
 
                     processSelectedKeys();
 
                     final long ioTime = System.nanoTime() - ioStartTime;
-                    runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
+                    recordIoProcessingTime(ioTime);
+                    if (ioRatio == 100) {
+                        runAllTasks();
+                    } else {
+                        runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
+                    }
                 }
 
                 if (isShuttingDown()) {
@@ -377,8 +455,18 @@ public final class NioEventLoop extends SingleThreadEventLoop {
     }
 
     private void processSelectedKeys() {
+        processSelectedKeys(Long.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    private void processSelectedKeys(long deadline, int checkInterval) {
         if (selectedKeys != null) {
-            processSelectedKeysOptimized(selectedKeys.flip());
+            SelectionKey[] keys = pendingSelectedKeys;
+            if (keys != null) {
+                pendingSelectedKeys = null;
+                processSelectedKeysOptimized(keys, pendingSelectedKeysIndex, deadline, checkInterval);
+            } else {
+                processSelectedKeysOptimized(selectedKeys.flip(), 0, deadline, checkInterval);
+            }
         } else {
             processSelectedKeysPlain(selector.selectedKeys());
         }
@@ -451,8 +539,10 @@ public final class NioEventLoop extends SingleThreadEventLoop {
         }
     }
 
-    private void processSelectedKeysOptimized(SelectionKey[] selectedKeys) {
-        for (int i = 0;; i ++) {
+    private void processSelectedKeysOptimized(
+            SelectionKey[] selectedKeys, int startIndex, long deadline, int checkInterval) {
+        int processed = 0;
+        for (int i = startIndex;; i ++) {
             final SelectionKey k = selectedKeys[i];
             if (k == null) {
                 break;
@@ -490,13 +580,28 @@ public final class NioEventLoop extends SingleThreadEventLoop {
                 // See https://github.com/netty/netty/issues/1523
                 selectedKeys = this.selectedKeys.flip();
                 i = -1;
+            } else if (++processed == checkInterval) {
+                processed = 0;
+                if (System.nanoTime() >= deadline) {
+                    if (selectedKeys[i + 1] != null) {
+                        // The I/O budget is used up, continue with the remaining keys in the next iteration.
+                        pendingSelectedKeys = selectedKeys;
+                        pendingSelectedKeysIndex = i + 1;
+                    }
+                    break;
+                }
             }
         }
     }
 
-    private static void processSelectedKey(SelectionKey k, AbstractNioChannel ch) {
+    private void processSelectedKey(SelectionKey k, AbstractNioChannel ch) {
         final AbstractNioChannel.NioUnsafe unsafe = ch.unsafe();
         if (!k.isValid()) {
+            if (ch.eventLoop() != this) {
+                // The channel was deregistered from this EventLoop and may be registered to another one by now,
+                // so the key was cancelled on purpose and the channel must not be closed.
+                return;
+            }
             // close the channel if the key is not valid anymore
             unsafe.close(unsafe.voidPromise());
             return;
@@ -602,6 +707,38 @@ public final class NioEventLoop extends SingleThreadEventLoop {
         }
     }
 
+    /**
+     * Polls the {@link Selector} without blocking until something was selected, a task is ready for processing or
+     * the given time elapsed, but never past the deadline of the next scheduled task. Returns {@code true} if there
+     * is work to do and so the blocking select can be skipped.
+     */
+    private boolean busySpin(long spinNanos) throws IOException {
+        // Claim the wake-up flag while spinning so other threads will not call the expensive Selector.wakeup().
+        if (!wakenUp.compareAndSet(false, true)) {
+            return true;
+        }
+        final Selector selector = this.selector;
+        boolean ready = false;
+        try {
+            final long startTime = System.nanoTime();
+            // Stop spinning when the next scheduled task is due, so it is not delayed by the spin.
+            final long scheduledDelayNanos = nextScheduledTaskNano();
+            if (scheduledDelayNanos >= 0 && scheduledDelayNanos < spinNanos) {
+                spinNanos = scheduledDelayNanos;
+            }
+            do {
+                if (selector.selectNow() != 0 || hasTasks() || isShuttingDown()) {
+                    ready = true;
+                    break;
+                }
+            } while (System.nanoTime() - startTime < spinNanos);
+        } finally {
+            wakenUp.set(false);
+        }
+        // Check again as a task may have been added before the flag was released without waking up the Selector.
+        return ready || hasTasks() || hasScheduledTasks();
+    }
+
     private void select(boolean oldWakenUp) throws IOException {
         Selector selector = this.selector;
         try {
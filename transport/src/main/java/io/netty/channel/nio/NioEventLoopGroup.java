@@ -17,13 +17,16 @@ package io.netty.channel.nio;
 
 import io.netty.channel.Channel;
 import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopBudget;
 import io.netty.channel.MultithreadEventLoopGroup;
 import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorChooserFactory;
 
 import java.nio.channels.Selector;
 import java.nio.channels.spi.SelectorProvider;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * {@link MultithreadEventLoopGroup} implementations which is used for NIO {@link Selector} based {@link Channel}s.
@@ -72,6 +75,15 @@ public class NioEventLoopGroup extends MultithreadEventLoopGroup {
         super(nThreads, executor, selectorProvider);
     }
 
+    /**
+     * Create a new instance using the specified number of threads, the given {@link Executor}, the given
+     * {@link EventExecutorChooserFactory} and the given {@link SelectorProvider}.
+     */
+    public NioEventLoopGroup(int nThreads, Executor executor, EventExecutorChooserFactory chooserFactory,
+                             final SelectorProvider selectorProvider) {
+        super(nThreads, executor, chooserFactory, selectorProvider);
+    }
+
     /**
      * Sets the percentage of the desired amount of time spent for I/O in the child event loops.  The default value is
      * {@code 50}, which means the event loop will try to spend the same amount of time for I/O as for non-I/O tasks.
@@ -82,6 +94,27 @@ public class NioEventLoopGroup extends MultithreadEventLoopGroup {
         }
     }
 
+    /**
+     * Sets the {@link EventLoopBudget} of the child event loops, which is used instead of the {@code ioRatio} to
+     * bound the time spent for I/O, tasks and scheduled tasks in each iteration. Use {@code null} to use the
+     * {@code ioRatio} again.
+     */
+    public void setBudget(EventLoopBudget budget) {
+        for (EventExecutor e: children()) {
+            ((NioEventLoop) e).setBudget(budget);
+        }
+    }
+
+    /**
+     * Sets the time the child event loops busy spin on {@link Selector#selectNow()} before they block.
+     * Use {@code 0} to disable busy spinning and {@link Long#MAX_VALUE} to never block at all.
+     */
+    public void setBusySpin(long busySpin, TimeUnit unit) {
+        for (EventExecutor e: children()) {
+            ((NioEventLoop) e).setBusySpin(busySpin, unit);
+        }
+    }
+
     /**
      * Replaces the current {@link Selector}s of the child event loops with newly created {@link Selector}s to work
      * around the  infamous epoll 100% CPU bug.
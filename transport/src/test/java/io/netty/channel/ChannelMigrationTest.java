@@ -0,0 +1,192 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ChannelMigrationTest {
+
+    private static NioEventLoopGroup group;
+
+    @BeforeClass
+    public static void createGroup() {
+        group = new NioEventLoopGroup(2);
+    }
+
+    @AfterClass
+    public static void destroyGroup() {
+        group.shutdownGracefully();
+    }
+
+    @Test(timeout = 10000)
+    public void testMigrateAcceptedChannel() throws Exception {
+        final BlockingQueue<Channel> accepted = new LinkedBlockingQueue<Channel>();
+        final BlockingQueue<String> received = new LinkedBlockingQueue<String>();
+        Channel server = new ServerBootstrap().group(group).channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+                        accepted.add(ctx.channel());
+                        ctx.fireChannelActive();
+                    }
+
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+                        // Handlers must be invoked by the EventLoop the channel is registered to now.
+                        assertTrue(ctx.channel().eventLoop().inEventLoop());
+                        ctx.writeAndFlush(msg);
+                    }
+                }).bind(new InetSocketAddress("127.0.0.1", 0)).syncUninterruptibly().channel();
+        Channel client = new Bootstrap().group(group).channel(NioSocketChannel.class)
+                .handler(new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+                        ByteBuf buf = (ByteBuf) msg;
+                        received.add(buf.toString(CharsetUtil.US_ASCII));
+                        buf.release();
+                    }
+                }).connect(server.localAddress()).syncUninterruptibly().channel();
+        try {
+            Channel child = accepted.take();
+            EventLoop oldLoop = child.eventLoop();
+            EventLoop newLoop = otherLoop(oldLoop);
+
+            ChannelMigration.migrate(child, newLoop).syncUninterruptibly();
+            assertSame(newLoop, child.eventLoop());
+            assertTrue(child.isOpen());
+            assertTrue(child.isRegistered());
+
+            client.writeAndFlush(Unpooled.copiedBuffer("ping", CharsetUtil.US_ASCII)).syncUninterruptibly();
+            StringBuilder echo = new StringBuilder();
+            while (echo.length() < 4) {
+                String s = received.poll(5, TimeUnit.SECONDS);
+                assertNotNull(s);
+                echo.append(s);
+            }
+            assertEquals("ping", echo.toString());
+        } finally {
+            client.close().syncUninterruptibly();
+            server.close().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testMigrateUnregisteredChannelFails() {
+        ChannelFuture future = ChannelMigration.migrate(new NioSocketChannel(), group.next());
+        assertTrue(future.awaitUninterruptibly().cause() instanceof IllegalStateException);
+    }
+
+    @Test(timeout = 10000)
+    public void testBalancer() throws Exception {
+        Iterator<EventLoop> loops = group.<EventLoop>children().iterator();
+        SingleThreadEventLoop busy = (SingleThreadEventLoop) loops.next();
+        SingleThreadEventLoop idle = (SingleThreadEventLoop) loops.next();
+
+        ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+        for (int i = 0; i < 4; i++) {
+            Channel ch = new NioSocketChannel();
+            busy.register(ch).syncUninterruptibly();
+            channels.add(ch);
+        }
+        try {
+            EventLoopBalancer balancer = new EventLoopBalancer(group, channels, 1) {
+                @Override
+                protected long load(EventLoop loop) {
+                    return ((SingleThreadEventLoop) loop).registeredChannels();
+                }
+            };
+            ChannelFuture future;
+            while ((future = balancer.rebalance()) != null) {
+                future.syncUninterruptibly();
+            }
+            assertTrue(Math.abs(busy.registeredChannels() - idle.registeredChannels()) <= 1);
+        } finally {
+            channels.close().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testBalancerUsesBusyTime() throws Exception {
+        Iterator<EventLoop> loops = group.<EventLoop>children().iterator();
+        SingleThreadEventLoop busy = (SingleThreadEventLoop) loops.next();
+        SingleThreadEventLoop idle = (SingleThreadEventLoop) loops.next();
+
+        ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+        Channel ch = new NioSocketChannel();
+        busy.register(ch).syncUninterruptibly();
+        channels.add(ch);
+        try {
+            EventLoopBalancer balancer = new EventLoopBalancer(group, channels);
+            // The first call only takes a sample of the busy time.
+            assertNull(balancer.rebalance());
+
+            busy.submit(new Runnable() {
+                @Override
+                public void run() {
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+                    while (System.nanoTime() < deadline) {
+                        // Keep the EventLoop busy.
+                    }
+                }
+            }).syncUninterruptibly();
+            // The time of a task is recorded after its future was notified, so wait for the next one.
+            busy.submit(new Runnable() {
+                @Override
+                public void run() {
+                    // NOOP
+                }
+            }).syncUninterruptibly();
+
+            ChannelFuture future = balancer.rebalance();
+            assertNotNull(future);
+            future.syncUninterruptibly();
+            assertSame(idle, ch.eventLoop());
+        } finally {
+            channels.close().syncUninterruptibly();
+        }
+    }
+
+    private static EventLoop otherLoop(EventLoop loop) {
+        for (EventLoop l: group.<EventLoop>children()) {
+            if (l != loop) {
+                return l;
+            }
+        }
+        throw new AssertionError();
+    }
+}
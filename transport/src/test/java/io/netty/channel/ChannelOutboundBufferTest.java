@@ -118,6 +118,30 @@ public class ChannelOutboundBufferTest {
         buf.release();
     }
 
+    @Test
+    public void testRemoveDeferred() {
+        TestChannel channel = new TestChannel();
+
+        ChannelOutboundBuffer buffer = new ChannelOutboundBuffer(channel);
+        assertNull(buffer.removeDeferred());
+
+        ByteBuf buf = copiedBuffer("buf1", CharsetUtil.US_ASCII);
+        ChannelPromise promise = channel.newPromise();
+        buffer.addMessage(buf, buf.readableBytes(), promise);
+        buffer.addFlush();
+        assertEquals(buf.readableBytes(), buffer.totalPendingWriteBytes());
+
+        assertSame(promise, buffer.removeDeferred());
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.totalPendingWriteBytes());
+        // Neither released nor notified, this is up to the caller now.
+        assertEquals(1, buf.refCnt());
+        assertFalse(promise.isDone());
+
+        buf.release();
+        release(buffer);
+    }
+
     private static void release(ChannelOutboundBuffer buffer) {
         for (;;) {
             if (!buffer.remove()) {
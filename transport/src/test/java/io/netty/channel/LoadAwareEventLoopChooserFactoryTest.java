@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel;
+
+import io.netty.channel.local.LocalChannel;
+import org.junit.Test;
+
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+public class LoadAwareEventLoopChooserFactoryTest {
+
+    @Test
+    public void testRegisterToLeastLoadedEventLoop() throws Exception {
+        DefaultEventLoopGroup group = new DefaultEventLoopGroup(2, null, LoadAwareEventLoopChooserFactory.INSTANCE);
+        try {
+            Iterator<EventLoop> loops = group.<EventLoop>children().iterator();
+            SingleThreadEventLoop busy = (SingleThreadEventLoop) loops.next();
+            SingleThreadEventLoop idle = (SingleThreadEventLoop) loops.next();
+
+            Channel[] channels = new Channel[3];
+            for (int i = 0; i < channels.length; i++) {
+                channels[i] = new LocalChannel();
+                busy.register(channels[i]).syncUninterruptibly();
+            }
+            assertEquals(3, busy.registeredChannels());
+            assertEquals(0, idle.registeredChannels());
+
+            for (int i = 0; i < 3; i++) {
+                Channel ch = new LocalChannel();
+                group.register(ch).syncUninterruptibly();
+                assertSame(idle, ch.eventLoop());
+            }
+            assertEquals(3, idle.registeredChannels());
+
+            for (Channel ch: channels) {
+                ch.close().syncUninterruptibly();
+            }
+            // Deregistration happens later on the EventLoop, so submit a task to wait for it.
+            busy.submit(new Runnable() {
+                @Override
+                public void run() {
+                    // NOOP
+                }
+            }).syncUninterruptibly();
+            assertEquals(0, busy.registeredChannels());
+
+            Channel ch = new LocalChannel();
+            group.register(ch).syncUninterruptibly();
+            assertSame(busy, ch.eventLoop());
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+}
@@ -15,10 +15,31 @@
  */
 package io.netty.channel.nio;
 
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.AbstractEventLoopTest;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopBudget;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.socket.ServerSocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
 
 public class NioEventLoopTest extends AbstractEventLoopTest {
 
@@ -31,4 +52,118 @@ public class NioEventLoopTest extends AbstractEventLoopTest {
     protected Class<? extends ServerSocketChannel> newChannel() {
         return NioServerSocketChannel.class;
     }
+
+    @Test(timeout = 10000)
+    public void testBudgetProcessesAllSelectedKeys() throws Exception {
+        NioEventLoopGroup group = new NioEventLoopGroup(1);
+        // Only process one selected key and one task per iteration.
+        group.setBudget(new EventLoopBudget(1, 1, 1, TimeUnit.NANOSECONDS, 1));
+        try {
+            final int clients = 16;
+            final CountDownLatch echoed = new CountDownLatch(clients);
+            Channel server = new ServerBootstrap().group(group).channel(NioServerSocketChannel.class)
+                    .childHandler(new EchoHandler())
+                    .bind(new InetSocketAddress("127.0.0.1", 0)).syncUninterruptibly().channel();
+            Bootstrap cb = new Bootstrap().group(group).channel(NioSocketChannel.class)
+                    .handler(new CountingHandler(echoed));
+            Channel[] channels = new Channel[clients];
+            for (int i = 0; i < clients; i++) {
+                channels[i] = cb.connect(server.localAddress()).syncUninterruptibly().channel();
+            }
+            for (Channel ch: channels) {
+                ByteBuf buf = Unpooled.buffer().writeByte('x');
+                ch.writeAndFlush(buf);
+            }
+            assertTrue(echoed.await(5, TimeUnit.SECONDS));
+
+            for (Channel ch: channels) {
+                ch.close().syncUninterruptibly();
+            }
+            server.close().syncUninterruptibly();
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void testBusySpinProcessesTasksAndIo() throws Exception {
+        NioEventLoopGroup group = new NioEventLoopGroup(1);
+        group.setBusySpin(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        try {
+            final CountDownLatch echoed = new CountDownLatch(1);
+            Channel server = new ServerBootstrap().group(group).channel(NioServerSocketChannel.class)
+                    .childHandler(new EchoHandler())
+                    .bind(new InetSocketAddress("127.0.0.1", 0)).syncUninterruptibly().channel();
+            Channel client = new Bootstrap().group(group).channel(NioSocketChannel.class)
+                    .handler(new CountingHandler(echoed))
+                    .connect(server.localAddress()).syncUninterruptibly().channel();
+            client.writeAndFlush(Unpooled.buffer().writeByte('x'));
+            assertTrue(echoed.await(5, TimeUnit.SECONDS));
+
+            final CountDownLatch scheduled = new CountDownLatch(1);
+            group.next().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    scheduled.countDown();
+                }
+            }, 10, TimeUnit.MILLISECONDS);
+            assertTrue(scheduled.await(5, TimeUnit.SECONDS));
+
+            client.close().syncUninterruptibly();
+            server.close().syncUninterruptibly();
+        } finally {
+            assertTrue(group.shutdownGracefully(0, 0, TimeUnit.SECONDS).await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testBusySpinDoesNotDelayScheduledTask() throws Exception {
+        NioEventLoopGroup group = new NioEventLoopGroup(1);
+        // Much longer than the delay of the task, so the spin must end at the deadline of the task.
+        group.setBusySpin(10, TimeUnit.SECONDS);
+        try {
+            final EventLoop loop = group.next();
+            final BlockingQueue<Long> late = new LinkedBlockingQueue<Long>();
+            loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    final long start = System.nanoTime();
+                    loop.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            late.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) - 50);
+                        }
+                    }, 50, TimeUnit.MILLISECONDS);
+                }
+            });
+            Long lateMillis = late.poll(5, TimeUnit.SECONDS);
+            assertNotNull(lateMillis);
+            assertTrue("late: " + lateMillis, lateMillis >= 0 && lateMillis < 1000);
+        } finally {
+            assertTrue(group.shutdownGracefully(0, 0, TimeUnit.SECONDS).await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Sharable
+    private static final class EchoHandler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ctx.writeAndFlush(msg);
+        }
+    }
+
+    @Sharable
+    private static final class CountingHandler extends ChannelInboundHandlerAdapter {
+        private final CountDownLatch latch;
+
+        CountingHandler(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ReferenceCountUtil.release(msg);
+            latch.countDown();
+        }
+    }
 }